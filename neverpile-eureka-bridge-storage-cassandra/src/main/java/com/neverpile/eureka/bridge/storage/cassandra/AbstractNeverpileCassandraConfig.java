@@ -7,7 +7,6 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.data.cassandra.config.AbstractCassandraConfiguration;
 import org.springframework.data.cassandra.config.SchemaAction;
 
-import com.neverpile.eureka.api.ObjectStoreService;
 
 public abstract class AbstractNeverpileCassandraConfig extends AbstractCassandraConfiguration {
 
@@ -47,7 +46,7 @@ public abstract class AbstractNeverpileCassandraConfig extends AbstractCassandra
 
   @Bean
   @Primary
-  public ObjectStoreService cassandraObjectStoreService() {
+  public CassandraObjectStoreService cassandraObjectStoreService() {
     return new CassandraObjectStoreService();
   }
 //
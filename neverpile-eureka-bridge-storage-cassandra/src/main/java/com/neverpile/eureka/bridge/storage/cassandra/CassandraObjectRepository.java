@@ -1,5 +1,7 @@
 package com.neverpile.eureka.bridge.storage.cassandra;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -13,6 +15,9 @@ public interface CassandraObjectRepository extends CassandraRepository<Cassandra
   @Query("select * from object where objectName = ?0 order by version DESC limit 1;")
   Optional<CassandraObject> findByObjectName(String objectName);
 
+  @Query("select * from object where objectName in ?0 per partition limit 1;")
+  List<CassandraObject> findByObjectNames(Collection<String> objectNames);
+
   @Query("delete from object where objectName = ?0 ;")
   void deleteByObjectName(String objectName);
 
@@ -3,11 +3,21 @@ package com.neverpile.eureka.bridge.storage.cassandra;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
@@ -15,17 +25,28 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.datastax.driver.core.PagingState;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.neverpile.eureka.api.AsyncObjectStoreService;
 import com.neverpile.eureka.api.ObjectStoreService;
 import com.neverpile.eureka.api.exception.VersionMismatchException;
 import com.neverpile.eureka.api.exception.VersionNotFoundException;
 import com.neverpile.eureka.model.ObjectName;
 import com.neverpile.eureka.tx.wal.TransactionWAL;
 import com.neverpile.eureka.tx.wal.TransactionWAL.TransactionalAction;
+import com.neverpile.eureka.util.RangeInputStream;
 
 import io.micrometer.core.annotation.Timed;
 
 @Service
-public class CassandraObjectStoreService implements ObjectStoreService {
+public class CassandraObjectStoreService implements ObjectStoreService, AsyncObjectStoreService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CassandraObjectStoreService.class);
 
@@ -153,11 +174,20 @@ public class CassandraObjectStoreService implements ObjectStoreService {
     private final ObjectName objectName;
     private final int chunkCount;
     private final String version;
+    private final long offset;
+    private final long length;
 
     private CassandraStoreObject(final ObjectName objectName, final String version, final int chunkCount) {
+      this(objectName, version, chunkCount, 0, -1);
+    }
+
+    private CassandraStoreObject(final ObjectName objectName, final String version, final int chunkCount,
+        final long offset, final long length) {
       this.objectName = objectName;
       this.chunkCount = chunkCount;
       this.version = version;
+      this.offset = offset;
+      this.length = length;
     }
 
     @Override
@@ -167,7 +197,11 @@ public class CassandraObjectStoreService implements ObjectStoreService {
 
     @Override
     public InputStream getInputStream() {
-      return new ChunkedCassandraInputStream(objectNameToString(objectName), Integer.parseInt(version), chunkCount);
+      if (offset == 0 && length < 0)
+        return new ChunkedCassandraInputStream(objectNameToString(objectName), Integer.parseInt(version), chunkCount);
+
+      return new RangeInputStream(new ChunkedCassandraInputStream(objectNameToString(objectName),
+          Integer.parseInt(version), chunkCount, offset), 0, length);
     }
 
     @Override
@@ -192,6 +226,38 @@ public class CassandraObjectStoreService implements ObjectStoreService {
           maxResponseQueryBatchSize).iterator();
     }
 
+    /**
+     * Create a stream starting at the given offset. All chunks but the last one have the same size,
+     * so the chunk containing the offset is determined from the size of the first chunk and the
+     * preceding chunks are never read.
+     */
+    ChunkedCassandraInputStream(final String objectName, final int version, final int totalChunkCount,
+        final long offset) {
+      this.objectName = objectName;
+      this.version = version;
+      this.totalChunkCount = totalChunkCount;
+
+      Iterator<CassandraObjectData> first = objectDataRepository.findByObjectNameAndVersion(objectName, version, 1)
+          .iterator();
+      int chunkSize = first.hasNext() ? first.next().getData().remaining() : 0;
+      long startChunk = chunkSize > 0 ? offset / chunkSize : totalChunkCount;
+
+      if (startChunk >= totalChunkCount) {
+        // the offset lies beyond the end of the object
+        this.currentChunkCount = totalChunkCount;
+        this.chunkIterator = Collections.emptyIterator();
+        return;
+      }
+
+      this.currentChunkCount = (int) startChunk;
+      this.chunkIterator = objectDataRepository.findByObjectNameAndChunkNoGreaterThanEqual(objectName, version,
+          currentChunkCount, maxResponseQueryBatchSize).iterator();
+
+      if (nextChunk()) {
+        currentChunk.position((int) Math.min(currentChunk.position() + offset % chunkSize, currentChunk.limit()));
+      }
+    }
+
     @Override
     public int read() {
       if (null == currentChunk || !currentChunk.hasRemaining())
@@ -244,6 +310,9 @@ public class CassandraObjectStoreService implements ObjectStoreService {
   @Autowired
   private CassandraPrefixRepository prefixRepository;
 
+  @Autowired
+  private Session session;
+
   /**
    * 1 MB in Bytes.
    */
@@ -423,24 +492,98 @@ public class CassandraObjectStoreService implements ObjectStoreService {
     }
 
     return prefixRepository.findPrefixes(prefix) //
-        .flatMap(p -> {
-          ObjectName objectName = p.toObjectName();
+        .flatMap(this::toStoreObjects);
+  }
 
-          return findObject(objectName) //
-              .map(o -> {
-                CassandraStoreObject storeObject = createStoreObject(o);
+  private Stream<StoreObject> toStoreObjects(final CassandraObjectPrefix p) {
+    ObjectName objectName = p.toObjectName();
 
-                // is this just an object or also another prefix?
-                int count = prefixRepository.countSuffixes(
-                    String.join(CassandraObjectPrefix.PREFIX_DELIMITER, objectName.to()));
+    return findObject(objectName) //
+        .map(o -> {
+          CassandraStoreObject storeObject = createStoreObject(o);
 
-                if (count > 0)
-                  return Stream.of(storeObject, createPrefixObject(p));
-                else
-                  return Stream.of(storeObject);
-              }) //
-              .orElse(Stream.of(createPrefixObject(p)));
-        });
+          // is this just an object or also another prefix?
+          int count = prefixRepository.countSuffixes(
+              String.join(CassandraObjectPrefix.PREFIX_DELIMITER, objectName.to()));
+
+          if (count > 0)
+            return Stream.of(storeObject, createPrefixObject(p));
+          else
+            return Stream.<StoreObject>of(storeObject);
+        }) //
+        .orElse(Stream.of(createPrefixObject(p)));
+  }
+
+  /**
+   * Retrieve a page using the clustering order of the prefix table: the continuation token is the
+   * suffix of the last entry of the previous page. If a page ends between an object and the prefix
+   * of the same name, the token is marked so that the next page starts with that prefix. The root
+   * is listed by resuming the driver's paging state instead.
+   */
+  @Override
+  @Timed(description = "list object store elements page", extraTags = {
+      "subsystem", "cassandra.object-store"
+  }, value = "eureka.cassandra.object-store.list-page")
+  public ListPage listPage(final ObjectName prefix, final String continuationToken, final int maxKeys) {
+    if (maxKeys <= 0)
+      throw new IllegalArgumentException("maxKeys must be positive");
+
+    if (prefix.to().length == 0) {
+      return listAllPage(continuationToken, maxKeys);
+    }
+
+    String prefixString = String.join(CassandraObjectPrefix.PREFIX_DELIMITER, prefix.to());
+    boolean prefixPending = null != continuationToken && continuationToken.endsWith(PREFIX_PENDING_MARKER);
+
+    // each entry yields at least one object, so one more entry than fits tells whether there are more
+    List<CassandraObjectPrefix> entries;
+    if (null == continuationToken)
+      entries = prefixRepository.findPrefixes(prefixString, maxKeys + 1);
+    else if (prefixPending)
+      entries = prefixRepository.findPrefixesFrom(prefixString,
+          continuationToken.substring(0, continuationToken.length() - PREFIX_PENDING_MARKER.length()), maxKeys + 1);
+    else
+      entries = prefixRepository.findPrefixesAfter(prefixString, continuationToken, maxKeys + 1);
+
+    List<StoreObject> objects = new ArrayList<>(maxKeys);
+    String lastSuffix = null;
+    for (CassandraObjectPrefix entry : entries) {
+      List<StoreObject> entryObjects = toStoreObjects(entry).collect(Collectors.toList());
+      if (prefixPending) {
+        // the object has been part of the previous page
+        entryObjects = entryObjects.subList(entryObjects.size() - 1, entryObjects.size());
+        prefixPending = false;
+      }
+
+      for (int i = 0; i < entryObjects.size(); i++) {
+        if (objects.size() == maxKeys)
+          return new ListPage(objects, i == 0 ? lastSuffix : entry.getSuffix() + PREFIX_PENDING_MARKER);
+
+        objects.add(entryObjects.get(i));
+      }
+      lastSuffix = entry.getSuffix();
+    }
+
+    return new ListPage(objects, null);
+  }
+
+  private ListPage listAllPage(final String continuationToken, final int maxKeys) {
+    Statement statement = new SimpleStatement("select * from object;").setFetchSize(maxKeys);
+    if (null != continuationToken)
+      statement.setPagingState(PagingState.fromString(continuationToken));
+
+    ResultSet rs = session.execute(statement);
+
+    // consume the current page only, iterating further would fetch the next one
+    List<StoreObject> objects = new ArrayList<>(rs.getAvailableWithoutFetching());
+    for (int i = rs.getAvailableWithoutFetching(); i > 0; i--) {
+      Row row = rs.one();
+      objects.add(new CassandraStoreObject(objectNameFromString(row.getString("objectName")),
+          String.valueOf(row.getInt("version")), row.getInt("dataChunkCount")));
+    }
+
+    PagingState next = rs.getExecutionInfo().getPagingState();
+    return new ListPage(objects, null != next ? next.toString() : null);
   }
 
   private CassandraStoreObject createStoreObject(final CassandraObject o) {
@@ -489,6 +632,138 @@ public class CassandraObjectStoreService implements ObjectStoreService {
     return null;
   }
 
+  /**
+   * Retrieve a range of the object. The chunks preceding the range are not fetched at all.
+   */
+  @Override
+  @Timed(description = "retrieve object store element range", extraTags = {
+      "subsystem", "cassandra.object-store"
+  }, value = "eureka.cassandra.object-store.get-range")
+  public StoreObject get(final ObjectName objectName, final long offset, final long length) {
+    if (offset < 0)
+      throw new IllegalArgumentException("Negative offset " + offset);
+
+    Optional<CassandraObject> response = findObject(objectName);
+    if (response.isPresent()) {
+      CassandraObject object = response.get();
+      return new CassandraStoreObject(objectName, String.valueOf(object.getVersion()), object.getDataChunkCount(),
+          offset, length);
+    }
+    return null;
+  }
+
+  /**
+   * Retrieve the objects using <code>IN</code> queries selecting the most recent version of each
+   * object. Each query covers at most {@link #getMaxResponseQueryBatchSize()} objects.
+   */
+  @Override
+  @Timed(description = "retrieve multiple object store elements", extraTags = {
+      "subsystem", "cassandra.object-store"
+  }, value = "eureka.cassandra.object-store.get-all")
+  public Map<ObjectName, StoreObject> getAll(final Collection<ObjectName> objectNames) {
+    Map<String, CassandraObject> found = new HashMap<>();
+    List<String> batch = new ArrayList<>(maxResponseQueryBatchSize);
+    for (ObjectName objectName : objectNames) {
+      batch.add(objectNameToString(objectName));
+      if (batch.size() >= maxResponseQueryBatchSize) {
+        objectRepository.findByObjectNames(batch).forEach(o -> found.put(o.getObjectName(), o));
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      objectRepository.findByObjectNames(batch).forEach(o -> found.put(o.getObjectName(), o));
+    }
+
+    Map<ObjectName, StoreObject> result = new LinkedHashMap<>();
+    for (ObjectName objectName : objectNames) {
+      CassandraObject object = found.get(objectNameToString(objectName));
+      if (null != object)
+        result.put(objectName,
+            new CassandraStoreObject(objectName, String.valueOf(object.getVersion()), object.getDataChunkCount()));
+    }
+    return result;
+  }
+
+  /**
+   * Look up the object using the driver's asynchronous execution. The object's data chunks are
+   * fetched lazily when its stream is read.
+   */
+  @Override
+  public CompletableFuture<StoreObject> getAsync(final ObjectName objectName) {
+    return getAsync(objectName, 0, -1);
+  }
+
+  @Override
+  public CompletableFuture<StoreObject> getAsync(final ObjectName objectName, final long offset, final long length) {
+    if (offset < 0)
+      throw new IllegalArgumentException("Negative offset " + offset);
+
+    return queryAsync(SELECT_OBJECT, objectNameToString(objectName)).thenApply(rows -> rows.isEmpty()
+        ? null
+        : new CassandraStoreObject(objectName, String.valueOf(rows.get(0).getInt("version")),
+            rows.get(0).getInt("dataChunkCount"), offset, length));
+  }
+
+  /**
+   * Look up the objects using asynchronous <code>IN</code> queries like
+   * {@link #getAll(Collection)} does. All queries are issued at once.
+   */
+  @Override
+  public CompletableFuture<Map<ObjectName, StoreObject>> getAllAsync(final Collection<ObjectName> objectNames) {
+    List<CompletableFuture<List<Row>>> futures = new ArrayList<>();
+    List<String> batch = new ArrayList<>(maxResponseQueryBatchSize);
+    for (ObjectName objectName : objectNames) {
+      batch.add(objectNameToString(objectName));
+      if (batch.size() >= maxResponseQueryBatchSize) {
+        futures.add(queryAsync(SELECT_OBJECTS, batch));
+        batch = new ArrayList<>(maxResponseQueryBatchSize);
+      }
+    }
+    if (!batch.isEmpty()) {
+      futures.add(queryAsync(SELECT_OBJECTS, batch));
+    }
+
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> {
+      Map<String, Row> found = new HashMap<>();
+      futures.forEach(f -> f.join().forEach(row -> found.put(row.getString("objectName"), row)));
+
+      Map<ObjectName, StoreObject> result = new LinkedHashMap<>();
+      for (ObjectName objectName : objectNames) {
+        Row row = found.get(objectNameToString(objectName));
+        if (null != row)
+          result.put(objectName, new CassandraStoreObject(objectName, String.valueOf(row.getInt("version")),
+              row.getInt("dataChunkCount")));
+      }
+      return result;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Boolean> checkObjectExistsAsync(final ObjectName objectName) {
+    return queryAsync(SELECT_OBJECT, objectNameToString(objectName)).thenApply(rows -> !rows.isEmpty());
+  }
+
+  /**
+   * Execute the given query using {@link Session#executeAsync(String, Object...)}. The result is
+   * completed on a driver thread. The queries used here return at most one page, so reading the
+   * rows never blocks.
+   */
+  private CompletableFuture<List<Row>> queryAsync(final String query, final Object... values) {
+    CompletableFuture<List<Row>> result = new CompletableFuture<>();
+    Futures.addCallback(session.executeAsync(query, values), new FutureCallback<ResultSet>() {
+      @Override
+      public void onSuccess(final ResultSet rs) {
+        result.complete(rs.all());
+      }
+
+      @Override
+      public void onFailure(final Throwable t) {
+        result.completeExceptionally(t);
+      }
+    }, MoreExecutors.directExecutor());
+    return result;
+  }
+
   @Override
   @Timed(description = "delete object store element", extraTags = {
       "subsystem", "cassandra.object-store"
@@ -506,8 +781,36 @@ public class CassandraObjectStoreService implements ObjectStoreService {
     return objects.isPresent();
   }
 
+  /**
+   * Retrieve the metadata from the object's row without touching its data chunks. The row doesn't
+   * record the object's length, so it is reported as unknown. The modification time is the write
+   * time of the row.
+   */
+  @Override
+  @Timed(description = "retrieve object store element metadata", extraTags = {
+      "subsystem", "cassandra.object-store"
+  }, value = "eureka.cassandra.object-store.head")
+  public ObjectHead head(final ObjectName objectName) {
+    Row row = session.execute(SELECT_OBJECT_HEAD, objectNameToString(objectName)).one();
+    if (null == row)
+      return null;
+
+    // write times are given in microseconds
+    return new ObjectHead(objectName, String.valueOf(row.getInt("version")), -1,
+        Instant.EPOCH.plus(row.getLong("modified"), ChronoUnit.MICROS));
+  }
+
   private final static String OBJECT_NAME_DELIMITER = "\t";
 
+  // marks a continuation token of a page ending between an object and the prefix of the same name
+  private final static String PREFIX_PENDING_MARKER = CassandraObjectPrefix.PREFIX_DELIMITER;
+
+  private final static String SELECT_OBJECT = "select * from object where objectName = ? order by version DESC limit 1;";
+
+  private final static String SELECT_OBJECT_HEAD = "select version, writetime(dataChunkCount) as modified from object where objectName = ? order by version DESC limit 1;";
+
+  private final static String SELECT_OBJECTS = "select * from object where objectName in ? per partition limit 1;";
+
   private static String objectNameToString(final ObjectName objectName) {
     return String.join(OBJECT_NAME_DELIMITER, objectName.to());
   }
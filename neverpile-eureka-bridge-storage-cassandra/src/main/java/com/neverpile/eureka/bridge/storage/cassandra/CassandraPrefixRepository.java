@@ -1,5 +1,6 @@
 package com.neverpile.eureka.bridge.storage.cassandra;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 import org.springframework.data.cassandra.repository.CassandraRepository;
@@ -14,6 +15,15 @@ public interface CassandraPrefixRepository extends CassandraRepository<Cassandra
   @Query("select suffix, prefix from prefix where prefix = ?0 order by suffix ASC ;")
   Stream<CassandraObjectPrefix> findPrefixes(String prefix);
 
+  @Query("select suffix, prefix from prefix where prefix = ?0 order by suffix ASC limit ?1 ;")
+  List<CassandraObjectPrefix> findPrefixes(String prefix, int limit);
+
+  @Query("select suffix, prefix from prefix where prefix = ?0 and suffix > ?1 order by suffix ASC limit ?2 ;")
+  List<CassandraObjectPrefix> findPrefixesAfter(String prefix, String startAfter, int limit);
+
+  @Query("select suffix, prefix from prefix where prefix = ?0 and suffix >= ?1 order by suffix ASC limit ?2 ;")
+  List<CassandraObjectPrefix> findPrefixesFrom(String prefix, String startAt, int limit);
+
   @Query("select count(*) from prefix where prefix = ?0 ;")
   int countSuffixes(String prefix);
   
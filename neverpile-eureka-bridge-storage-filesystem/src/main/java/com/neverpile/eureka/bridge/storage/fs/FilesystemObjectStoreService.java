@@ -10,14 +10,27 @@ import java.io.FileNotFoundException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -25,6 +38,7 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +52,7 @@ import com.neverpile.eureka.api.exception.VersionMismatchException;
 import com.neverpile.eureka.model.ObjectName;
 import com.neverpile.eureka.tx.wal.TransactionWAL;
 import com.neverpile.eureka.tx.wal.TransactionWAL.TransactionalAction;
+import com.neverpile.eureka.util.RangeInputStream;
 
 import io.micrometer.core.annotation.Timed;
 
@@ -186,11 +201,20 @@ public class FilesystemObjectStoreService implements ObjectStoreService {
     private final ObjectName objectName;
     private final File file;
     private final String version;
+    private final long offset;
+    private final long length;
 
     public FilesystemStoreObject(final ObjectName objectName, final File file, final String version) {
+      this(objectName, file, version, 0, -1);
+    }
+
+    public FilesystemStoreObject(final ObjectName objectName, final File file, final String version,
+        final long offset, final long length) {
       this.objectName = objectName;
       this.file = file;
       this.version = version;
+      this.offset = offset;
+      this.length = length;
     }
 
     @Override
@@ -201,8 +225,11 @@ public class FilesystemObjectStoreService implements ObjectStoreService {
     @Override
     public InputStream getInputStream() {
       try {
-        return new LockedFileInputStream(file);
-      } catch (FileNotFoundException e) {
+        if (offset == 0 && length < 0)
+          return new LockedFileInputStream(file);
+
+        return new RangeInputStream(new LockedFileInputStream(file, offset), 0, length);
+      } catch (IOException e) {
         throw new ObjectStoreException(objectName, "Can't retrieve object stream", e);
       }
     }
@@ -219,6 +246,19 @@ public class FilesystemObjectStoreService implements ObjectStoreService {
       this.in = new FileInputStream(file);
     }
 
+    public LockedFileInputStream(final File file, final long position) throws IOException {
+      super(null);
+      FileInputStream fis = new FileInputStream(file);
+      try {
+        // positioning beyond the end is fine: reads will just signal the end of the stream
+        fis.getChannel().position(position);
+      } catch (IOException e) {
+        fis.close();
+        throw e;
+      }
+      this.in = fis;
+    }
+
     @Override
     public void close() throws IOException {
       super.close();
@@ -244,6 +284,12 @@ public class FilesystemObjectStoreService implements ObjectStoreService {
   @Value("${neverpile-eureka.bridge.storage.filesystem.rootPath:./neverpile-eureka_default}")
   private String rootPath;
 
+  @Value("${neverpile-eureka.bridge.storage.filesystem.reader-threads:4}")
+  private int readerThreads = 4;
+
+  // reads objects for getAll() in parallel
+  private ExecutorService readerPool;
+
   private static ReadWriteLocker readWriteLocker = new SimpleReadWriteLocker();
 
   private static final String DELIMITER = FileSystems.getDefault().getSeparator();
@@ -271,6 +317,13 @@ public class FilesystemObjectStoreService implements ObjectStoreService {
         rootPathAsFile.canWrite() ? "Write, " : "", //
         rootPathAsFile.canExecute() ? "eXecute" : "");
     LOGGER.info("-----");
+
+    readerPool = Executors.newFixedThreadPool(Math.max(1, readerThreads));
+  }
+
+  @PreDestroy
+  private void destroy() {
+    readerPool.shutdown();
   }
 
   @Override
@@ -383,6 +436,58 @@ public class FilesystemObjectStoreService implements ObjectStoreService {
     }
   }
 
+  /**
+   * Retrieve a page of the directory denoted by the prefix. The continuation token is the file name
+   * of the last entry of the previous page. Since directory entries come in no particular order, the
+   * entries following it are selected in a single pass over the directory, keeping no more than a
+   * page of names in memory.
+   */
+  @Override
+  @Timed(description = "list object store elements page", extraTags = {
+      "subsystem", "filesystem.object-store"
+  }, value = "eureka.filesystem.object-store.list-page")
+  public ListPage listPage(final ObjectName prefix, final String continuationToken, final int maxKeys) {
+    if (maxKeys <= 0)
+      throw new IllegalArgumentException("maxKeys must be positive");
+
+    Path start = toPathWithRoot(prefix);
+
+    // the smallest names following the token, the largest of them at the head of the queue
+    PriorityQueue<String> names = new PriorityQueue<>(maxKeys + 1, Comparator.reverseOrder());
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(start)) {
+      for (Path entry : entries) {
+        String name = entry.getFileName().toString();
+        if (null != continuationToken && name.compareTo(continuationToken) <= 0)
+          continue;
+
+        if (names.size() <= maxKeys) {
+          names.add(name);
+        } else if (name.compareTo(names.peek()) < 0) {
+          names.poll();
+          names.add(name);
+        }
+      }
+    } catch (NoSuchFileException e) {
+      return new ListPage(Collections.emptyList(), null);
+    } catch (IOException e) {
+      throw new ObjectStoreException(prefix, "Can't list directory", e);
+    }
+
+    List<String> page = new ArrayList<>(names);
+    Collections.sort(page);
+
+    boolean hasMore = page.size() > maxKeys;
+    if (hasMore)
+      page = page.subList(0, maxKeys);
+
+    List<StoreObject> objects = page.stream() //
+        .map(start::resolve) //
+        .map(p -> p.toFile().isDirectory() ? toPrefix(p) : toStoreObject(p)) //
+        .collect(Collectors.toList());
+
+    return new ListPage(objects, hasMore ? page.get(page.size() - 1) : null);
+  }
+
   @Override
   @Timed(description = "retrieve object store element", extraTags = {
       "subsystem", "filesystem.object-store"
@@ -401,6 +506,61 @@ public class FilesystemObjectStoreService implements ObjectStoreService {
     return new FilesystemStoreObject(objectName, target, version);
   }
 
+  @Override
+  @Timed(description = "retrieve object store element range", extraTags = {
+      "subsystem", "filesystem.object-store"
+  }, value = "eureka.filesystem.object-store.get-range")
+  public StoreObject get(final ObjectName objectName, final long offset, final long length) {
+    if (offset < 0)
+      throw new IllegalArgumentException("Negative offset " + offset);
+
+    FilesystemStoreObject object = (FilesystemStoreObject) get(objectName);
+    if (null == object)
+      return null;
+
+    return new FilesystemStoreObject(objectName, object.file, object.version, offset, length);
+  }
+
+  @Override
+  @Timed(description = "retrieve multiple object store elements", extraTags = {
+      "subsystem", "filesystem.object-store"
+  }, value = "eureka.filesystem.object-store.get-all")
+  public Map<ObjectName, StoreObject> getAll(final Collection<ObjectName> objectNames) {
+    Map<ObjectName, StoreObject> result = new LinkedHashMap<>();
+    if (objectNames.size() <= 1) {
+      objectNames.forEach(n -> {
+        StoreObject object = get(n);
+        if (null != object)
+          result.put(n, object);
+      });
+      return result;
+    }
+
+    // resolving the current versions dominates, so look the objects up in parallel
+    List<Future<StoreObject>> futures = new ArrayList<>(objectNames.size());
+    for (ObjectName objectName : objectNames) {
+      futures.add(readerPool.submit(() -> get(objectName)));
+    }
+
+    try {
+      for (Future<StoreObject> future : futures) {
+        StoreObject object = future.get();
+        if (null != object)
+          result.put(object.getObjectName(), object);
+      }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ObjectStoreException(null, "Interrupted while retrieving objects", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new ObjectStoreException(null, "Can't retrieve objects", e.getCause());
+    } finally {
+      futures.forEach(f -> f.cancel(true));
+    }
+  }
+
   @Override
   @Timed(description = "check object store element exists", extraTags = {
       "subsystem", "filesystem.object-store"
@@ -416,6 +576,32 @@ public class FilesystemObjectStoreService implements ObjectStoreService {
     return false;
   }
 
+  /**
+   * Retrieve the metadata from the current version's file name and the file's attributes.
+   */
+  @Override
+  @Timed(description = "retrieve object store element metadata", extraTags = {
+      "subsystem", "filesystem.object-store"
+  }, value = "eureka.filesystem.object-store.head")
+  public ObjectHead head(final ObjectName objectName) {
+    readWriteLocker.readLockObject(objectName);
+    try {
+      String version = getVersion(objectName);
+      BasicFileAttributes attributes = Files.readAttributes(toObjectPath(objectName, version),
+          BasicFileAttributes.class);
+      if (!attributes.isRegularFile())
+        return null;
+
+      return new ObjectHead(objectName, version, attributes.size(), attributes.lastModifiedTime().toInstant());
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      throw new ObjectStoreException(objectName, "Can't read metadata", e);
+    } finally {
+      readWriteLocker.readUnlockObject(objectName);
+    }
+  }
+
   private void backupPrefix(final ObjectName objectName, final Path folderPath) throws IOException {
     Path backup = folderPath.resolveSibling(folderPath.getFileName() + randomNameTrailer("backup"));
 
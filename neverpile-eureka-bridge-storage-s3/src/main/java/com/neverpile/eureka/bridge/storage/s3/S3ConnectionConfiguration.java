@@ -60,6 +60,13 @@ public class S3ConnectionConfiguration implements Serializable {
   private ClientConfiguration clientConfiguration = new ClientConfiguration();
 
   private boolean disableCertificateChecking;
+
+  /**
+   * The maximum number of requests issued concurrently by bulk operations like
+   * {@link S3ObjectStoreService#getAll(java.util.Collection)}. Should not exceed the maximum number
+   * of connections of the client configuration.
+   */
+  private int maxConcurrentRequests = 16;
   
   public AmazonS3 createClient() {
     AWSCredentials credentials = new BasicAWSCredentials(getAccessKeyId(), getSecretAccessKey());
@@ -145,4 +152,12 @@ public class S3ConnectionConfiguration implements Serializable {
   public void setDisableCertificateChecking(final boolean disableCertificateChecking) {
     this.disableCertificateChecking = disableCertificateChecking;
   }
+
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  public void setMaxConcurrentRequests(final int maxConcurrentRequests) {
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
 }
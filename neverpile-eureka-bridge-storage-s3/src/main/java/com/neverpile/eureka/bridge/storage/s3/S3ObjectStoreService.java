@@ -4,10 +4,22 @@ import static com.neverpile.eureka.util.ObjectNames.escape;
 import static com.neverpile.eureka.util.ObjectNames.unescape;
 import static java.util.stream.Collectors.joining;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -15,19 +27,26 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.util.IOUtils;
 import com.neverpile.common.opentracing.Tag;
 import com.neverpile.common.opentracing.TraceInvocation;
+import com.neverpile.eureka.api.AsyncObjectStoreService;
+import com.neverpile.eureka.api.NeverpileException;
 import com.neverpile.eureka.api.ObjectStoreService;
 import com.neverpile.eureka.api.exception.VersionMismatchException;
 import com.neverpile.eureka.model.ObjectName;
@@ -36,7 +55,13 @@ import com.neverpile.eureka.tx.wal.TransactionWAL.TransactionalAction;
 
 import io.micrometer.core.annotation.Timed;
 
-public class S3ObjectStoreService implements ObjectStoreService {
+/**
+ * An {@link ObjectStoreService} backed by S3. The client used by this bridge does not support
+ * non-blocking requests, so the {@link AsyncObjectStoreService} operations are performed on the
+ * bridge's bounded request pool, which is sized by
+ * {@link S3ConnectionConfiguration#getMaxConcurrentRequests()}.
+ */
+public class S3ObjectStoreService implements ObjectStoreService, AsyncObjectStoreService {
   public static class ObjectNameMapper implements Function<ObjectName, String> {
     @Override
     public String apply(final ObjectName n) {
@@ -127,10 +152,19 @@ public class S3ObjectStoreService implements ObjectStoreService {
   
   private AmazonS3 s3client;
 
+  // bounds the concurrency of bulk and asynchronous operations
+  private ExecutorService executor;
+
   @PostConstruct
   private void init() {
     s3client = connectionConfiguration.createClient();
     S3TXAction.setConnectionConfiguration(connectionConfiguration);
+    executor = Executors.newFixedThreadPool(Math.max(1, connectionConfiguration.getMaxConcurrentRequests()));
+  }
+
+  @PreDestroy
+  private void destroy() {
+    executor.shutdown();
   }
 
   @Override
@@ -165,6 +199,61 @@ public class S3ObjectStoreService implements ObjectStoreService {
     s3client.putObject(bucket, key, content, metadata);
   }
 
+  /**
+   * Store the objects concurrently. The versions are checked and the transactional actions are
+   * registered before any object is written. Since the WAL is bound to the calling thread, only the
+   * requests to S3 are issued concurrently.
+   */
+  @Override
+  @Timed(description = "put multiple object store elements", extraTags = {
+      "subsystem", "s3.object-store"
+  }, value = "eureka.s3.object-store.put-all")
+  @TraceInvocation
+  public void putAll(final Collection<PutRequest> requests) {
+    String bucket = connectionConfiguration.getDefaultBucketName();
+    List<PutRequest> puts = new ArrayList<>(requests);
+
+    // fetch existing object metadata
+    List<String> currentVersions = invokeAll(puts, r -> getCurrentVersion(bucket, toKey(r.getObjectName())));
+
+    // check for version mismatches before touching anything
+    for (int i = 0; i < puts.size(); i++) {
+      if (!currentVersions.get(i).equals(puts.get(i).getVersion())) {
+        throw new VersionMismatchException("Can't Put", puts.get(i).getVersion(), currentVersions.get(i));
+      }
+    }
+
+    List<Runnable> writes = new ArrayList<>(puts.size());
+    for (int i = 0; i < puts.size(); i++) {
+      PutRequest put = puts.get(i);
+      String key = toKey(put.getObjectName());
+      boolean alreadyExists = !currentVersions.get(i).equals(NEW_VERSION);
+
+      String backupKey = null;
+      if (alreadyExists) {
+        backupKey = registerBackup(bucket, key);
+      } else {
+        writeAheadLog.appendUndoAction(new PurgeObjectAction(bucket, key));
+      }
+
+      ObjectMetadata metadata = new ObjectMetadata();
+      if (put.getLength() >= 0)
+        metadata.setContentLength(put.getLength());
+
+      String effectiveBackupKey = backupKey;
+      writes.add(() -> {
+        if (null != effectiveBackupKey)
+          s3client.copyObject(bucket, key, bucket, effectiveBackupKey);
+        s3client.putObject(bucket, key, put.getContent(), metadata);
+      });
+    }
+
+    invokeAll(writes, w -> {
+      w.run();
+      return null;
+    });
+  }
+
   private String getCurrentVersion(final String bucket, final String key) {
     String currentVersion = NEW_VERSION;
     try {
@@ -224,75 +313,241 @@ public class S3ObjectStoreService implements ObjectStoreService {
 
       return false;
     }
+  }
+
+  private StoreObject toStoreObject(final S3ObjectSummary s) {
+    return new StoreObject() {
+      @Override
+      public String getVersion() {
+        return s.getETag();
+      }
+
+      @Override
+      public ObjectName getObjectName() {
+        return toObjectName(s.getKey());
+      }
+
+      @Override
+      public InputStream getInputStream() {
+        // route this call across an instrumented invocation to let @TraceInvocation do its thing
+        return myself.get(getObjectName()).getInputStream();
+      }
+    };
+  }
+
+  private StoreObject toStoreObject(final String prefix) {
+    return new StoreObject() {
+      @Override
+      public String getVersion() {
+        return null;
+      }
+
+      @Override
+      public ObjectName getObjectName() {
+        return toObjectName(prefix);
+      }
+
+      @Override
+      public InputStream getInputStream() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  @TraceInvocation
+  public Stream<StoreObject> list(
+      @Tag(name = "prefix", valueAdapter = ObjectNameMapper.class) final ObjectName prefix) {
+    String prefixKey = toKey(prefix);
+
+    ListObjectsRequest lor = new ListObjectsRequest();
+    lor.setBucketName(connectionConfiguration.getDefaultBucketName());
+
+    lor.setPrefix(prefixKey.isEmpty() ? prefixKey : prefixKey + NAME_DELIMITER);
+    lor.setDelimiter(NAME_DELIMITER);
+
+    return StreamSupport.stream(new ObjectListingSpliterator(s3client.listObjects(lor)), false);
+  }
+
+  /**
+   * Retrieve a page using a single ListObjectsV2 request. The continuation token is the one issued
+   * by S3. Since backups are hidden, a page may contain fewer than the requested number of entries.
+   */
+  @Override
+  @Timed(description = "list object store elements page", extraTags = {
+      "subsystem", "s3.object-store"
+  }, value = "eureka.s3.object-store.list-page")
+  @TraceInvocation
+  public ListPage listPage(@Tag(name = "prefix", valueAdapter = ObjectNameMapper.class) final ObjectName prefix,
+      final String continuationToken, @Tag(name = "maxKeys") final int maxKeys) {
+    if (maxKeys <= 0)
+      throw new IllegalArgumentException("maxKeys must be positive");
+
+    String prefixKey = toKey(prefix);
+
+    ListObjectsV2Request request = new ListObjectsV2Request() //
+        .withBucketName(connectionConfiguration.getDefaultBucketName()) //
+        .withPrefix(prefixKey.isEmpty() ? prefixKey : prefixKey + NAME_DELIMITER) //
+        .withDelimiter(NAME_DELIMITER) //
+        .withMaxKeys(maxKeys) //
+        .withContinuationToken(continuationToken);
+
+    ListObjectsV2Result result = s3client.listObjectsV2(request);
+
+    List<StoreObject> objects = new ArrayList<>(result.getKeyCount());
+    for (S3ObjectSummary s : result.getObjectSummaries()) {
+      if (!s.getKey().endsWith(BACKUP_SUFFIX)) // hide backups
+        objects.add(toStoreObject(s));
+    }
+    for (String p : result.getCommonPrefixes()) {
+      objects.add(toStoreObject(p));
+    }
+
+    return new ListPage(objects, result.isTruncated() ? result.getNextContinuationToken() : null);
+  }
+
+  @Override
+  @Timed(description = "get object store element", extraTags = {
+      "subsystem", "s3.object-store"
+  }, value = "eureka.s3.object-store.get")
+  @TraceInvocation
+  public StoreObject get(@Tag(name = "key", valueAdapter = ObjectNameMapper.class) final ObjectName objectName) {
+    try {
+      final S3Object object = s3client.getObject(connectionConfiguration.getDefaultBucketName(), toKey(objectName));
 
-    private StoreObject toStoreObject(final S3ObjectSummary s) {
       return new StoreObject() {
         @Override
         public String getVersion() {
-          return s.getETag();
+          return object.getObjectMetadata().getETag();
         }
 
         @Override
         public ObjectName getObjectName() {
-          return toObjectName(s.getKey());
+          return objectName;
         }
 
         @Override
         public InputStream getInputStream() {
-          // route this call across an instrumented invocation to let @TraceInvocation do its thing
-          return myself.get(getObjectName()).getInputStream();
+          return object.getObjectContent();
         }
       };
+    } catch (AmazonS3Exception e) {
+      if (e.getStatusCode() != HttpStatus.NOT_FOUND.value())
+        throw e;
+
+      return null;
     }
+  }
+
+  /**
+   * Retrieve a range using an S3 range GET. Since S3 can express neither empty ranges nor ranges
+   * beyond the end of an object, those are answered with an empty stream based on the object's
+   * metadata.
+   */
+  @Override
+  @Timed(description = "get object store element range", extraTags = {
+      "subsystem", "s3.object-store"
+  }, value = "eureka.s3.object-store.get-range")
+  @TraceInvocation
+  public StoreObject get(@Tag(name = "key", valueAdapter = ObjectNameMapper.class) final ObjectName objectName,
+      @Tag(name = "offset") final long offset, @Tag(name = "length") final long length) {
+    if (offset < 0)
+      throw new IllegalArgumentException("Negative offset " + offset);
+
+    String bucket = connectionConfiguration.getDefaultBucketName();
+    String key = toKey(objectName);
+    if (length == 0)
+      return emptyStoreObject(objectName, getCurrentVersion(bucket, key));
+
+    GetObjectRequest request = new GetObjectRequest(bucket, key);
+    if (length < 0)
+      request.setRange(offset);
+    else
+      request.setRange(offset, offset + length - 1);
+
+    try {
+      final S3Object object = s3client.getObject(request);
 
-    private StoreObject toStoreObject(final String prefix) {
       return new StoreObject() {
         @Override
         public String getVersion() {
-          return null;
+          return object.getObjectMetadata().getETag();
         }
 
         @Override
         public ObjectName getObjectName() {
-          return toObjectName(prefix);
+          return objectName;
         }
 
         @Override
         public InputStream getInputStream() {
-          throw new UnsupportedOperationException();
+          return object.getObjectContent();
         }
       };
+    } catch (AmazonS3Exception e) {
+      if (e.getStatusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value())
+        return emptyStoreObject(objectName, getCurrentVersion(bucket, key));
+
+      if (e.getStatusCode() != HttpStatus.NOT_FOUND.value())
+        throw e;
+
+      return null;
     }
   }
 
-  @Override
-  @TraceInvocation
-  public Stream<StoreObject> list(
-      @Tag(name = "prefix", valueAdapter = ObjectNameMapper.class) final ObjectName prefix) {
-    String prefixKey = toKey(prefix);
+  private StoreObject emptyStoreObject(final ObjectName objectName, final String version) {
+    if (version.equals(NEW_VERSION))
+      return null;
 
-    ListObjectsRequest lor = new ListObjectsRequest();
-    lor.setBucketName(connectionConfiguration.getDefaultBucketName());
+    return new StoreObject() {
+      @Override
+      public String getVersion() {
+        return version;
+      }
 
-    lor.setPrefix(prefixKey.isEmpty() ? prefixKey : prefixKey + NAME_DELIMITER);
-    lor.setDelimiter(NAME_DELIMITER);
+      @Override
+      public ObjectName getObjectName() {
+        return objectName;
+      }
 
-    return StreamSupport.stream(new ObjectListingSpliterator(s3client.listObjects(lor)), false);
+      @Override
+      public InputStream getInputStream() {
+        return new ByteArrayInputStream(new byte[0]);
+      }
+    };
   }
 
+  /**
+   * Retrieve the objects concurrently. The contents are buffered in memory so that the connections
+   * can be released right away instead of being held until the caller consumes the streams.
+   */
   @Override
-  @Timed(description = "get object store element", extraTags = {
+  @Timed(description = "get multiple object store elements", extraTags = {
       "subsystem", "s3.object-store"
-  }, value = "eureka.s3.object-store.get")
+  }, value = "eureka.s3.object-store.get-all")
   @TraceInvocation
-  public StoreObject get(@Tag(name = "key", valueAdapter = ObjectNameMapper.class) final ObjectName objectName) {
-    try {
-      final S3Object object = s3client.getObject(connectionConfiguration.getDefaultBucketName(), toKey(objectName));
+  public Map<ObjectName, StoreObject> getAll(final Collection<ObjectName> objectNames) {
+    String bucket = connectionConfiguration.getDefaultBucketName();
+
+    List<StoreObject> objects = invokeAll(objectNames, objectName -> getBuffered(bucket, objectName));
+
+    Map<ObjectName, StoreObject> result = new LinkedHashMap<>();
+    for (StoreObject object : objects) {
+      if (null != object)
+        result.put(object.getObjectName(), object);
+    }
+    return result;
+  }
+
+  private StoreObject getBuffered(final String bucket, final ObjectName objectName) {
+    try (S3Object object = s3client.getObject(bucket, toKey(objectName))) {
+      byte[] content = IOUtils.toByteArray(object.getObjectContent());
+      String version = object.getObjectMetadata().getETag();
 
       return new StoreObject() {
         @Override
         public String getVersion() {
-          return object.getObjectMetadata().getETag();
+          return version;
         }
 
         @Override
@@ -302,7 +557,7 @@ public class S3ObjectStoreService implements ObjectStoreService {
 
         @Override
         public InputStream getInputStream() {
-          return object.getObjectContent();
+          return new ByteArrayInputStream(content);
         }
       };
     } catch (AmazonS3Exception e) {
@@ -310,6 +565,85 @@ public class S3ObjectStoreService implements ObjectStoreService {
         throw e;
 
       return null;
+    } catch (IOException e) {
+      throw new ObjectStoreException(objectName, "Can't retrieve object", e);
+    }
+  }
+
+  @Override
+  public CompletableFuture<StoreObject> getAsync(final ObjectName objectName) {
+    return CompletableFuture.supplyAsync(() -> myself.get(objectName), executor);
+  }
+
+  @Override
+  public CompletableFuture<StoreObject> getAsync(final ObjectName objectName, final long offset, final long length) {
+    return CompletableFuture.supplyAsync(() -> myself.get(objectName, offset, length), executor);
+  }
+
+  /**
+   * Retrieve the objects concurrently like {@link #getAll(Collection)} does, buffering their
+   * contents in memory. Other than {@link #getAll(Collection)}, the requests are merely queued on the
+   * request pool without waiting for them.
+   */
+  @Override
+  public CompletableFuture<Map<ObjectName, StoreObject>> getAllAsync(final Collection<ObjectName> objectNames) {
+    String bucket = connectionConfiguration.getDefaultBucketName();
+
+    List<CompletableFuture<StoreObject>> futures = new ArrayList<>(objectNames.size());
+    for (ObjectName objectName : objectNames) {
+      futures.add(CompletableFuture.supplyAsync(() -> getBuffered(bucket, objectName), executor));
+    }
+
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> {
+      Map<ObjectName, StoreObject> result = new LinkedHashMap<>();
+      for (CompletableFuture<StoreObject> future : futures) {
+        StoreObject object = future.join();
+        if (null != object)
+          result.put(object.getObjectName(), object);
+      }
+      return result;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Boolean> checkObjectExistsAsync(final ObjectName objectName) {
+    return CompletableFuture.supplyAsync(() -> myself.checkObjectExists(objectName), executor);
+  }
+
+  /**
+   * Apply the given task to all items using the executor and wait for the results. A single item is
+   * handled on the calling thread.
+   * 
+   * @param items the items
+   * @param task the task to apply
+   * @return the results in the order of the items
+   */
+  private <T, R> List<R> invokeAll(final Collection<T> items, final Function<T, R> task) {
+    List<R> results = new ArrayList<>(items.size());
+    if (items.size() <= 1) {
+      items.forEach(i -> results.add(task.apply(i)));
+      return results;
+    }
+
+    List<Future<R>> futures = new ArrayList<>(items.size());
+    for (T item : items) {
+      futures.add(executor.submit(() -> task.apply(item)));
+    }
+
+    try {
+      for (Future<R> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new NeverpileException("Interrupted while waiting for S3 requests", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new NeverpileException("S3 request failed", e.getCause());
+    } finally {
+      futures.forEach(f -> f.cancel(true));
     }
   }
 
@@ -347,12 +681,26 @@ public class S3ObjectStoreService implements ObjectStoreService {
    * @param key the S3 object key
    */
   private void createBackup(final String bucket, final String key) {
+    String backupKey = registerBackup(bucket, key);
+
+    s3client.copyObject(bucket, key, bucket, backupKey);
+  }
+
+  /**
+   * Register transactional actions to purge the backup of the object for the given key upon commit
+   * or restore the object from it upon rollback. The backup itself must be created by the caller.
+   * 
+   * @param bucket the destination bucket
+   * @param key the S3 object key
+   * @return the key of the backup
+   */
+  private String registerBackup(final String bucket, final String key) {
     String backupKey = key + BACKUP_SUFFIX;
 
     writeAheadLog.appendCommitAction(new PurgeObjectAction(bucket, backupKey));
-    writeAheadLog.appendUndoAction(new MoveObjectAction(bucket, key + BACKUP_SUFFIX, key));
+    writeAheadLog.appendUndoAction(new MoveObjectAction(bucket, backupKey, key));
 
-    s3client.copyObject(bucket, key, bucket, backupKey);
+    return backupKey;
   }
 
   @Override
@@ -368,6 +716,29 @@ public class S3ObjectStoreService implements ObjectStoreService {
     return !getCurrentVersion(bucket, key).equals(NEW_VERSION);
   }
 
+  /**
+   * Retrieve the metadata using an S3 HEAD request.
+   */
+  @Override
+  @Timed(description = "retrieve object store element metadata", extraTags = {
+      "subsystem", "s3.object-store"
+  }, value = "eureka.s3.object-store.head")
+  @TraceInvocation
+  public ObjectHead head(@Tag(name = "key", valueAdapter = ObjectNameMapper.class) final ObjectName objectName) {
+    try {
+      ObjectMetadata metadata = s3client.getObjectMetadata(connectionConfiguration.getDefaultBucketName(),
+          toKey(objectName));
+
+      return new ObjectHead(objectName, metadata.getETag(), metadata.getContentLength(),
+          null != metadata.getLastModified() ? metadata.getLastModified().toInstant() : null);
+    } catch (AmazonS3Exception e) {
+      if (e.getStatusCode() != HttpStatus.NOT_FOUND.value())
+        throw e;
+
+      return null;
+    }
+  }
+
   private ObjectName toObjectName(final String key) {
     String[] components = DELIMITER_SPLIT_PATTERN.split(key);
     for (int i = 0; i < components.length; i++) {
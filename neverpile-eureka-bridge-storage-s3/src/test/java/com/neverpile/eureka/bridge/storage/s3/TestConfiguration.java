@@ -10,7 +10,6 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.context.annotation.RequestScope;
 
 import com.amazonaws.Protocol;
-import com.neverpile.eureka.api.ObjectStoreService;
 import com.neverpile.eureka.bridge.storage.s3.S3ConnectionConfiguration.AccessStyle;
 import com.neverpile.eureka.impl.tx.lock.LocalLockFactory;
 import com.neverpile.eureka.tx.lock.ClusterLockFactory;
@@ -24,7 +23,7 @@ import com.neverpile.eureka.tx.wal.local.FileBasedWAL;
 @EnableTransactionManagement
 public class TestConfiguration {
   @Bean
-  ObjectStoreService s3OSS() {
+  S3ObjectStoreService s3OSS() {
     return new S3ObjectStoreService();
   }
 
@@ -0,0 +1,85 @@
+package com.neverpile.eureka.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.neverpile.eureka.api.ObjectStoreService.StoreObject;
+import com.neverpile.eureka.model.ObjectName;
+
+/**
+ * A non-blocking variant of the read operations of the {@link ObjectStoreService}. The methods
+ * return right away and complete the returned futures once the object store has answered, so that
+ * callers can fan out requests to the store without tying up a thread per outstanding request.
+ * <p>
+ * Only the lookup of objects is asynchronous: the streams of the returned {@link StoreObject}s are
+ * read in a blocking fashion. Modifications are not part of this interface, because they take part
+ * in the caller's transaction which is bound to the calling thread. Use
+ * {@link ObjectStoreService#putAll(Collection)} to batch those instead.
+ * <p>
+ * The futures may be completed on threads owned by the store's client library. Dependent stages
+ * performing blocking work should therefore be run on an executor of their own using the
+ * <code>...Async</code> methods of {@link CompletableFuture}.
+ */
+public interface AsyncObjectStoreService {
+  /**
+   * Retrieve a single object by its fully qualified {@link ObjectName}.
+   *
+   * @param objectName identifier of the object
+   * @return a future of the object, completed with <code>null</code> if the object cannot be found
+   * @see ObjectStoreService#get(ObjectName)
+   */
+  CompletableFuture<StoreObject> getAsync(ObjectName objectName);
+
+  /**
+   * Retrieve a range of the contents of a single object by its fully qualified {@link ObjectName}.
+   *
+   * @param objectName identifier of the object
+   * @param offset     the offset of the first byte of the range
+   * @param length     the maximum length of the range, a negative value for the rest of the object
+   * @return a future of the object, completed with <code>null</code> if the object cannot be found
+   * @see ObjectStoreService#get(ObjectName, long, long)
+   */
+  CompletableFuture<StoreObject> getAsync(ObjectName objectName, long offset, long length);
+
+  /**
+   * Retrieve multiple objects by their fully qualified {@link ObjectName}s. The default
+   * implementation issues one {@link #getAsync(ObjectName)} per object and completes once all of
+   * them have completed.
+   *
+   * @param objectNames identifiers of the objects to retrieve
+   * @return a future of the objects keyed by name, in the order of the given names. Objects which
+   *         cannot be found are absent.
+   * @see ObjectStoreService#getAll(Collection)
+   */
+  default CompletableFuture<Map<ObjectName, StoreObject>> getAllAsync(final Collection<ObjectName> objectNames) {
+    List<CompletableFuture<StoreObject>> futures = new ArrayList<>(objectNames.size());
+    for (ObjectName objectName : objectNames) {
+      futures.add(getAsync(objectName));
+    }
+
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> {
+      Map<ObjectName, StoreObject> objects = new LinkedHashMap<>();
+      Iterator<CompletableFuture<StoreObject>> i = futures.iterator();
+      for (ObjectName objectName : objectNames) {
+        StoreObject object = i.next().join();
+        if (null != object)
+          objects.put(objectName, object);
+      }
+      return objects;
+    });
+  }
+
+  /**
+   * Check whether an object with the given name exists.
+   *
+   * @param objectName identifier of the object
+   * @return a future completed with whether the object exists
+   * @see ObjectStoreService#checkObjectExists(ObjectName)
+   */
+  CompletableFuture<Boolean> checkObjectExistsAsync(ObjectName objectName);
+}
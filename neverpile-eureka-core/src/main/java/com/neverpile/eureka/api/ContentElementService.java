@@ -3,6 +3,7 @@ package com.neverpile.eureka.api;
 import java.io.InputStream;
 import java.security.MessageDigest;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.ws.rs.core.MediaType;
 
@@ -52,6 +53,22 @@ public interface ContentElementService {
    */
   InputStream getContentElement(final String documentId, final String contentId);
 
+  /**
+   * Get a {@link ContentElement} as an generic {@link InputStream} without blocking the calling
+   * thread while the element is being looked up. This allows callers to fan out requests for
+   * multiple elements. The default implementation delegates to
+   * {@link #getContentElement(String, String)}.
+   *
+   * @param documentId {@link Document#documentId} of the associated
+   *                   {@link Document}.
+   * @param contentId  {@link ContentElement#id} of the requested {@link ContentElement}.
+   * @return a future of the {@link InputStream} of the {@link ContentElement}, completed with
+   *         <code>null</code> if the element cannot be found
+   */
+  default CompletableFuture<InputStream> getContentElementAsync(final String documentId, final String contentId) {
+    return CompletableFuture.completedFuture(getContentElement(documentId, contentId));
+  }
+
   /**
    * Delete an existing {@link ContentElement}.
    *
@@ -1,9 +1,12 @@
 package com.neverpile.eureka.api;
 
 import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+import com.neverpile.eureka.model.CompactedVersionRange;
 import com.neverpile.eureka.model.Document;
 
 /**
@@ -47,4 +50,41 @@ public interface MultiVersioningDocumentService extends DocumentService {
    * @return the list of versions
    */
   List<Instant> getVersions(String documentId);
+
+  /**
+   * Return a page of the timestamps of the versions of the document identified by the given id in
+   * ascending order. The default implementation picks the page from the complete version list.
+   *
+   * @param documentId the document id for which to fetch the version timestamps
+   * @param offset the number of versions to skip
+   * @param limit the maximum number of versions to return
+   * @return the list of versions
+   */
+  default List<Instant> getVersions(final String documentId, final int offset, final int limit) {
+    return getVersions(documentId).stream().skip(offset).limit(limit).collect(Collectors.toList());
+  }
+
+  /**
+   * Return the timestamp of the version of the document identified by the given id which was
+   * current at the given point in time, i.e. the latest version not after it.
+   *
+   * @param documentId the document id
+   * @param pointInTime the point in time
+   * @return the version timestamp or an empty optional if the document did not exist at that time
+   */
+  default Optional<Instant> getVersionAsOf(final String documentId, final Instant pointInTime) {
+    return getVersions(documentId).stream().filter(v -> !v.isAfter(pointInTime)).reduce((a, b) -> b);
+  }
+
+  /**
+   * Return the ranges of versions of the document identified by the given id which have been
+   * removed from its history by compaction, in ascending order. The default implementation never
+   * compacts and returns an empty list.
+   *
+   * @param documentId the document id
+   * @return the list of compacted version ranges
+   */
+  default List<CompactedVersionRange> getCompactedVersions(final String documentId) {
+    return Collections.emptyList();
+  }
 }
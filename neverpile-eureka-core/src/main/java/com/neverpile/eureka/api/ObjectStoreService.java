@@ -1,10 +1,23 @@
 package com.neverpile.eureka.api;
 
 import java.io.InputStream;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.neverpile.eureka.model.Document;
 import com.neverpile.eureka.model.ObjectName;
+import com.neverpile.eureka.util.RangeInputStream;
 
 /**
  * The Object Store service provides generic access to a document store and therefore operations like
@@ -43,6 +56,126 @@ public interface ObjectStoreService {
     String getVersion();
   }
 
+  /**
+   * A request to store an object as part of {@link ObjectStoreService#putAll(Collection)}. The
+   * arguments correspond to those of {@link ObjectStoreService#put(ObjectName, String, InputStream, long)}.
+   */
+  final class PutRequest {
+    private final ObjectName objectName;
+    private final String version;
+    private final InputStream content;
+    private final long length;
+
+    public PutRequest(final ObjectName objectName, final String version, final InputStream content,
+        final long length) {
+      this.objectName = objectName;
+      this.version = version;
+      this.content = content;
+      this.length = length;
+    }
+
+    public ObjectName getObjectName() {
+      return objectName;
+    }
+
+    public String getVersion() {
+      return version;
+    }
+
+    public InputStream getContent() {
+      return content;
+    }
+
+    public long getLength() {
+      return length;
+    }
+  }
+
+  /**
+   * A page of a listing returned by {@link ObjectStoreService#listPage(ObjectName, String, int)}.
+   */
+  final class ListPage {
+    private final List<StoreObject> objects;
+    private final String continuationToken;
+
+    public ListPage(final List<StoreObject> objects, final String continuationToken) {
+      this.objects = objects;
+      this.continuationToken = continuationToken;
+    }
+
+    /**
+     * The objects and prefixes of this page.
+     *
+     * @return the entries of this page
+     */
+    public List<StoreObject> getObjects() {
+      return objects;
+    }
+
+    /**
+     * The opaque token to pass to {@link ObjectStoreService#listPage(ObjectName, String, int)} in
+     * order to retrieve the next page.
+     *
+     * @return the token or <code>null</code> if this is the last page
+     */
+    public String getContinuationToken() {
+      return continuationToken;
+    }
+
+    public boolean hasMore() {
+      return null != continuationToken;
+    }
+  }
+
+  /**
+   * The metadata of an object as returned by {@link ObjectStoreService#head(ObjectName)}.
+   */
+  final class ObjectHead {
+    private final ObjectName objectName;
+    private final String version;
+    private final long length;
+    private final Instant lastModified;
+
+    public ObjectHead(final ObjectName objectName, final String version, final long length,
+        final Instant lastModified) {
+      this.objectName = objectName;
+      this.version = version;
+      this.length = length;
+      this.lastModified = lastModified;
+    }
+
+    public ObjectName getObjectName() {
+      return objectName;
+    }
+
+    /**
+     * The current version of the object, as returned by {@link StoreObject#getVersion()}.
+     *
+     * @return Object version String.
+     */
+    public String getVersion() {
+      return version;
+    }
+
+    /**
+     * The length of the object's payload.
+     *
+     * @return the length in bytes or -1 if the store cannot tell it without reading the object
+     */
+    public long getLength() {
+      return length;
+    }
+
+    /**
+     * The time the current version of the object was stored.
+     *
+     * @return the time or <code>null</code> if the store does not record it
+     */
+    public Instant getLastModified() {
+      return lastModified;
+    }
+  }
+
   /**
    * Generic exception thrown when an error occurred while executing an operation on the object store.
    */
@@ -114,6 +247,20 @@ public interface ObjectStoreService {
    */
   void put(ObjectName objectName, String version, InputStream content, long length);
 
+  /**
+   * Stores multiple objects. Implementations may store the objects concurrently or in bulk; the
+   * order in which they are stored is unspecified. If storing any of the objects fails, an exception
+   * is thrown and the objects stored so far are rolled back along with the surrounding transaction.
+   * The default implementation stores the objects one after the other.
+   *
+   * @param requests the objects to store - an object name must not occur more than once
+   */
+  default void putAll(final Collection<PutRequest> requests) {
+    for (PutRequest request : requests) {
+      put(request.getObjectName(), request.getVersion(), request.getContent(), request.getLength());
+    }
+  }
+
   /**
    * Retrieve objects on a prefix-based search. Note: listings based on partial segments won't be
    * resolved, filtering will be done by fully matching name components
@@ -123,6 +270,70 @@ public interface ObjectStoreService {
    */
   Stream<StoreObject> list(ObjectName prefix);
 
+  /**
+   * Retrieve a single page of the listing of the given prefix. The listing contains the same
+   * entries as {@link #list(ObjectName)} does. Pages are retrieved one after the other by passing
+   * the continuation token of a page to the call retrieving the next one, so that arbitrarily large
+   * prefixes can be traversed - and a traversal can be resumed - without holding more than a page in
+   * memory. Continuation tokens are opaque and specific to the implementation.
+   * <p>
+   * The default implementation skips the entries of previous pages on the stream returned by
+   * {@link #list(ObjectName)}; implementations should resume the listing natively instead.
+   *
+   * @param prefix            build from the name components of the provided ObjectName
+   * @param continuationToken the token of the previous page, <code>null</code> for the first page
+   * @param maxKeys           the maximum number of entries of the page. A page may contain fewer
+   *                          entries even if it is not the last one.
+   * @return the page
+   */
+  default ListPage listPage(final ObjectName prefix, final String continuationToken, final int maxKeys) {
+    if (maxKeys <= 0)
+      throw new IllegalArgumentException("maxKeys must be positive");
+
+    long position = null != continuationToken ? Long.parseLong(continuationToken) : 0;
+    try (Stream<StoreObject> s = list(prefix)) {
+      List<StoreObject> objects = s.skip(position).limit(maxKeys + 1).collect(Collectors.toList());
+      if (objects.size() <= maxKeys)
+        return new ListPage(objects, null);
+
+      return new ListPage(objects.subList(0, maxKeys), Long.toString(position + maxKeys));
+    }
+  }
+
+  /**
+   * Retrieve the listing of the given prefix like {@link #list(ObjectName)} does, but lazily page by
+   * page using {@link #listPage(ObjectName, String, int)}. At most one page is held in memory at any
+   * time.
+   *
+   * @param prefix   build from the name components of the provided ObjectName
+   * @param pageSize the maximum number of entries retrieved at once
+   * @return stream of objects, where the specified prefix is applicable
+   */
+  default Stream<StoreObject> listPaged(final ObjectName prefix, final int pageSize) {
+    return StreamSupport.stream(new Spliterators.AbstractSpliterator<StoreObject>(Long.MAX_VALUE,
+        Spliterator.ORDERED | Spliterator.NONNULL) {
+      private Iterator<StoreObject> objects = Collections.emptyIterator();
+      private String continuationToken;
+      private boolean done;
+
+      @Override
+      public boolean tryAdvance(final Consumer<? super StoreObject> action) {
+        while (!objects.hasNext()) {
+          if (done)
+            return false;
+
+          ListPage page = listPage(prefix, continuationToken, pageSize);
+          objects = page.getObjects().iterator();
+          continuationToken = page.getContinuationToken();
+          done = !page.hasMore();
+        }
+
+        action.accept(objects.next());
+        return true;
+      }
+    }, false);
+  }
+
   /**
    * Retrieve a single object by its fully qualified {@link ObjectName}.
    *
@@ -133,6 +344,84 @@ public interface ObjectStoreService {
    */
   StoreObject get(ObjectName objectName);
 
+  /**
+   * Retrieve a range of the contents of a single object by its fully qualified {@link ObjectName}.
+   * The stream of the returned object starts at the given offset and ends after the given number of
+   * bytes or at the end of the object, whichever comes first. A range starting beyond the end of the
+   * object yields an empty stream. The default implementation skips the bytes before the range on
+   * the stream of the complete object; implementations should seek to the range instead.
+   *
+   * @param objectName identifier (possibly with multiple name components) which will be used for
+   *                   retrieving this object
+   * @param offset     the offset of the first byte of the range
+   * @param length     the maximum length of the range, a negative value for the rest of the object
+   * @return Storage Bridge-specific object containing i.a. name and stream. Return
+   * <code>null</code> if the object cannot be found.
+   */
+  default StoreObject get(final ObjectName objectName, final long offset, final long length) {
+    if (offset < 0)
+      throw new IllegalArgumentException("Negative offset " + offset);
+
+    StoreObject object = get(objectName);
+    if (null == object)
+      return null;
+
+    return new StoreObject() {
+      @Override
+      public ObjectName getObjectName() {
+        return object.getObjectName();
+      }
+
+      @Override
+      public InputStream getInputStream() {
+        return new RangeInputStream(object.getInputStream(), offset, length);
+      }
+
+      @Override
+      public String getVersion() {
+        return object.getVersion();
+      }
+    };
+  }
+
+  /**
+   * Retrieve multiple objects by their fully qualified {@link ObjectName}s in one logical
+   * round-trip. Implementations may retrieve the objects concurrently or in bulk and may buffer
+   * their contents in memory, so this is meant for objects of moderate size like document metadata.
+   * The default implementation retrieves the objects one after the other.
+   *
+   * @param objectNames identifiers of the objects to retrieve
+   * @return the objects keyed by name, in the order of the given names. Objects which cannot be
+   *         found are absent.
+   */
+  default Map<ObjectName, StoreObject> getAll(final Collection<ObjectName> objectNames) {
+    Map<ObjectName, StoreObject> objects = new LinkedHashMap<>();
+    for (ObjectName objectName : objectNames) {
+      StoreObject object = get(objectName);
+      if (null != object)
+        objects.put(objectName, object);
+    }
+    return objects;
+  }
+
+  /**
+   * Retrieve the metadata of a single object by its fully qualified {@link ObjectName} without
+   * retrieving its contents. Use this instead of {@link #get(ObjectName)} to check whether an object
+   * exists or to learn its current version. The default implementation uses
+   * {@link #get(ObjectName)} without opening the object's stream and therefore knows neither length
+   * nor modification time; implementations should look up the metadata natively instead.
+   *
+   * @param objectName identifier (possibly with multiple name components) of the object
+   * @return the object's metadata. Return <code>null</code> if the object cannot be found.
+   */
+  default ObjectHead head(final ObjectName objectName) {
+    StoreObject object = get(objectName);
+    if (null == object)
+      return null;
+
+    return new ObjectHead(objectName, object.getVersion(), -1, null);
+  }
+
   // FIXME: version checking?
 
   /**
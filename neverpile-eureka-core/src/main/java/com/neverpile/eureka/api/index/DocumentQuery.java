@@ -49,6 +49,11 @@ public class DocumentQuery {
       return this;
     }
 
+    public DocumentQueryBuilder after(final String cursor) {
+      query.setCursor(cursor);
+      return this;
+    }
+
     public DocumentQuery build() {
       return query;
     }
@@ -68,6 +73,8 @@ public class DocumentQuery {
 
   private int pageSize;
 
+  private String cursor;
+
   public DocumentQuery() {
   }
 
@@ -123,4 +130,19 @@ public class DocumentQuery {
     this.pageSize = pageSize;
   }
 
+  /**
+   * Get the opaque cursor as returned by {@link ResultPage#getNextCursor()}. If set, the page
+   * following the cursor is returned and the page number is ignored. Unlike paging by page number,
+   * cursors are not subject to a limit on the result window.
+   *
+   * @return the cursor or <code>null</code> to page by page number
+   */
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(final String cursor) {
+    this.cursor = cursor;
+  }
+
 }
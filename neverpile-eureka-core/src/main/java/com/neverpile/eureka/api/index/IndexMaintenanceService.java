@@ -42,6 +42,14 @@ public interface IndexMaintenanceService {
    * Current index will remain unchanged for all incoming requests until process is complete.
    * Updates to the index during the process will be included in the new index but wont be accessible
    * until rebuild is complete.
+   * An interrupted or failed rebuild is resumed from its last checkpoint instead of starting over.
    */
   void rebuildIndex();
+
+  /**
+   * Return the progress of the current or most recent index rebuild.
+   *
+   * @return the rebuild status
+   */
+  RebuildStatus getRebuildStatus();
 }
@@ -2,21 +2,34 @@ package com.neverpile.eureka.api.index;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.ResponseEntity.BodyBuilder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.api.DocumentService;
 import com.neverpile.eureka.model.Document;
 import com.neverpile.eureka.rest.api.document.DocumentDto;
 import com.neverpile.eureka.rest.api.document.DocumentFacet;
@@ -30,15 +43,27 @@ import io.micrometer.core.annotation.Timed;
 public class IndexResource {
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexResource.class);
 
+  private static final String ID_FIELD = "documentId";
+
+  private static final String NEXT_CURSOR_HEADER = "X-NPE-Next-Cursor";
+
+  private static final String NDJSON_VALUE = "application/x-ndjson";
+
   @Autowired
   private ObjectMapper objectMapper;
 
   @Autowired(required = false)
   QueryService indexService;
 
+  @Autowired
+  DocumentService documentService;
+
   @Autowired(required = false)
   IndexMaintenanceService indexMaintenanceService;
 
+  @Value("${neverpile-eureka.index.export.page-size:1000}")
+  int exportPageSize = 1000;
+
   @Autowired(required = false)
   private final List<DocumentFacet<?>> facets = new ArrayList<DocumentFacet<?>>();
 
@@ -56,27 +81,124 @@ public class IndexResource {
     indexMaintenanceService.rebuildIndex();
   }
 
+  @GetMapping(value = "/rebuild")
+  public RebuildStatus rebuildStatus() {
+    return indexMaintenanceService.getRebuildStatus();
+  }
+
   @GetMapping(value = "query/{query}")
   // @Timed(description = "query document", extraTags = {"operation", "retrieve", "target",
   // "document", "query"}, value="eureka.document.query")
-  public List<DocumentDto> query(@PathVariable("query") final String queryJson,
-      @RequestParam(name = "facets", required = false) final List<String> requestedFacets) {
+  public ResponseEntity<List<DocumentDto>> query(@PathVariable("query") final String queryJson,
+      @RequestParam(name = "facets", required = false) final List<String> requestedFacets,
+      @RequestParam(name = "projection", defaultValue = "false") final boolean projection) {
     // @formatter:on
-    List<DocumentDto> dtos = new ArrayList<>();
     try {
       DocumentQuery query = objectMapper.readValue(queryJson, DocumentQuery.class);
-      List<Document> documents = indexService.queryDocuments(query);
+      ResultPage<DocumentDto> page = queryPage(query, requestedFacets, projection);
 
-      for (Document document : documents) {
-        DocumentDto responseDto = new DocumentDto();
-        activeFacets(requestedFacets, f -> f.onRetrieve(document, responseDto));
-        dtos.add(responseDto);
+      BodyBuilder response = ResponseEntity.ok();
+      if (null != page.getNextCursor()) {
+        response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
       }
+      return response.body(page.getResults());
     } catch (IOException e) {
       e.printStackTrace();
-      return new ArrayList<>();
+      return ResponseEntity.ok(new ArrayList<>());
+    }
+  }
+
+  /**
+   * Export all documents matching the given query as newline-delimited JSON. The matches are
+   * retrieved and written page by page using cursors, so that an export is neither subject to a
+   * limit on the result window nor held in memory as a whole.
+   *
+   * @param queryJson the query
+   * @param requestedFacets the facets to export
+   * @param projection whether to serve index-reconstructible facets from the index
+   * @return the response streaming the matching documents
+   * @throws IOException if the query cannot be parsed
+   */
+  @GetMapping(value = "export/{query}", produces = NDJSON_VALUE)
+  @Timed(description = "export query results", value = "eureka.index.export")
+  public ResponseEntity<StreamingResponseBody> export(@PathVariable("query") final String queryJson,
+      @RequestParam(name = "facets", required = false) final List<String> requestedFacets,
+      @RequestParam(name = "projection", defaultValue = "false") final boolean projection) throws IOException {
+    DocumentQuery query = objectMapper.readValue(queryJson, DocumentQuery.class);
+    query.setPageNo(0);
+    query.setPageSize(exportPageSize);
+
+    StreamingResponseBody body = out -> {
+      long exported = 0;
+      do {
+        ResultPage<DocumentDto> page = queryPage(query, requestedFacets, projection);
+        for (DocumentDto dto : page.getResults()) {
+          out.write(objectMapper.writeValueAsBytes(dto));
+          out.write('\n');
+        }
+        out.flush();
+
+        exported += page.getResults().size();
+        query.setCursor(page.getNextCursor());
+      } while (null != query.getCursor());
+
+      LOGGER.info("Exported {} documents", exported);
+    };
+
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
+  }
+
+  /**
+   * Retrieve one page of documents matching the given query. If requested, all index-reconstructible
+   * facets are served from the index data of the matching documents and the documents are loaded
+   * from the store only if other facets are requested, too.
+   */
+  private ResultPage<DocumentDto> queryPage(final DocumentQuery query, final List<String> requestedFacets,
+      final boolean projection) {
+    List<DocumentFacet<?>> active = new ArrayList<>();
+    activeFacets(requestedFacets, active::add);
+
+    Set<String> indexedFacetNames = new HashSet<>();
+    indexedFacetNames.add(ID_FIELD);
+    boolean needDocuments = false;
+    for (DocumentFacet<?> facet : active) {
+      if (projection && facet.isIndexReconstructible())
+        indexedFacetNames.add(facet.getName());
+      else
+        needDocuments = true;
+    }
+
+    ResultPage<JsonNode> hits = indexService.queryIndexData(query, indexedFacetNames);
+
+    Map<String, Document> documents = Collections.emptyMap();
+    if (needDocuments) {
+      List<String> ids = hits.getResults().stream() //
+          .map(h -> h.path(ID_FIELD).asText(null)) //
+          .filter(Objects::nonNull) //
+          .collect(Collectors.toList());
+      documents = documentService.getDocuments(ids).stream() //
+          .collect(Collectors.toMap(Document::getDocumentId, Function.identity(), (a, b) -> a));
+    }
+
+    List<DocumentDto> dtos = new ArrayList<>();
+    for (JsonNode hit : hits.getResults()) {
+      String documentId = hit.path(ID_FIELD).asText(null);
+      Document document = documents.get(documentId);
+      if (null == documentId || needDocuments && null == document) {
+        // not indexed properly or deleted in the meantime
+        continue;
+      }
+
+      DocumentDto responseDto = new DocumentDto();
+      for (DocumentFacet<?> facet : active) {
+        if (projection && facet.isIndexReconstructible())
+          facet.onRetrieveFromIndex(documentId, hit.get(facet.getName()), responseDto);
+        else
+          facet.onRetrieve(document, responseDto);
+      }
+      dtos.add(responseDto);
     }
-    return dtos;
+    return new ResultPage<>(dtos, hits.getNextCursor());
   }
 
   private void activeFacets(final List<String> requestedFacets, final Consumer<DocumentFacet<?>> facetConsumer) {
@@ -1,7 +1,9 @@
 package com.neverpile.eureka.api.index;
 
+import java.util.Collection;
 import java.util.List;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.neverpile.eureka.model.Document;
 import com.neverpile.common.condition.Condition;
 
@@ -19,4 +21,17 @@ public interface QueryService {
    * @return List of matching documents
    */
   List<Document> queryDocuments(DocumentQuery searchQuery);
+
+  /**
+   * Uses a Query object to list the index data of all matching documents without loading the
+   * documents themselves. Each element is an object holding the data provided by the facets via
+   * {@link com.neverpile.eureka.rest.api.document.DocumentFacet#getIndexData(Document)} keyed by
+   * facet name. The page may be empty if no document is matching.
+   *
+   * @param searchQuery the query to use
+   * @param facetNames the names of the facets whose index data is to be returned or
+   *          <code>null</code> to return the data of all facets
+   * @return page of index data of the matching documents along with the cursor to the next page
+   */
+  ResultPage<JsonNode> queryIndexData(DocumentQuery searchQuery, Collection<String> facetNames);
 }
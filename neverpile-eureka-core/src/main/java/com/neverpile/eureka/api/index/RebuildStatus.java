@@ -0,0 +1,164 @@
+package com.neverpile.eureka.api.index;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of the progress of the current or most recent index rebuild as reported by
+ * {@link IndexMaintenanceService#getRebuildStatus()}.
+ */
+public class RebuildStatus {
+  public enum State {
+    /**
+     * No rebuild has been run by this instance.
+     */
+    IDLE,
+    /**
+     * A rebuild is in progress.
+     */
+    RUNNING,
+    /**
+     * The most recent rebuild completed and the rebuilt index is active.
+     */
+    COMPLETED,
+    /**
+     * The most recent rebuild failed. It will be resumed from its last checkpoint.
+     */
+    FAILED
+  }
+
+  private State state = State.IDLE;
+
+  private String indexName;
+
+  private Instant startedAt;
+
+  private Instant finishedAt;
+
+  private long totalDocuments = -1;
+
+  private long processedDocuments;
+
+  private long failedDocuments;
+
+  private long resumedAt;
+
+  private double documentsPerSecond;
+
+  private Instant estimatedCompletion;
+
+  /**
+   * Get the state of the rebuild.
+   *
+   * @return the state
+   */
+  public State getState() {
+    return state;
+  }
+
+  public void setState(final State state) {
+    this.state = state;
+  }
+
+  /**
+   * Get the name of the index being built.
+   *
+   * @return the index name or <code>null</code> if no rebuild has been run
+   */
+  public String getIndexName() {
+    return indexName;
+  }
+
+  public void setIndexName(final String indexName) {
+    this.indexName = indexName;
+  }
+
+  public Instant getStartedAt() {
+    return startedAt;
+  }
+
+  public void setStartedAt(final Instant startedAt) {
+    this.startedAt = startedAt;
+  }
+
+  public Instant getFinishedAt() {
+    return finishedAt;
+  }
+
+  public void setFinishedAt(final Instant finishedAt) {
+    this.finishedAt = finishedAt;
+  }
+
+  /**
+   * Get the total number of documents to be indexed.
+   *
+   * @return the number of documents or -1 if not (yet) known
+   */
+  public long getTotalDocuments() {
+    return totalDocuments;
+  }
+
+  public void setTotalDocuments(final long totalDocuments) {
+    this.totalDocuments = totalDocuments;
+  }
+
+  /**
+   * Get the number of documents indexed so far, including those indexed before the rebuild was
+   * resumed.
+   *
+   * @return the number of documents
+   */
+  public long getProcessedDocuments() {
+    return processedDocuments;
+  }
+
+  public void setProcessedDocuments(final long processedDocuments) {
+    this.processedDocuments = processedDocuments;
+  }
+
+  /**
+   * Get the number of documents which could not be indexed.
+   *
+   * @return the number of documents
+   */
+  public long getFailedDocuments() {
+    return failedDocuments;
+  }
+
+  public void setFailedDocuments(final long failedDocuments) {
+    this.failedDocuments = failedDocuments;
+  }
+
+  /**
+   * Get the position in the document id listing from which the rebuild was resumed.
+   *
+   * @return the position or 0 if the rebuild started from scratch
+   */
+  public long getResumedAt() {
+    return resumedAt;
+  }
+
+  public void setResumedAt(final long resumedAt) {
+    this.resumedAt = resumedAt;
+  }
+
+  public double getDocumentsPerSecond() {
+    return documentsPerSecond;
+  }
+
+  public void setDocumentsPerSecond(final double documentsPerSecond) {
+    this.documentsPerSecond = documentsPerSecond;
+  }
+
+  /**
+   * Get the estimated time of completion based on the throughput so far.
+   *
+   * @return the estimated completion time or <code>null</code> if it cannot be estimated (yet)
+   */
+  public Instant getEstimatedCompletion() {
+    return estimatedCompletion;
+  }
+
+  public void setEstimatedCompletion(final Instant estimatedCompletion) {
+    this.estimatedCompletion = estimatedCompletion;
+  }
+}
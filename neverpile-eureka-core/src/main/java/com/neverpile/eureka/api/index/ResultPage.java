@@ -0,0 +1,33 @@
+package com.neverpile.eureka.api.index;
+
+import java.util.List;
+
+/**
+ * A page of query results along with the cursor from which the following page can be retrieved.
+ *
+ * @param <T> the type of result
+ */
+public class ResultPage<T> {
+  private final List<T> results;
+
+  private final String nextCursor;
+
+  public ResultPage(final List<T> results, final String nextCursor) {
+    this.results = results;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<T> getResults() {
+    return results;
+  }
+
+  /**
+   * Get the cursor to be passed via {@link DocumentQuery#setCursor(String)} in order to retrieve
+   * the following page.
+   *
+   * @return the cursor or <code>null</code> if this is the last page
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+}
@@ -17,6 +17,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.context.annotation.RequestScope;
 
 import com.neverpile.common.authorization.api.AuthorizationService;
@@ -24,6 +25,7 @@ import com.neverpile.common.authorization.basic.AllowAllAuthorizationService;
 import com.neverpile.common.openapi.OpenApiFragment;
 import com.neverpile.common.openapi.ResourceOpenApiFragment;
 import com.neverpile.common.openapi.ServersFragment;
+import com.neverpile.eureka.api.AsyncObjectStoreService;
 import com.neverpile.eureka.api.ContentElementIdGenerationStrategy;
 import com.neverpile.eureka.api.ContentElementService;
 import com.neverpile.eureka.api.DocumentAuthorizationService;
@@ -40,6 +42,8 @@ import com.neverpile.eureka.impl.documentservice.DefaultDocumentService;
 import com.neverpile.eureka.impl.documentservice.DefaultMultiVersioningDocumentService;
 import com.neverpile.eureka.impl.documentservice.UuidContentElementIdGenerationStrategy;
 import com.neverpile.eureka.impl.documentservice.UuidDocumentIdGenerationStrategy;
+import com.neverpile.eureka.impl.documentservice.VersionCompactor;
+import com.neverpile.eureka.impl.objectstore.BlockingAsyncObjectStoreAdapter;
 import com.neverpile.eureka.impl.tx.atomic.LocalAtomicReference;
 import com.neverpile.eureka.impl.tx.lock.LocalLockFactory;
 import com.neverpile.eureka.rest.api.document.DocumentResource;
@@ -61,6 +65,7 @@ import com.neverpile.eureka.tx.wal.TransactionWAL;
 import com.neverpile.eureka.tx.wal.WriteAheadLog;
 import com.neverpile.eureka.tx.wal.local.DefaultTransactionWAL;
 import com.neverpile.eureka.tx.wal.local.FileBasedWAL;
+import com.neverpile.eureka.tx.wal.local.SegmentedFileWAL;
 
 /**
  * This configuration builds the base auto configuration for neverpile eureka. All configuration defined here
@@ -157,6 +162,26 @@ public class NeverpileEurekaAutoConfiguration {
     }
   }
 
+  @Configuration
+  @EnableScheduling
+  @ConditionalOnProperty(name = "neverpile-eureka.document-service.retention.enabled", havingValue = "true")
+  public static class VersionCompactionConfiguration {
+    /**
+     * Provide a {@link VersionCompactor} which compacts the histories of the documents managed by
+     * the {@link DefaultMultiVersioningDocumentService} according to the configured retention
+     * policy. Compaction is activated by setting the property
+     * <code>neverpile-eureka.document-service.retention.enabled=true</code>.
+     *
+     * @return a VersionCompactor
+     */
+    @Bean
+    @ConditionalOnBean(DefaultMultiVersioningDocumentService.class)
+    @ConditionalOnMissingBean
+    public VersionCompactor versionCompactor() {
+      return new VersionCompactor();
+    }
+  }
+
   /**
    * Provide an implementation of {@link DocumentIdGenerationStrategy} which is based on UUIDs.
    * <p>
@@ -200,8 +225,9 @@ public class NeverpileEurekaAutoConfiguration {
   }
 
   /**
-   * Provide an implementation of {@link WriteAheadLog} which is backed by a local file. This
-   * implementation is <em>not</em> suitable for distributed installations.
+   * Provide an implementation of {@link WriteAheadLog} which is backed by segmented local files.
+   * This implementation is <em>not</em> suitable for distributed installations. Transactions left
+   * over in the log of the legacy single-file implementation are recovered upon start.
    * <p>
    * Back off if any other implementation is present.
    *
@@ -209,6 +235,23 @@ public class NeverpileEurekaAutoConfiguration {
    */
   @Bean
   @ConditionalOnMissingBean
+  @ConditionalOnProperty(name = "neverpile-eureka.wal.segmented", matchIfMissing = true)
+  public WriteAheadLog segmentedFileWriteAheadLog() {
+    return new SegmentedFileWAL();
+  }
+
+  /**
+   * Provide an implementation of {@link WriteAheadLog} which is backed by a single local file. This
+   * implementation is <em>not</em> suitable for distributed installations.
+   * <p>
+   * This legacy implementation is activated by setting the property
+   * <code>neverpile-eureka.wal.segmented=false</code>.
+   *
+   * @return a WriteAheadLog implementation
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(name = "neverpile-eureka.wal.segmented", matchIfMissing = false, havingValue = "false")
   public WriteAheadLog fileBasedWriteAheadLog() {
     return new FileBasedWAL();
   }
@@ -256,6 +299,22 @@ public class NeverpileEurekaAutoConfiguration {
     return new SimpleContentElementService();
   }
 
+  /**
+   * Provide an implementation of {@link AsyncObjectStoreService} which performs the blocking calls
+   * of the backing {@link ObjectStoreService} on a bounded thread pool.
+   * <p>
+   * Back off if any other implementation is present, e.g. if the object store supports asynchronous
+   * requests natively.
+   *
+   * @return an AsyncObjectStoreService implementation
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnBean(ObjectStoreService.class)
+  public AsyncObjectStoreService asyncObjectStoreService() {
+    return new BlockingAsyncObjectStoreAdapter();
+  }
+
   /**
    * Provide a default implementation of {@link ClusterLockFactory} which is based on a purely local
    * implementation.
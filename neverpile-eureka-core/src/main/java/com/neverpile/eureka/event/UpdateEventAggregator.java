@@ -1,23 +1,106 @@
 package com.neverpile.eureka.event;
 
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import com.neverpile.eureka.model.Document;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Coalesces {@link UpdateEvent}s for the same document into a single {@link AggregatedUpdateEvent}.
+ * An aggregated event is emitted once no further update for the document has been seen for the
+ * quiet period, or at the latest once the maximum delay since the first pending update has passed.
+ * <p>
+ * All pending documents share a single scheduler thread. Instead of cancelling and re-scheduling a
+ * task on every update, a pending entry is merely touched and its (single) task re-arms itself
+ * lazily when it finds that the quiet period has been extended in the meantime.
+ * <p>
+ * The number of pending documents is bounded. If the bound is reached, updates for documents not
+ * yet pending are emitted immediately instead of being aggregated.
+ */
 @Component
 public class UpdateEventAggregator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(UpdateEventAggregator.class);
+
+  private static final class Pending {
+    final long firstSeen;
+    volatile long lastSeen;
+    volatile Document document;
+
+    Pending(final Document document, final long now) {
+      this.document = document;
+      this.firstSeen = now;
+      this.lastSeen = now;
+    }
+  }
+
+  @Value("${neverpile-eureka.event.update-aggregation.quiet-period:1000}")
+  long quietPeriodMillis = 1000;
+
+  @Value("${neverpile-eureka.event.update-aggregation.max-delay:10000}")
+  long maxDelayMillis = 10000;
+
+  @Value("${neverpile-eureka.event.update-aggregation.max-pending:100000}")
+  int maxPending = 100000;
 
   private final ApplicationEventPublisher applicationEventPublisher;
 
-  private final ConcurrentHashMap<String, Timer> aggregateTimers = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+
+  private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+
+  private ScheduledExecutorService scheduler;
 
-  public UpdateEventAggregator(final ApplicationEventPublisher applicationEventPublisher) {
+  private Counter coalescedCounter;
+
+  private Counter emittedCounter;
+
+  private Counter overflowCounter;
+
+  private Timer emissionLagTimer;
+
+  public UpdateEventAggregator(final ApplicationEventPublisher applicationEventPublisher,
+      final ObjectProvider<MeterRegistry> meterRegistry) {
     this.applicationEventPublisher = applicationEventPublisher;
+    this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+  }
+
+  @PostConstruct
+  public void start() {
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "update-event-aggregator");
+      t.setDaemon(true);
+      return t;
+    });
+
+    meterRegistry.gaugeMapSize("eureka.event.aggregation.pending", Tags.empty(), pending);
+    coalescedCounter = meterRegistry.counter("eureka.event.aggregation.coalesced");
+    emittedCounter = meterRegistry.counter("eureka.event.aggregation.emitted");
+    overflowCounter = meterRegistry.counter("eureka.event.aggregation.overflow");
+    emissionLagTimer = meterRegistry.timer("eureka.event.aggregation.lag");
+  }
+
+  @PreDestroy
+  public void stop() {
+    scheduler.shutdownNow();
   }
 
   @EventListener
@@ -28,22 +111,73 @@ public class UpdateEventAggregator {
       return;
     }
 
-    aggregateTimers.compute(docId, (i, t) -> {
-      if (null == t) {
-        t = new Timer();
-      } else {
-        t.cancel();
-        t = new Timer();
+    long now = System.currentTimeMillis();
+
+    boolean[] scheduleNew = new boolean[1];
+    Pending p = pending.compute(docId, (i, existing) -> {
+      if (null != existing) {
+        existing.document = event.getDocument();
+        existing.lastSeen = now;
+        coalescedCounter.increment();
+        return existing;
       }
 
-      t.schedule(new TimerTask() {
-        @Override
-        public void run() {
-          aggregateTimers.remove(docId);
-          applicationEventPublisher.publishEvent(new AggregatedUpdateEvent(event.getDocument()));
-        }
-      }, TimeUnit.SECONDS.toMillis(1));
-      return t;
+      if (pending.size() >= maxPending) {
+        return null;
+      }
+
+      scheduleNew[0] = true;
+      return new Pending(event.getDocument(), now);
     });
+
+    if (null == p) {
+      // capacity exhausted - don't aggregate, but emit right away
+      overflowCounter.increment();
+      emit(event.getDocument(), now);
+    } else if (scheduleNew[0]) {
+      schedule(docId, quietPeriodMillis);
+    }
+  }
+
+  private void schedule(final String docId, final long delayMillis) {
+    try {
+      scheduler.schedule(() -> check(docId), delayMillis, TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      // scheduler is shut down
+      LOGGER.warn("Dropping aggregated update event for document {}", docId, e);
+      pending.remove(docId);
+    }
+  }
+
+  private void check(final String docId) {
+    long now = System.currentTimeMillis();
+
+    Pending p = pending.get(docId);
+    if (null == p) {
+      return;
+    }
+
+    long dueAt = Math.min(p.lastSeen + quietPeriodMillis, p.firstSeen + maxDelayMillis);
+    if (dueAt > now) {
+      // quiet period was extended in the meantime - re-arm
+      schedule(docId, dueAt - now);
+      return;
+    }
+
+    // only this task ever removes the entry, so a concurrent update either made it in or will
+    // start a new aggregation
+    pending.remove(docId, p);
+    emit(p.document, p.firstSeen);
+  }
+
+  private void emit(final Document document, final long firstSeen) {
+    emissionLagTimer.record(System.currentTimeMillis() - firstSeen, TimeUnit.MILLISECONDS);
+    emittedCounter.increment();
+
+    try {
+      applicationEventPublisher.publishEvent(new AggregatedUpdateEvent(document));
+    } catch (Exception e) {
+      LOGGER.error("Failed to publish aggregated update event for document {}", document.getDocumentId(), e);
+    }
   }
 }
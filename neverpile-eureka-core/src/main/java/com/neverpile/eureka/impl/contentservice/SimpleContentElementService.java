@@ -8,6 +8,7 @@ import java.io.InputStream;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.ws.rs.core.MediaType;
 
@@ -17,6 +18,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StreamUtils;
 
+import com.neverpile.eureka.api.AsyncObjectStoreService;
 import com.neverpile.eureka.api.ContentElementIdGenerationStrategy;
 import com.neverpile.eureka.api.ContentElementService;
 import com.neverpile.eureka.api.ObjectStoreService;
@@ -40,6 +42,9 @@ public class SimpleContentElementService implements ContentElementService {
   @Autowired
   private ObjectStoreService objectStore;
 
+  @Autowired
+  private AsyncObjectStoreService asyncObjectStore;
+
   @Autowired
   private ContentElementIdGenerationStrategy idGenerationStrategy;
 
@@ -61,6 +66,12 @@ public class SimpleContentElementService implements ContentElementService {
     return storeObject == null ? null : storeObject.getInputStream();
   }
 
+  @Override
+  public CompletableFuture<InputStream> getContentElementAsync(final String documentId, final String contentId) {
+    return asyncObjectStore.getAsync(createObjectName(documentId, contentId)) //
+        .thenApply(storeObject -> storeObject == null ? null : storeObject.getInputStream());
+  }
+
   @Override
   public boolean deleteContentElement(final String documentId, final String contentId) {
     ObjectName objectName = ObjectName.of("document", documentId, contentId);
@@ -3,8 +3,10 @@ package com.neverpile.eureka.impl.documentservice;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -12,14 +14,20 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
+
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StreamUtils;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -27,14 +35,19 @@ import com.neverpile.common.opentracing.TraceInvocation;
 import com.neverpile.eureka.api.DocumentAssociatedEntityStore;
 import com.neverpile.eureka.api.DocumentService;
 import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.api.ObjectStoreService.ObjectHead;
 import com.neverpile.eureka.api.ObjectStoreService.ObjectStoreException;
 import com.neverpile.eureka.api.ObjectStoreService.StoreObject;
 import com.neverpile.eureka.api.exception.VersionMismatchException;
+import com.neverpile.eureka.event.Event;
 import com.neverpile.eureka.event.EventPublisher;
 import com.neverpile.eureka.model.Document;
 import com.neverpile.eureka.model.ObjectName;
 import com.neverpile.eureka.rest.api.exception.NotFoundException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
 /**
  * An implementation of {@link DocumentService} which stores all document metadata within an object
  * store. It does not implement multi-versioning and thus updates are destructive.
@@ -57,6 +70,24 @@ public class DefaultDocumentService implements DocumentService, DocumentAssociat
   @Autowired
   private ModelMapper modelMapper;
 
+  @Autowired
+  private ObjectProvider<MeterRegistry> meterRegistry;
+
+  /**
+   * The maximum total size of the serialized documents held by the document cache. The cache is disabled unless a
+   * positive size is configured, as it relies on the object store changing an object's version with each write.
+   */
+  @Value("${neverpile-eureka.document-service.cache.max-weight:0}")
+  long cacheMaxWeight = 0;
+
+  /**
+   * The number of object store entries retrieved at once when listing all documents.
+   */
+  @Value("${neverpile-eureka.document-service.list-page-size:1000}")
+  int listPageSize = 1000;
+
+  private DocumentCache cache;
+
   private static final String DOCUMENTPREFIX = "document";
 
   /**
@@ -105,6 +136,21 @@ public class DefaultDocumentService implements DocumentService, DocumentAssociat
       return documents.computeIfAbsent(documentId, DefaultDocumentService.this::doRetrieveDocument);
     }
 
+    public List<TransactionalDocument> documents(final List<String> documentIds) {
+      // retrieve the documents not yet known in one go
+      Map<ObjectName, String> missing = new LinkedHashMap<>();
+      documentIds.stream() //
+          .filter(id -> !documents.containsKey(id)) //
+          .forEach(id -> missing.put(createDocumentObjectName(id), id));
+
+      if (!missing.isEmpty()) {
+        Map<ObjectName, StoreObject> stored = objectStore.getAll(missing.keySet());
+        missing.forEach((name, id) -> documents.put(id, toTransactionalDocument(id, name, stored.get(name))));
+      }
+
+      return documentIds.stream().map(this::document).collect(Collectors.toList());
+    }
+
     public void create(final DocumentPdo document) {
       if (!mutable)
         throw new IllegalStateException("Mutations not supported outside transactions");
@@ -205,6 +251,26 @@ public class DefaultDocumentService implements DocumentService, DocumentAssociat
     }
   }
 
+  @PostConstruct
+  public void initCache() {
+    if (cacheMaxWeight > 0) {
+      cache = new DocumentCache(cacheMaxWeight, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+  }
+
+  /**
+   * Drop documents from the cache as soon as they are changed by this instance. Changes by other instances are
+   * detected through the store version.
+   * 
+   * @param event the document event
+   */
+  @EventListener
+  public void invalidateCachedDocument(final Event event) {
+    if (null != cache && null != event.getDocumentId()) {
+      cache.invalidate(event.getDocumentId());
+    }
+  }
+
   EntityRegistry txEntityRegistry() {
     if (!TransactionSynchronizationManager.isSynchronizationActive()) {
       // return a read-only entity registry
@@ -230,7 +296,7 @@ public class DefaultDocumentService implements DocumentService, DocumentAssociat
   @Override
   @TraceInvocation
   public Document createDocument(final Document document) {
-    if (null != objectStore.get(createDocumentObjectName(document.getDocumentId())))
+    if (null != objectStore.head(createDocumentObjectName(document.getDocumentId())))
       throw new DocumentAlreadyExistsException(document);
 
     if (txEntityRegistry().document(document.getDocumentId()).document.isPresent())
@@ -266,7 +332,7 @@ public class DefaultDocumentService implements DocumentService, DocumentAssociat
     // @formatter:off
     // Second part of ObjectName is documentId. See 'createDocumentDirectoryName()'.
     return objectStore
-        .list(ObjectName.of(DOCUMENTPREFIX))
+        .listPaged(ObjectName.of(DOCUMENTPREFIX), listPageSize)
         .filter(s -> s.getObjectName().to().length > 1)
         .map(s -> s.getObjectName().to()[1]);
     // @formatter:on
@@ -277,8 +343,8 @@ public class DefaultDocumentService implements DocumentService, DocumentAssociat
   @TraceInvocation
   public List<Document> getDocuments(final List<String> documentIds) {
     // @formatter:off
-    return documentIds.stream()
-        .map(this::getDocument)
+    return txEntityRegistry().documents(documentIds).stream()
+        .map(d -> d.document)
         .filter(Optional::isPresent)
         .map(Optional::get)
         .collect(Collectors.toList());
@@ -305,21 +371,74 @@ public class DefaultDocumentService implements DocumentService, DocumentAssociat
   }
 
   /**
-   * Perform the actual retrieval of a document based on a given id.
+   * Perform the actual retrieval of a document based on a given id. If the cache is enabled, the
+   * current version is looked up first so that the document object isn't retrieved at all on a hit.
    * 
    * @param documentId the id of the document to retrieve
    * @return the document
    */
   private TransactionalDocument doRetrieveDocument(final String documentId) {
     ObjectName objectName = createDocumentObjectName(documentId);
+    if (null == cache)
+      return toTransactionalDocument(documentId, objectName, objectStore.get(objectName));
+
+    ObjectHead head = objectStore.head(objectName);
+    if (null == head)
+      return new TransactionalDocument(Optional.empty(), ObjectStoreService.NEW_VERSION);
+
+    Optional<DocumentPdo> doc = cache.get(documentId, head.getVersion());
+    if (doc.isPresent())
+      return new TransactionalDocument(doc, head.getVersion());
+
     StoreObject storedDocument = objectStore.get(objectName);
+    if (null == storedDocument)
+      return new TransactionalDocument(Optional.empty(), ObjectStoreService.NEW_VERSION);
+
+    return new TransactionalDocument(Optional.of(parseDocument(documentId, objectName, storedDocument)),
+        storedDocument.getVersion());
+  }
 
+  /**
+   * Parse a document retrieved from the object store.
+   * 
+   * @param documentId the id of the document
+   * @param objectName the name of the document object
+   * @param storedDocument the document object or <code>null</code> if it does not exist
+   * @return the document
+   */
+  private TransactionalDocument toTransactionalDocument(final String documentId, final ObjectName objectName,
+      final StoreObject storedDocument) {
     if (null == storedDocument)
       return new TransactionalDocument(Optional.empty(), ObjectStoreService.NEW_VERSION);
 
-    try {
-      DocumentPdo doc = objectMapper.readValue(storedDocument.getInputStream(), DocumentPdo.class);
-      return new TransactionalDocument(Optional.of(doc), storedDocument.getVersion());
+    if (null != cache) {
+      // on a hit the stream isn't opened at all
+      Optional<DocumentPdo> doc = cache.get(documentId, storedDocument.getVersion());
+      if (doc.isPresent())
+        return new TransactionalDocument(doc, storedDocument.getVersion());
+    }
+
+    return new TransactionalDocument(Optional.of(parseDocument(documentId, objectName, storedDocument)),
+        storedDocument.getVersion());
+  }
+
+  /**
+   * Parse a document retrieved from the object store and add it to the cache, if enabled.
+   * 
+   * @param documentId the id of the document
+   * @param objectName the name of the document object
+   * @param storedDocument the document object
+   * @return the document
+   */
+  private DocumentPdo parseDocument(final String documentId, final ObjectName objectName,
+      final StoreObject storedDocument) {
+    try (InputStream is = storedDocument.getInputStream()) {
+      if (null == cache)
+        return objectMapper.readValue(is, DocumentPdo.class);
+
+      byte[] serialized = StreamUtils.copyToByteArray(is);
+      return cache.put(documentId, storedDocument.getVersion(), objectMapper.readValue(serialized, DocumentPdo.class),
+          serialized.length);
     } catch (IOException e) {
       LOGGER.error("Failed to deserialize document @{}", objectName, e);
       throw new DocumentServiceException("Failed to retrieve document");
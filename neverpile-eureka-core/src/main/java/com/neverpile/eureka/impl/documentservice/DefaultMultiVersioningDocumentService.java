@@ -6,11 +6,16 @@ import java.io.IOException;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -19,10 +24,12 @@ import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
@@ -33,11 +40,13 @@ import com.neverpile.common.util.VisibleForTesting;
 import com.neverpile.eureka.api.DocumentAssociatedEntityStore;
 import com.neverpile.eureka.api.MultiVersioningDocumentService;
 import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.api.ObjectStoreService.ListPage;
 import com.neverpile.eureka.api.ObjectStoreService.ObjectNotFoundException;
 import com.neverpile.eureka.api.ObjectStoreService.ObjectStoreException;
 import com.neverpile.eureka.api.ObjectStoreService.StoreObject;
 import com.neverpile.eureka.api.exception.VersionMismatchException;
 import com.neverpile.eureka.event.EventPublisher;
+import com.neverpile.eureka.model.CompactedVersionRange;
 import com.neverpile.eureka.model.Document;
 import com.neverpile.eureka.model.ObjectName;
 import com.neverpile.eureka.rest.api.exception.NotFoundException;
@@ -50,6 +59,15 @@ import com.neverpile.eureka.util.CompositeKey;
  * <p>
  * Optimistic concurrency control is implemented based on object store object version tracking as
  * well as document version timestamp checking.
+ * <p>
+ * The versions of each document are recorded in a {@link VersionManifest} which is rewritten along
+ * with each new version. The manifest is written after the version object, so a version only
+ * becomes visible once it has been stored completely. Documents stored before manifests were
+ * introduced have their versions listed from the object store until the next version is written.
+ * <p>
+ * The history of a document may be compacted according to a {@link VersionRetentionPolicy} using
+ * {@link #compactVersions(String, VersionRetentionPolicy)}. Removed versions are recorded as
+ * {@link CompactedVersionRange}s in the manifest.
  */
 public class DefaultMultiVersioningDocumentService
     implements
@@ -76,6 +94,12 @@ public class DefaultMultiVersioningDocumentService
 
   @Autowired
   private Clock clock;
+
+  /**
+   * The number of object store entries retrieved at once when listing all documents.
+   */
+  @Value("${neverpile-eureka.document-service.list-page-size:1000}")
+  int listPageSize = 1000;
   
   @VisibleForTesting
   public static final String DOCUMENT_PREFIX = "document";
@@ -83,6 +107,9 @@ public class DefaultMultiVersioningDocumentService
   @VisibleForTesting
   public static final DateTimeFormatter VERSION_FORMATTER = DateTimeFormatter.ISO_INSTANT;
 
+  @VisibleForTesting
+  public static final String VERSION_MANIFEST = "versions.json";
+
   private static final Instant NEW_VERSION_MARKER = Instant.ofEpochMilli(Long.MAX_VALUE);
 
   private enum State {
@@ -110,11 +137,46 @@ public class DefaultMultiVersioningDocumentService
     }
   }
 
+  /**
+   * The version timestamps of a document in ascending order along with the ranges of compacted
+   * versions and the object store version of the manifest they were read from.
+   */
+  private static class VersionList {
+    final List<Instant> versions;
+
+    final List<CompactedVersionRange> compacted;
+
+    final String manifestVersion;
+
+    public VersionList(final List<Instant> versions, final List<CompactedVersionRange> compacted,
+        final String manifestVersion) {
+      this.versions = versions;
+      this.compacted = compacted;
+      this.manifestVersion = manifestVersion;
+    }
+
+    public Optional<Instant> current() {
+      return versions.isEmpty() ? Optional.empty() : Optional.of(versions.get(versions.size() - 1));
+    }
+
+    public Optional<Instant> asOf(final Instant pointInTime) {
+      int index = Collections.binarySearch(versions, pointInTime);
+      if (index < 0) {
+        // the last version before the point in time
+        index = -index - 2;
+      }
+      return index >= 0 ? Optional.of(versions.get(index)) : Optional.empty();
+    }
+  }
+
   private class EntityRegistry {
     private final boolean mutable;
 
     final Map<CompositeKey, TransactionalDocument> documents = new HashMap<>();
 
+    // current version timestamps, determined once per registry
+    final Map<String, Optional<Instant>> currentVersions = new HashMap<>();
+
     public EntityRegistry(final boolean mutable) {
       this.mutable = mutable;
     }
@@ -122,7 +184,8 @@ public class DefaultMultiVersioningDocumentService
     public TransactionalDocument document(final String documentId, Instant versionTimestamp) {
       if (null == versionTimestamp) {
         // retrieve latest version
-        Optional<Instant> ts = getCurrentVersionTimestamp(documentId);
+        Optional<Instant> ts = currentVersions.computeIfAbsent(documentId,
+            DefaultMultiVersioningDocumentService.this::getCurrentVersionTimestamp);
         if (ts.isPresent()) {
           versionTimestamp = ts.get();
           // fall through
@@ -140,6 +203,38 @@ public class DefaultMultiVersioningDocumentService
           k -> new TransactionalDocument(doRetrieveDocument(documentId, effectiveTimestamp)));
     }
 
+    /**
+     * Retrieve the current versions of the given documents which are not yet known using bulk
+     * object store operations: one for the version manifests and one for the versions themselves.
+     * 
+     * @param documentIds the document ids
+     */
+    public void preload(final List<String> documentIds) {
+      Map<ObjectName, String> unknownManifests = new LinkedHashMap<>();
+      documentIds.stream() //
+          .filter(id -> !currentVersions.containsKey(id)) //
+          .forEach(id -> unknownManifests.put(createVersionManifestObjectName(id), id));
+
+      if (!unknownManifests.isEmpty()) {
+        Map<ObjectName, StoreObject> manifests = objectStore.getAll(unknownManifests.keySet());
+        unknownManifests.forEach((name, id) -> currentVersions.put(id,
+            toVersionList(id, name, manifests.get(name)).current()));
+      }
+
+      Map<ObjectName, CompositeKey> unknownVersions = new LinkedHashMap<>();
+      documentIds.forEach(id -> currentVersions.get(id).ifPresent(ts -> {
+        CompositeKey key = new CompositeKey(id, ts);
+        if (!documents.containsKey(key))
+          unknownVersions.put(createDocumentObjectName(id, ts), key);
+      }));
+
+      if (!unknownVersions.isEmpty()) {
+        Map<ObjectName, StoreObject> stored = objectStore.getAll(unknownVersions.keySet());
+        unknownVersions.forEach(
+            (name, key) -> documents.put(key, new TransactionalDocument(toDocument(name, stored.get(name)))));
+      }
+    }
+
     public Instant create(final DocumentPdo document) {
       if (!mutable)
         throw new IllegalStateException("Mutations not supported outside transactions");
@@ -301,8 +396,12 @@ public class DefaultMultiVersioningDocumentService
   @Override
   @TraceInvocation
   public Optional<Document> getDocument(final String documentId) {
+    return getDocument(txEntityRegistry(), documentId);
+  }
+
+  private Optional<Document> getDocument(final EntityRegistry registry, final String documentId) {
     // Go through tx registry for current version
-    DocumentPdo doc = txEntityRegistry().document(documentId, null).document;
+    DocumentPdo doc = registry.document(documentId, null).document;
 
     // we verify the deleted-status only upon retrieval of the current version
     if (doc != null && doc.isDeleted()) {
@@ -354,20 +453,47 @@ public class DefaultMultiVersioningDocumentService
   @TraceInvocation
   public Stream<String> getAllDocumentIds() {
     // @formatter:off
-    // Second part of ObjectName is documentId. See 'createDocumentDirectoryName()'.
     return objectStore
-        .list(ObjectName.of(DOCUMENT_PREFIX))
+        .listPaged(ObjectName.of(DOCUMENT_PREFIX), listPageSize)
+        .filter(s -> s.getObjectName().to().length > 1)
+        .map(DefaultMultiVersioningDocumentService::getDocumentId);
+    // @formatter:on
+  }
+
+  /**
+   * Retrieve a page of the listing of all documents. Passing the continuation token of a page
+   * resumes the listing after it, so that all documents can be visited in chunks without listing
+   * the previous ones again. The IDs of the listed documents are obtained using
+   * {@link #getDocumentId(StoreObject)}.
+   *
+   * @param continuationToken the token of the previous page, <code>null</code> for the first page
+   * @param maxDocuments the maximum number of documents of the page
+   * @return the page
+   */
+  ListPage getDocumentPage(final String continuationToken, final int maxDocuments) {
+    ListPage page = objectStore.listPage(ObjectName.of(DOCUMENT_PREFIX), continuationToken, maxDocuments);
+
+    // @formatter:off
+    return new ListPage(page.getObjects().stream()
         .filter(s -> s.getObjectName().to().length > 1)
-        .map(s -> s.getObjectName().to()[1]);
+        .collect(Collectors.toList()), page.getContinuationToken());
     // @formatter:on
   }
 
+  static String getDocumentId(final StoreObject documentDirectory) {
+    // Second part of ObjectName is documentId. See 'createDocumentDirectoryName()'.
+    return documentDirectory.getObjectName().to()[1];
+  }
+
   @Override
   @TraceInvocation
   public List<Document> getDocuments(final List<String> documentIds) {
+    EntityRegistry registry = txEntityRegistry();
+    registry.preload(documentIds);
+
     // @formatter:off
     return documentIds.stream()
-        .map(this::getDocument)
+        .map(id -> getDocument(registry, id))
         .filter(Optional::isPresent)
         .map(Optional::get)
         .collect(Collectors.toList());
@@ -395,11 +521,7 @@ public class DefaultMultiVersioningDocumentService
   }
 
   private Optional<Instant> getCurrentVersionTimestamp(final String documentId) {
-    List<Instant> versions = getVersions(documentId);
-    if (versions.isEmpty())
-      return Optional.empty();
-
-    return Optional.of(versions.get(versions.size() - 1));
+    return readVersionList(documentId).current();
   }
 
   /**
@@ -411,8 +533,17 @@ public class DefaultMultiVersioningDocumentService
    */
   private DocumentPdo doRetrieveDocument(final String documentId, final Instant versionTimestamp) {
     ObjectName objectName = createDocumentObjectName(documentId, versionTimestamp);
-    StoreObject storedDocument = objectStore.get(objectName);
+    return toDocument(objectName, objectStore.get(objectName));
+  }
 
+  /**
+   * Parse a document version retrieved from the object store.
+   * 
+   * @param objectName the name of the version object
+   * @param storedDocument the version object or <code>null</code> if it does not exist
+   * @return the document or <code>null</code>
+   */
+  private DocumentPdo toDocument(final ObjectName objectName, final StoreObject storedDocument) {
     if (null == storedDocument)
       return null;
 
@@ -437,15 +568,15 @@ public class DefaultMultiVersioningDocumentService
     try {
       try {
         // check for last minute version clash _within_ the write lock
-        List<Instant> upToDateVersionList = doRetrieveVersionList(document.getDocumentId());
+        VersionList upToDateVersionList = readVersionList(document.getDocumentId());
+        Optional<Instant> upToDateVersion = upToDateVersionList.current();
 
         // no initial timestamp or empty version list means: new document and thus no clash
         if (initialTimestamp != null //
-            && !upToDateVersionList.isEmpty() //
-            && upToDateVersionList.get(upToDateVersionList.size() - 1).isAfter(initialTimestamp)) {
+            && upToDateVersion.isPresent() //
+            && upToDateVersion.get().isAfter(initialTimestamp)) {
           throw new VersionMismatchException("Mid-air-collision writing a document version",
-              document.getVersionTimestamp().toString(),
-              upToDateVersionList.get(upToDateVersionList.size() - 1).toString());
+              document.getVersionTimestamp().toString(), upToDateVersion.get().toString());
         }
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream(65535);
@@ -456,6 +587,8 @@ public class DefaultMultiVersioningDocumentService
           objectStore.put(objectName, ObjectStoreService.NEW_VERSION, new ByteArrayInputStream(baos.toByteArray()),
               baos.size());
 
+          writeVersionManifest(document.getDocumentId(), upToDateVersionList, document.getVersionTimestamp());
+
           return document;
         } catch (ObjectStoreException e) {
           LOGGER.error("Failed to store document @{}", objectName, e);
@@ -478,6 +611,10 @@ public class DefaultMultiVersioningDocumentService
     return createDocumentDirectoryName(documentId).append(VERSION_FORMATTER.format(versionTimestamp));
   }
 
+  protected ObjectName createVersionManifestObjectName(final String documentId) {
+    return ObjectName.of(DOCUMENT_PREFIX, documentId, VERSION_MANIFEST);
+  }
+
   @Override
   @TraceInvocation
   public Optional<Document> getDocumentVersion(final String documentId, final Instant versionTimestamp) {
@@ -495,11 +632,192 @@ public class DefaultMultiVersioningDocumentService
   @Cacheable("documentVersions")
   @TraceInvocation
   public List<Instant> getVersions(final String documentId) {
-    return doRetrieveVersionList(documentId);
+    return Collections.unmodifiableList(readVersionList(documentId).versions);
+  }
+
+  @Override
+  @TraceInvocation
+  public List<Instant> getVersions(final String documentId, final int offset, final int limit) {
+    List<Instant> versions = readVersionList(documentId).versions;
+    int from = Math.min(Math.max(offset, 0), versions.size());
+    return Collections.unmodifiableList(versions.subList(from, (int) Math.min((long) from + limit, versions.size())));
+  }
+
+  @Override
+  @TraceInvocation
+  public Optional<Instant> getVersionAsOf(final String documentId, final Instant pointInTime) {
+    return readVersionList(documentId).asOf(pointInTime);
+  }
+
+  @Override
+  @TraceInvocation
+  public List<CompactedVersionRange> getCompactedVersions(final String documentId) {
+    return Collections.unmodifiableList(readVersionList(documentId).compacted);
+  }
+
+  /**
+   * Compact the history of a document by removing the versions superseded according to the given
+   * retention policy. The version manifest is rewritten before the version objects are deleted, so
+   * that an interrupted compaction leaves unreferenced objects behind at worst, but never a manifest
+   * referencing missing versions.
+   * 
+   * @param documentId the id of the document to compact
+   * @param policy the retention policy to apply
+   * @return the number of versions removed
+   */
+  @Transactional
+  @CacheEvict(cacheNames = "documentVersions", key = "#documentId")
+  @TraceInvocation
+  public int compactVersions(final String documentId, final VersionRetentionPolicy policy) {
+    Lock writeLock = lock.writeLock("document-" + documentId);
+    writeLock.lock();
+    try {
+      VersionList versionList = readVersionList(documentId);
+      List<Instant> superseded = policy.selectSuperseded(versionList.versions, clock.instant());
+      if (superseded.isEmpty())
+        return 0;
+
+      Set<Instant> supersededSet = new HashSet<>(superseded);
+      List<Instant> retained = versionList.versions.stream() //
+          .filter(v -> !supersededSet.contains(v)) //
+          .collect(Collectors.toList());
+
+      putVersionManifest(documentId, new VersionManifest(retained,
+          mergeCompactedRanges(versionList, supersededSet, retained)), versionList.manifestVersion);
+
+      for (Instant version : superseded) {
+        objectStore.delete(createDocumentObjectName(documentId, version));
+      }
+
+      LOGGER.debug("Removed {} superseded versions of document {}", superseded.size(), documentId);
+
+      return superseded.size();
+    } catch (IOException e) {
+      LOGGER.error("Failed to serialize version manifest", e);
+      throw new DocumentServiceException("Failed to compact document versions");
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Merge the runs of superseded versions into the compacted ranges of a version list. Ranges which
+   * are not separated by a retained version are joined.
+   * 
+   * @param versionList the version list before compaction
+   * @param superseded the superseded versions
+   * @param retained the retained versions in ascending order
+   * @return the compacted ranges in ascending order
+   */
+  private static List<CompactedVersionRange> mergeCompactedRanges(final VersionList versionList,
+      final Set<Instant> superseded, final List<Instant> retained) {
+    List<CompactedVersionRange> ranges = new ArrayList<>(versionList.compacted);
+
+    // collect runs of consecutive superseded versions
+    CompactedVersionRange run = null;
+    for (Instant version : versionList.versions) {
+      if (!superseded.contains(version)) {
+        run = null;
+      } else if (null == run) {
+        run = new CompactedVersionRange(version, version, 1);
+        ranges.add(run);
+      } else {
+        run.setTo(version);
+        run.setCount(run.getCount() + 1);
+      }
+    }
+
+    ranges.sort(Comparator.comparing(CompactedVersionRange::getFrom));
+
+    List<CompactedVersionRange> merged = new ArrayList<>(ranges.size());
+    for (CompactedVersionRange range : ranges) {
+      CompactedVersionRange last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+      if (null != last && !isRetainedBetween(retained, last.getTo(), range.getFrom())) {
+        merged.set(merged.size() - 1,
+            new CompactedVersionRange(last.getFrom(), range.getTo(), last.getCount() + range.getCount()));
+      } else {
+        merged.add(range);
+      }
+    }
+
+    return merged;
+  }
+
+  private static boolean isRetainedBetween(final List<Instant> retained, final Instant from, final Instant to) {
+    int index = Collections.binarySearch(retained, from);
+    index = index < 0 ? -index - 1 : index + 1;
+    return index < retained.size() && retained.get(index).isBefore(to);
+  }
+
+  /**
+   * Read the versions of a document from its version manifest. Not cached.
+   * 
+   * @param documentId the id of the document to retrieve the version list from
+   * @return the versions of the corresponding document
+   */
+  private VersionList readVersionList(final String documentId) {
+    ObjectName objectName = createVersionManifestObjectName(documentId);
+    return toVersionList(documentId, objectName, objectStore.get(objectName));
+  }
+
+  /**
+   * Parse a version manifest retrieved from the object store, falling back to listing the versions
+   * if there is none.
+   * 
+   * @param documentId the id of the document
+   * @param objectName the name of the manifest object
+   * @param storedManifest the manifest object or <code>null</code> if it does not exist
+   * @return the versions of the corresponding document
+   */
+  private VersionList toVersionList(final String documentId, final ObjectName objectName,
+      final StoreObject storedManifest) {
+    if (null == storedManifest)
+      return new VersionList(doRetrieveVersionList(documentId), Collections.emptyList(),
+          ObjectStoreService.NEW_VERSION);
+
+    try {
+      VersionManifest manifest = objectMapper.readValue(storedManifest.getInputStream(), VersionManifest.class);
+      return new VersionList(manifest.getVersions(),
+          null != manifest.getCompacted() ? manifest.getCompacted() : Collections.emptyList(),
+          storedManifest.getVersion());
+    } catch (IOException e) {
+      LOGGER.error("Failed to deserialize version manifest @{}", objectName, e);
+      throw new DocumentServiceException("Failed to retrieve document versions");
+    }
+  }
+
+  /**
+   * Record a new version in the version manifest of a document.
+   * 
+   * @param documentId the id of the document
+   * @param versionList the versions of the document before the new one
+   * @param versionTimestamp the timestamp of the new version
+   */
+  private void writeVersionManifest(final String documentId, final VersionList versionList,
+      final Instant versionTimestamp) throws IOException {
+    List<Instant> versions = new ArrayList<>(versionList.versions.size() + 1);
+    versions.addAll(versionList.versions);
+    int index = Collections.binarySearch(versions, versionTimestamp);
+    if (index < 0) {
+      versions.add(-index - 1, versionTimestamp);
+    }
+
+    putVersionManifest(documentId, new VersionManifest(versions, versionList.compacted),
+        versionList.manifestVersion);
+  }
+
+  private void putVersionManifest(final String documentId, final VersionManifest manifest,
+      final String manifestVersion) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(
+        (manifest.getVersions().size() + manifest.getCompacted().size() * 3) * 32 + 32);
+    objectMapper.writeValue(baos, manifest);
+
+    objectStore.put(createVersionManifestObjectName(documentId), manifestVersion,
+        new ByteArrayInputStream(baos.toByteArray()), baos.size());
   }
 
   /**
-   * The actual work of retrieving the list of versions of a document. Not cached.
+   * List the versions of a document without a version manifest from the object store.
    * 
    * @param documentId the id of the document to retrieve the version list from
    * @return a list of versions to the corresponding document
@@ -0,0 +1,170 @@
+package com.neverpile.eureka.impl.documentservice;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.neverpile.eureka.model.ContentElement;
+import com.neverpile.eureka.model.Digest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A bounded cache of parsed documents used by {@link DefaultDocumentService}. Each entry records the object store
+ * version the document was parsed from and a lookup only hits if that version matches the one currently stored, so a
+ * document is effectively keyed by its ID and store version. There is at most one entry per document.
+ * <p>
+ * The cache is weighted by the size of the serialized documents. Once the total weight exceeds the maximum, the least
+ * recently used entries are evicted. The cached documents are never handed out: {@link #get(String, String)} returns a
+ * copy which the caller may modify freely.
+ */
+class DocumentCache {
+  private static final class Entry {
+    final String version;
+
+    final DocumentPdo document;
+
+    final long weight;
+
+    Entry(final String version, final DocumentPdo document, final long weight) {
+      this.version = version;
+      this.document = document;
+      this.weight = weight;
+    }
+  }
+
+  private final long maxWeight;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long weight;
+
+  private final Counter hitCounter;
+
+  private final Counter missCounter;
+
+  private final Counter evictionCounter;
+
+  DocumentCache(final long maxWeight, final MeterRegistry meterRegistry) {
+    this.maxWeight = maxWeight;
+
+    meterRegistry.gauge("eureka.document.cache.size", this, DocumentCache::size);
+    meterRegistry.gauge("eureka.document.cache.weight", this, DocumentCache::weight);
+    hitCounter = meterRegistry.counter("eureka.document.cache.hits");
+    missCounter = meterRegistry.counter("eureka.document.cache.misses");
+    evictionCounter = meterRegistry.counter("eureka.document.cache.evictions");
+  }
+
+  /**
+   * Get a copy of the cached document with the given ID if it was parsed from the given store version.
+   *
+   * @param documentId the document ID
+   * @param version the version currently stored
+   * @return a copy of the cached document or an empty Optional
+   */
+  Optional<DocumentPdo> get(final String documentId, final String version) {
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(documentId);
+    }
+
+    if (null == entry || !entry.version.equals(version)) {
+      missCounter.increment();
+      return Optional.empty();
+    }
+
+    hitCounter.increment();
+    return Optional.of(copy(entry.document));
+  }
+
+  /**
+   * Cache a document parsed from the given store version. The document must not be modified afterwards.
+   *
+   * @param documentId the document ID
+   * @param version the version the document was parsed from
+   * @param document the document
+   * @param weight the size of the serialized document
+   * @return the document if it was too large to be cached, a copy of it otherwise
+   */
+  DocumentPdo put(final String documentId, final String version, final DocumentPdo document, final long weight) {
+    if (null == version || weight > maxWeight) {
+      return document;
+    }
+
+    add(documentId, new Entry(version, document, weight));
+    return copy(document);
+  }
+
+  private synchronized void add(final String documentId, final Entry entry) {
+    Entry previous = entries.put(documentId, entry);
+    weight += entry.weight - (null != previous ? previous.weight : 0);
+
+    Iterator<Entry> lru = entries.values().iterator();
+    while (weight > maxWeight && lru.hasNext()) {
+      weight -= lru.next().weight;
+      lru.remove();
+      evictionCounter.increment();
+    }
+  }
+
+  /**
+   * Remove the document with the given ID from the cache.
+   *
+   * @param documentId the document ID
+   */
+  synchronized void invalidate(final String documentId) {
+    Entry removed = entries.remove(documentId);
+    if (null != removed) {
+      weight -= removed.weight;
+    }
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized long weight() {
+    return weight;
+  }
+
+  private static DocumentPdo copy(final DocumentPdo source) {
+    DocumentPdo copy = new DocumentPdo(source.getDocumentId());
+    copy.setVersionTimestamp(source.getVersionTimestamp());
+    copy.setDateCreated(source.getDateCreated());
+    copy.setDateModified(source.getDateModified());
+    copy.setDeleted(source.isDeleted());
+    copy.setContentElements(
+        source.getContentElements().stream().map(DocumentCache::copy).collect(Collectors.toList()));
+
+    Map<String, JsonNode> associatedFacetData = new HashMap<>();
+    source.getAssociatedFacetData().forEach((k, v) -> associatedFacetData.put(k, null != v ? v.deepCopy() : null));
+    copy.setAssociatedFacetData(associatedFacetData);
+
+    return copy;
+  }
+
+  private static ContentElement copy(final ContentElement source) {
+    ContentElement copy = new ContentElement();
+    copy.setContentElementId(source.getId());
+    copy.setFileName(source.getFileName());
+    copy.setRole(source.getRole());
+    copy.setType(source.getType());
+    copy.setLength(source.getLength());
+    copy.setEncryption(source.getEncryption());
+    copy.setKeyHint(source.getKeyHint());
+
+    if (null != source.getDigest()) {
+      Digest digest = new Digest();
+      digest.setAlgorithm(source.getDigest().getAlgorithm());
+      digest.setBytes(null != source.getDigest().getBytes() ? source.getDigest().getBytes().clone() : null);
+      copy.setDigest(digest);
+    }
+
+    return copy;
+  }
+}
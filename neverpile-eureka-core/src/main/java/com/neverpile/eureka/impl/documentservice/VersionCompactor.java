@@ -0,0 +1,159 @@
+package com.neverpile.eureka.impl.documentservice;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.neverpile.eureka.api.NeverpileException;
+import com.neverpile.eureka.api.ObjectStoreService.ListPage;
+import com.neverpile.eureka.tx.atomic.DistributedAtomicReference;
+import com.neverpile.eureka.tx.atomic.DistributedAtomicType;
+import com.neverpile.eureka.tx.lock.ClusterLockFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Compacts the histories of the documents managed by a {@link DefaultMultiVersioningDocumentService}
+ * in the background according to the configured {@link VersionRetentionPolicy}.
+ * <p>
+ * The compactor is throttled: each run visits at most a batch of documents, pausing between them,
+ * and continues with the next batch on the following run. Once all documents have been visited, it
+ * starts over. Each document is compacted in a transaction of its own.
+ * <p>
+ * Only one instance of a cluster compacts at any time. The position within the listing of all
+ * documents is shared by the instances, so that a batch is resumed by whichever instance performs
+ * the next run.
+ */
+public class VersionCompactor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(VersionCompactor.class);
+
+  private static final String LOCK_NAME = "neverpile-eureka-version-compaction";
+
+  @Autowired
+  DefaultMultiVersioningDocumentService documentService;
+
+  @Autowired
+  ObjectProvider<MeterRegistry> meterRegistry;
+
+  @Autowired
+  ClusterLockFactory lockFactory;
+
+  // the continuation token of the next batch within the listing of all documents
+  @DistributedAtomicType("neverpile-eureka-version-compaction-position")
+  DistributedAtomicReference<String> position;
+
+  @Value("${neverpile-eureka.document-service.retention.keep-last:0}")
+  int keepLast = 0;
+
+  @Value("${neverpile-eureka.document-service.retention.keep-all-younger-than:0}")
+  long keepAllYoungerThan = 0;
+
+  @Value("${neverpile-eureka.document-service.retention.keep-daily-after:0}")
+  long keepDailyAfter = 0;
+
+  @Value("${neverpile-eureka.document-service.retention.documents-per-run:100}")
+  int documentsPerRun = 100;
+
+  @Value("${neverpile-eureka.document-service.retention.pause:100}")
+  long pause = 100;
+
+  private VersionRetentionPolicy policy;
+
+  private Counter compactedCounter;
+
+  @PostConstruct
+  public void init() {
+    policy = new VersionRetentionPolicy(keepLast, Duration.ofMillis(keepAllYoungerThan),
+        Duration.ofMillis(keepDailyAfter));
+    compactedCounter = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry) //
+        .counter("eureka.document.versions.compacted");
+
+    if (policy.isEnabled())
+      LOGGER.info("Compacting document histories using {}", policy);
+    else
+      LOGGER.warn("Document history compaction is enabled, but no retention rule is configured");
+  }
+
+  /**
+   * Compact the next batch of documents.
+   *
+   * @return the number of versions removed
+   */
+  @Scheduled(fixedDelayString = "${neverpile-eureka.document-service.retention.compaction-interval:60000}")
+  public synchronized int compact() {
+    if (!policy.isEnabled())
+      return 0;
+
+    Lock lock = lockFactory.writeLock(LOCK_NAME);
+    if (!lock.tryLock())
+      return 0;
+    try {
+      int removed = compactBatch(nextBatch());
+      compactedCounter.increment(removed);
+      return removed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private List<String> nextBatch() {
+    ListPage page;
+    try {
+      page = documentService.getDocumentPage(position.get(), documentsPerRun);
+    } catch (RuntimeException e) {
+      // continuation tokens are specific to the object store and may have expired
+      if (null == position.get())
+        throw e;
+
+      LOGGER.warn("Failed to resume the listing of documents - starting over", e);
+      page = documentService.getDocumentPage(null, documentsPerRun);
+    }
+
+    // start over with the next run once all documents have been visited
+    position.set(page.getContinuationToken());
+
+    return page.getObjects().stream() //
+        .map(DefaultMultiVersioningDocumentService::getDocumentId) //
+        .collect(Collectors.toList());
+  }
+
+  private int compactBatch(final List<String> batch) {
+    int removed = 0;
+    for (String documentId : batch) {
+      try {
+        removed += documentService.compactVersions(documentId, policy);
+      } catch (NeverpileException e) {
+        LOGGER.warn("Failed to compact the history of document {}", documentId, e);
+      }
+
+      if (!throttle())
+        break;
+    }
+    return removed;
+  }
+
+  private boolean throttle() {
+    if (pause <= 0)
+      return true;
+
+    try {
+      Thread.sleep(pause);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.neverpile.eureka.impl.documentservice;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.neverpile.eureka.model.CompactedVersionRange;
+
+/**
+ * The version manifest {@link DefaultMultiVersioningDocumentService} maintains for each document. It lists the
+ * timestamps of all versions of the document in ascending order and is rewritten along with each new version, so that
+ * the versions of a document can be determined without listing its version objects.
+ * <p>
+ * Versions removed by compaction are no longer listed, but recorded as {@link CompactedVersionRange}s.
+ */
+public class VersionManifest {
+  private List<Instant> versions = new ArrayList<>();
+
+  private List<CompactedVersionRange> compacted = new ArrayList<>();
+
+  public VersionManifest() {
+    // nothing to do
+  }
+
+  public VersionManifest(final List<Instant> versions) {
+    this.versions = versions;
+  }
+
+  public VersionManifest(final List<Instant> versions, final List<CompactedVersionRange> compacted) {
+    this.versions = versions;
+    this.compacted = compacted;
+  }
+
+  /**
+   * Get the timestamps of all versions in ascending order.
+   *
+   * @return the version timestamps
+   */
+  public List<Instant> getVersions() {
+    return versions;
+  }
+
+  public void setVersions(final List<Instant> versions) {
+    this.versions = versions;
+  }
+
+  /**
+   * Get the ranges of versions removed by compaction in ascending order.
+   *
+   * @return the compacted ranges
+   */
+  public List<CompactedVersionRange> getCompacted() {
+    return compacted;
+  }
+
+  public void setCompacted(final List<CompactedVersionRange> compacted) {
+    this.compacted = compacted;
+  }
+}
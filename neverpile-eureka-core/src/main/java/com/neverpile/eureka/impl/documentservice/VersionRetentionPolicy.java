@@ -0,0 +1,84 @@
+package com.neverpile.eureka.impl.documentservice;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A policy deciding which versions of a document are retained when its history is compacted. The
+ * policy consists of up to three rules, each of which is disabled if set to zero:
+ * <ul>
+ * <li><em>keep last</em>: the given number of most recent versions is retained,
+ * <li><em>keep all younger than</em>: all versions younger than the given age are retained,
+ * <li><em>keep daily after</em>: versions older than the given age are thinned out to the last
+ * version of each (UTC) day, younger versions are retained.
+ * </ul>
+ * A version is retained if any enabled rule retains it. The current version is always retained. A
+ * policy without any enabled rule retains everything.
+ */
+public class VersionRetentionPolicy {
+  private final int keepLast;
+
+  private final Duration keepAllYoungerThan;
+
+  private final Duration keepDailyAfter;
+
+  public VersionRetentionPolicy(final int keepLast, final Duration keepAllYoungerThan,
+      final Duration keepDailyAfter) {
+    this.keepLast = keepLast;
+    this.keepAllYoungerThan = keepAllYoungerThan;
+    this.keepDailyAfter = keepDailyAfter;
+  }
+
+  /**
+   * Return whether any rule of this policy is enabled, i.e. whether it may supersede versions at
+   * all.
+   *
+   * @return <code>true</code> if the policy is enabled
+   */
+  public boolean isEnabled() {
+    return keepLast > 0 || !keepAllYoungerThan.isZero() || !keepDailyAfter.isZero();
+  }
+
+  /**
+   * Select the versions superseded according to this policy.
+   *
+   * @param versions the version timestamps of a document in ascending order
+   * @param now the current point in time
+   * @return the superseded versions in ascending order
+   */
+  public List<Instant> selectSuperseded(final List<Instant> versions, final Instant now) {
+    List<Instant> superseded = new ArrayList<>();
+    if (!isEnabled())
+      return superseded;
+
+    Instant youngerThan = now.minus(keepAllYoungerThan);
+    Instant dailyAfter = now.minus(keepDailyAfter);
+
+    // the current version is never superseded
+    for (int i = 0; i < versions.size() - 1; i++) {
+      Instant version = versions.get(i);
+
+      boolean retained = keepLast > 0 && i >= versions.size() - keepLast //
+          || !keepAllYoungerThan.isZero() && version.isAfter(youngerThan) //
+          || !keepDailyAfter.isZero() && (version.isAfter(dailyAfter) || isLastOfDay(version, versions.get(i + 1)));
+
+      if (!retained)
+        superseded.add(version);
+    }
+
+    return superseded;
+  }
+
+  private static boolean isLastOfDay(final Instant version, final Instant next) {
+    return !version.truncatedTo(ChronoUnit.DAYS).equals(next.truncatedTo(ChronoUnit.DAYS));
+  }
+
+  @Override
+  public String toString() {
+    return "VersionRetentionPolicy [keepLast=" + keepLast + ", keepAllYoungerThan=" + keepAllYoungerThan
+        + ", keepDailyAfter=" + keepDailyAfter + "]";
+  }
+}
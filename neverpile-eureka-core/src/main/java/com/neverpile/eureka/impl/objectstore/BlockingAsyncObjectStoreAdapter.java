@@ -0,0 +1,67 @@
+package com.neverpile.eureka.impl.objectstore;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import com.neverpile.eureka.api.AsyncObjectStoreService;
+import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.api.ObjectStoreService.StoreObject;
+import com.neverpile.eureka.model.ObjectName;
+
+/**
+ * An {@link AsyncObjectStoreService} for object stores without native support for asynchronous
+ * requests. The blocking calls of the backing {@link ObjectStoreService} are performed on a bounded
+ * pool of threads: requests exceeding the pool size are queued instead of occupying a thread.
+ */
+public class BlockingAsyncObjectStoreAdapter implements AsyncObjectStoreService {
+  @Autowired
+  ObjectStoreService objectStore;
+
+  @Value("${neverpile-eureka.object-store.async.threads:16}")
+  int threads = 16;
+
+  private ExecutorService executor;
+
+  @PostConstruct
+  public void init() {
+    executor = Executors.newFixedThreadPool(Math.max(1, threads));
+  }
+
+  @PreDestroy
+  public void destroy() {
+    executor.shutdown();
+  }
+
+  @Override
+  public CompletableFuture<StoreObject> getAsync(final ObjectName objectName) {
+    return CompletableFuture.supplyAsync(() -> objectStore.get(objectName), executor);
+  }
+
+  @Override
+  public CompletableFuture<StoreObject> getAsync(final ObjectName objectName, final long offset, final long length) {
+    return CompletableFuture.supplyAsync(() -> objectStore.get(objectName, offset, length), executor);
+  }
+
+  /**
+   * Retrieve the objects using a single call to {@link ObjectStoreService#getAll(Collection)}, so
+   * that the store's bulk retrieval is used.
+   */
+  @Override
+  public CompletableFuture<Map<ObjectName, StoreObject>> getAllAsync(final Collection<ObjectName> objectNames) {
+    return CompletableFuture.supplyAsync(() -> objectStore.getAll(objectNames), executor);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> checkObjectExistsAsync(final ObjectName objectName) {
+    return CompletableFuture.supplyAsync(() -> objectStore.checkObjectExists(objectName), executor);
+  }
+}
@@ -1,75 +1,79 @@
 package com.neverpile.eureka.impl.tasks;
 
-import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.neverpile.eureka.tasks.TaskQueue;
 
+/**
+ * A {@link TaskQueue} for single-node setups. Tasks are kept in a concurrent sorted map keyed by task
+ * key along with their state, so that the tasks with a given key prefix can be found without a scan
+ * across all tasks. Additionally, the keys of all open tasks are kept in a concurrent sorted map in
+ * FIFO order, so that claiming the next task is O(log n) instead of requiring a scan across all
+ * tasks.
+ * <p>
+ * Putting and claiming tasks is thus O(log n), not O(1). A hash map with a FIFO queue of open keys
+ * would make both O(1), but could neither find the tasks with a given key prefix nor drop the keys
+ * of tasks claimed by prefix from the queue without a scan across all tasks.
+ * <p>
+ * Putting a task with a key that is already open merely replaces its data. Putting a task with a key
+ * that is currently being processed re-opens it, so that it will be processed once more. The
+ * processing of the earlier data can then no longer be reported as done.
+ *
+ * @param <T> The data type for executing a task.
+ */
 public class LocalTaskQueue<T> implements TaskQueue<T> {
 
   private enum State {
     INPROCESS, OPEN
   }
 
-  private static class CacheData<K> implements Serializable {
-    private static final long serialVersionUID = 1L;
+  private static final class Task<K> {
+    final K data;
 
-    private final K info;
+    final State state;
 
-    K getInfo() {
-      return info;
-    }
-
-    private final State state;
-
-    State getState() {
-      return state;
-    }
+    /**
+     * The position of an open task in {@link LocalTaskQueue#openKeys}.
+     */
+    final long sequence;
 
-    public CacheData(final K key, final State value) {
-      this.info = key;
-      this.state = value;
+    Task(final K data, final State state, final long sequence) {
+      this.data = data;
+      this.state = state;
+      this.sequence = sequence;
     }
 
     @Override
     public String toString() {
-      return info + "=" + state;
+      return data + "=" + state;
     }
+  }
 
-    @Override
-    public int hashCode() {
-      return info.hashCode() * 13 + (state == null ? 0 : state.hashCode());
-    }
+  private final ConcurrentSkipListMap<String, Task<T>> tasks = new ConcurrentSkipListMap<>();
 
-    @Override
-    public boolean equals(final Object o) {
-      if (this == o)
-        return true;
-      if (o instanceof LocalTaskQueue.CacheData) {
-        CacheData<?> pair = (CacheData<?>) o;
-        if (!Objects.equals(info, pair.info))
-          return false;
-        if (!Objects.equals(state, pair.state))
-          return false;
-        return true;
-      }
-      return false;
-    }
-  }
+  /**
+   * The keys of open tasks keyed by the sequence number assigned when they were opened, i.e. in the
+   * order they were opened. A key is added whenever a task enters the OPEN state and removed when it
+   * is claimed. Thus, each open task is referenced exactly once, except for a transient moment
+   * between a task being opened and its key being added. A task claimed by key prefix within that
+   * moment leaves a stale key behind, which is skipped when it comes up.
+   */
+  private final ConcurrentSkipListMap<Long, String> openKeys = new ConcurrentSkipListMap<>();
 
-  private Map<String, CacheData<T>> queueCache = new HashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
 
   private final ExecutorService notificationExecutor = Executors.newFixedThreadPool(10);
 
-  private final List<QueueListener<T>> listeners = new ArrayList<>();
+  private final List<QueueListener<T>> listeners = new CopyOnWriteArrayList<>();
 
   private void notifyListeners() {
     for (QueueListener<T> listener : listeners) {
@@ -80,48 +84,104 @@ public class LocalTaskQueue<T> implements TaskQueue<T> {
   @Override
   public void putAllInQueue(final Map<String, T> map) {
     for (Map.Entry<String, T> entry : map.entrySet()) {
-      putInQueue(entry.getKey(), entry.getValue());
+      enqueue(entry.getKey(), entry.getValue());
     }
     notifyListeners();
-
   }
 
-
   @Override
   public void putInQueue(final String key, final T type) {
-    queueCache.put(key, new CacheData<>(type, State.OPEN));
+    enqueue(key, type);
     notifyListeners();
   }
 
+  private void enqueue(final String key, final T data) {
+    // the remapping functions may be applied more than once, so their results are reset each time
+    long[] opened = new long[1];
+    tasks.compute(key, (k, existing) -> {
+      opened[0] = 0;
+
+      // an already open task keeps its place in the queue
+      if (null != existing && existing.state == State.OPEN)
+        return new Task<>(data, State.OPEN, existing.sequence);
+
+      opened[0] = sequence.incrementAndGet();
+      return new Task<>(data, State.OPEN, opened[0]);
+    });
+
+    if (opened[0] != 0) {
+      openKeys.put(opened[0], key);
+    }
+  }
+
   @Override
   public TaskQueue.ProcessElement<T> getElementToProcess() {
-    Iterator<Entry<String, CacheData<T>>> queueIterator = queueCache.entrySet().iterator();
-    while (queueIterator.hasNext()) {
-      Entry<String, CacheData<T>> entry = queueIterator.next();
-      String anyKey = entry.getKey();
-      CacheData<T> data = entry.getValue();
-
-      switch (data.getState()){
-        case OPEN:
-          if (queueCache.replace(anyKey, new CacheData<>(data.getInfo(), State.OPEN),
-              new CacheData<>(data.getInfo(), State.INPROCESS))) {
-            return new TaskQueue.ProcessElement<>(anyKey, data.getInfo());
-          }
-          break;
-        default:
-          break;
+    Entry<Long, String> next;
+    while (null != (next = openKeys.pollFirstEntry())) {
+      Task<T> claimed = claim(next.getValue(), next.getKey());
+      if (null != claimed) {
+        return new TaskQueue.ProcessElement<>(next.getValue(), claimed.data);
       }
+
+      // stale key - the task has been claimed (and possibly re-opened) in the meantime
     }
     return null;
   }
 
+  /**
+   * Claims the open tasks with matching keys. Only the tasks with matching keys are visited, as
+   * tasks are sorted by key.
+   */
   @Override
-  public boolean removeProcessedElement(final String key) {
-    if (queueCache.containsKey(key) && State.INPROCESS == queueCache.get(key).getState()) {
-      queueCache.remove(key);
-      return true;
+  public List<TaskQueue.ProcessElement<T>> claimBatch(final String keyPrefix, final int maxElements) {
+    List<TaskQueue.ProcessElement<T>> batch = new ArrayList<>();
+    ConcurrentNavigableMap<String, Task<T>> candidates = tasks.tailMap(keyPrefix);
+    for (String key : candidates.keySet()) {
+      if (batch.size() >= maxElements || !key.startsWith(keyPrefix))
+        break;
+
+      Task<T> claimed = claim(key, 0);
+      if (null != claimed) {
+        openKeys.remove(claimed.sequence, key);
+        batch.add(new TaskQueue.ProcessElement<>(key, claimed.data));
+      }
     }
-    return false;
+    return batch;
+  }
+
+  /**
+   * Mark the task with the given key as in process if it is open and, unless the given sequence
+   * number is 0, has been opened with that sequence number.
+   *
+   * @return the task as it was before being claimed or <code>null</code> if it wasn't open
+   */
+  private Task<T> claim(final String key, final long sequence) {
+    @SuppressWarnings("unchecked")
+    Task<T>[] claimed = new Task[1];
+    tasks.computeIfPresent(key, (k, task) -> {
+      claimed[0] = null;
+      if (task.state != State.OPEN || (sequence != 0 && task.sequence != sequence))
+        return task;
+
+      claimed[0] = task;
+      return new Task<>(task.data, State.INPROCESS, task.sequence);
+    });
+
+    return claimed[0];
+  }
+
+  @Override
+  public boolean removeProcessedElement(final String key) {
+    boolean[] removed = new boolean[1];
+    tasks.computeIfPresent(key, (k, task) -> {
+      removed[0] = false;
+      if (task.state != State.INPROCESS)
+        return task;
+
+      removed[0] = true;
+      return null;
+    });
+    return removed[0];
   }
 
   @Override
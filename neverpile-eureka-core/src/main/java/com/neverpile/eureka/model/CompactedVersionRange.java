@@ -0,0 +1,88 @@
+package com.neverpile.eureka.model;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A range of versions of a document which have been removed from its history by compaction. The
+ * range is given by the timestamps of the first and the last removed version; no version between
+ * the two has been retained.
+ */
+public class CompactedVersionRange {
+  private Instant from;
+
+  private Instant to;
+
+  private int count;
+
+  public CompactedVersionRange() {
+    // nothing to do
+  }
+
+  public CompactedVersionRange(final Instant from, final Instant to, final int count) {
+    this.from = from;
+    this.to = to;
+    this.count = count;
+  }
+
+  /**
+   * Get the timestamp of the first removed version.
+   *
+   * @return the timestamp
+   */
+  public Instant getFrom() {
+    return from;
+  }
+
+  public void setFrom(final Instant from) {
+    this.from = from;
+  }
+
+  /**
+   * Get the timestamp of the last removed version.
+   *
+   * @return the timestamp
+   */
+  public Instant getTo() {
+    return to;
+  }
+
+  public void setTo(final Instant to) {
+    this.to = to;
+  }
+
+  /**
+   * Get the number of versions removed within the range.
+   *
+   * @return the number of versions
+   */
+  public int getCount() {
+    return count;
+  }
+
+  public void setCount(final int count) {
+    this.count = count;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(from, to, count);
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    CompactedVersionRange other = (CompactedVersionRange) obj;
+    return Objects.equals(from, other.from) && Objects.equals(to, other.to) && count == other.count;
+  }
+
+  @Override
+  public String toString() {
+    return "CompactedVersionRange [from=" + from + ", to=" + to + ", count=" + count + "]";
+  }
+}
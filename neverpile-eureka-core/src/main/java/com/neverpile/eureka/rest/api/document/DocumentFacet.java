@@ -233,6 +233,34 @@ public interface DocumentFacet<V> {
     return null;
   }
 
+  /**
+   * Whether this facet is able to populate a response DTO solely from the data it provided via
+   * {@link #getIndexData(Document)}. If so, queries may serve this facet from the index without
+   * loading the document itself. Facets with a dynamic index schema or facets which don't index
+   * all the data they retrieve must not return <code>true</code>.
+   *
+   * @return <code>true</code> if this facet can be reconstructed from its index data
+   * @see #onRetrieveFromIndex(String, JsonNode, DocumentDto)
+   */
+  default boolean isIndexReconstructible() {
+    return false;
+  }
+
+  /**
+   * Called instead of {@link #onRetrieve(Document, DocumentDto)} during a query for facets which
+   * are {@link #isIndexReconstructible() index-reconstructible}. The facet must populate the
+   * response DTO just like it would from the full document.
+   *
+   * @param documentId the id of the document being retrieved
+   * @param indexData the data previously provided via {@link #getIndexData(Document)} as stored
+   *          in the index, or <code>null</code> if there is none
+   * @param responseDto the response DTO to be populated
+   */
+  default void onRetrieveFromIndex(final String documentId, final JsonNode indexData,
+      final DocumentDto responseDto) {
+    // do nothing
+  }
+
   /**
    * Can contribute contextual information for authorization checks related to some document by providing an
    * implementation of {@link AuthorizationContext}.
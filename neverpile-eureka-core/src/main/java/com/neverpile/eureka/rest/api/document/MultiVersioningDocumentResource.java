@@ -4,6 +4,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +18,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.neverpile.eureka.api.MultiVersioningDocumentService;
+import com.neverpile.eureka.model.CompactedVersionRange;
 import com.neverpile.eureka.model.Document;
 import com.neverpile.eureka.rest.api.exception.NotFoundException;
 import com.neverpile.urlcrypto.PreSignedUrlEnabled;
@@ -43,22 +45,39 @@ public class MultiVersioningDocumentResource {
   @Autowired
   private ModelMapper documentMapper;
 
-  // GET - Return the version history
+  // GET - Return the version history, optionally a page of it
   @PreSignedUrlEnabled
   @GetMapping
   @Timed(description = "get document history", extraTags = {
       "operation", "retrieve", "target", "history"
   }, value = "eureka.document.history.get")
-  public List<Instant> get(@PathVariable("documentID") final String documentId) {
-    List<Instant> versions = documentService.getVersions(documentId);
-
-    // "convert" empty version list to not found
-    if (versions.isEmpty())
+  public List<Instant> get(@PathVariable("documentID") final String documentId,
+      @RequestParam(name = "offset", defaultValue = "0") final int offset,
+      @RequestParam(name = "limit", required = false) final Integer limit) {
+    List<Instant> versions = null != limit
+        ? documentService.getVersions(documentId, offset, limit)
+        : documentService.getVersions(documentId).stream().skip(offset).collect(Collectors.toList());
+
+    // "convert" empty version list to not found unless a page past the end has been requested
+    if (versions.isEmpty() && (offset == 0 || !documentService.documentExists(documentId)))
       throw new NotFoundException("Document " + documentId + " not found");
 
     return versions;
   }
 
+  // GET - Return the ranges of versions removed from the history by compaction
+  @PreSignedUrlEnabled
+  @GetMapping(value = "/compacted")
+  @Timed(description = "get compacted document history", extraTags = {
+      "operation", "retrieve", "target", "history"
+  }, value = "eureka.document.history.get-compacted")
+  public List<CompactedVersionRange> getCompacted(@PathVariable("documentID") final String documentId) {
+    if (!documentService.documentExists(documentId))
+      throw new NotFoundException("Document " + documentId + " not found");
+
+    return documentService.getCompactedVersions(documentId);
+  }
+
   // GET - Returns a specific document version by ID and time stamp
   @PreSignedUrlEnabled
   @GetMapping(value = "/{versionTimestamp}")
@@ -64,6 +64,18 @@ public class CreationDateFacet implements DocumentFacet<Instant> {
         document.getDateCreated() != null ? document.getDateCreated().toEpochMilli() : null);
   }
 
+  @Override
+  public boolean isIndexReconstructible() {
+    return true;
+  }
+
+  @Override
+  public void onRetrieveFromIndex(final String documentId, final JsonNode indexData, final DocumentDto dto) {
+    if (null != indexData && indexData.isNumber()) {
+      dto.setFacet(getName(), Instant.ofEpochMilli(indexData.asLong()));
+    }
+  }
+
   public AuthorizationContext getAuthorizationContextContribution(final Document document) {
     return new SingleValueAuthorizationContext(document.getDateCreated());
   }
@@ -71,6 +71,17 @@ public class IdFacet implements DocumentFacet<String> {
     return objectMapper.getNodeFactory().textNode(document.getDocumentId());
   }
 
+  @Override
+  public boolean isIndexReconstructible() {
+    return true;
+  }
+
+  @Override
+  public void onRetrieveFromIndex(final String documentId, final JsonNode indexData, final DocumentDto dto) {
+    dto.setDocumentId(documentId);
+    dto.add(linkTo(DocumentResource.class).slash(documentId).withSelfRel());
+  }
+
   public AuthorizationContext getAuthorizationContextContribution(final Document document) {
     return new SingleValueAuthorizationContext(document.getDocumentId());
   }
@@ -69,6 +69,18 @@ public class ModificationDateFacet implements DocumentFacet<Instant> {
     return objectMapper.getNodeFactory().numberNode(document.getDateModified() != null ? document.getDateModified().toEpochMilli() : null);
   }
 
+  @Override
+  public boolean isIndexReconstructible() {
+    return true;
+  }
+
+  @Override
+  public void onRetrieveFromIndex(final String documentId, final JsonNode indexData, final DocumentDto dto) {
+    if (null != indexData && indexData.isNumber()) {
+      dto.setFacet(getName(), Instant.ofEpochMilli(indexData.asLong()));
+    }
+  }
+
   public AuthorizationContext getAuthorizationContextContribution(final Document document) {
     return new SingleValueAuthorizationContext(document.getDateModified());
   }
@@ -1,7 +1,12 @@
 package com.neverpile.eureka.tasks;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This task queue is used to queue in asynchronous Tasks to be executed distributedly. The queue provides access for
@@ -14,7 +19,8 @@ import java.util.Map;
 public interface TaskQueue<V> {
 
   /**
-   * Add a series of tasks to the queue. All tasks are mapped to their unique key.
+   * Add a series of tasks to the queue. All tasks are mapped to their unique key. Implementations
+   * should add the tasks using a single bulk operation instead of adding them one by one.
    *
    * @param map Map containing the unique key and the task data.
    */
@@ -44,6 +50,52 @@ public interface TaskQueue<V> {
    */
   boolean removeProcessedElement(String key);
 
+  /**
+   * Get up to the given number of elements from the queue. None of the returned elements have been
+   * processed by another node. The default implementation calls {@link #getElementToProcess()}
+   * repeatedly. Distributed implementations should override it with a bulk operation so that claiming
+   * a batch doesn't cost several round-trips per element.
+   *
+   * @param maxElements the maximum number of elements to return.
+   * @return the claimed elements, empty if there are no elements ready for processing.
+   */
+  default List<ProcessElement<V>> claimBatch(final int maxElements) {
+    List<ProcessElement<V>> batch = new ArrayList<>();
+    ProcessElement<V> element;
+    while (batch.size() < maxElements && null != (element = getElementToProcess())) {
+      batch.add(element);
+    }
+    return batch;
+  }
+
+  /**
+   * Get up to the given number of elements whose keys start with the given prefix from the queue. None of the returned
+   * elements have been processed by another node. This allows a queue to be partitioned, e.g. by time slot, by
+   * choosing the keys accordingly. Elements whose keys don't match are left untouched.
+   *
+   * @param keyPrefix the prefix of the keys of the elements to return.
+   * @param maxElements the maximum number of elements to return.
+   * @return the claimed elements, empty if there are no matching elements ready for processing.
+   */
+  List<ProcessElement<V>> claimBatch(String keyPrefix, int maxElements);
+
+  /**
+   * Report a series of tasks as done and remove them from the queue. The same restrictions as for
+   * {@link #removeProcessedElement(String)} apply to each of the tasks. The default implementation
+   * calls {@link #removeProcessedElement(String)} repeatedly.
+   *
+   * @param keys keys of the tasks to remove.
+   * @return the keys of the tasks which were successfully removed.
+   */
+  default Set<String> removeProcessedElements(final Collection<String> keys) {
+    Set<String> removed = new HashSet<>();
+    for (String key : keys) {
+      if (removeProcessedElement(key))
+        removed.add(key);
+    }
+    return removed;
+  }
+
   /**
    * Register a listener on the task queue. The listener will get notified by calling the
    * {@link QueueListener#notifyUpdate()} function. A notification will be triggered whenever an element in the queue is
@@ -0,0 +1,727 @@
+package com.neverpile.eureka.tx.wal.local;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import com.neverpile.common.opentracing.Tag;
+import com.neverpile.common.opentracing.TraceInvocation;
+import com.neverpile.eureka.tx.wal.TransactionWAL.TransactionalAction;
+import com.neverpile.eureka.tx.wal.WALException;
+import com.neverpile.eureka.tx.wal.WriteAheadLog;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * A local {@link WriteAheadLog} which writes to a sequence of append-only segment files.
+ * <p>
+ * Each record is framed by its length and a CRC32 checksum, followed by a small binary header
+ * (record kind, action/event type and transaction id) and - for actions - the serialized
+ * {@link TransactionalAction}. An in-memory index maps each open transaction to the positions of
+ * its records, so that applying the actions of a transaction reads only that transaction's
+ * records. Once the oldest segments no longer contain records of open transactions, they are
+ * reclaimed by simply deleting the files.
+ * <p>
+ * If group commit is enabled, {@link #sync()} does not force the log to disk itself. Instead, the
+ * calling thread enqueues a sync request and waits for a single flusher thread, which collects the
+ * requests arriving within a short window and satisfies all of them with a single
+ * {@link FileChannel#force(boolean)}.
+ * <p>
+ * Like {@link FileBasedWAL} this implementation is <em>not</em> suitable for distributed
+ * installations.
+ */
+@Component
+@Lazy
+public class SegmentedFileWAL implements WriteAheadLog {
+  protected static final Logger logger = LoggerFactory.getLogger(SegmentedFileWAL.class);
+
+  private static final String SEGMENT_PREFIX = "tx-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  /**
+   * The name of the log written by {@link FileBasedWAL}.
+   */
+  private static final String LEGACY_LOG = "tx.log";
+
+  /**
+   * Length and CRC.
+   */
+  private static final int FRAME_HEADER_SIZE = 8;
+
+  /**
+   * Kind, type and length of the transaction id.
+   */
+  private static final int RECORD_HEADER_SIZE = 4;
+
+  private static final byte KIND_ACTION = 0;
+  private static final byte KIND_EVENT = 1;
+
+  /**
+   * An upper bound for a sane record length. Anything beyond that is treated as a corrupted frame.
+   */
+  private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+  static final class Segment {
+    final long sequence;
+    final Path path;
+    final FileChannel channel;
+    long size;
+
+    /**
+     * The transactions which have records in this segment and have not yet been completed. Guarded
+     * by the append lock.
+     */
+    final Set<String> openTransactions = new HashSet<>();
+
+    Segment(final long sequence, final Path path, final FileChannel channel, final long size) {
+      this.sequence = sequence;
+      this.path = path;
+      this.channel = channel;
+      this.size = size;
+    }
+  }
+
+  private static final class RecordRef {
+    final Segment segment;
+    final long offset;
+    final int length;
+    final ActionType type;
+
+    RecordRef(final Segment segment, final long offset, final int length, final ActionType type) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.type = type;
+    }
+  }
+
+  private static final class Record {
+    final byte kind;
+    final int type;
+    final String txId;
+    final byte[] body;
+    final Segment segment;
+    final long offset;
+    final int length;
+
+    Record(final byte kind, final int type, final String txId, final byte[] body, final Segment segment,
+        final long offset, final int length) {
+      this.kind = kind;
+      this.type = type;
+      this.txId = txId;
+      this.body = body;
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  @Value("${neverpile-eureka.wal.directory:./data}")
+  String logFileDirectory = "./data";
+
+  @Value("${neverpile-eureka.wal.segment-size:4194304}")
+  long segmentSize = 4 * 1024 * 1024;
+
+  @Value("${neverpile-eureka.wal.group-commit.enabled:false}")
+  boolean groupCommit = false;
+
+  /**
+   * The maximum time in microseconds the flusher waits for further sync requests after the first
+   * one of a batch arrived.
+   */
+  @Value("${neverpile-eureka.wal.group-commit.max-wait:2000}")
+  long groupCommitMaxWaitMicros = 2000;
+
+  @Value("${neverpile-eureka.wal.group-commit.max-batch-size:256}")
+  int groupCommitMaxBatchSize = 256;
+
+  @Autowired(required = false)
+  MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+  private final BlockingQueue<CompletableFuture<Void>> syncRequests = new LinkedBlockingQueue<>();
+
+  private volatile Thread flusher;
+
+  private DistributionSummary syncBatchSize;
+
+  private Timer syncLatency;
+
+  private final ReentrantLock appendLock = new ReentrantLock();
+
+  /**
+   * The live segments, oldest first. Guarded by the append lock.
+   */
+  private final Deque<Segment> segments = new ArrayDeque<>();
+
+  /**
+   * The action records of all open transactions. Guarded by the append lock.
+   */
+  private final Map<String, List<RecordRef>> index = new HashMap<>();
+
+  private volatile Segment current;
+
+  @PostConstruct
+  public void start() throws IOException {
+    Path dir = Paths.get(logFileDirectory);
+    Files.createDirectories(dir);
+
+    // the legacy log predates any segments
+    recoverLegacyLog(dir);
+
+    List<Segment> existing = openExistingSegments(dir);
+    try {
+      recover(existing);
+    } finally {
+      for (Segment s : existing) {
+        s.channel.close();
+        Files.deleteIfExists(s.path);
+      }
+    }
+
+    long nextSequence = existing.isEmpty() ? 0 : existing.get(existing.size() - 1).sequence + 1;
+    appendLock.lock();
+    try {
+      current = createSegment(nextSequence);
+      segments.add(current);
+    } finally {
+      appendLock.unlock();
+    }
+
+    syncBatchSize = DistributionSummary.builder("eureka.wal.sync.batch-size") //
+        .description("number of sync requests satisfied by a single force") //
+        .publishPercentileHistogram() //
+        .register(meterRegistry);
+    syncLatency = Timer.builder("eureka.wal.sync.latency") //
+        .description("latency of forcing the WAL to disk") //
+        .publishPercentileHistogram() //
+        .register(meterRegistry);
+
+    if (groupCommit) {
+      flusher = new Thread(this::flushLoop, "wal-group-commit");
+      flusher.setDaemon(true);
+      flusher.start();
+    }
+  }
+
+  @PreDestroy
+  public void stop() throws IOException {
+    if (null != flusher) {
+      flusher.interrupt();
+      try {
+        flusher.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      flusher = null;
+    }
+
+    appendLock.lock();
+    try {
+      for (Segment s : segments) {
+        s.channel.close();
+      }
+      segments.clear();
+      index.clear();
+      current = null;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * Recover the transactions left over in the log of a {@link FileBasedWAL} used before switching
+   * to this implementation and delete that log afterwards.
+   *
+   * @param dir the log directory
+   * @throws IOException on read failure
+   */
+  private void recoverLegacyLog(final Path dir) throws IOException {
+    Path legacyLog = dir.resolve(LEGACY_LOG);
+    if (!Files.exists(legacyLog))
+      return;
+
+    if (Files.size(legacyLog) > 0) {
+      logger.info("Recovering transactions from legacy WAL {}", legacyLog);
+
+      FileBasedWAL legacyWAL = new FileBasedWAL();
+      legacyWAL.logFileDirectory = logFileDirectory;
+      legacyWAL.start();
+      legacyWAL.stop();
+    }
+
+    Files.delete(legacyLog);
+  }
+
+  private List<Segment> openExistingSegments(final Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      List<Path> paths = files //
+          .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+              && p.getFileName().toString().endsWith(SEGMENT_SUFFIX)) //
+          .sorted() //
+          .collect(Collectors.toList());
+
+      List<Segment> result = new ArrayList<>(paths.size());
+      for (Path p : paths) {
+        String name = p.getFileName().toString();
+        long sequence = Long.parseLong(
+            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()), 16);
+        FileChannel channel = FileChannel.open(p, StandardOpenOption.READ);
+        result.add(new Segment(sequence, p, channel, channel.size()));
+      }
+      return result;
+    }
+  }
+
+  private Segment createSegment(final long sequence) throws IOException {
+    Path path = Paths.get(logFileDirectory, String.format("%s%016x%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    return new Segment(sequence, path, channel, 0);
+  }
+
+  /**
+   * Roll back all incomplete transactions and re-apply the commit actions of completed ones found
+   * in the given segments.
+   *
+   * @param existing the segments left over by a previous instance
+   */
+  private void recover(final List<Segment> existing) {
+    List<Record> records = new ArrayList<>();
+    for (Segment s : existing) {
+      try {
+        scanSegment(s, records);
+      } catch (IOException e) {
+        logger.error("Can't read WAL segment {}", s.path, e);
+      }
+    }
+
+    // collect list of completed (either committed or properly rolled back) transactions
+    Set<String> completedTxIds = new HashSet<>();
+    for (Record r : records) {
+      if (r.kind == KIND_EVENT && r.type == EventType.COMPLETED.ordinal())
+        completedTxIds.add(r.txId);
+    }
+
+    // apply all rollback-actions from incomplete transactions
+    for (int i = records.size() - 1; i >= 0; i--) {
+      Record r = records.get(i);
+      if (r.kind == KIND_ACTION && r.type == ActionType.ROLLBACK.ordinal() && !completedTxIds.contains(r.txId))
+        apply(r.txId, ActionType.ROLLBACK, r.body);
+    }
+
+    // apply all commit-actions from completed transactions
+    for (Record r : records) {
+      if (r.kind == KIND_ACTION && r.type == ActionType.COMMIT.ordinal() && completedTxIds.contains(r.txId))
+        apply(r.txId, ActionType.COMMIT, r.body);
+    }
+  }
+
+  private void scanSegment(final Segment s, final List<Record> records) throws IOException {
+    long position = 0;
+    while (position < s.size) {
+      Record r = readRecord(s, position, -1);
+      if (null == r) {
+        // a torn write at the end of the log or a corrupted frame - nothing after it can be trusted
+        logger.warn("Ignoring WAL segment {} beyond offset {}", s.path, position);
+        return;
+      }
+      records.add(r);
+      position += r.length;
+    }
+  }
+
+  /**
+   * Read the record at the given position.
+   *
+   * @param s the segment to read from
+   * @param offset the offset of the record
+   * @param expectedLength the expected total record length or -1 if unknown
+   * @return the record or <code>null</code> if the frame is truncated or corrupted
+   * @throws IOException on read failure
+   */
+  private Record readRecord(final Segment s, final long offset, final int expectedLength) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+    if (!readFully(s.channel, header, offset))
+      return null;
+
+    int payloadLength = header.getInt(0);
+    int crc = header.getInt(4);
+    if (payloadLength < RECORD_HEADER_SIZE || payloadLength > MAX_RECORD_SIZE
+        || (expectedLength >= 0 && expectedLength != FRAME_HEADER_SIZE + payloadLength))
+      return null;
+
+    ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+    if (!readFully(s.channel, payload, offset + FRAME_HEADER_SIZE))
+      return null;
+
+    CRC32 crc32 = new CRC32();
+    crc32.update(payload.array(), 0, payloadLength);
+    if ((int) crc32.getValue() != crc)
+      return null;
+
+    payload.flip();
+    byte kind = payload.get();
+    int type = payload.get();
+    int idLength = payload.getShort() & 0xffff;
+    if (idLength > payload.remaining())
+      return null;
+
+    byte[] id = new byte[idLength];
+    payload.get(id);
+    byte[] body = new byte[payload.remaining()];
+    payload.get(body);
+
+    return new Record(kind, type, new String(id, StandardCharsets.UTF_8), body, s, offset,
+        FRAME_HEADER_SIZE + payloadLength);
+  }
+
+  private static boolean readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+      throws IOException {
+    long p = position;
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, p);
+      if (read < 0)
+        return false;
+      p += read;
+    }
+    return true;
+  }
+
+  private static ByteBuffer encode(final byte kind, final int type, final String txId, final byte[] body) {
+    byte[] id = txId.getBytes(StandardCharsets.UTF_8);
+    if (id.length > 0xffff)
+      throw new WALException("Transaction id too long: " + txId);
+
+    int payloadLength = RECORD_HEADER_SIZE + id.length + body.length;
+    ByteBuffer b = ByteBuffer.allocate(FRAME_HEADER_SIZE + payloadLength);
+    b.putInt(payloadLength);
+    b.putInt(0); // CRC placeholder
+    b.put(kind);
+    b.put((byte) type);
+    b.putShort((short) id.length);
+    b.put(id);
+    b.put(body);
+
+    CRC32 crc = new CRC32();
+    crc.update(b.array(), FRAME_HEADER_SIZE, payloadLength);
+    b.putInt(4, (int) crc.getValue());
+
+    b.flip();
+    return b;
+  }
+
+  private static byte[] serialize(final TransactionalAction action) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(action);
+    }
+    return baos.toByteArray();
+  }
+
+  /**
+   * Append a record to the current segment, rolling over to a new segment if the current one is
+   * full. Must be called with the append lock held.
+   *
+   * @param record the encoded record
+   * @return the offset at which the record was written
+   * @throws IOException on write failure
+   */
+  private long append(final ByteBuffer record) throws IOException {
+    if (null == current)
+      throw new WALException("WAL not started");
+
+    if (current.size > 0 && current.size + record.remaining() > segmentSize) {
+      // make sure everything in the old segment is durable before we move on
+      current.channel.force(false);
+      current = createSegment(current.sequence + 1);
+      segments.add(current);
+    }
+
+    long offset = current.size;
+    long p = offset;
+    while (record.hasRemaining()) {
+      p += current.channel.write(record, p);
+    }
+    current.size = p;
+
+    return offset;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see com.neverpile.eureka.tx.wal.WriteAheadLog#logAction(java.lang.String,
+   * com.neverpile.eureka.tx.wal.WriteAheadLog.ActionType,
+   * com.neverpile.eureka.tx.wal.TransactionWAL.TransactionalAction)
+   */
+  @Override
+  @TraceInvocation
+  public void logAction(final String id, @Tag(name = "action") final ActionType type,
+      final TransactionalAction action) {
+    ByteBuffer record;
+    try {
+      record = encode(KIND_ACTION, type.ordinal(), id, serialize(action));
+    } catch (IOException e) {
+      throw new WALException("Can't serialize action", e);
+    }
+
+    appendLock.lock();
+    try {
+      int length = record.remaining();
+      long offset = append(record);
+
+      logger.debug("Logging {} action for tx {} in segment {} at {}: {}", type, id, current.sequence, offset, action);
+
+      index.computeIfAbsent(id, k -> new ArrayList<>()).add(new RecordRef(current, offset, length, type));
+      current.openTransactions.add(id);
+    } catch (IOException e) {
+      throw new WALException("Can't log action", e);
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see com.neverpile.eureka.tx.wal.WriteAheadLog#logCompletion(java.lang.String)
+   */
+  @Override
+  @TraceInvocation
+  public void logCompletion(final String id) {
+    ByteBuffer record = encode(KIND_EVENT, EventType.COMPLETED.ordinal(), id, new byte[0]);
+
+    appendLock.lock();
+    try {
+      long offset = append(record);
+      logger.debug("Logging {} event for tx {} in segment {} at {}", EventType.COMPLETED, id, current.sequence,
+          offset);
+
+      List<RecordRef> refs = index.remove(id);
+      if (null != refs) {
+        for (RecordRef r : refs) {
+          r.segment.openTransactions.remove(id);
+        }
+      }
+
+      reclaimSegments();
+    } catch (IOException e) {
+      throw new WALException("Can't log completion", e);
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * Drop the oldest segments as long as they don't hold records of open transactions. Segments must
+   * be dropped strictly in order, as completion records in younger segments are needed to recognize
+   * transactions with records in older ones as completed. Must be called with the append lock
+   * held.
+   */
+  private void reclaimSegments() {
+    while (segments.size() > 1) {
+      Segment oldest = segments.peekFirst();
+      if (oldest == current || !oldest.openTransactions.isEmpty())
+        return;
+
+      segments.removeFirst();
+      try {
+        oldest.channel.close();
+        Files.deleteIfExists(oldest.path);
+        logger.debug("Reclaimed WAL segment {}", oldest.path);
+      } catch (IOException e) {
+        logger.warn("Can't delete WAL segment {}", oldest.path, e);
+      }
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see com.neverpile.eureka.tx.wal.WriteAheadLog#applyLoggedActions(java.lang.String,
+   * com.neverpile.eureka.tx.wal.WriteAheadLog.ActionType, boolean)
+   */
+  @Override
+  public void applyLoggedActions(final String id, final ActionType type, final boolean reverseOrder) {
+    List<RecordRef> refs;
+    appendLock.lock();
+    try {
+      refs = index.getOrDefault(id, Collections.emptyList()).stream() //
+          .filter(r -> r.type == type) //
+          .collect(Collectors.toList());
+    } finally {
+      appendLock.unlock();
+    }
+
+    if (reverseOrder)
+      Collections.reverse(refs);
+
+    // the segments referenced by an open transaction cannot be reclaimed, so we can read them without
+    // holding the lock
+    for (RecordRef ref : refs) {
+      Record r;
+      try {
+        r = readRecord(ref.segment, ref.offset, ref.length);
+      } catch (IOException e) {
+        throw new WALException("Can't apply logged actions", e);
+      }
+
+      if (null == r)
+        throw new WALException("Corrupted WAL record for tx " + id + " in " + ref.segment.path + " at " + ref.offset);
+
+      apply(id, type, r.body);
+    }
+  }
+
+  private void apply(final String id, final ActionType type, final byte[] body) {
+    TransactionalAction action;
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(body))) {
+      action = (TransactionalAction) ois.readObject();
+    } catch (ClassNotFoundException e) {
+      // indicates an action, we no longer know
+      logger.error("Can't read WAL action of type " + type + " for tx " + id + " due to missing class", e);
+      return;
+    } catch (IOException e) {
+      logger.error("Can't read WAL action of type " + type + " for tx " + id, e);
+      return;
+    }
+
+    logger.debug("Applying {} action for tx {}: {}", type, id, action);
+    try {
+      action.run();
+    } catch (Exception e) {
+      logger.error("Exception running WAL action of type " + type + " for tx " + id, e);
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see com.neverpile.eureka.tx.wal.WriteAheadLog#sync()
+   */
+  @Override
+  public void sync() {
+    if (!groupCommit) {
+      try {
+        force();
+        syncBatchSize.record(1);
+      } catch (IOException e) {
+        throw new WALException("Cannot flush WAL", e);
+      }
+      return;
+    }
+
+    if (null == flusher)
+      throw new WALException("WAL not started");
+
+    CompletableFuture<Void> request = new CompletableFuture<>();
+    syncRequests.add(request);
+
+    try {
+      request.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new WALException("Interrupted while waiting for WAL flush", e);
+    } catch (ExecutionException e) {
+      throw new WALException("Cannot flush WAL", e.getCause());
+    }
+  }
+
+  private void force() throws IOException {
+    Segment s = current;
+    if (null == s)
+      throw new WALException("WAL not started");
+
+    long start = System.nanoTime();
+    try {
+      s.channel.force(false);
+    } catch (ClosedChannelException e) {
+      // the segment has been rolled over (and thus forced) and reclaimed in the meantime
+    } finally {
+      syncLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void flushLoop() {
+    WALException stopped = new WALException("WAL stopped");
+    List<CompletableFuture<Void>> batch = new ArrayList<>(groupCommitMaxBatchSize);
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        batch.add(syncRequests.take());
+
+        // give concurrent committers the chance to join the batch
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(groupCommitMaxWaitMicros);
+        while (batch.size() < groupCommitMaxBatchSize) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0)
+            break;
+
+          CompletableFuture<Void> next = syncRequests.poll(remaining, TimeUnit.NANOSECONDS);
+          if (null == next)
+            break;
+          batch.add(next);
+        }
+        syncRequests.drainTo(batch, groupCommitMaxBatchSize - batch.size());
+
+        try {
+          force();
+          batch.forEach(r -> r.complete(null));
+        } catch (Exception e) {
+          batch.forEach(r -> r.completeExceptionally(e));
+        }
+        syncBatchSize.record(batch.size());
+      } catch (InterruptedException e) {
+        batch.forEach(r -> r.completeExceptionally(stopped));
+        Thread.currentThread().interrupt();
+      } finally {
+        batch.clear();
+      }
+    }
+
+    // fail whoever is still waiting
+    List<CompletableFuture<Void>> pending = new ArrayList<>();
+    syncRequests.drainTo(pending);
+    pending.forEach(r -> r.completeExceptionally(stopped));
+  }
+}
@@ -0,0 +1,108 @@
+package com.neverpile.eureka.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A {@link FilterInputStream} that exposes a range of another stream: it skips the bytes before the
+ * range upon the first read and ends after the range's length. Streams which are already positioned
+ * at the start of the range may be limited by using an offset of zero.
+ * <p>
+ * Thread safety: this stream implementation is not thread safe.
+ */
+public class RangeInputStream extends FilterInputStream {
+
+  private long toSkip;
+
+  private long remaining;
+
+  /**
+   * Create a stream of a range of the given stream.
+   *
+   * @param in the underlying stream
+   * @param offset the number of bytes to skip
+   * @param length the length of the range, a negative value for the rest of the stream
+   */
+  public RangeInputStream(final InputStream in, final long offset, final long length) {
+    super(in);
+    if (offset < 0)
+      throw new IllegalArgumentException("Negative offset " + offset);
+
+    this.toSkip = offset;
+    this.remaining = length < 0 ? Long.MAX_VALUE : length;
+  }
+
+  private boolean skipToRange() throws IOException {
+    while (toSkip > 0) {
+      long skipped = in.skip(toSkip);
+      if (skipped <= 0) {
+        // skip() may refuse to make progress, so check for the end of the stream
+        if (in.read() < 0) {
+          toSkip = 0;
+          remaining = 0;
+          return false;
+        }
+        skipped = 1;
+      }
+      toSkip -= skipped;
+    }
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!skipToRange() || remaining <= 0)
+      return -1;
+
+    int b = in.read();
+    if (b >= 0)
+      remaining--;
+    return b;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0)
+      return 0;
+    if (!skipToRange() || remaining <= 0)
+      return -1;
+
+    int r = in.read(b, off, (int) Math.min(len, remaining));
+    if (r > 0)
+      remaining -= r;
+    return r;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+    if (!skipToRange() || n <= 0)
+      return 0;
+
+    long skipped = in.skip(Math.min(n, remaining));
+    remaining -= skipped;
+    return skipped;
+  }
+
+  @Override
+  public int available() throws IOException {
+    if (toSkip > 0)
+      return 0;
+    return (int) Math.min(in.available(), remaining);
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(final int readlimit) {
+    // not supported
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+}
@@ -8,6 +8,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
@@ -39,6 +40,7 @@ import com.neverpile.eureka.api.DocumentAssociatedEntityStore;
 import com.neverpile.eureka.api.DocumentService;
 import com.neverpile.eureka.api.DocumentService.DocumentAlreadyExistsException;
 import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.api.ObjectStoreService.ObjectHead;
 import com.neverpile.eureka.event.EventPublisher;
 import com.neverpile.eureka.impl.documentservice.DefaultDocumentService;
 import com.neverpile.eureka.impl.documentservice.DocumentPdo;
@@ -100,7 +102,7 @@ public class DefaultDocumentServiceTest {
 
     ObjectName name = ObjectName.of("document", "aDocument", "document.json");
     
-    given(objectStoreService.get(eq(name))).will(i -> new DocObject(mapper, doc, name));
+    given(objectStoreService.head(eq(name))).willReturn(new ObjectHead(name, "0", -1, null));
 
     documentService.createDocument(doc);
   }
@@ -131,6 +133,7 @@ public class DefaultDocumentServiceTest {
     ArgumentCaptor<InputStream> isC = ArgumentCaptor.forClass(InputStream.class);
     verify(objectStoreService).put(any(), eq(expectedVersion), isC.capture(), anyLong());
     verify(objectStoreService, atLeastOnce()).get(any());
+    verify(objectStoreService, atMost(1)).head(any());
     verifyNoMoreInteractions(objectStoreService);
     return isC;
   }
@@ -2,6 +2,7 @@ package com.neverpile.eureka.api.documentservice;
 
 import static com.neverpile.eureka.impl.documentservice.DefaultMultiVersioningDocumentService.DOCUMENT_PREFIX;
 import static com.neverpile.eureka.impl.documentservice.DefaultMultiVersioningDocumentService.VERSION_FORMATTER;
+import static com.neverpile.eureka.impl.documentservice.DefaultMultiVersioningDocumentService.VERSION_MANIFEST;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.greaterThan;
@@ -12,10 +13,13 @@ import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
@@ -23,7 +27,9 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.stream.Stream;
 
@@ -52,10 +58,14 @@ import com.neverpile.eureka.api.DocumentAssociatedEntityStore;
 import com.neverpile.eureka.api.DocumentService.DocumentAlreadyExistsException;
 import com.neverpile.eureka.api.MultiVersioningDocumentService;
 import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.api.ObjectStoreService.StoreObject;
 import com.neverpile.eureka.api.exception.VersionMismatchException;
 import com.neverpile.eureka.event.EventPublisher;
 import com.neverpile.eureka.impl.documentservice.DefaultMultiVersioningDocumentService;
 import com.neverpile.eureka.impl.documentservice.DocumentPdo;
+import com.neverpile.eureka.impl.documentservice.VersionManifest;
+import com.neverpile.eureka.impl.documentservice.VersionRetentionPolicy;
+import com.neverpile.eureka.model.CompactedVersionRange;
 import com.neverpile.eureka.model.Document;
 import com.neverpile.eureka.model.ObjectName;
 import com.neverpile.eureka.rest.api.exception.NotFoundException;
@@ -109,17 +119,22 @@ public class DefaultMultiVersioningDocumentServiceTest {
 
     ArgumentCaptor<InputStream> isC = ArgumentCaptor.forClass(InputStream.class);
     ArgumentCaptor<ObjectName> objectNameC = ArgumentCaptor.forClass(ObjectName.class);
-    verify(objectStoreService) //
+    verify(objectStoreService, times(2)) //
         .put(objectNameC.capture(), eq(ObjectStoreService.NEW_VERSION), isC.capture(), anyLong());
 
-    Instant timestampFromObjectName = Instant.from(VERSION_FORMATTER.parse(objectNameC.getValue().tail()));
+    // the version is written first, the version manifest recording it last
+    ObjectName versionName = objectNameC.getAllValues().get(0);
+    Instant timestampFromObjectName = Instant.from(VERSION_FORMATTER.parse(versionName.tail()));
 
-    assertThat(ObjectName.of(DOCUMENT_PREFIX, D, "meta").isPrefixOf(objectNameC.getValue()), is(true));
+    assertThat(ObjectName.of(DOCUMENT_PREFIX, D, "meta").isPrefixOf(versionName), is(true));
+    assertThat(objectNameC.getAllValues().get(1), equalTo(ObjectName.of(DOCUMENT_PREFIX, D, VERSION_MANIFEST)));
+    assertThat(mapper.readValue(isC.getAllValues().get(1), VersionManifest.class).getVersions(),
+        Matchers.contains(timestampFromObjectName));
 
     assertThat(persisted.getDocumentId(), equalTo(D));
     assertThat(persisted.getVersionTimestamp(), equalTo(timestampFromObjectName));
 
-    Document readBack = readBackFromStream(isC);
+    Document readBack = mapper.readValue(isC.getAllValues().get(0), DocumentPdo.class);
     assertThat(readBack.getDocumentId(), equalTo(D));
     assertThat(readBack.getVersionTimestamp(), equalTo(timestampFromObjectName));
 
@@ -168,9 +183,10 @@ public class DefaultMultiVersioningDocumentServiceTest {
   }
 
   private ArgumentCaptor<InputStream> verifyStorePut() {
-    ArgumentCaptor<ObjectName> objectNameC = ArgumentCaptor.forClass(ObjectName.class);
     ArgumentCaptor<InputStream> isC = ArgumentCaptor.forClass(InputStream.class);
-    verify(objectStoreService).put(objectNameC.capture(), eq(ObjectStoreService.NEW_VERSION), isC.capture(), anyLong());
+    verify(objectStoreService).put(argThat(ObjectName.of(DOCUMENT_PREFIX, D, "meta")::isPrefixOf),
+        eq(ObjectStoreService.NEW_VERSION), isC.capture(), anyLong());
+    verify(objectStoreService).put(eq(ObjectName.of(DOCUMENT_PREFIX, D, VERSION_MANIFEST)), any(), any(), anyLong());
     return isC;
   }
 
@@ -383,6 +399,110 @@ public class DefaultMultiVersioningDocumentServiceTest {
         Instant.ofEpochMilli(2345678L), Instant.ofEpochMilli(3456789L)));
   }
 
+  @Test
+  public void testThat_versionListIsReadFromManifest() throws IOException {
+    mockThreeVersions();
+    mockVersionManifest(Instant.ofEpochMilli(1234567L), Instant.ofEpochMilli(2345678L), Instant.ofEpochMilli(3456789L));
+
+    assertThat(documentService.getVersions(D), Matchers.contains(Instant.ofEpochMilli(1234567L),
+        Instant.ofEpochMilli(2345678L), Instant.ofEpochMilli(3456789L)));
+    assertThat(documentService.getDocument(D).get().getVersionTimestamp(), is(Instant.ofEpochMilli(3456789L)));
+
+    verify(objectStoreService, never()).list(any());
+  }
+
+  @Test
+  public void testThat_versionListCanBePaged() throws IOException {
+    mockVersionManifest(Instant.ofEpochMilli(1234567L), Instant.ofEpochMilli(2345678L), Instant.ofEpochMilli(3456789L));
+
+    assertThat(documentService.getVersions(D, 1, 1), Matchers.contains(Instant.ofEpochMilli(2345678L)));
+    assertThat(documentService.getVersions(D, 2, 10), Matchers.contains(Instant.ofEpochMilli(3456789L)));
+    assertThat(documentService.getVersions(D, 5, 10), hasSize(0));
+  }
+
+  @Test
+  public void testThat_versionCanBeLookedUpAsOfAPointInTime() throws IOException {
+    mockVersionManifest(Instant.ofEpochMilli(1234567L), Instant.ofEpochMilli(2345678L), Instant.ofEpochMilli(3456789L));
+
+    assertThat(documentService.getVersionAsOf(D, Instant.ofEpochMilli(1000L)).isPresent(), is(false));
+    assertThat(documentService.getVersionAsOf(D, Instant.ofEpochMilli(2345678L)).get(),
+        equalTo(Instant.ofEpochMilli(2345678L)));
+    assertThat(documentService.getVersionAsOf(D, Instant.ofEpochMilli(3000000L)).get(),
+        equalTo(Instant.ofEpochMilli(2345678L)));
+    assertThat(documentService.getVersionAsOf(D, Instant.ofEpochMilli(4000000L)).get(),
+        equalTo(Instant.ofEpochMilli(3456789L)));
+  }
+
+  @Test
+  public void testThat_updateRecordsVersionInManifest() throws Exception {
+    Document existing = prepareEmptyDocument();
+    mockExistingVersion(existing);
+    mockVersionManifest(existing.getVersionTimestamp());
+
+    Document updated = transactionTemplate.execute(status -> {
+      Document update = prepareEmptyDocument();
+      update.setVersionTimestamp(null);
+      return documentService.update(update).get();
+    });
+
+    // the manifest is replaced based on the version it was read from
+    ArgumentCaptor<InputStream> isC = ArgumentCaptor.forClass(InputStream.class);
+    verify(objectStoreService).put(eq(ObjectName.of(DOCUMENT_PREFIX, D, VERSION_MANIFEST)), eq("1"), isC.capture(),
+        anyLong());
+    assertThat(mapper.readValue(isC.getValue(), VersionManifest.class).getVersions(),
+        Matchers.contains(existing.getVersionTimestamp(), updated.getVersionTimestamp()));
+
+    verify(objectStoreService, never()).list(any());
+  }
+
+  @Test
+  public void testThat_compactionRemovesSupersededVersions() throws Exception {
+    mockVersionManifest(Instant.ofEpochMilli(1234567L), Instant.ofEpochMilli(2345678L), Instant.ofEpochMilli(3456789L));
+
+    int removed = ((DefaultMultiVersioningDocumentService) documentService).compactVersions(D,
+        new VersionRetentionPolicy(1, Duration.ZERO, Duration.ZERO));
+
+    assertThat(removed, is(2));
+
+    // the manifest lists the retained version and records the compacted range
+    ArgumentCaptor<InputStream> isC = ArgumentCaptor.forClass(InputStream.class);
+    verify(objectStoreService).put(eq(ObjectName.of(DOCUMENT_PREFIX, D, VERSION_MANIFEST)), eq("1"), isC.capture(),
+        anyLong());
+    VersionManifest manifest = mapper.readValue(isC.getValue(), VersionManifest.class);
+    assertThat(manifest.getVersions(), Matchers.contains(Instant.ofEpochMilli(3456789L)));
+    assertThat(manifest.getCompacted(), Matchers.contains(
+        new CompactedVersionRange(Instant.ofEpochMilli(1234567L), Instant.ofEpochMilli(2345678L), 2)));
+
+    verify(objectStoreService).delete(
+        ObjectName.of(DOCUMENT_PREFIX, D, "meta", VERSION_FORMATTER.format(Instant.ofEpochMilli(1234567L))));
+    verify(objectStoreService).delete(
+        ObjectName.of(DOCUMENT_PREFIX, D, "meta", VERSION_FORMATTER.format(Instant.ofEpochMilli(2345678L))));
+    verify(objectStoreService, never()).delete(
+        ObjectName.of(DOCUMENT_PREFIX, D, "meta", VERSION_FORMATTER.format(Instant.ofEpochMilli(3456789L))));
+  }
+
+  private void mockVersionManifest(final Instant... versions) throws IOException {
+    ObjectName name = ObjectName.of(DOCUMENT_PREFIX, D, VERSION_MANIFEST);
+    byte[] manifest = mapper.writeValueAsBytes(new VersionManifest(Arrays.asList(versions)));
+
+    given(objectStoreService.get(eq(name))).will(i -> new StoreObject() {
+      @Override
+      public ObjectName getObjectName() {
+        return name;
+      }
+
+      @Override
+      public InputStream getInputStream() {
+        return new ByteArrayInputStream(manifest);
+      }
+
+      @Override
+      public String getVersion() {
+        return "1";
+      }
+    });
+  }
+
   @Test
   public void testThat_cachedVersionListIsInvalidatedOnCreate() throws IOException {
     mockNonexistentDocument();
@@ -526,7 +646,9 @@ public class DefaultMultiVersioningDocumentServiceTest {
 
   protected ArgumentCaptor<InputStream> verifyPersistOnce() {
     ArgumentCaptor<InputStream> isC = ArgumentCaptor.forClass(InputStream.class);
-    verify(objectStoreService).put(any(), eq(ObjectStoreService.NEW_VERSION), isC.capture(), anyLong());
+    verify(objectStoreService).put(argThat(ObjectName.of(DOCUMENT_PREFIX, D, "meta")::isPrefixOf),
+        eq(ObjectStoreService.NEW_VERSION), isC.capture(), anyLong());
+    verify(objectStoreService).put(eq(ObjectName.of(DOCUMENT_PREFIX, D, VERSION_MANIFEST)), any(), any(), anyLong());
     verify(objectStoreService, atLeast(0)).get(any()); // don't care
     verify(objectStoreService, atLeastOnce()).list(any());
     verifyNoMoreInteractions(objectStoreService);
@@ -20,7 +20,12 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -35,7 +40,12 @@ import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StreamUtils;
 
 import com.neverpile.common.util.DevNullOutputStream;
+import com.neverpile.eureka.api.AsyncObjectStoreService;
 import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.api.ObjectStoreService.ListPage;
+import com.neverpile.eureka.api.ObjectStoreService.ObjectHead;
+import com.neverpile.eureka.api.ObjectStoreService.PutRequest;
+import com.neverpile.eureka.api.ObjectStoreService.StoreObject;
 import com.neverpile.eureka.api.exception.VersionMismatchException;
 import com.neverpile.eureka.model.ObjectName;
 
@@ -44,6 +54,9 @@ public abstract class AbstractObjectStoreServiceTest {
   @Autowired
   private ObjectStoreService objectStore;
 
+  @Autowired
+  private AsyncObjectStoreService asyncObjectStore;
+
   @Autowired
   TransactionTemplate transactionTemplate;
 
@@ -79,6 +92,21 @@ public abstract class AbstractObjectStoreServiceTest {
     assertFalse(objectStore.checkObjectExists(name("Unicorn")));
   }
 
+  @Test
+  @Transactional
+  public void testThat_metadataCanBeRetrieved() {
+    objectStore.put(defaultName(), ObjectStoreService.NEW_VERSION, defaultStream());
+
+    ObjectHead head = objectStore.head(defaultName());
+    assertThat(head.getObjectName(), equalTo(defaultName()));
+    assertThat(head.getVersion(), equalTo(objectStore.get(defaultName()).getVersion()));
+    // stores may not know the length without reading the object
+    if (head.getLength() >= 0)
+      assertEquals("TEST CONTENT".length(), head.getLength());
+
+    assertNull(objectStore.head(name("Unicorn")));
+  }
+
   @Test
   public void testThat_objectCanBeDeleted() {
     transactionTemplate.execute(status -> {
@@ -249,6 +277,140 @@ public abstract class AbstractObjectStoreServiceTest {
     objectStore.put(defaultName(), initialVersion, stream("v3"));
   }
 
+  @Test
+  @Transactional
+  public void testThat_multipleElementsCanBeRetrievedAtOnce() {
+    objectStore.put(name("-1"), ObjectStoreService.NEW_VERSION, stream("1"));
+    objectStore.put(name("-2"), ObjectStoreService.NEW_VERSION, stream("2"));
+    objectStore.put(name("-3"), ObjectStoreService.NEW_VERSION, stream("3"));
+
+    Map<ObjectName, StoreObject> objects = objectStore.getAll(
+        Arrays.asList(name("-3"), name("-Unicorn"), name("-1"), name("-2")));
+
+    // missing objects are absent, the others are in order of the request
+    assertThat(objects.keySet().stream().collect(Collectors.toList()),
+        equalTo(Arrays.asList(name("-3"), name("-1"), name("-2"))));
+    for (String suffix : Arrays.asList("1", "2", "3")) {
+      StoreObject object = objects.get(name("-" + suffix));
+      assertEquals("TEST CONTENT" + suffix, stringInputStreamToString(object.getInputStream()));
+      assertEquals(objectStore.get(name("-" + suffix)).getVersion(), object.getVersion());
+    }
+  }
+
+  @Test
+  public void testThat_multipleElementsCanBeStoredAtOnce() {
+    transactionTemplate.execute(status -> {
+      objectStore.putAll(Arrays.asList( //
+          new PutRequest(name("-1"), ObjectStoreService.NEW_VERSION, stream("1"), -1), //
+          new PutRequest(name("-2"), ObjectStoreService.NEW_VERSION, stream("2"), -1)));
+      return null;
+    });
+
+    assertContent("-1", "1");
+    assertContent("-2", "2");
+
+    transactionTemplate.execute(status -> {
+      objectStore.putAll(Arrays.asList( //
+          new PutRequest(name("-1"), objectStore.get(name("-1")).getVersion(), stream("1b"), -1), //
+          new PutRequest(name("-3"), ObjectStoreService.NEW_VERSION, stream("3"), -1)));
+      return null;
+    });
+
+    assertContent("-1", "1b");
+    assertContent("-2", "2");
+    assertContent("-3", "3");
+  }
+
+  @Test
+  public void testThat_storingMultipleElementsIsSaveOnRollback() {
+    transactionTemplate.execute(status -> {
+      objectStore.put(name("-1"), ObjectStoreService.NEW_VERSION, stream("1"));
+      return null;
+    });
+
+    transactionTemplate.execute(status -> {
+      objectStore.putAll(Arrays.asList( //
+          new PutRequest(name("-1"), objectStore.get(name("-1")).getVersion(), stream("DO ROLLBACK"), -1), //
+          new PutRequest(name("-2"), ObjectStoreService.NEW_VERSION, stream("DO ROLLBACK"), -1)));
+      status.setRollbackOnly();
+      return null;
+    });
+
+    assertContent("-1", "1");
+    assertNull(objectStore.get(name("-2")));
+  }
+
+  @Test(expected = VersionMismatchException.class)
+  @Transactional
+  public void testThat_storingMultipleElementsChecksVersions() {
+    objectStore.put(name("-1"), ObjectStoreService.NEW_VERSION, stream("1"));
+
+    objectStore.putAll(Arrays.asList( //
+        new PutRequest(name("-2"), ObjectStoreService.NEW_VERSION, stream("2"), -1), //
+        new PutRequest(name("-1"), ObjectStoreService.NEW_VERSION, stream("1b"), -1)));
+  }
+
+  @Test
+  @Transactional
+  public void testThat_rangesCanBeRetrieved() {
+    objectStore.put(defaultName(), ObjectStoreService.NEW_VERSION, stream(" 0123456789"));
+
+    StoreObject so = objectStore.get(defaultName(), 5, 7);
+    assertEquals(currentVersion(), so.getVersion());
+    assertEquals("CONTENT", stringInputStreamToString(so.getInputStream()));
+
+    // open-ended range
+    assertEquals("456789", stringInputStreamToString(objectStore.get(defaultName(), 17, -1).getInputStream()));
+
+    // range exceeding the end of the object
+    assertEquals("89", stringInputStreamToString(objectStore.get(defaultName(), 21, 10).getInputStream()));
+
+    // range beyond the end of the object
+    assertEquals("", stringInputStreamToString(objectStore.get(defaultName(), 100, 10).getInputStream()));
+  }
+
+  @Test
+  @Transactional
+  public void testThat_rangesSpanningChunksCanBeRetrieved() {
+    objectStore.put(defaultName(), ObjectStoreService.NEW_VERSION, new TestDataInputStream("0123456789", 300000));
+
+    StoreObject so = objectStore.get(defaultName(), 2500005, 20);
+    assertEquals("56789012345678901234", stringInputStreamToString(so.getInputStream()));
+  }
+
+  @Test
+  public void testThat_rangeOfMissingObjectIsNull() {
+    assertNull(objectStore.get(defaultName(), 0, 10));
+  }
+
+  @Test
+  public void testThat_elementsCanBeRetrievedAsynchronously() throws Exception {
+    transactionTemplate.execute(status -> {
+      objectStore.put(name("-1"), ObjectStoreService.NEW_VERSION, stream("1"));
+      objectStore.put(name("-2"), ObjectStoreService.NEW_VERSION, stream(" 0123456789"));
+      return null;
+    });
+
+    // issue all requests before waiting for any of them
+    CompletableFuture<StoreObject> one = asyncObjectStore.getAsync(name("-1"));
+    CompletableFuture<StoreObject> range = asyncObjectStore.getAsync(name("-2"), 17, -1);
+    CompletableFuture<StoreObject> missing = asyncObjectStore.getAsync(name("-Unicorn"));
+    CompletableFuture<Map<ObjectName, StoreObject>> all = asyncObjectStore.getAllAsync(
+        Arrays.asList(name("-2"), name("-Unicorn"), name("-1")));
+    CompletableFuture<Boolean> exists = asyncObjectStore.checkObjectExistsAsync(name("-1"));
+    CompletableFuture<Boolean> notExists = asyncObjectStore.checkObjectExistsAsync(name("-Unicorn"));
+
+    assertEquals("TEST CONTENT1", stringInputStreamToString(one.get().getInputStream()));
+    assertEquals(objectStore.get(name("-1")).getVersion(), one.get().getVersion());
+    assertEquals("456789", stringInputStreamToString(range.get().getInputStream()));
+    assertNull(missing.get());
+    assertThat(all.get().keySet().stream().collect(Collectors.toList()),
+        equalTo(Arrays.asList(name("-2"), name("-1"))));
+    assertEquals("TEST CONTENT1", stringInputStreamToString(all.get().get(name("-1")).getInputStream()));
+    assertTrue(exists.get());
+    assertFalse(notExists.get());
+  }
+
   @Test
   @Transactional
   public void testThat_ObjectNamesCanBeListedViaPrefix() {
@@ -340,6 +502,36 @@ public abstract class AbstractObjectStoreServiceTest {
     assertEquals(4, objectStore.list(defaultName()).count());
   }
 
+  @Test
+  @Transactional
+  public void testThat_ObjectsCanBeListedInPages() {
+    Stream.of("a", "d", "e").forEach(
+        n -> objectStore.put(defaultName().append(n), ObjectStoreService.NEW_VERSION, defaultStream()));
+    objectStore.put(defaultName().append("b"), ObjectStoreService.NEW_VERSION, defaultStream());
+    objectStore.put(defaultName().append("b").append("1"), ObjectStoreService.NEW_VERSION, defaultStream());
+    objectStore.put(defaultName().append("c").append("1"), ObjectStoreService.NEW_VERSION, defaultStream());
+
+    List<ObjectName> expected = objectStore.list(defaultName()).map(StoreObject::getObjectName).collect(
+        Collectors.toList());
+    assertEquals(6, expected.size());
+
+    for (int maxKeys : new int[]{1, 2, 4, 6, 10}) {
+      List<ObjectName> listed = new ArrayList<>();
+      String continuationToken = null;
+      do {
+        ListPage page = objectStore.listPage(defaultName(), continuationToken, maxKeys);
+        assertTrue(page.getObjects().size() <= maxKeys);
+        page.getObjects().forEach(o -> listed.add(o.getObjectName()));
+        continuationToken = page.getContinuationToken();
+      } while (null != continuationToken);
+
+      assertThat(listed, containsInAnyOrder(expected.toArray()));
+    }
+
+    assertThat(objectStore.listPaged(defaultName(), 4).map(StoreObject::getObjectName).collect(Collectors.toList()),
+        containsInAnyOrder(expected.toArray()));
+  }
+
 
   class TestDataInputStream extends InputStream {
     private final byte[] sample;
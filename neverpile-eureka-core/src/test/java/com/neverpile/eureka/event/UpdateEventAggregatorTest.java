@@ -0,0 +1,91 @@
+package com.neverpile.eureka.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.neverpile.eureka.model.Document;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class UpdateEventAggregatorTest {
+  private final List<AggregatedUpdateEvent> published = new CopyOnWriteArrayList<>();
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private UpdateEventAggregator aggregator;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+    given(provider.getIfAvailable(any())).willReturn(meterRegistry);
+
+    ApplicationEventPublisher publisher = e -> published.add((AggregatedUpdateEvent) e);
+
+    aggregator = new UpdateEventAggregator(publisher, provider);
+    aggregator.quietPeriodMillis = 100;
+    aggregator.maxDelayMillis = 300;
+    aggregator.maxPending = 2;
+    aggregator.start();
+  }
+
+  @After
+  public void tearDown() {
+    aggregator.stop();
+  }
+
+  private static UpdateEvent update(final String id) {
+    Document doc = new Document();
+    doc.setDocumentId(id);
+    return new UpdateEvent(doc);
+  }
+
+  @Test
+  public void testThat_updatesAreCoalesced() throws Exception {
+    for (int i = 0; i < 5; i++)
+      aggregator.onApplicationEvent(update("foo"));
+    aggregator.onApplicationEvent(update("bar"));
+
+    assertThat(published).isEmpty();
+
+    Thread.sleep(500);
+
+    assertThat(published).extracting(Event::getDocumentId).containsExactlyInAnyOrder("foo", "bar");
+    assertThat(meterRegistry.counter("eureka.event.aggregation.coalesced").count()).isEqualTo(4);
+    assertThat(meterRegistry.get("eureka.event.aggregation.pending").gauge().value()).isEqualTo(0);
+  }
+
+  @Test
+  public void testThat_maxDelayForcesEmission() throws Exception {
+    // keep updating more often than the quiet period for longer than the max delay
+    long start = System.currentTimeMillis();
+    while (System.currentTimeMillis() - start < 600) {
+      aggregator.onApplicationEvent(update("foo"));
+      Thread.sleep(20);
+    }
+
+    assertThat(published).isNotEmpty();
+  }
+
+  @Test
+  public void testThat_overflowEmitsImmediately() {
+    aggregator.onApplicationEvent(update("a"));
+    aggregator.onApplicationEvent(update("b"));
+    aggregator.onApplicationEvent(update("c"));
+
+    assertThat(published).extracting(Event::getDocumentId).containsExactly("c");
+    assertThat(meterRegistry.counter("eureka.event.aggregation.overflow").count()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,158 @@
+package com.neverpile.eureka.impl.documentservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.api.ObjectStoreService.ObjectHead;
+import com.neverpile.eureka.api.ObjectStoreService.StoreObject;
+import com.neverpile.eureka.event.DeleteEvent;
+import com.neverpile.eureka.model.ContentElement;
+import com.neverpile.eureka.model.Document;
+import com.neverpile.eureka.model.ObjectName;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DocumentCacheTest {
+  private static final String D = "aDocument";
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  private DocumentCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new DocumentCache(100, meterRegistry);
+  }
+
+  private DocumentPdo document(final String id) {
+    DocumentPdo document = new DocumentPdo(id);
+    ContentElement ce = new ContentElement();
+    ce.setContentElementId("ce");
+    document.getContentElements().add(ce);
+    document.putSidecarElement("facet", JsonNodeFactory.instance.objectNode().put("foo", "bar"));
+    return document;
+  }
+
+  private double count(final String name) {
+    return meterRegistry.counter(name).count();
+  }
+
+  @Test
+  public void testThat_onlyMatchingVersionsHit() {
+    cache.put(D, "1", document(D), 10);
+
+    assertThat(cache.get(D, "1")).isPresent();
+    assertThat(cache.get(D, "2")).isEmpty();
+    assertThat(cache.get("other", "1")).isEmpty();
+
+    assertThat(count("eureka.document.cache.hits")).isEqualTo(1);
+    assertThat(count("eureka.document.cache.misses")).isEqualTo(2);
+  }
+
+  @Test
+  public void testThat_cachedDocumentsAreNotShared() {
+    DocumentPdo returned = cache.put(D, "1", document(D), 10);
+    returned.getContentElements().clear();
+    returned.putSidecarElement("facet", JsonNodeFactory.instance.textNode("modified"));
+
+    DocumentPdo copy = cache.get(D, "1").get();
+    copy.getContentElements().get(0).setRole("modified");
+
+    DocumentPdo cached = cache.get(D, "1").get();
+    assertThat(cached.getContentElements()).hasSize(1);
+    assertThat(cached.getContentElements().get(0).getRole()).isNull();
+    assertThat(cached.getSidecarElement("facet").get("foo").asText()).isEqualTo("bar");
+  }
+
+  @Test
+  public void testThat_leastRecentlyUsedDocumentsAreEvicted() {
+    cache.put("a", "1", document("a"), 40);
+    cache.put("b", "1", document("b"), 40);
+    cache.get("a", "1");
+    cache.put("c", "1", document("c"), 40);
+
+    assertThat(cache.get("a", "1")).isPresent();
+    assertThat(cache.get("b", "1")).isEmpty();
+    assertThat(cache.get("c", "1")).isPresent();
+    assertThat(cache.weight()).isEqualTo(80);
+    assertThat(count("eureka.document.cache.evictions")).isEqualTo(1);
+
+    // documents exceeding the maximum weight are not cached at all
+    cache.put("d", "1", document("d"), 101);
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void testThat_documentServiceParsesOnlyOnce() throws Exception {
+    byte[] serialized = objectMapper.writeValueAsBytes(document(D));
+    AtomicInteger reads = new AtomicInteger();
+    String[] version = {"1"};
+
+    ObjectStoreService objectStore = mock(ObjectStoreService.class);
+    given(objectStore.head(any())).willAnswer(i -> new ObjectHead(i.getArgument(0), version[0], serialized.length, null));
+    given(objectStore.get(any())).willAnswer(i -> new StoreObject() {
+      @Override
+      public ObjectName getObjectName() {
+        return i.getArgument(0);
+      }
+
+      @Override
+      public InputStream getInputStream() {
+        return new ByteArrayInputStream(serialized) {
+          @Override
+          public synchronized int read(final byte[] b, final int off, final int len) {
+            reads.incrementAndGet();
+            return super.read(b, off, len);
+          }
+        };
+      }
+
+      @Override
+      public String getVersion() {
+        return version[0];
+      }
+    });
+
+    DefaultDocumentService service = new DefaultDocumentService();
+    ReflectionTestUtils.setField(service, "objectStore", objectStore);
+    ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(service, "cache", new DocumentCache(serialized.length, meterRegistry));
+
+    Document first = service.getDocument(D).get();
+    int readsAfterFirst = reads.get();
+    Document second = service.getDocument(D).get();
+    assertThat(reads.get()).isEqualTo(readsAfterFirst);
+    assertThat(second).isNotSameAs(first);
+    // on a hit, only the current version is looked up
+    verify(objectStore).get(any());
+    assertThat(second.getContentElements()).hasSize(1);
+
+    // a new store version is parsed again
+    version[0] = "2";
+    service.getDocument(D);
+    assertThat(reads.get()).isGreaterThan(readsAfterFirst);
+
+    // so is a document changed by this instance
+    readsAfterFirst = reads.get();
+    service.invalidateCachedDocument(new DeleteEvent(D));
+    service.getDocument(D);
+    assertThat(reads.get()).isGreaterThan(readsAfterFirst);
+  }
+}
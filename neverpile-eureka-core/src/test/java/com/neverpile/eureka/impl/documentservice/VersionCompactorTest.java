@@ -0,0 +1,160 @@
+package com.neverpile.eureka.impl.documentservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import com.neverpile.eureka.api.ObjectStoreService.ListPage;
+import com.neverpile.eureka.api.ObjectStoreService.StoreObject;
+import com.neverpile.eureka.impl.tx.atomic.LocalAtomicReference;
+import com.neverpile.eureka.impl.tx.lock.LocalLockFactory;
+import com.neverpile.eureka.model.ObjectName;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class VersionCompactorTest {
+  private final List<String> documentIds = Arrays.asList("a", "b", "c", "d", "e");
+
+  private final List<String> compacted = new ArrayList<>();
+
+  private final List<String> requestedTokens = new ArrayList<>();
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final LocalLockFactory lockFactory = new LocalLockFactory();
+
+  private final LocalAtomicReference<String> position = new LocalAtomicReference<>("position");
+
+  private DefaultMultiVersioningDocumentService documentService;
+
+  @Before
+  public void setUp() {
+    documentService = mock(DefaultMultiVersioningDocumentService.class);
+
+    // pages are continued by the index of the next document
+    given(documentService.getDocumentPage(any(), anyInt())).willAnswer(i -> {
+      String token = i.getArgument(0);
+      int maxDocuments = i.getArgument(1);
+      requestedTokens.add(token);
+
+      int from = null != token ? Integer.parseInt(token) : 0;
+      int to = Math.min(from + maxDocuments, documentIds.size());
+      List<StoreObject> objects = documentIds.subList(from, to).stream() //
+          .map(VersionCompactorTest::documentDirectory) //
+          .collect(Collectors.toList());
+      return new ListPage(objects, to < documentIds.size() ? Integer.toString(to) : null);
+    });
+    given(documentService.compactVersions(any(), any())).willAnswer(i -> {
+      compacted.add(i.getArgument(0));
+      return 1;
+    });
+  }
+
+  private VersionCompactor createCompactor() {
+    StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+    beanFactory.addBean("meterRegistry", meterRegistry);
+
+    VersionCompactor compactor = new VersionCompactor();
+    compactor.documentService = documentService;
+    compactor.meterRegistry = beanFactory.getBeanProvider(MeterRegistry.class);
+    compactor.lockFactory = lockFactory;
+    compactor.position = position;
+    compactor.keepLast = 1;
+    compactor.documentsPerRun = 2;
+    compactor.pause = 0;
+    compactor.init();
+    return compactor;
+  }
+
+  private static StoreObject documentDirectory(final String documentId) {
+    StoreObject object = mock(StoreObject.class);
+    given(object.getObjectName()).willReturn(ObjectName.of(DefaultMultiVersioningDocumentService.DOCUMENT_PREFIX,
+        documentId));
+    return object;
+  }
+
+  @Test
+  public void testThat_runsResumeListingAfterPreviousBatch() {
+    VersionCompactor compactor = createCompactor();
+
+    assertThat(compactor.compact()).isEqualTo(2);
+    assertThat(compactor.compact()).isEqualTo(2);
+    assertThat(compactor.compact()).isEqualTo(1);
+
+    assertThat(compacted).containsExactly("a", "b", "c", "d", "e");
+    assertThat(requestedTokens).containsExactly(null, "2", "4");
+    assertThat(meterRegistry.counter("eureka.document.versions.compacted").count()).isEqualTo(5);
+  }
+
+  @Test
+  public void testThat_compactionStartsOverAfterLastBatch() {
+    VersionCompactor compactor = createCompactor();
+
+    for (int i = 0; i < 4; i++) {
+      compactor.compact();
+    }
+
+    assertThat(compacted).containsExactly("a", "b", "c", "d", "e", "a", "b");
+    assertThat(requestedTokens).containsExactly(null, "2", "4", null);
+  }
+
+  @Test
+  public void testThat_positionIsSharedByInstances() {
+    createCompactor().compact();
+    createCompactor().compact();
+
+    assertThat(compacted).containsExactly("a", "b", "c", "d");
+  }
+
+  @Test
+  public void testThat_runIsSkippedWhileAnotherInstanceCompacts() throws InterruptedException {
+    VersionCompactor compactor = createCompactor();
+
+    // the lock is held by another thread, standing in for another instance
+    Thread other = new Thread(() -> lockFactory.writeLock("neverpile-eureka-version-compaction").lock());
+    other.start();
+    other.join();
+
+    assertThat(compactor.compact()).isZero();
+    verify(documentService, never()).getDocumentPage(any(), anyInt());
+  }
+
+  @Test
+  public void testThat_lockIsReleasedAfterRun() {
+    VersionCompactor compactor = createCompactor();
+    compactor.compact();
+
+    Lock lock = lockFactory.writeLock("neverpile-eureka-version-compaction");
+    assertThat(lock.tryLock()).isTrue();
+    lock.unlock();
+  }
+
+  @Test
+  public void testThat_invalidPositionStartsOver() {
+    VersionCompactor compactor = createCompactor();
+    position.set("expired");
+    given(documentService.getDocumentPage(eq("expired"), anyInt())).willThrow(
+        new IllegalArgumentException("Invalid continuation token"));
+
+    compactor.compact();
+
+    assertThat(compacted).containsExactly("a", "b");
+    assertThat(position.get()).isEqualTo("2");
+  }
+}
@@ -0,0 +1,67 @@
+package com.neverpile.eureka.impl.documentservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class VersionRetentionPolicyTest {
+  private final Instant now = Instant.parse("2020-03-10T12:00:00Z");
+
+  private final List<Instant> versions = Arrays.asList( //
+      Instant.parse("2020-03-01T08:00:00Z"), //
+      Instant.parse("2020-03-01T17:00:00Z"), //
+      Instant.parse("2020-03-02T09:00:00Z"), //
+      Instant.parse("2020-03-09T10:00:00Z"), //
+      Instant.parse("2020-03-10T09:00:00Z"), //
+      Instant.parse("2020-03-10T11:00:00Z") //
+  );
+
+  @Test
+  public void testThat_disabledPolicyRetainsEverything() {
+    VersionRetentionPolicy policy = new VersionRetentionPolicy(0, Duration.ZERO, Duration.ZERO);
+
+    assertThat(policy.isEnabled()).isFalse();
+    assertThat(policy.selectSuperseded(versions, now)).isEmpty();
+  }
+
+  @Test
+  public void testThat_lastVersionsAreRetained() {
+    VersionRetentionPolicy policy = new VersionRetentionPolicy(2, Duration.ZERO, Duration.ZERO);
+
+    assertThat(policy.selectSuperseded(versions, now)).containsExactlyElementsOf(versions.subList(0, 4));
+  }
+
+  @Test
+  public void testThat_youngVersionsAreRetained() {
+    VersionRetentionPolicy policy = new VersionRetentionPolicy(0, Duration.ofDays(1), Duration.ZERO);
+
+    assertThat(policy.selectSuperseded(versions, now)).containsExactlyElementsOf(versions.subList(0, 4));
+  }
+
+  @Test
+  public void testThat_oldVersionsAreThinnedToOnePerDay() {
+    VersionRetentionPolicy policy = new VersionRetentionPolicy(0, Duration.ZERO, Duration.ofDays(2));
+
+    assertThat(policy.selectSuperseded(versions, now)).containsExactly(versions.get(0));
+  }
+
+  @Test
+  public void testThat_rulesAreCombined() {
+    VersionRetentionPolicy policy = new VersionRetentionPolicy(3, Duration.ofHours(2), Duration.ofDays(5));
+
+    // the last three versions, the last one of March 1st and the one of March 2nd are retained
+    assertThat(policy.selectSuperseded(versions, now)).containsExactly(versions.get(0));
+  }
+
+  @Test
+  public void testThat_currentVersionIsNeverSuperseded() {
+    VersionRetentionPolicy policy = new VersionRetentionPolicy(0, Duration.ofMillis(1), Duration.ZERO);
+
+    assertThat(policy.selectSuperseded(versions, now)).containsExactlyElementsOf(versions.subList(0, 5));
+  }
+}
@@ -0,0 +1,77 @@
+package com.neverpile.eureka.impl.tasks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.neverpile.eureka.tasks.TaskQueue;
+import com.neverpile.eureka.tasks.TaskQueue.ProcessElement;
+
+/**
+ * Compares claiming tasks from {@link LocalTaskQueue} with the former {@link HashMapTaskQueue}
+ * while a growing number of tasks is in process, i.e. claimed but not yet completed. Claims from
+ * the former queue scan all tasks and slow down linearly with the number of tasks in process.
+ * Claims from {@link LocalTaskQueue} are O(log n) and slow down only slightly. With few tasks in
+ * process, the former queue is faster. Run using {@link #main(String[])} from the IDE or the test
+ * classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalTaskQueueBenchmark {
+  @Param({
+      "local", "hashmap"
+  })
+  String implementation;
+
+  @Param({
+      "100", "10000", "1000000"
+  })
+  int inProcess;
+
+  private TaskQueue<String> queue;
+
+  @Setup
+  public void setUp() {
+    queue = "local".equals(implementation) ? new LocalTaskQueue<>() : new HashMapTaskQueue<>();
+
+    for (int i = 0; i < inProcess; i++) {
+      queue.putInQueue("busy-" + i, "data");
+    }
+    for (int i = 0; i < inProcess; i++) {
+      queue.getElementToProcess();
+    }
+
+    for (int i = 0; i < 10; i++) {
+      queue.putInQueue("task-" + i, "data");
+    }
+  }
+
+  @Benchmark
+  public ProcessElement<String> claimCompleteAndRequeue() {
+    ProcessElement<String> element = queue.getElementToProcess();
+    queue.removeProcessedElement(element.getKey());
+    queue.putInQueue(element.getKey(), element.getValue());
+    return element;
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(LocalTaskQueueBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,158 @@
+package com.neverpile.eureka.impl.tasks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.neverpile.eureka.tasks.TaskQueue.ProcessElement;
+
+public class LocalTaskQueueTest {
+  private final LocalTaskQueue<String> queue = new LocalTaskQueue<>();
+
+  @Test
+  public void testThat_tasksAreClaimedInFifoOrder() {
+    Map<String, String> tasks = new LinkedHashMap<>();
+    tasks.put("a", "1");
+    tasks.put("b", "2");
+    queue.putAllInQueue(tasks);
+    queue.putInQueue("c", "3");
+
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("a", "1"));
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("b", "2"));
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("c", "3"));
+    assertThat(queue.getElementToProcess()).isNull();
+  }
+
+  @Test
+  public void testThat_requeuedOpenTaskIsDeduplicated() {
+    queue.putInQueue("a", "1");
+    queue.putInQueue("b", "2");
+    queue.putInQueue("a", "3");
+
+    // a keeps its place but carries the latest data
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("a", "3"));
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("b", "2"));
+    assertThat(queue.getElementToProcess()).isNull();
+  }
+
+  @Test
+  public void testThat_onlyClaimedTasksCanBeRemoved() {
+    queue.putInQueue("a", "1");
+
+    assertThat(queue.removeProcessedElement("a")).isFalse();
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("a", "1"));
+    assertThat(queue.removeProcessedElement("a")).isTrue();
+    assertThat(queue.removeProcessedElement("a")).isFalse();
+    assertThat(queue.getElementToProcess()).isNull();
+  }
+
+  @Test
+  public void testThat_requeuedTaskInProcessIsReopened() {
+    queue.putInQueue("a", "1");
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("a", "1"));
+
+    queue.putInQueue("a", "2");
+
+    // the processing of the earlier data must not complete the re-opened task
+    assertThat(queue.removeProcessedElement("a")).isFalse();
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("a", "2"));
+    assertThat(queue.removeProcessedElement("a")).isTrue();
+  }
+
+  @Test
+  public void testThat_tasksCanBeClaimedByKeyPrefix() {
+    queue.putInQueue("1/a", "1");
+    queue.putInQueue("2/b", "2");
+    queue.putInQueue("1/c", "3");
+    queue.putInQueue("10/d", "4");
+
+    assertThat(queue.claimBatch("1/", 10)).containsExactlyInAnyOrder(new ProcessElement<>("1/a", "1"),
+        new ProcessElement<>("1/c", "3"));
+
+    // the keys of the claimed tasks are gone
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("2/b", "2"));
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("10/d", "4"));
+    assertThat(queue.getElementToProcess()).isNull();
+    assertThat(queue.removeProcessedElement("1/a")).isTrue();
+  }
+
+  @Test
+  public void testThat_claimingByKeyPrefixLeavesNoKeysBehind() {
+    for (int bucket = 0; bucket < 100; bucket++) {
+      for (int i = 0; i < 100; i++) {
+        queue.putInQueue(bucket + "/" + i, "data");
+      }
+
+      List<ProcessElement<String>> batch;
+      while (!(batch = queue.claimBatch(bucket + "/", 30)).isEmpty()) {
+        for (ProcessElement<String> e : batch) {
+          assertThat(queue.removeProcessedElement(e.getKey())).isTrue();
+        }
+      }
+
+      assertThat(openKeys()).isEmpty();
+    }
+  }
+
+  @Test
+  public void testThat_reopenedTaskIsClaimedOnce() {
+    queue.putInQueue("1/a", "1");
+    queue.putInQueue("1/b", "2");
+    assertThat(queue.claimBatch("1/", 1)).containsExactly(new ProcessElement<>("1/a", "1"));
+    queue.putInQueue("1/a", "3");
+
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("1/b", "2"));
+    assertThat(queue.getElementToProcess()).isEqualTo(new ProcessElement<>("1/a", "3"));
+    assertThat(queue.getElementToProcess()).isNull();
+    assertThat(openKeys()).isEmpty();
+  }
+
+  @Test
+  public void testThat_concurrentConsumersClaimEachTaskOnce() throws Exception {
+    int taskCount = 100000;
+    for (int i = 0; i < taskCount; i++) {
+      queue.putInQueue("task-" + i, "data");
+    }
+
+    Set<String> claimed = ConcurrentHashMap.newKeySet();
+    AtomicInteger duplicates = new AtomicInteger();
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          ProcessElement<String> e;
+          while (null != (e = queue.getElementToProcess())) {
+            if (!claimed.add(e.getKey()))
+              duplicates.incrementAndGet();
+            queue.removeProcessedElement(e.getKey());
+          }
+        }));
+      }
+      for (Future<?> f : futures)
+        f.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(claimed).hasSize(taskCount);
+    assertThat(duplicates.get()).isZero();
+  }
+
+  private Map<?, ?> openKeys() {
+    return (Map<?, ?>) ReflectionTestUtils.getField(queue, "openKeys");
+  }
+}
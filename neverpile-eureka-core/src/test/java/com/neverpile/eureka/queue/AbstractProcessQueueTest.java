@@ -1,5 +1,12 @@
 package com.neverpile.eureka.queue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
@@ -107,6 +114,60 @@ public abstract class AbstractProcessQueueTest {
     Assert.assertNull(job);
   }
 
+  @Test
+  public void testThat_batchesCanBeClaimedAndRemoved() {
+    Map<String, EventType> jobs = new HashMap<>();
+    for (int i = 0; i < 5; i++) {
+      jobs.put("BATCH" + i, EventType.UPDATE);
+    }
+    processQueueCache.putAllInQueue(jobs);
+
+    List<TaskQueue.ProcessElement<EventType>> claimed = new ArrayList<>(processQueueCache.claimBatch(3));
+    Assert.assertEquals(3, claimed.size());
+    claimed.addAll(processQueueCache.claimBatch(10));
+    Assert.assertEquals(5, claimed.size());
+    Assert.assertTrue(processQueueCache.claimBatch(10).isEmpty());
+
+    List<String> keys = new ArrayList<>();
+    for (TaskQueue.ProcessElement<EventType> job : claimed) {
+      Assert.assertEquals(EventType.UPDATE, job.getValue());
+      keys.add(job.getKey());
+    }
+    Assert.assertEquals(jobs.keySet(), new HashSet<>(keys));
+
+    keys.add("NOT_IN_QUEUE");
+    Set<String> removed = processQueueCache.removeProcessedElements(keys);
+    Assert.assertEquals(jobs.keySet(), removed);
+    Assert.assertNull(processQueueCache.getElementToProcess());
+  }
+
+  @Test
+  public void testThat_batchesCanBeClaimedByKeyPrefix() {
+    Map<String, EventType> jobs = new HashMap<>();
+    for (int i = 0; i < 6; i++) {
+      jobs.put("PREFIX" + (i % 2) + "/" + i, EventType.UPDATE);
+    }
+    processQueueCache.putAllInQueue(jobs);
+
+    List<TaskQueue.ProcessElement<EventType>> claimed = processQueueCache.claimBatch("PREFIX0/", 10);
+    Set<String> keys = new HashSet<>();
+    for (TaskQueue.ProcessElement<EventType> job : claimed) {
+      keys.add(job.getKey());
+    }
+    Assert.assertEquals(new HashSet<>(Arrays.asList("PREFIX0/0", "PREFIX0/2", "PREFIX0/4")), keys);
+    Assert.assertTrue(processQueueCache.claimBatch("PREFIX0/", 10).isEmpty());
+    Assert.assertEquals(keys, processQueueCache.removeProcessedElements(keys));
+
+    // the other elements are still open
+    keys.clear();
+    for (TaskQueue.ProcessElement<EventType> job : processQueueCache.claimBatch("PREFIX1/", 10)) {
+      keys.add(job.getKey());
+    }
+    Assert.assertEquals(3, keys.size());
+    Assert.assertEquals(keys, processQueueCache.removeProcessedElements(keys));
+    Assert.assertNull(processQueueCache.getElementToProcess());
+  }
+
   @Test
   public void testThat_listenersCanRegisterAndGetNotified() throws InterruptedException {
 
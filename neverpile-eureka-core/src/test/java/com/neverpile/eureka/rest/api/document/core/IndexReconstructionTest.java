@@ -0,0 +1,75 @@
+package com.neverpile.eureka.rest.api.document.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+
+import org.junit.Test;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.model.Document;
+import com.neverpile.eureka.rest.api.document.DocumentDto;
+import com.neverpile.eureka.rest.api.document.DocumentFacet;
+
+public class IndexReconstructionTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private <F extends DocumentFacet<?>> F facet(final F facet) {
+    ReflectionTestUtils.setField(facet, "objectMapper", objectMapper);
+    return facet;
+  }
+
+  private void assertReconstructible(final DocumentFacet<?> facet, final Document document) throws Exception {
+    assertThat(facet.isIndexReconstructible()).isTrue();
+
+    DocumentDto fromDocument = new DocumentDto();
+    facet.onRetrieve(document, fromDocument);
+
+    // pass the index data through JSON, just like it would be stored in the index
+    JsonNode indexData = objectMapper.readTree(objectMapper.writeValueAsString(facet.getIndexData(document)));
+
+    DocumentDto fromIndex = new DocumentDto();
+    facet.onRetrieveFromIndex(document.getDocumentId(), indexData, fromIndex);
+
+    assertThat(fromIndex.getFacets()).isEqualTo(fromDocument.getFacets());
+  }
+
+  @Test
+  public void testThat_idAndSelfLinkAreReconstructedFromIndexData() throws Exception {
+    Document document = new Document("foo");
+    IdFacet facet = facet(new IdFacet());
+
+    assertReconstructible(facet, document);
+
+    DocumentDto fromIndex = new DocumentDto();
+    facet.onRetrieveFromIndex(document.getDocumentId(), objectMapper.readTree("\"foo\""), fromIndex);
+
+    assertThat(fromIndex.getDocumentId()).isEqualTo("foo");
+    assertThat(fromIndex.getRequiredLink(IanaLinkRelations.SELF).getHref()).endsWith("/foo");
+
+    DocumentDto fromDocument = new DocumentDto();
+    facet.onRetrieve(document, fromDocument);
+    assertThat(fromIndex.getLinks()).isEqualTo(fromDocument.getLinks());
+  }
+
+  @Test
+  public void testThat_dateFacetsAreReconstructedFromIndexData() throws Exception {
+    Document document = new Document("foo");
+    document.setDateCreated(Instant.ofEpochMilli(1000000000000L));
+    document.setDateModified(Instant.ofEpochMilli(1500000000000L));
+
+    assertReconstructible(facet(new CreationDateFacet()), document);
+    assertReconstructible(facet(new ModificationDateFacet()), document);
+  }
+
+  @Test
+  public void testThat_missingDatesAreReconstructedFromIndexData() throws Exception {
+    Document document = new Document("foo");
+
+    assertReconstructible(facet(new CreationDateFacet()), document);
+    assertReconstructible(facet(new ModificationDateFacet()), document);
+  }
+}
@@ -0,0 +1,45 @@
+package com.neverpile.eureka.tx.wal;
+
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.annotation.RequestScope;
+
+import com.neverpile.eureka.api.BaseTestConfiguration;
+import com.neverpile.eureka.tx.wal.local.DefaultTransactionWAL;
+import com.neverpile.eureka.tx.wal.local.SegmentedFileWAL;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes=BaseTestConfiguration.class)
+public class SegmentedFileTransactionWALTest extends AbstractTransactionWALTest {
+
+  @TestConfiguration
+  @EnableTransactionManagement
+  @EnableAutoConfiguration
+  public static class ServiceConfig {
+    @Bean
+    WriteAheadLog segmentedFileWal() {
+      return new SegmentedFileWAL();
+    }
+
+    @Bean
+    @RequestScope
+    TransactionWAL wal() {
+      return new DefaultTransactionWAL();
+    }
+  }
+
+  @Autowired
+  TransactionWAL wal;
+
+  @Autowired
+  TransactionTemplate transactionTemplate;
+  
+}
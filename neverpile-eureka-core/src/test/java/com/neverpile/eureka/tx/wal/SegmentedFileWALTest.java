@@ -0,0 +1,210 @@
+package com.neverpile.eureka.tx.wal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.neverpile.eureka.tx.wal.WriteAheadLog.ActionType;
+import com.neverpile.eureka.tx.wal.local.FileBasedWAL;
+import com.neverpile.eureka.tx.wal.local.SegmentedFileWAL;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SegmentedFileWALTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private SegmentedFileWAL createWAL(final long segmentSize) throws IOException {
+    SegmentedFileWAL wal = new SegmentedFileWAL();
+    ReflectionTestUtils.setField(wal, "logFileDirectory", folder.getRoot().getPath());
+    ReflectionTestUtils.setField(wal, "segmentSize", segmentSize);
+    wal.start();
+    return wal;
+  }
+
+  private File[] segments() {
+    return folder.getRoot().listFiles((d, n) -> n.endsWith(".seg"));
+  }
+
+  @Test
+  public void testThat_recoveryOfFailedTransactionsOnRestartWorks() throws Exception {
+    SomeTransactionalAction a1 = new SomeTransactionalAction("segmented recovery tx1");
+    SomeTransactionalAction a2 = new SomeTransactionalAction("segmented recovery tx2");
+
+    SegmentedFileWAL wal = createWAL(4096);
+    try {
+      wal.logAction("tx1", ActionType.ROLLBACK, a1);
+      wal.logAction("tx2", ActionType.ROLLBACK, a2);
+
+      // complete tx1, tx2 remains incomplete
+      wal.logCompletion("tx1");
+    } finally {
+      wal.stop();
+    }
+
+    createWAL(4096).stop();
+
+    a1.assertNotExecuted();
+    a2.assertExecuted();
+  }
+
+  @Test
+  public void testThat_onlyActionsOfRequestedTransactionAndTypeAreApplied() throws Exception {
+    SomeTransactionalAction a1 = new SomeTransactionalAction("segmented apply tx1 commit");
+    SomeTransactionalAction a2 = new SomeTransactionalAction("segmented apply tx1 rollback");
+    SomeTransactionalAction a3 = new SomeTransactionalAction("segmented apply tx2 commit");
+
+    SegmentedFileWAL wal = createWAL(4096);
+    try {
+      wal.logAction("tx1", ActionType.COMMIT, a1);
+      wal.logAction("tx1", ActionType.ROLLBACK, a2);
+      wal.logAction("tx2", ActionType.COMMIT, a3);
+
+      wal.applyLoggedActions("tx1", ActionType.COMMIT, false);
+
+      a1.assertExecuted();
+      a2.assertNotExecuted();
+      a3.assertNotExecuted();
+    } finally {
+      wal.stop();
+    }
+  }
+
+  @Test
+  public void testThat_completedSegmentsAreDeleted() throws Exception {
+    SegmentedFileWAL wal = createWAL(512);
+    try {
+      for (int i = 0; i < 50; i++) {
+        wal.logAction("tx" + i, ActionType.ROLLBACK, new SomeTransactionalAction("segmented reclaim " + i));
+        wal.logCompletion("tx" + i);
+      }
+
+      assertThat(segments()).hasSize(1);
+    } finally {
+      wal.stop();
+    }
+  }
+
+  @Test
+  public void testThat_segmentsWithOpenTransactionsArePreserved() throws Exception {
+    SomeTransactionalAction a1 = new SomeTransactionalAction("segmented preserve tx1");
+
+    SegmentedFileWAL wal = createWAL(512);
+    try {
+      wal.logAction("tx1", ActionType.ROLLBACK, a1);
+
+      for (int i = 0; i < 50; i++) {
+        wal.logAction("txX" + i, ActionType.ROLLBACK, new SomeTransactionalAction("segmented preserve " + i));
+        wal.logCompletion("txX" + i);
+      }
+
+      // the segment holding tx1 as well as all younger ones must survive
+      assertThat(segments().length).isGreaterThan(1);
+
+      wal.applyLoggedActions("tx1", ActionType.ROLLBACK, true);
+      a1.assertExecuted();
+
+      wal.logCompletion("tx1");
+      assertThat(segments()).hasSize(1);
+    } finally {
+      wal.stop();
+    }
+  }
+
+  @Test
+  public void testThat_legacyLogIsRecoveredOnStart() throws Exception {
+    SomeTransactionalAction a1 = new SomeTransactionalAction("legacy recovery tx1");
+    SomeTransactionalAction a2 = new SomeTransactionalAction("legacy recovery tx2");
+
+    FileBasedWAL legacyWAL = new FileBasedWAL();
+    ReflectionTestUtils.setField(legacyWAL, "logFileDirectory", folder.getRoot().getPath());
+    legacyWAL.start();
+    try {
+      legacyWAL.logAction("tx1", ActionType.ROLLBACK, a1);
+      legacyWAL.logAction("tx2", ActionType.ROLLBACK, a2);
+
+      // complete tx1, tx2 remains incomplete
+      legacyWAL.logCompletion("tx1");
+    } finally {
+      legacyWAL.stop();
+    }
+
+    createWAL(4096).stop();
+
+    a1.assertNotExecuted();
+    a2.assertExecuted();
+    assertThat(new File(folder.getRoot(), "tx.log")).doesNotExist();
+  }
+
+  @Test
+  public void testThat_tornWriteAtEndOfLogIsIgnored() throws Exception {
+    SomeTransactionalAction a1 = new SomeTransactionalAction("segmented torn tx1");
+    SomeTransactionalAction a2 = new SomeTransactionalAction("segmented torn tx2");
+
+    SegmentedFileWAL wal = createWAL(4096);
+    try {
+      wal.logAction("tx1", ActionType.ROLLBACK, a1);
+      wal.logAction("tx2", ActionType.ROLLBACK, a2);
+    } finally {
+      wal.stop();
+    }
+
+    // chop off the last few bytes, thus tearing the record of tx2
+    File segment = segments()[0];
+    try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+      raf.setLength(raf.length() - 5);
+    }
+
+    createWAL(4096).stop();
+
+    a1.assertExecuted();
+    a2.assertNotExecuted();
+  }
+
+  @Test
+  public void testThat_groupCommitBatchesConcurrentSyncs() throws Exception {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    SegmentedFileWAL wal = new SegmentedFileWAL();
+    ReflectionTestUtils.setField(wal, "logFileDirectory", folder.getRoot().getPath());
+    ReflectionTestUtils.setField(wal, "groupCommit", true);
+    ReflectionTestUtils.setField(wal, "groupCommitMaxWaitMicros", 20000L);
+    ReflectionTestUtils.setField(wal, "meterRegistry", meterRegistry);
+    wal.start();
+
+    ExecutorService executor = Executors.newFixedThreadPool(20);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        String txId = "tx" + i;
+        futures.add(executor.submit(() -> {
+          wal.logAction(txId, ActionType.ROLLBACK, new SomeTransactionalAction("group commit " + txId));
+          wal.sync();
+          wal.logCompletion(txId);
+        }));
+      }
+      for (Future<?> f : futures)
+        f.get();
+
+      DistributionSummary batchSize = meterRegistry.get("eureka.wal.sync.batch-size").summary();
+      assertThat(batchSize.totalAmount()).isEqualTo(20);
+      assertThat(batchSize.count()).isLessThan(20);
+    } finally {
+      executor.shutdown();
+      wal.stop();
+    }
+  }
+}
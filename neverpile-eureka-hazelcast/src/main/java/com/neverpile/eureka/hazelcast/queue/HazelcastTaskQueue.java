@@ -2,10 +2,14 @@ package com.neverpile.eureka.hazelcast.queue;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -17,9 +21,12 @@ import org.springframework.scheduling.annotation.Scheduled;
 import com.hazelcast.core.EntryEvent;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
 import com.hazelcast.map.listener.EntryAddedListener;
 import com.hazelcast.map.listener.EntryUpdatedListener;
 import com.hazelcast.map.listener.MapListener;
+import com.hazelcast.query.PagingPredicate;
+import com.hazelcast.query.Predicate;
 import com.neverpile.eureka.tasks.TaskQueue;
 
 import io.micrometer.core.instrument.MeterRegistry;
@@ -50,6 +57,56 @@ public class HazelcastTaskQueue<T> implements TaskQueue<T> {
     INPROCESS, OPEN
   }
 
+  private static final class OpenPredicate<T> implements Predicate<String, CacheData<T>> {
+    private static final long serialVersionUID = 1L;
+
+    private final String keyPrefix;
+
+    OpenPredicate(final String keyPrefix) {
+      this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public boolean apply(final Entry<String, CacheData<T>> entry) {
+      return entry.getValue().getState() == State.OPEN && entry.getKey().startsWith(keyPrefix);
+    }
+  }
+
+  /**
+   * Marks an open task as in-process and returns it. Returns <code>null</code> if the task is not
+   * (or no longer) open.
+   */
+  private static final class ClaimProcessor<T> extends AbstractEntryProcessor<String, CacheData<T>> {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Object process(final Entry<String, CacheData<T>> entry) {
+      CacheData<T> data = entry.getValue();
+      if (null == data || data.getState() != State.OPEN)
+        return null;
+
+      entry.setValue(new CacheData<>(data.getInfo(), State.INPROCESS));
+      return new TaskQueue.ProcessElement<>(entry.getKey(), data.getInfo());
+    }
+  }
+
+  /**
+   * Removes an in-process task and returns whether it did so.
+   */
+  private static final class RemoveProcessor<T> extends AbstractEntryProcessor<String, CacheData<T>> {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Object process(final Entry<String, CacheData<T>> entry) {
+      CacheData<T> data = entry.getValue();
+      if (null == data || data.getState() != State.INPROCESS)
+        return Boolean.FALSE;
+
+      entry.setValue(null);
+      return Boolean.TRUE;
+    }
+  }
+
   private static class CacheData<K> implements Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -144,9 +201,11 @@ public class HazelcastTaskQueue<T> implements TaskQueue<T> {
 
   @Override
   public void putAllInQueue(final Map<String, T> map) {
+    Map<String, CacheData<T>> entries = new HashMap<>();
     for (Map.Entry<String, T> entry : map.entrySet()) {
-      putInQueue(entry.getKey(), entry.getValue());
+      entries.put(entry.getKey(), new CacheData<>(entry.getValue(), State.OPEN));
     }
+    queueCache.putAll(entries);
   }
 
 
@@ -184,6 +243,45 @@ public class HazelcastTaskQueue<T> implements TaskQueue<T> {
     }
   }
 
+  @Override
+  public List<TaskQueue.ProcessElement<T>> claimBatch(final int maxElements) {
+    return claimBatch("", maxElements);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<TaskQueue.ProcessElement<T>> claimBatch(final String keyPrefix, final int maxElements) {
+    List<TaskQueue.ProcessElement<T>> batch = new ArrayList<>();
+
+    // candidates may have been claimed by another node in the meantime - query again until the
+    // batch is full or the candidates are exhausted. Claimed tasks drop out of the open ones, so
+    // each query starts over at the first page instead of moving on to the next one.
+    while (batch.size() < maxElements) {
+      PagingPredicate<String, CacheData<T>> open = new PagingPredicate<>(new OpenPredicate<T>(keyPrefix),
+          maxElements - batch.size());
+      Set<String> keys = queueCache.keySet(open);
+      if (keys.isEmpty())
+        break;
+
+      for (Object result : queueCache.executeOnKeys(keys, new ClaimProcessor<T>()).values()) {
+        if (null != result)
+          batch.add((TaskQueue.ProcessElement<T>) result);
+      }
+    }
+
+    return batch;
+  }
+
+  @Override
+  public Set<String> removeProcessedElements(final Collection<String> keys) {
+    Set<String> removed = new HashSet<>();
+    queueCache.executeOnKeys(new HashSet<>(keys), new RemoveProcessor<T>()).forEach((key, result) -> {
+      if (Boolean.TRUE.equals(result))
+        removed.add(key);
+    });
+    return removed;
+  }
+
   @Override
   public boolean removeProcessedElement(final String key) {
     queueCache.lock(key);
@@ -1,9 +1,15 @@
 package com.neverpile.eureka.ignite.queue;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -16,9 +22,12 @@ import javax.cache.event.CacheEntryEventFilter;
 import javax.cache.event.CacheEntryListenerException;
 import javax.cache.event.EventType;
 import javax.cache.expiry.EternalExpiryPolicy;
+import javax.cache.processor.EntryProcessorResult;
+import javax.cache.processor.MutableEntry;
 
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.CacheEntryProcessor;
 import org.apache.ignite.cache.CacheAtomicityMode;
 import org.apache.ignite.cache.CacheMode;
 import org.apache.ignite.cache.query.ContinuousQuery;
@@ -71,6 +80,44 @@ public class IgniteTaskQueue<T> implements TaskQueue<T> {
     INPROCESS, OPEN
   }
 
+  /**
+   * Marks an open task as in-process and returns it. Returns <code>null</code> if the task is not
+   * (or no longer) open.
+   */
+  private static final class ClaimProcessor<T>
+      implements
+        CacheEntryProcessor<String, CacheData<T>, TaskQueue.ProcessElement<T>> {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public TaskQueue.ProcessElement<T> process(final MutableEntry<String, CacheData<T>> entry,
+        final Object... arguments) {
+      CacheData<T> data = entry.getValue();
+      if (null == data || data.getState() != State.OPEN)
+        return null;
+
+      entry.setValue(new CacheData<>(data.getInfo(), State.INPROCESS));
+      return new TaskQueue.ProcessElement<>(entry.getKey(), data.getInfo());
+    }
+  }
+
+  /**
+   * Removes an in-process task and returns whether it did so.
+   */
+  private static final class RemoveProcessor<T> implements CacheEntryProcessor<String, CacheData<T>, Boolean> {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Boolean process(final MutableEntry<String, CacheData<T>> entry, final Object... arguments) {
+      CacheData<T> data = entry.getValue();
+      if (null == data || data.getState() != State.INPROCESS)
+        return Boolean.FALSE;
+
+      entry.remove();
+      return Boolean.TRUE;
+    }
+  }
+
   static class CacheData<K> implements Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -168,10 +215,14 @@ public class IgniteTaskQueue<T> implements TaskQueue<T> {
   }
 
   @Override
+  @Timed(description = "put process queue elements", extraTags = {"subsystem", "ignite.process-queue"}, value="eureka.ignite.process-queue.put-all")
   public void putAllInQueue(final Map<String, T> map) {
+    // keys are sorted to prevent deadlocks between concurrent bulk operations
+    Map<String, CacheData<T>> entries = new TreeMap<>();
     for (Map.Entry<String, T> entry : map.entrySet()) {
-      putInQueue(entry.getKey(), entry.getValue());
+      entries.put(entry.getKey(), new CacheData<>(entry.getValue(), State.OPEN));
     }
+    queueCache.putAll(entries);
   }
 
 
@@ -214,6 +265,51 @@ public class IgniteTaskQueue<T> implements TaskQueue<T> {
     }
   }
 
+  @Override
+  @Timed(description = "claim process queue elements", extraTags = {"subsystem", "ignite.process-queue"}, value="eureka.ignite.process-queue.claim-batch")
+  public List<TaskQueue.ProcessElement<T>> claimBatch(final int maxElements) {
+    return claimBatch("", maxElements);
+  }
+
+  @Override
+  @Timed(description = "claim process queue elements by key prefix", extraTags = {"subsystem", "ignite.process-queue"}, value="eureka.ignite.process-queue.claim-batch-prefix")
+  public List<TaskQueue.ProcessElement<T>> claimBatch(final String keyPrefix, final int maxElements) {
+    List<TaskQueue.ProcessElement<T>> batch = new ArrayList<>();
+
+    try (QueryCursor<Cache.Entry<String, CacheData<T>>> cursor = queueCache.query(
+        new ScanQuery<String, CacheData<T>>((k, v) -> v.state == State.OPEN && k.startsWith(keyPrefix)))) {
+      Iterator<Cache.Entry<String, CacheData<T>>> candidates = cursor.iterator();
+
+      // candidates may have been claimed by another node in the meantime - keep going until the
+      // batch is full or the candidates are exhausted
+      while (batch.size() < maxElements && candidates.hasNext()) {
+        Set<String> keys = new TreeSet<>();
+        while (keys.size() < maxElements - batch.size() && candidates.hasNext()) {
+          keys.add(candidates.next().getKey());
+        }
+
+        for (EntryProcessorResult<TaskQueue.ProcessElement<T>> result : queueCache.invokeAll(keys,
+            new ClaimProcessor<T>()).values()) {
+          if (null != result.get())
+            batch.add(result.get());
+        }
+      }
+    }
+
+    return batch;
+  }
+
+  @Override
+  @Timed(description = "remove process queue elements", extraTags = {"subsystem", "ignite.process-queue"}, value="eureka.ignite.process-queue.remove-all")
+  public Set<String> removeProcessedElements(final Collection<String> keys) {
+    Set<String> removed = new HashSet<>();
+    queueCache.invokeAll(new TreeSet<>(keys), new RemoveProcessor<T>()).forEach((key, result) -> {
+      if (Boolean.TRUE.equals(result.get()))
+        removed.add(key);
+    });
+    return removed;
+  }
+
   @Override
   @Timed(description = "remove process queue element", extraTags = {"subsystem", "ignite.process-queue"}, value="eureka.ignite.process-queue.remove")
   public boolean removeProcessedElement(final String key) {
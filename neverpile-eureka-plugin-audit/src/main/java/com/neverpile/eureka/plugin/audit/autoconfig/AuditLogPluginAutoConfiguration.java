@@ -3,6 +3,7 @@ package com.neverpile.eureka.plugin.audit.autoconfig;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -17,12 +18,19 @@ import com.neverpile.eureka.plugin.audit.service.AuditLogService;
 import com.neverpile.eureka.plugin.audit.service.TimeBasedAuditIdGenerationStrategy;
 import com.neverpile.eureka.plugin.audit.service.impl.DefaultAuditIdGenerationStrategy;
 import com.neverpile.eureka.plugin.audit.service.impl.DefaultAuditLogService;
-import com.neverpile.eureka.plugin.audit.storage.AuditObjectStoreBridge;
+import com.neverpile.eureka.plugin.audit.service.impl.WriteBehindAuditLogService;
 import com.neverpile.eureka.plugin.audit.storage.AuditStorageBridge;
+import com.neverpile.eureka.plugin.audit.storage.SegmentedAuditObjectStoreBridge;
+import com.neverpile.eureka.plugin.audit.verification.DigSigGen;
+import com.neverpile.eureka.plugin.audit.verification.DigSigVer;
 import com.neverpile.eureka.plugin.audit.verification.HashStrategyService;
 import com.neverpile.eureka.plugin.audit.verification.VerificationService;
+import com.neverpile.eureka.plugin.audit.verification.checkpoint.CheckpointService;
 import com.neverpile.eureka.plugin.audit.verification.hashchain.HashChainService;
 import com.neverpile.eureka.plugin.audit.verification.impl.DirectVerificationService;
+import com.neverpile.eureka.plugin.audit.verification.merkletree.MerkleTreeService;
+import com.neverpile.eureka.plugin.audit.verification.signature.SimpleDigSigGen;
+import com.neverpile.eureka.plugin.audit.verification.signature.SimpleDigSigVer;
 
 /**
  * Spring-Boot Auto-configuration for the neverpile eureka audit log plugin.
@@ -46,7 +54,7 @@ public class AuditLogPluginAutoConfiguration {
   @ConditionalOnBean(value = ObjectStoreService.class)
   @ConditionalOnMissingBean
   AuditStorageBridge auditStorageBridge() {
-    return new AuditObjectStoreBridge();
+    return new SegmentedAuditObjectStoreBridge();
   }
 
   /**
@@ -62,18 +70,84 @@ public class AuditLogPluginAutoConfiguration {
   }
 
   /**
-   * Provide an implementation of {@link HashStrategyService}.
-   * Back off if any other implementation is present.
+   * Provide the Merkle tree based implementation of {@link HashStrategyService} if it has been selected. Back off if
+   * any other implementation is present.
+   *
+   * @return
+   */
+  @Bean
+  @ConditionalOnBean(value = AuditStorageBridge.class)
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(name = "neverpile-eureka.audit.verification.strategy", havingValue = "merkle-tree")
+  HashStrategyService merkleTreeHashStrategyService() {
+    return new MerkleTreeService();
+  }
+
+  /**
+   * Provide the hash chain based implementation of {@link HashStrategyService} unless another strategy has been
+   * selected. Back off if any other implementation is present.
    *
    * @return
    */
   @Bean
   @ConditionalOnBean(value = AuditStorageBridge.class)
   @ConditionalOnMissingBean
+  @ConditionalOnProperty(name = "neverpile-eureka.audit.verification.strategy", havingValue = "hash-chain", matchIfMissing = true)
   HashStrategyService simpleHashStrategyService() {
     return new HashChainService();
   }
 
+  /**
+   * Provide the {@link CheckpointService} used for signed checkpoints and parallel verification.
+   * Back off if any other implementation is present.
+   *
+   * @return
+   */
+  @Bean
+  @ConditionalOnBean(value = HashStrategyService.class)
+  @ConditionalOnMissingBean
+  CheckpointService checkpointService() {
+    return new CheckpointService();
+  }
+
+  /**
+   * Provide an implementation of {@link DigSigGen} to sign verification checkpoints with. See {@link SimpleDigSigGen}
+   * for how to configure its key pair. Back off if any other implementation is present.
+   *
+   * @return
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  DigSigGen digSigGen() throws Exception {
+    return new SimpleDigSigGen();
+  }
+
+  /**
+   * Provide an implementation of {@link DigSigVer} to verify verification checkpoints with.
+   * Back off if any other implementation is present.
+   *
+   * @return
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  DigSigVer digSigVer() {
+    return new SimpleDigSigVer();
+  }
+
+  /**
+   * Provide the write-behind implementation of {@link AuditLogService} if it has been enabled.
+   * Back off if any other implementation is present.
+   *
+   * @return a AuditLogService implementation
+   */
+  @Bean
+  @ConditionalOnBean(value = AuditStorageBridge.class)
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(name = "neverpile-eureka.audit.write-behind.enabled", havingValue = "true")
+  AuditLogService writeBehindAuditLogService() {
+    return new WriteBehindAuditLogService();
+  }
+
   /**
    * Provide an implementation of {@link AuditLogService}.
    * Back off if any other implementation is present.
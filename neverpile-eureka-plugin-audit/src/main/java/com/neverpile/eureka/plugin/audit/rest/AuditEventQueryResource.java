@@ -0,0 +1,106 @@
+package com.neverpile.eureka.plugin.audit.rest;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.service.AuditLogService;
+import com.neverpile.eureka.rest.api.exception.BadInputParameter;
+
+import io.micrometer.core.annotation.Timed;
+
+/**
+ * Queries the audit events of all documents by time range. Results are paged: if a page is full, the response carries
+ * a link to the next page, which continues after the last event of the page.
+ */
+@RestController
+@RequestMapping(path = "/api/v1/audit/events", produces = {
+    MediaType.APPLICATION_JSON_VALUE
+})
+@ConditionalOnBean(AuditLogFacet.class)
+public class AuditEventQueryResource {
+  private static final int MAX_LIMIT = 1000;
+
+  @Autowired
+  private AuditLogService auditLogService;
+
+  @Autowired
+  ModelMapper documentMapper;
+
+  @GetMapping
+  @Timed(description = "query audit events", extraTags = {
+      "operation", "retrieve", "target", "audit-log"
+  }, value = "eureka.audit.events.query")
+  public ResponseEntity<List<AuditEventDto>> queryEvents(
+      @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final Instant from,
+      @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final Instant to,
+      @RequestParam(name = "type", required = false) final AuditEvent.Type type,
+      @RequestParam(name = "user", required = false) final String userID,
+      @RequestParam(name = "after", required = false) final String after,
+      @RequestParam(name = "limit", defaultValue = "100") final int limit) {
+    int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+    // continue after the last event of the previous page
+    Instant start = from;
+    if (null != after) {
+      Instant afterTimestamp = Instant.ofEpochMilli(parsePositionTimestamp(after));
+      start = afterTimestamp.isAfter(from) ? afterTimestamp : from;
+    }
+
+    List<AuditEvent> events = auditLogService.queryEvents(start, null != to ? to : Instant.now(), type, userID) //
+        .filter(e -> null == after || getPosition(e).compareTo(after) > 0) //
+        .limit(pageSize) //
+        .collect(Collectors.toList());
+
+    List<AuditEventDto> page = events.stream().map(audit -> {
+      AuditEventDto auditDto = documentMapper.map(audit, AuditEventDto.class);
+      auditDto.add(linkTo(AuditLogResource.class, audit.getDocumentId()).slash(audit.getAuditId()).withSelfRel());
+      return auditDto;
+    }).collect(Collectors.toList());
+
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok() //
+        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+    if (events.size() == pageSize) {
+      String next = ServletUriComponentsBuilder.fromCurrentRequest() //
+          .replaceQueryParam("after", getPosition(events.get(events.size() - 1))) //
+          .build().encode().toUriString();
+      response.header(HttpHeaders.LINK, new Link(next, IanaLinkRelations.NEXT).toString());
+    }
+    return response.body(page);
+  }
+
+  /**
+   * Get the position of an event in the result order: its timestamp followed by its ID. Positions compare like the
+   * events they denote.
+   */
+  private static String getPosition(final AuditEvent event) {
+    return String.format("%013d_%s", null != event.getTimestamp() ? event.getTimestamp().toEpochMilli() : 0L,
+        event.getAuditId());
+  }
+
+  private static long parsePositionTimestamp(final String position) {
+    try {
+      return Long.parseLong(position.substring(0, 13));
+    } catch (RuntimeException e) {
+      throw new BadInputParameter("Invalid continuation position supplied");
+    }
+  }
+}
@@ -25,6 +25,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.neverpile.eureka.api.DocumentService;
@@ -62,9 +63,15 @@ public class AuditLogResource {
   @Timed(description = "get audit log", extraTags = {
       "operation", "retrieve", "target", "audit-log"
   }, value = "eureka.audit.log.get")
-  public ResponseEntity<List<AuditEventDto>> getDocumentLog(@PathVariable("documentId") final String documentId) {
+  public ResponseEntity<List<AuditEventDto>> getDocumentLog(@PathVariable("documentId") final String documentId,
+      @RequestParam(name = "offset", defaultValue = "0") final int offset,
+      @RequestParam(name = "limit", required = false) final Integer limit) {
 
-    List<AuditEventDto> auditLog = auditLogService.getEventLog(documentId).stream().map(audit -> {
+    List<AuditEvent> events = null != limit || offset > 0
+        ? auditLogService.getEventLog(documentId, offset, null != limit ? limit : Integer.MAX_VALUE)
+        : auditLogService.getEventLog(documentId);
+
+    List<AuditEventDto> auditLog = events.stream().map(audit -> {
       AuditEventDto auditDto = documentMapper.map(audit, AuditEventDto.class);
       auditDto.add(linkTo(ContentElementResource.class).slash(documentId) //
           .slash("audit").slash(audit.getAuditId()) //
@@ -0,0 +1,47 @@
+package com.neverpile.eureka.plugin.audit.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.neverpile.eureka.plugin.audit.verification.checkpoint.CheckpointService;
+import com.neverpile.eureka.plugin.audit.verification.checkpoint.VerificationProgress;
+import com.neverpile.eureka.rest.api.exception.NotFoundException;
+
+import io.micrometer.core.annotation.Timed;
+
+@RestController
+@RequestMapping(path = "/api/v1/audit/verification", produces = {
+    MediaType.APPLICATION_JSON_VALUE
+})
+@ConditionalOnBean(AuditLogFacet.class)
+public class AuditVerificationResource {
+
+  @Autowired
+  private CheckpointService checkpointService;
+
+  @PostMapping
+  @Timed(description = "start audit log verification", extraTags = {
+      "operation", "verify", "target", "audit-log"
+  }, value = "eureka.audit.verification.start")
+  public ResponseEntity<VerificationProgress> startVerification(
+      @RequestParam(name = "resume", defaultValue = "true") final boolean resume) {
+    return ResponseEntity.status(HttpStatus.ACCEPTED).body(checkpointService.startVerification(resume));
+  }
+
+  @GetMapping
+  @Timed(description = "get audit log verification progress", extraTags = {
+      "operation", "retrieve", "target", "audit-verification"
+  }, value = "eureka.audit.verification.get")
+  public VerificationProgress getVerificationProgress() {
+    return checkpointService.getVerificationProgress().orElseThrow(
+        () -> new NotFoundException("No verification has been started"));
+  }
+}
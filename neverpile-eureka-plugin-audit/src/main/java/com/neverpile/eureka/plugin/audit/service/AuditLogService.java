@@ -1,7 +1,9 @@
 package com.neverpile.eureka.plugin.audit.service;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * An Audit Log service manages Incoming audits and provides an implementation to provide requested events.
@@ -17,6 +19,29 @@ public interface AuditLogService {
    */
   List<AuditEvent> getEventLog(String documentId);
 
+  /**
+   * Retrieve a page of the AuditEvents associated with a document specified by its ID.
+   *
+   * @param documentId the Document ID for the document to collect the AuditEvents for.
+   * @param offset the number of events to skip.
+   * @param limit the maximum number of events to return.
+   * @return the requested AuditEvents.
+   */
+  List<AuditEvent> getEventLog(String documentId, int offset, int limit);
+
+  /**
+   * Query the AuditEvents of all documents within a time range, optionally restricted to a type and a user. Events are
+   * returned in chronological order, events with the same timestamp ordered by their IDs. The events are read lazily,
+   * as the stream is consumed.
+   *
+   * @param from the start of the time range (inclusive).
+   * @param to the end of the time range (exclusive).
+   * @param type the type of the events to return or {@code null} to return events of any type.
+   * @param userID the ID of the user whose events to return or {@code null} to return events of any user.
+   * @return the requested AuditEvents.
+   */
+  Stream<AuditEvent> queryEvents(Instant from, Instant to, AuditEvent.Type type, String userID);
+
   /**
    * Log a newly created AuditEvent.
    *
@@ -17,4 +17,12 @@ public interface TimeBasedAuditIdGenerationStrategy extends AuditIdGenerationStr
    * @return the newly generated Audit ID.
    */
   public String createAuditId(Instant timestamp, String documentId);
+
+  /**
+   * Takes the ID of an AuditEvent and extracts the timestamp it was created with.
+   *
+   * @param id the AuditEvent ID to extract the timestamp from.
+   * @return the timestamp.
+   */
+  public Instant getTimestamp(String id);
 }
@@ -25,7 +25,12 @@ public class DefaultAuditIdGenerationStrategy implements TimeBasedAuditIdGenerat
 
   @Override
   public String getDocumentId(String id) {
-    return id.split(delimiter)[1];
+    return id.split("\\" + delimiter, 2)[1];
+  }
+
+  @Override
+  public Instant getTimestamp(String id) {
+    return Instant.ofEpochMilli(Long.parseLong(id.split("\\" + delimiter, 2)[0]));
   }
 
   @Override
@@ -1,7 +1,9 @@
 package com.neverpile.eureka.plugin.audit.service.impl;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -12,16 +14,29 @@ import com.neverpile.eureka.plugin.audit.verification.VerificationService;
 
 public class DefaultAuditLogService implements AuditLogService {
   @Autowired
-  private VerificationService verificationService;
+  VerificationService verificationService;
 
   @Autowired
-  private AuditStorageBridge auditLogStorageBridge;
+  AuditStorageBridge auditLogStorageBridge;
 
   @Override
   public List<AuditEvent> getEventLog(final String documentId) {
     return auditLogStorageBridge.getDocumentAuditLog(documentId);
   }
 
+  @Override
+  public List<AuditEvent> getEventLog(final String documentId, final int offset, final int limit) {
+    return auditLogStorageBridge.getDocumentAuditLog(documentId, offset, limit);
+  }
+
+  @Override
+  public Stream<AuditEvent> queryEvents(final Instant from, final Instant to, final AuditEvent.Type type,
+      final String userID) {
+    return auditLogStorageBridge.getAuditLog(from, to) //
+        .filter(e -> null == type || type == e.getType()) //
+        .filter(e -> null == userID || userID.equals(e.getUserID()));
+  }
+
   @Override
   public void logEvent(final AuditEvent event) {
     auditLogStorageBridge.putAuditEvent(event);
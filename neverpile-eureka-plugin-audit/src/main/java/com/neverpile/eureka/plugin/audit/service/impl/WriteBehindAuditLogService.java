@@ -0,0 +1,262 @@
+package com.neverpile.eureka.plugin.audit.service.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.api.NeverpileException;
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.service.AuditLogService;
+import com.neverpile.eureka.plugin.audit.storage.AuditStorageBridge;
+import com.neverpile.eureka.plugin.audit.verification.VerificationService;
+import com.neverpile.eureka.tx.wal.TransactionWAL;
+import com.neverpile.eureka.tx.wal.TransactionWAL.TransactionalAction;
+
+import io.micrometer.core.annotation.Timed;
+
+/**
+ * An {@link AuditLogService} persisting audit events behind the document transaction. Logging an event merely appends
+ * it to a buffer directory on the local file system. A background writer persists the buffered events in batches
+ * using {@link AuditStorageBridge#putAuditEvents(List)} and hands them to the {@link VerificationService}.
+ * <p>
+ * Within a transaction, the event is buffered by a commit action registered with the {@link TransactionWAL}: the event
+ * is recorded in the WAL before the transaction commits and buffered once it has committed. Events of rolled back
+ * transactions are thus never buffered, and buffering interrupted by a crash is completed by the WAL's recovery.
+ * Buffered events are removed only after they have been persisted. Events left in the buffer by a previous run or by a
+ * rolled back or failed flush may have been persisted already. If the storage already holds them, they are not stored
+ * again, but their indexing and verification is completed.
+ * Buffer files which can't be read are moved to a <code>quarantine</code> subdirectory of the buffer so that they don't
+ * block the events buffered after them.
+ * <p>
+ * Events become visible to readers of the audit log once they have been persisted.
+ */
+public class WriteBehindAuditLogService extends DefaultAuditLogService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindAuditLogService.class);
+
+  private static final String SUFFIX = ".json";
+
+  private static final String QUARANTINE = "quarantine";
+
+  /**
+   * Atomically writes a serialized audit event to a buffer file. Writing the same file again is harmless, so the WAL
+   * may apply the action repeatedly during recovery.
+   */
+  private static final class BufferAuditEvent implements TransactionalAction {
+    private static final long serialVersionUID = 1L;
+
+    private final File bufferFile;
+    private final byte[] event;
+
+    private BufferAuditEvent(final File bufferFile, final byte[] event) {
+      this.bufferFile = bufferFile;
+      this.event = event;
+    }
+
+    @Override
+    public void run() {
+      File tmp = new File(bufferFile.getParentFile(), bufferFile.getName() + ".tmp");
+      try {
+        try (FileOutputStream os = new FileOutputStream(tmp)) {
+          os.write(event);
+          os.getChannel().force(true);
+        }
+        Files.move(tmp.toPath(), bufferFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException e) {
+        throw new NeverpileException("Failed to buffer audit event", e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "BufferAuditEvent [bufferFile=" + bufferFile + "]";
+    }
+  }
+
+  @Value("${neverpile-eureka.audit.write-behind.buffer-path:./neverpile-eureka_audit-buffer}")
+  String bufferPath = "./neverpile-eureka_audit-buffer";
+
+  @Value("${neverpile-eureka.audit.write-behind.batch-size:500}")
+  int batchSize = 500;
+
+  @Autowired
+  TransactionWAL wal;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  // Distinguishes the events buffered by this instance from those left over by a previous run.
+  private final String instanceId = UUID.randomUUID().toString();
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  // Buffer files of this instance whose events have been handed to the storage but not yet removed from the buffer.
+  private final Set<Path> attempted = ConcurrentHashMap.newKeySet();
+
+  private Path bufferDirectory;
+
+  @PostConstruct
+  public void init() throws IOException {
+    bufferDirectory = Paths.get(bufferPath).toAbsolutePath();
+    Files.createDirectories(bufferDirectory);
+    LOGGER.info("Buffering audit events in {}", bufferDirectory);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    try {
+      while (flush() > 0) {
+        // persist everything buffered so far
+      }
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to persist buffered audit events - they will be persisted after the next start", e);
+    }
+  }
+
+  @Override
+  public void logEvent(final AuditEvent event) {
+    String name = String.format("%013d-%s-%010d%s", System.currentTimeMillis(), instanceId,
+        sequence.incrementAndGet(), SUFFIX);
+    BufferAuditEvent action = new BufferAuditEvent(bufferDirectory.resolve(name).toFile(), serialize(event));
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      wal.appendCommitAction(action);
+    } else {
+      action.run();
+    }
+  }
+
+  /**
+   * Persist the oldest batch of buffered audit events. The persisted events are removed from the buffer once the
+   * transaction has committed.
+   *
+   * @return the number of buffered events processed
+   */
+  @Scheduled(fixedDelayString = "${neverpile-eureka.audit.write-behind.flush-interval:1000}")
+  @Transactional
+  @Timed(description = "persist buffered audit events", value = "eureka.audit.write-behind.flush")
+  public synchronized int flush() {
+    List<Path> batch;
+    try (Stream<Path> files = Files.list(bufferDirectory)) {
+      batch = files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)) //
+          .sorted() //
+          .limit(batchSize) //
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new NeverpileException("Failed to list buffered audit events", e);
+    }
+    if (batch.isEmpty()) {
+      return 0;
+    }
+
+    List<Path> processed = new ArrayList<>(batch.size());
+    List<AuditEvent> events = new ArrayList<>(batch.size());
+    List<AuditEvent> recovered = new ArrayList<>();
+    for (Path file : batch) {
+      AuditEvent event = deserialize(file);
+      if (null == event) {
+        quarantine(file);
+        continue;
+      }
+      processed.add(file);
+
+      // only events buffered by this instance and never handed to the storage are known not to be persisted yet
+      boolean fresh = file.getFileName().toString().contains(instanceId) && !attempted.contains(file);
+      if (!fresh && auditLogStorageBridge.getAuditEvent(event.getAuditId()).isPresent()) {
+        LOGGER.debug("Buffered audit event {} has been persisted already", event.getAuditId());
+        recovered.add(event);
+        continue;
+      }
+      events.add(event);
+    }
+
+    if (!events.isEmpty()) {
+      attempted.addAll(processed);
+      auditLogStorageBridge.putAuditEvents(events);
+      events.forEach(verificationService::processEvent);
+    }
+
+    // The attempt that persisted these events may have failed before indexing or verifying them.
+    if (!recovered.isEmpty()) {
+      auditLogStorageBridge.indexAuditEvents(recovered);
+      recovered.stream() //
+          .filter(e -> !verificationService.verifyEvent(e)) //
+          .forEach(verificationService::processEvent);
+    }
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCommit() {
+          processed.forEach(WriteBehindAuditLogService.this::delete);
+        }
+      });
+    } else {
+      processed.forEach(this::delete);
+    }
+
+    return batch.size();
+  }
+
+  private byte[] serialize(final AuditEvent event) {
+    try {
+      return objectMapper.writeValueAsBytes(event);
+    } catch (JsonProcessingException e) {
+      throw new NeverpileException("Failed to serialize audit event", e);
+    }
+  }
+
+  private AuditEvent deserialize(final Path file) {
+    try {
+      return objectMapper.readValue(file.toFile(), AuditEvent.class);
+    } catch (IOException e) {
+      LOGGER.error("Failed to read buffered audit event {}", file, e);
+      return null;
+    }
+  }
+
+  private void quarantine(final Path file) {
+    try {
+      Path quarantine = Files.createDirectories(bufferDirectory.resolve(QUARANTINE));
+      Files.move(file, quarantine.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+      LOGGER.error("Moved unreadable audit event {} to {}", file.getFileName(), quarantine);
+    } catch (IOException e) {
+      throw new NeverpileException("Failed to quarantine buffered audit event " + file, e);
+    }
+  }
+
+  private void delete(final Path file) {
+    try {
+      Files.deleteIfExists(file);
+      attempted.remove(file);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to remove persisted audit event {} from the buffer", file, e);
+    }
+  }
+}
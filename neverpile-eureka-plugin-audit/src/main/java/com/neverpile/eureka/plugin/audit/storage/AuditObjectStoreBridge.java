@@ -4,9 +4,13 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +39,9 @@ public class AuditObjectStoreBridge implements AuditStorageBridge {
 
   private final ObjectName currentVerificationName = ObjectName.of("eureka", "verification", "currentHead");
 
+  // The time-ordered index of all audit events is bucketed by hour.
+  private static final long INDEX_BUCKET_DURATION = 60 * 60 * 1000L;
+
   private String currentVerificationVersion;
 
   @Override
@@ -50,6 +57,7 @@ public class AuditObjectStoreBridge implements AuditStorageBridge {
     eventList.add(auditEvent);
 
     putAuditEventList(eventList, auditLogObjectName, version);
+    putIndexEntry(auditEvent);
   }
 
   @Override
@@ -70,6 +78,83 @@ public class AuditObjectStoreBridge implements AuditStorageBridge {
     return getAuditEventList(objectStoreService.get(auditLogObjectName));
   }
 
+  /**
+   * Read the index entries of the hour buckets overlapping the requested range. Buckets are listed one at a time, as
+   * the stream is consumed.
+   */
+  @Override
+  public Stream<AuditEvent> getAuditLog(Instant from, Instant to) {
+    long fromMillis = from.toEpochMilli();
+    long toMillis = to.toEpochMilli();
+    if (fromMillis >= toMillis) {
+      return Stream.empty();
+    }
+
+    return LongStream.rangeClosed(Math.floorDiv(fromMillis, INDEX_BUCKET_DURATION),
+        Math.floorDiv(toMillis - 1, INDEX_BUCKET_DURATION)) //
+        .boxed() //
+        .flatMap(bucket -> objectStoreService.list(getIndexBucketObjectName(bucket)) //
+            .filter(so -> {
+              long timestamp = getIndexEntryTimestamp(so.getObjectName());
+              return timestamp >= fromMillis && timestamp < toMillis;
+            }) //
+            .sorted(Comparator.comparing(so -> so.getObjectName().tail())) //
+            .map(this::readIndexEntry));
+  }
+
+  /**
+   * Add an event to the time-ordered index of the audit events of all documents. Each event is stored in an entry of
+   * its own, so that concurrent writers never contend for an index entry. Entries are named such that their names
+   * order them chronologically within their hour bucket.
+   *
+   * @param auditEvent the event to index
+   */
+  protected void putIndexEntry(AuditEvent auditEvent) {
+    ObjectName indexEntryName = getIndexEntryName(auditEvent);
+    try {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+      objectMapper.writeValue(baos, auditEvent);
+      objectStoreService.put(indexEntryName, ObjectStoreService.NEW_VERSION,
+          new ByteArrayInputStream(baos.toByteArray()), baos.size());
+    } catch (IOException e) {
+      LOGGER.error("Failed to serialize audit index entry", e);
+      throw new NeverpileException("Failed to serialize audit index entry");
+    } catch (ObjectStoreService.ObjectStoreException e) {
+      LOGGER.error("Failed to store audit index entry @{}", indexEntryName, e);
+      throw new NeverpileException("Failed to store audit index entry");
+    }
+  }
+
+  @Override
+  public void indexAuditEvents(List<AuditEvent> auditEvents) {
+    auditEvents.stream() //
+        .filter(e -> !objectStoreService.checkObjectExists(getIndexEntryName(e))) //
+        .forEach(this::putIndexEntry);
+  }
+
+  private ObjectName getIndexEntryName(AuditEvent auditEvent) {
+    long timestamp = (null != auditEvent.getTimestamp() ? auditEvent.getTimestamp() : Instant.now()).toEpochMilli();
+    return getIndexBucketObjectName(Math.floorDiv(timestamp, INDEX_BUCKET_DURATION)) //
+        .append(String.format("%013d_%s", timestamp, auditEvent.getAuditId()));
+  }
+
+  private AuditEvent readIndexEntry(ObjectStoreService.StoreObject so) {
+    try {
+      return objectMapper.readValue(so.getInputStream(), AuditEvent.class);
+    } catch (IOException e) {
+      LOGGER.error("Failed to deserialize audit index entry @{}", so.getObjectName(), e);
+      throw new NeverpileException("Failed to retrieve audit index entry");
+    }
+  }
+
+  private ObjectName getIndexBucketObjectName(long bucket) {
+    return ObjectName.of("eureka", "audit", "index", String.format("%010d", bucket));
+  }
+
+  private long getIndexEntryTimestamp(ObjectName indexEntryName) {
+    return Long.parseLong(indexEntryName.tail().substring(0, 13));
+  }
+
   @Override
   public void putVerificationElement(ObjectName key, InputStream verificationElement, int length) {
     try {
@@ -80,6 +165,16 @@ public class AuditObjectStoreBridge implements AuditStorageBridge {
     }
   }
 
+  @Override
+  public void updateVerificationElement(ObjectName key, InputStream verificationElement, int length) {
+    try {
+      objectStoreService.put(key, getObjectVersion(objectStoreService.get(key)), verificationElement, length);
+    } catch (ObjectStoreService.ObjectStoreException e) {
+      LOGGER.error("Failed to store verification for auditLog @{}", key, e);
+      throw new DocumentService.DocumentServiceException("Failed to store verification for auditLog");
+    }
+  }
+
   @Override
   public Optional<InputStream> getVerificationElement(ObjectName key) {
     ObjectStoreService.StoreObject so = objectStoreService.get(key);
@@ -118,7 +213,7 @@ public class AuditObjectStoreBridge implements AuditStorageBridge {
     return Optional.empty();
   }
 
-  private ObjectName getAuditObjectNameFromDocumentID(final String documentId) {
+  protected ObjectName getAuditObjectNameFromDocumentID(final String documentId) {
     return ObjectName.of("document", documentId).append("auditLog.json");
   }
 
@@ -144,7 +239,7 @@ public class AuditObjectStoreBridge implements AuditStorageBridge {
     }
   }
 
-  private List<AuditEvent> getAuditEventList(ObjectStoreService.StoreObject storedDocumentAuditLog) {
+  protected List<AuditEvent> getAuditEventList(ObjectStoreService.StoreObject storedDocumentAuditLog) {
     ArrayList list = new ArrayList<>();
     if (null != storedDocumentAuditLog) {
       try {
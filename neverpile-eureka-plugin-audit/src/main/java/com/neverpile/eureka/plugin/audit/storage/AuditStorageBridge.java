@@ -1,8 +1,11 @@
 package com.neverpile.eureka.plugin.audit.storage;
 
 import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.neverpile.eureka.model.ObjectName;
 import com.neverpile.eureka.plugin.audit.service.AuditEvent;
@@ -21,6 +24,25 @@ public interface AuditStorageBridge {
    */
   public void putAuditEvent(AuditEvent auditEvent);
 
+  /**
+   * Persist a batch of AuditLog Events. Implementations may store the events of one document with fewer writes than
+   * storing them one by one. The default implementation stores each event individually.
+   *
+   * @param auditEvents the audit events to store, in the order they should be appended.
+   */
+  public default void putAuditEvents(List<AuditEvent> auditEvents) {
+    auditEvents.forEach(this::putAuditEvent);
+  }
+
+  /**
+   * Make sure that already persisted AuditLog Events are contained in the index queried by
+   * {@link #getAuditLog(Instant, Instant)}. Used to complete the persistence of events which was interrupted after the
+   * events themselves had been stored. Events which are indexed already are left alone.
+   *
+   * @param auditEvents the persisted audit events to index.
+   */
+  public void indexAuditEvents(List<AuditEvent> auditEvents);
+
   /**
    * Retrieved a persisted AuditLog Event by its ID.
    *
@@ -37,6 +59,30 @@ public interface AuditStorageBridge {
    */
   public List<AuditEvent> getDocumentAuditLog(String documentId);
 
+  /**
+   * Get a page of the AuditEvents registered for the given Document ID. Events are returned in the order they were
+   * stored. The default implementation retrieves the full log and picks the requested page from it.
+   *
+   * @param documentId the document ID to list the audit events for.
+   * @param offset the number of events to skip.
+   * @param limit the maximum number of events to return.
+   * @return the requested AuditEvent List.
+   */
+  public default List<AuditEvent> getDocumentAuditLog(String documentId, int offset, int limit) {
+    return getDocumentAuditLog(documentId).stream().skip(offset).limit(limit).collect(Collectors.toList());
+  }
+
+  /**
+   * Get the AuditEvents of all documents whose timestamps lie within the given range. Events are returned in
+   * chronological order, events with the same timestamp ordered by their IDs. Implementations should read the events
+   * lazily, as the stream is consumed.
+   *
+   * @param from the start of the range (inclusive).
+   * @param to the end of the range (exclusive).
+   * @return the requested AuditEvent Stream.
+   */
+  public Stream<AuditEvent> getAuditLog(Instant from, Instant to);
+
   /**
    * Store a implementation dependent Verification Object with the given ObjectName as a key for later verification.
    *
@@ -46,6 +92,16 @@ public interface AuditStorageBridge {
    */
   public void putVerificationElement(ObjectName key, InputStream verificationElement, int length);
 
+  /**
+   * Store a implementation dependent Verification Object with the given ObjectName as a key, replacing a previously
+   * stored Verification Object with the same key.
+   *
+   * @param key A unique objectName as a key for the given audit verification data.
+   * @param verificationElement InputStream of any verification data.
+   * @param length length of the given InputStream.
+   */
+  public void updateVerificationElement(ObjectName key, InputStream verificationElement, int length);
+
   /**
    * Retrieve a stored Verification Object by its ObjectName as a Key.
    *
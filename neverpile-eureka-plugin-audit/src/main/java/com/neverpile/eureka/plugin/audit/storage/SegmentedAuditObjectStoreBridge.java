@@ -0,0 +1,339 @@
+package com.neverpile.eureka.plugin.audit.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.neverpile.eureka.api.NeverpileException;
+import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.model.ObjectName;
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.service.TimeBasedAuditIdGenerationStrategy;
+
+/**
+ * An {@link AuditStorageBridge} storing the audit log of each document in a series of bounded segments instead of a
+ * single list. Appending an event only rewrites the last segment, so the cost of an append doesn't grow with the
+ * length of the log. A segment, once full, is never written again.
+ * <p>
+ * A small manifest per document records the segment size and the timestamp of the first event of each segment. It is
+ * only written when a new segment is started. The manifest allows reading a page of the log without touching the
+ * preceding segments and finding the segment holding an event from the timestamp embedded in its audit ID.
+ * <p>
+ * New segments are claimed in the manifest before they are written. Concurrent appends are thereby serialized by the
+ * version of the manifest, and a failed append never leaves behind a segment the manifest doesn't know about. A
+ * claimed segment whose write failed is treated as empty and filled by the next append.
+ * <p>
+ * Logs stored by {@link AuditObjectStoreBridge} remain readable and are migrated when the next event is appended.
+ */
+public class SegmentedAuditObjectStoreBridge extends AuditObjectStoreBridge {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentedAuditObjectStoreBridge.class);
+
+  /**
+   * The manifest of a document's segmented audit log.
+   */
+  public static class Manifest {
+    private int segmentSize;
+
+    private List<Long> segmentStarts = new ArrayList<>();
+
+    /**
+     * Get the number of events per segment. Only the last segment may hold fewer events.
+     *
+     * @return the segment size
+     */
+    public int getSegmentSize() {
+      return segmentSize;
+    }
+
+    public void setSegmentSize(final int segmentSize) {
+      this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Get the timestamps (in epoch millis) of the first event of each segment.
+     *
+     * @return the segment start timestamps
+     */
+    public List<Long> getSegmentStarts() {
+      return segmentStarts;
+    }
+
+    public void setSegmentStarts(final List<Long> segmentStarts) {
+      this.segmentStarts = segmentStarts;
+    }
+  }
+
+  private static final class Stored<T> {
+    final T value;
+
+    final String version;
+
+    Stored(final T value, final String version) {
+      this.value = value;
+      this.version = version;
+    }
+  }
+
+  @Autowired
+  TimeBasedAuditIdGenerationStrategy idGenerationStrategy;
+
+  @Value("${neverpile-eureka.audit.storage.segment-size:500}")
+  int segmentSize = 500;
+
+  @Override
+  public void putAuditEvent(final AuditEvent auditEvent) {
+    appendAuditEvents(auditEvent.getDocumentId(), Collections.singletonList(auditEvent));
+    putIndexEntry(auditEvent);
+  }
+
+  /**
+   * Append the events of each document with a single read-modify-write of its tail segment, plus one write per newly
+   * started segment.
+   */
+  @Override
+  public void putAuditEvents(final List<AuditEvent> auditEvents) {
+    auditEvents.stream() //
+        .collect(Collectors.groupingBy(AuditEvent::getDocumentId, LinkedHashMap::new, Collectors.toList())) //
+        .forEach(this::appendAuditEvents);
+    auditEvents.forEach(this::putIndexEntry);
+  }
+
+  private void appendAuditEvents(final String documentId, final List<AuditEvent> auditEvents) {
+    Optional<Stored<Manifest>> storedManifest = readManifest(documentId);
+    if (!storedManifest.isPresent()) {
+      createLog(documentId, auditEvents);
+      return;
+    }
+
+    Stored<Manifest> manifest = storedManifest.get();
+    List<Long> segmentStarts = manifest.value.getSegmentStarts();
+    int size = manifest.value.getSegmentSize();
+
+    int appended = 0;
+    int tail = segmentStarts.size() - 1;
+    if (tail >= 0) {
+      Stored<List<AuditEvent>> segment = readSegment(documentId, tail);
+      if (segment.value.size() < size) {
+        appended = Math.min(size - segment.value.size(), auditEvents.size());
+        segment.value.addAll(auditEvents.subList(0, appended));
+        write(getSegmentObjectName(documentId, tail), segment.version, segment.value);
+      }
+    }
+
+    if (appended == auditEvents.size()) {
+      return;
+    }
+
+    // the tail segment is full (or there is none yet) - claim new ones, then write them
+    int firstNew = segmentStarts.size();
+    List<List<AuditEvent>> segments = new ArrayList<>();
+    for (int start = appended; start < auditEvents.size(); start += size) {
+      List<AuditEvent> segment = auditEvents.subList(start, Math.min(start + size, auditEvents.size()));
+      segmentStarts.add(getTimestamp(segment.get(0)));
+      segments.add(segment);
+    }
+    write(getManifestObjectName(documentId), manifest.version, manifest.value);
+    writeSegments(documentId, firstNew, segments);
+  }
+
+  private void writeSegments(final String documentId, final int firstIndex, final List<List<AuditEvent>> segments) {
+    for (int i = 0; i < segments.size(); i++) {
+      write(getSegmentObjectName(documentId, firstIndex + i), ObjectStoreService.NEW_VERSION, segments.get(i));
+    }
+  }
+
+  @Override
+  public Optional<AuditEvent> getAuditEvent(final String auditId) {
+    String documentId = idGenerationStrategy.getDocumentId(auditId);
+
+    Optional<Stored<Manifest>> manifest = readManifest(documentId);
+    if (!manifest.isPresent()) {
+      return super.getAuditEvent(auditId);
+    }
+
+    // find the last segment starting at or before the event's timestamp. Events may be appended slightly out of
+    // timestamp order, so the event may also reside in one of the neighbouring segments.
+    List<Long> segmentStarts = manifest.get().value.getSegmentStarts();
+    int index = Collections.binarySearch(segmentStarts, idGenerationStrategy.getTimestamp(auditId).toEpochMilli());
+    if (index < 0) {
+      index = Math.max(0, -index - 2);
+    }
+
+    for (int candidate : new int[]{
+        index, index - 1, index + 1
+    }) {
+      if (candidate < 0 || candidate >= segmentStarts.size())
+        continue;
+
+      Optional<AuditEvent> event = readSegment(documentId, candidate).value.stream() //
+          .filter(e -> auditId.equals(e.getAuditId())) //
+          .findFirst();
+      if (event.isPresent())
+        return event;
+    }
+
+    return Optional.empty();
+  }
+
+  @Override
+  public List<AuditEvent> getDocumentAuditLog(final String documentId) {
+    return streamDocumentAuditLog(documentId, 0).collect(Collectors.toList());
+  }
+
+  @Override
+  public List<AuditEvent> getDocumentAuditLog(final String documentId, final int offset, final int limit) {
+    return streamDocumentAuditLog(documentId, offset).limit(limit).collect(Collectors.toList());
+  }
+
+  /**
+   * Stream the audit log of the given document starting at the given offset. Segments are read lazily, only as the
+   * stream is consumed, and the segments preceding the offset are skipped without being read.
+   *
+   * @param documentId the document ID
+   * @param offset the number of events to skip
+   * @return a stream of audit events
+   */
+  private Stream<AuditEvent> streamDocumentAuditLog(final String documentId, final int offset) {
+    Optional<Stored<Manifest>> manifest = readManifest(documentId);
+    if (!manifest.isPresent()) {
+      return super.getDocumentAuditLog(documentId).stream().skip(offset);
+    }
+
+    int size = manifest.get().value.getSegmentSize();
+    int firstSegment = offset / size;
+
+    return IntStream.range(firstSegment, manifest.get().value.getSegmentStarts().size()) //
+        .boxed() //
+        .flatMap(i -> readSegment(documentId, i).value.stream()) //
+        .skip(offset - (long) firstSegment * size);
+  }
+
+  /**
+   * Create the segmented log of a document starting with the given events. If the document has a log stored by
+   * {@link AuditObjectStoreBridge}, its events are migrated into the segmented log and the legacy log is deleted.
+   *
+   * @param documentId the document ID
+   * @param auditEvents the events to append
+   */
+  private void createLog(final String documentId, final List<AuditEvent> auditEvents) {
+    ObjectName legacyName = getAuditObjectNameFromDocumentID(documentId);
+    List<AuditEvent> events = getAuditEventList(objectStoreService.get(legacyName));
+    boolean migrate = !events.isEmpty();
+    if (migrate) {
+      LOGGER.info("Migrating audit log of document {} with {} events to segmented storage", documentId,
+          events.size());
+    }
+    events.addAll(auditEvents);
+
+    Manifest manifest = new Manifest();
+    manifest.setSegmentSize(segmentSize);
+    List<List<AuditEvent>> segments = new ArrayList<>();
+    for (int start = 0; start < events.size(); start += segmentSize) {
+      List<AuditEvent> segment = events.subList(start, Math.min(start + segmentSize, events.size()));
+      manifest.getSegmentStarts().add(getTimestamp(segment.get(0)));
+      segments.add(segment);
+    }
+    write(getManifestObjectName(documentId), ObjectStoreService.NEW_VERSION, manifest);
+    try {
+      writeSegments(documentId, 0, segments);
+    } catch (RuntimeException e) {
+      if (migrate) {
+        // the claimed but missing segments would hide the migrated events - fall back to the legacy log
+        discardLog(documentId, segments.size());
+      }
+      throw e;
+    }
+
+    if (migrate) {
+      objectStoreService.delete(legacyName);
+    }
+  }
+
+  private void discardLog(final String documentId, final int segmentCount) {
+    try {
+      for (int i = 0; i < segmentCount; i++) {
+        if (objectStoreService.checkObjectExists(getSegmentObjectName(documentId, i))) {
+          objectStoreService.delete(getSegmentObjectName(documentId, i));
+        }
+      }
+      objectStoreService.delete(getManifestObjectName(documentId));
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to discard incomplete segmented audit log of document {}", documentId, e);
+    }
+  }
+
+  private long getTimestamp(final AuditEvent auditEvent) {
+    String auditId = auditEvent.getAuditId();
+    if (null != auditId && idGenerationStrategy.validateAuditId(auditId)) {
+      return idGenerationStrategy.getTimestamp(auditId).toEpochMilli();
+    }
+    return null != auditEvent.getTimestamp() ? auditEvent.getTimestamp().toEpochMilli() : System.currentTimeMillis();
+  }
+
+  private Optional<Stored<Manifest>> readManifest(final String documentId) {
+    ObjectStoreService.StoreObject so = objectStoreService.get(getManifestObjectName(documentId));
+    if (null == so) {
+      return Optional.empty();
+    }
+    return Optional.of(new Stored<>(read(so, objectMapper.constructType(Manifest.class)), so.getVersion()));
+  }
+
+  private Stored<List<AuditEvent>> readSegment(final String documentId, final int index) {
+    ObjectStoreService.StoreObject so = objectStoreService.get(getSegmentObjectName(documentId, index));
+    if (null == so) {
+      // the manifest has been written, but the segment's first event has not (yet) been committed
+      return new Stored<>(new ArrayList<>(), ObjectStoreService.NEW_VERSION);
+    }
+    return new Stored<>(read(so, objectMapper.getTypeFactory().constructCollectionType(List.class, AuditEvent.class)),
+        so.getVersion());
+  }
+
+  private <T> T read(final ObjectStoreService.StoreObject so, final JavaType type) {
+    try {
+      return objectMapper.readValue(so.getInputStream(), type);
+    } catch (IOException e) {
+      LOGGER.error("Failed to deserialize document auditLog @{}", so.getObjectName(), e);
+      throw new NeverpileException("Failed to retrieve document auditLog");
+    }
+  }
+
+  private void write(final ObjectName name, final String version, final Object value) {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+    try {
+      objectMapper.writeValue(baos, value);
+    } catch (IOException e) {
+      LOGGER.error("Failed to serialize document auditLog", e);
+      throw new NeverpileException("Failed to serialize document auditLog");
+    }
+
+    try {
+      objectStoreService.put(name, version, new ByteArrayInputStream(baos.toByteArray()), baos.size());
+    } catch (ObjectStoreService.ObjectStoreException e) {
+      LOGGER.error("Failed to store document auditLog @{}", name, e);
+      throw new NeverpileException("Failed to store document auditLog");
+    }
+  }
+
+  private ObjectName getManifestObjectName(final String documentId) {
+    return ObjectName.of("document", documentId, "auditLog", "manifest.json");
+  }
+
+  private ObjectName getSegmentObjectName(final String documentId, final int index) {
+    return ObjectName.of("document", documentId, "auditLog", String.format("segment-%08d.json", index));
+  }
+}
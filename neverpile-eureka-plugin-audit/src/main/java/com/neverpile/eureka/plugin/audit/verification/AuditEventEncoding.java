@@ -0,0 +1,163 @@
+package com.neverpile.eureka.plugin.audit.verification;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+
+/**
+ * The canonical binary encoding of an {@link AuditEvent} used for hashing. Unlike Java serialization, the encoding
+ * depends only on the values of the event's fields, not on the layout of its class.
+ * <p>
+ * Version 1 consists of the version byte followed by the fields in this order: audit ID, timestamp, user ID, type,
+ * description, request path, document ID, content hash, encryption type and key hint. Strings are encoded as UTF-8
+ * prefixed with their length in bytes, a length of -1 denoting {@code null}. The timestamp is encoded as a presence
+ * byte followed by the epoch seconds and the nano adjustment. Enums are encoded as strings of their names. All numbers
+ * are big-endian.
+ * <p>
+ * Version 0 denotes the legacy Java serialized form which is retained to verify existing audit logs.
+ */
+public final class AuditEventEncoding {
+
+  /**
+   * The legacy encoding: the Java serialized form of the event.
+   */
+  public static final int LEGACY_VERSION = 0;
+
+  /**
+   * The current version of the encoding which is used for all newly added events.
+   */
+  public static final int CURRENT_VERSION = 1;
+
+  /**
+   * A growable buffer the encoding is written to. Buffers are meant to be reused across events by the same thread.
+   */
+  static final class Buffer {
+    private byte[] bytes = new byte[512];
+
+    private int size;
+
+    void reset() {
+      size = 0;
+    }
+
+    byte[] bytes() {
+      return bytes;
+    }
+
+    int size() {
+      return size;
+    }
+
+    private void ensureCapacity(int additional) {
+      if (size + additional > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+      }
+    }
+
+    void writeByte(int b) {
+      ensureCapacity(1);
+      bytes[size++] = (byte) b;
+    }
+
+    void writeInt(int v) {
+      ensureCapacity(4);
+      bytes[size++] = (byte) (v >>> 24);
+      bytes[size++] = (byte) (v >>> 16);
+      bytes[size++] = (byte) (v >>> 8);
+      bytes[size++] = (byte) v;
+    }
+
+    void writeLong(long v) {
+      writeInt((int) (v >>> 32));
+      writeInt((int) v);
+    }
+
+    void writeString(String s) {
+      if (null == s) {
+        writeInt(-1);
+        return;
+      }
+
+      // reserve the length prefix, encode and patch the length in afterwards
+      int lengthPosition = size;
+      writeInt(0);
+      ensureCapacity(s.length() * 3);
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        if (c < 0x80) {
+          bytes[size++] = (byte) c;
+        } else if (c < 0x800) {
+          bytes[size++] = (byte) (0xc0 | c >> 6);
+          bytes[size++] = (byte) (0x80 | c & 0x3f);
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, s.charAt(++i));
+          bytes[size++] = (byte) (0xf0 | cp >> 18);
+          bytes[size++] = (byte) (0x80 | cp >> 12 & 0x3f);
+          bytes[size++] = (byte) (0x80 | cp >> 6 & 0x3f);
+          bytes[size++] = (byte) (0x80 | cp & 0x3f);
+        } else if (Character.isSurrogate(c)) {
+          bytes[size++] = (byte) '?'; // unpaired surrogate, like String.getBytes(UTF_8)
+        } else {
+          bytes[size++] = (byte) (0xe0 | c >> 12);
+          bytes[size++] = (byte) (0x80 | c >> 6 & 0x3f);
+          bytes[size++] = (byte) (0x80 | c & 0x3f);
+        }
+      }
+
+      int length = size - lengthPosition - 4;
+      bytes[lengthPosition] = (byte) (length >>> 24);
+      bytes[lengthPosition + 1] = (byte) (length >>> 16);
+      bytes[lengthPosition + 2] = (byte) (length >>> 8);
+      bytes[lengthPosition + 3] = (byte) length;
+    }
+  }
+
+  private AuditEventEncoding() {
+  }
+
+  /**
+   * Encode the given event using the current version of the encoding.
+   *
+   * @param auditEvent the event to encode.
+   * @return the encoded event.
+   */
+  public static byte[] encode(AuditEvent auditEvent) {
+    Buffer buffer = new Buffer();
+    encode(auditEvent, buffer);
+    return Arrays.copyOf(buffer.bytes(), buffer.size());
+  }
+
+  static void encode(AuditEvent auditEvent, Buffer buffer) {
+    if (null == auditEvent) {
+      throw new NullPointerException("Data to hash cannot be null.");
+    }
+
+    buffer.writeByte(CURRENT_VERSION);
+    buffer.writeString(auditEvent.getAuditId());
+
+    Instant timestamp = auditEvent.getTimestamp();
+    buffer.writeByte(null != timestamp ? 1 : 0);
+    if (null != timestamp) {
+      buffer.writeLong(timestamp.getEpochSecond());
+      buffer.writeInt(timestamp.getNano());
+    }
+
+    buffer.writeString(auditEvent.getUserID());
+    buffer.writeString(null != auditEvent.getType() ? auditEvent.getType().name() : null);
+    buffer.writeString(auditEvent.getDescription());
+    buffer.writeString(auditEvent.getRequestPath());
+    buffer.writeString(auditEvent.getDocumentId());
+
+    Byte[] contentHash = auditEvent.getContentHash();
+    buffer.writeInt(null != contentHash ? contentHash.length : -1);
+    if (null != contentHash) {
+      for (Byte b : contentHash) {
+        buffer.writeByte(null != b ? b : 0);
+      }
+    }
+
+    buffer.writeString(null != auditEvent.getEncryption() ? auditEvent.getEncryption().name() : null);
+    buffer.writeString(auditEvent.getKeyHint());
+  }
+}
@@ -8,8 +8,24 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+
 public class AuditHash implements Serializable {
 
+  /**
+   * Digests are expensive to look up and not thread-safe, so each thread keeps its own.
+   */
+  private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  });
+
+  private static final ThreadLocal<AuditEventEncoding.Buffer> BUFFER = ThreadLocal.withInitial(
+      AuditEventEncoding.Buffer::new);
+
   private byte[] hash;
 
   public AuditHash() {
@@ -20,11 +36,11 @@ public class AuditHash implements Serializable {
   }
 
   public AuditHash(byte[] data1, byte[] data2) {
-    this(concatData(hashData(data1), hashData(data2)));
+    this(hashData(data1), hashData(data2), true);
   }
 
   public AuditHash(AuditHash data1, AuditHash data2) {
-    this(concatData(data1.getHash(), data2.getHash()));
+    this(data1.getHash(), data2.getHash(), true);
   }
 
   public AuditHash(Serializable data) {
@@ -35,6 +51,58 @@ public class AuditHash implements Serializable {
     this(getBytes(data1), getBytes(data2));
   }
 
+  /**
+   * Hash the concatenation of two byte arrays without materializing it.
+   */
+  private AuditHash(byte[] data1, byte[] data2, boolean concat) {
+    if (null == data1 || null == data2) {
+      throw new NullPointerException("Data to hash cannot be null.");
+    }
+    MessageDigest digest = DIGEST.get();
+    digest.update(data1);
+    digest.update(data2);
+    this.hash = digest.digest();
+  }
+
+  /**
+   * Hash an audit event using the given version of the {@link AuditEventEncoding}. Verification structures must record
+   * the version they used, so that events can be verified after the current version has changed.
+   *
+   * @param auditEvent the event to hash.
+   * @param encodingVersion the version of the encoding.
+   * @return the hash of the event.
+   */
+  public static AuditHash of(AuditEvent auditEvent, int encodingVersion) {
+    switch (encodingVersion){
+      case AuditEventEncoding.LEGACY_VERSION :
+        return new AuditHash(auditEvent);
+
+      case AuditEventEncoding.CURRENT_VERSION :
+        AuditEventEncoding.Buffer buffer = BUFFER.get();
+        buffer.reset();
+        AuditEventEncoding.encode(auditEvent, buffer);
+
+        MessageDigest digest = DIGEST.get();
+        digest.update(buffer.bytes(), 0, buffer.size());
+        AuditHash auditHash = new AuditHash();
+        auditHash.setHash(digest.digest());
+        return auditHash;
+
+      default :
+        throw new IllegalArgumentException("Unknown audit event encoding version " + encodingVersion);
+    }
+  }
+
+  /**
+   * Hash an audit event using the current version of the {@link AuditEventEncoding}.
+   *
+   * @param auditEvent the event to hash.
+   * @return the hash of the event.
+   */
+  public static AuditHash of(AuditEvent auditEvent) {
+    return of(auditEvent, AuditEventEncoding.CURRENT_VERSION);
+  }
+
   public byte[] getHash() {
     return hash;
   }
@@ -68,13 +136,7 @@ public class AuditHash implements Serializable {
     if (null == data) {
       throw new NullPointerException("Data to hash cannot be null.");
     }
-    try {
-      MessageDigest digest = MessageDigest.getInstance("SHA-256");
-      return digest.digest(data);
-    } catch (NoSuchAlgorithmException e) {
-      e.printStackTrace();
-      return null;
-    }
+    return DIGEST.get().digest(data);
   }
 
   private static byte[] getBytes(Serializable object) {
@@ -91,14 +153,4 @@ public class AuditHash implements Serializable {
     return baos.toByteArray();
 
   }
-
-  private static byte[] concatData(byte[] data1, byte[] data2) {
-    if (null == data1 || null == data2) {
-      throw new NullPointerException("Data to hash cannot be null.");
-    }
-    byte[] concatData = new byte[data1.length + data2.length];
-    System.arraycopy(data1, 0, concatData, 0, data1.length);
-    System.arraycopy(data2, 0, concatData, data1.length, data2.length);
-    return concatData;
-  }
 }
@@ -1,6 +1,7 @@
 package com.neverpile.eureka.plugin.audit.verification;
 
 import java.util.List;
+import java.util.Optional;
 
 import com.neverpile.eureka.plugin.audit.service.AuditEvent;
 
@@ -41,4 +42,26 @@ public interface HashStrategyService {
    */
   public boolean completeVerification();
 
+  /**
+   * Get the current head of the verification structure as an (unnumbered) checkpoint. Segments between checkpoints
+   * can be verified using {@link #verifySegment(VerificationCheckpoint, VerificationCheckpoint)}.
+   *
+   * @return the current head or {@link Optional#empty()} if no event has been added yet or checkpoints are not
+   *         supported.
+   */
+  public default Optional<VerificationCheckpoint> getHead() {
+    return Optional.empty();
+  }
+
+  /**
+   * Verifies the integrity of all audit events added after the given start checkpoint up to and including the given
+   * end checkpoint. Segments between different pairs of checkpoints are independent of each other and may be verified
+   * concurrently.
+   *
+   * @param from the checkpoint to start after or {@code null} to start at the very beginning.
+   * @param to the checkpoint to end at.
+   * @return {@code true} if all Audit Events of the segment were successfully verified - {@code false} otherwise.
+   */
+  public boolean verifySegment(VerificationCheckpoint from, VerificationCheckpoint to);
+
 }
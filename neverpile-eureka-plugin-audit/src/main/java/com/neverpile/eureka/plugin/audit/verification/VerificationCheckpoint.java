@@ -0,0 +1,118 @@
+package com.neverpile.eureka.plugin.audit.verification;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A position within the verification structure of a {@link HashStrategyService} together with the hash covering all
+ * audit events up to and including that position. Persisted checkpoints are numbered consecutively and signed, so that
+ * the part of the structure between two checkpoints can be verified independently of the rest.
+ */
+public class VerificationCheckpoint implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private long number;
+
+  private String position;
+
+  private AuditHash hash;
+
+  private Instant timestamp;
+
+  private byte[] signature;
+
+  private byte[] publicKey;
+
+  public VerificationCheckpoint() {
+  }
+
+  public VerificationCheckpoint(String position, AuditHash hash) {
+    this.position = position;
+    this.hash = hash;
+  }
+
+  /**
+   * Get the sequence number of this checkpoint. Persisted checkpoints are numbered starting at 1, a checkpoint which
+   * has not (yet) been persisted has the number 0.
+   *
+   * @return the sequence number.
+   */
+  public long getNumber() {
+    return number;
+  }
+
+  public void setNumber(long number) {
+    this.number = number;
+  }
+
+  /**
+   * Get the strategy specific position, e.g. the audit ID of a hash chain link or the number of a Merkle block.
+   *
+   * @return the position.
+   */
+  public String getPosition() {
+    return position;
+  }
+
+  public void setPosition(String position) {
+    this.position = position;
+  }
+
+  public AuditHash getHash() {
+    return hash;
+  }
+
+  public void setHash(AuditHash hash) {
+    this.hash = hash;
+  }
+
+  public Instant getTimestamp() {
+    return timestamp;
+  }
+
+  public void setTimestamp(Instant timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  public byte[] getSignature() {
+    return signature;
+  }
+
+  public void setSignature(byte[] signature) {
+    this.signature = signature;
+  }
+
+  /**
+   * Get the public key the signature can be verified with.
+   *
+   * @return the encoded public key.
+   */
+  public byte[] getPublicKey() {
+    return publicKey;
+  }
+
+  public void setPublicKey(byte[] publicKey) {
+    this.publicKey = publicKey;
+  }
+
+  /**
+   * Get the content covered by the signature: the number, position, timestamp and hash of this checkpoint.
+   *
+   * @return the content to sign.
+   */
+  @JsonIgnore
+  public byte[] getSignedContent() {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+    byte[] header = (number + "\n" + position + "\n" + (null != timestamp ? timestamp.toEpochMilli() : 0) + "\n") //
+        .getBytes(StandardCharsets.UTF_8);
+    baos.write(header, 0, header.length);
+    if (null != hash && null != hash.getHash()) {
+      baos.write(hash.getHash(), 0, hash.getHash().length);
+    }
+    return baos.toByteArray();
+  }
+}
@@ -0,0 +1,334 @@
+package com.neverpile.eureka.plugin.audit.verification.checkpoint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.SignatureException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.api.NeverpileException;
+import com.neverpile.eureka.model.ObjectName;
+import com.neverpile.eureka.plugin.audit.storage.AuditStorageBridge;
+import com.neverpile.eureka.plugin.audit.verification.DigSigGen;
+import com.neverpile.eureka.plugin.audit.verification.DigSigVer;
+import com.neverpile.eureka.plugin.audit.verification.HashStrategyService;
+import com.neverpile.eureka.plugin.audit.verification.VerificationCheckpoint;
+import com.neverpile.eureka.tx.lock.ClusterLockFactory;
+
+/**
+ * Creates signed {@link VerificationCheckpoint}s of the head of the {@link HashStrategyService} at a fixed interval and
+ * uses them to verify the complete audit log in parallel: the segments between consecutive checkpoints are verified
+ * concurrently on a fork-join pool.
+ * <p>
+ * The last checkpoint up to which all segments have been verified is recorded, so that a subsequent verification can
+ * resume from there instead of starting over. Only one verification runs at a time; its progress can be queried while
+ * it is running.
+ * <p>
+ * Checkpoint signatures are verified against the public key of the {@link DigSigGen}, so its key pair must be the same
+ * across all instances and restarts.
+ */
+public class CheckpointService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CheckpointService.class);
+
+  @Autowired
+  private HashStrategyService hashStrategyService;
+
+  @Autowired
+  private AuditStorageBridge auditStorageBridge;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private DigSigGen digSigGen;
+
+  @Autowired
+  private DigSigVer digSigVer;
+
+  @Autowired
+  private ClusterLockFactory lockFactory;
+
+  @Value("${neverpile-eureka.audit.verification.parallelism:4}")
+  int parallelism = 4;
+
+  String distributedLockType = "neverpile-audit-checkpointLock";
+
+  private final ObjectName latestName = ObjectName.of("eureka", "verification", "checkpoint", "latest");
+
+  private final ObjectName verifiedName = ObjectName.of("eureka", "verification", "checkpoint", "verified");
+
+  private final AtomicReference<VerificationProgress> currentVerification = new AtomicReference<>();
+
+  private ForkJoinPool pool;
+
+  @PostConstruct
+  public void init() {
+    pool = new ForkJoinPool(parallelism);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Persist a signed checkpoint of the current head unless the head hasn't moved since the latest checkpoint.
+   */
+  @Scheduled(fixedDelayString = "${neverpile-eureka.audit.verification.checkpoint-interval:3600000}", //
+      initialDelayString = "${neverpile-eureka.audit.verification.checkpoint-interval:3600000}")
+  public void createCheckpoint() {
+    // Only one eureka instance may number the next checkpoint.
+    Lock lock = lockFactory.writeLock(distributedLockType);
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      Optional<VerificationCheckpoint> head = hashStrategyService.getHead();
+      if (!head.isPresent()) {
+        return;
+      }
+
+      Optional<VerificationCheckpoint> latest = read(latestName);
+      if (latest.isPresent() && latest.get().getPosition().equals(head.get().getPosition())
+          && latest.get().getHash().equals(head.get().getHash())) {
+        return;
+      }
+
+      VerificationCheckpoint checkpoint = head.get();
+      checkpoint.setNumber(latest.map(VerificationCheckpoint::getNumber).orElse(0L) + 1);
+      checkpoint.setTimestamp(Instant.now());
+      checkpoint.setPublicKey(digSigGen.getPubKey());
+      try {
+        checkpoint.setSignature(digSigGen.signData(checkpoint.getSignedContent()));
+      } catch (SignatureException e) {
+        LOGGER.error("Failed to sign verification checkpoint {}", checkpoint.getNumber(), e);
+        throw new NeverpileException("Failed to sign verification checkpoint");
+      }
+
+      ByteArrayOutputStream baos = serialize(checkpoint);
+      auditStorageBridge.putVerificationElement(getCheckpointObjectName(checkpoint.getNumber()),
+          new ByteArrayInputStream(baos.toByteArray()), baos.size());
+      update(latestName, checkpoint);
+      LOGGER.info("Verification checkpoint {} persisted at position {}", checkpoint.getNumber(),
+          checkpoint.getPosition());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get all persisted checkpoints in ascending order.
+   *
+   * @return the checkpoints.
+   */
+  public List<VerificationCheckpoint> getCheckpoints() {
+    long latest = read(latestName).map(VerificationCheckpoint::getNumber).orElse(0L);
+    // a parallel stream started from within the pool runs on the pool
+    return pool.submit(() -> LongStream.rangeClosed(1, latest).parallel() //
+        .mapToObj(number -> read(getCheckpointObjectName(number)).orElseThrow(
+            () -> new NeverpileException("Verification checkpoint " + number + " not found."))) //
+        .collect(Collectors.toList())).join();
+  }
+
+  /**
+   * Start a complete verification in the background unless one is already running.
+   *
+   * @param resume whether to skip the segments verified by earlier runs.
+   * @return the progress of the started or already running verification.
+   */
+  public VerificationProgress startVerification(boolean resume) {
+    VerificationProgress progress = new VerificationProgress(resume);
+    VerificationProgress current = currentVerification.updateAndGet(p -> null != p && !p.isFinished() ? p : progress);
+    if (current == progress) {
+      pool.execute(() -> verify(progress));
+    }
+    return current;
+  }
+
+  /**
+   * Get the progress of the running or most recently finished verification.
+   *
+   * @return the progress or {@link Optional#empty()} if no verification has been started yet.
+   */
+  public Optional<VerificationProgress> getVerificationProgress() {
+    return Optional.ofNullable(currentVerification.get());
+  }
+
+  /**
+   * Verify the complete audit log and wait for the result.
+   *
+   * @param resume whether to skip the segments verified by earlier runs.
+   * @return {@code true} if all Audit Events were successfully verified - {@code false} otherwise.
+   */
+  public boolean completeVerification(boolean resume) {
+    VerificationProgress progress = new VerificationProgress(resume);
+    pool.submit(() -> verify(progress)).join();
+    return progress.getStatus() == VerificationProgress.Status.SUCCEEDED;
+  }
+
+  /**
+   * Verify the complete audit log. Must run on the pool, so that the segment tasks are forked onto it.
+   *
+   * @param progress the progress to report to.
+   */
+  private void verify(VerificationProgress progress) {
+    try {
+      List<VerificationCheckpoint> checkpoints = getCheckpoints();
+      for (VerificationCheckpoint checkpoint : checkpoints) {
+        if (!verifySignature(checkpoint)) {
+          progress.fail("Invalid signature of verification checkpoint " + checkpoint.getNumber());
+          return;
+        }
+      }
+
+      Optional<VerificationCheckpoint> head = hashStrategyService.getHead();
+      if (!head.isPresent() && checkpoints.isEmpty()) {
+        // nothing recorded yet or no support for checkpoints at all
+        progress.segmentsFound(1, 0);
+        if (hashStrategyService.completeVerification()) {
+          progress.segmentVerified();
+          progress.succeed();
+        } else {
+          progress.fail("Verification failed");
+        }
+        return;
+      }
+      if (!head.isPresent()) {
+        progress.fail("Head of the verification structure not found");
+        return;
+      }
+
+      List<VerificationCheckpoint> boundaries = new ArrayList<>(checkpoints);
+      VerificationCheckpoint last = checkpoints.isEmpty() ? null : checkpoints.get(checkpoints.size() - 1);
+      if (null == last || !last.getPosition().equals(head.get().getPosition())) {
+        boundaries.add(head.get());
+      }
+
+      long resumeAfter = progress.isResume() ? read(verifiedName).map(VerificationCheckpoint::getNumber).orElse(0L) : 0;
+      progress.checkpointVerified(resumeAfter);
+
+      List<VerificationCheckpoint[]> segments = new ArrayList<>();
+      for (int i = 0; i < boundaries.size(); i++) {
+        VerificationCheckpoint to = boundaries.get(i);
+        if (to.getNumber() == 0 || to.getNumber() > resumeAfter) {
+          segments.add(new VerificationCheckpoint[]{
+              i > 0 ? boundaries.get(i - 1) : null, to
+          });
+        }
+      }
+      progress.segmentsFound(segments.size(), boundaries.size() - segments.size());
+
+      List<ForkJoinTask<Boolean>> tasks = segments.stream() //
+          .map(segment -> ForkJoinTask.adapt(() -> {
+            boolean verified = hashStrategyService.verifySegment(segment[0], segment[1]);
+            if (verified) {
+              progress.segmentVerified();
+            }
+            return verified;
+          }).fork()) //
+          .collect(Collectors.toList());
+
+      // advance the verified checkpoint only across an unbroken run of verified segments
+      for (int i = 0; i < tasks.size(); i++) {
+        VerificationCheckpoint to = segments.get(i)[1];
+        boolean verified;
+        try {
+          verified = tasks.get(i).join();
+        } catch (RuntimeException e) {
+          tasks.forEach(task -> task.cancel(false));
+          throw e;
+        }
+        if (!verified) {
+          tasks.forEach(task -> task.cancel(false));
+          progress.fail("Verification failed in the segment ending at position " + to.getPosition());
+          return;
+        }
+        if (to.getNumber() > 0) {
+          update(verifiedName, to);
+          progress.checkpointVerified(to.getNumber());
+        }
+      }
+      progress.succeed();
+    } catch (RuntimeException e) {
+      LOGGER.error("Audit log verification failed", e);
+      progress.fail(e.getMessage());
+    }
+  }
+
+  /**
+   * Verify the signature of the given checkpoint against the key of this instance. The key embedded in the checkpoint
+   * is merely informational and can't be trusted, as anybody able to forge a checkpoint could embed their own key.
+   * Checkpoints embedding a different key are thus rejected.
+   */
+  private boolean verifySignature(VerificationCheckpoint checkpoint) {
+    if (null == checkpoint.getSignature()) {
+      return false;
+    }
+    byte[] trustedKey = digSigGen.getPubKey();
+    if (null != checkpoint.getPublicKey() && !Arrays.equals(trustedKey, checkpoint.getPublicKey())) {
+      LOGGER.warn("Verification checkpoint {} was signed with an untrusted key", checkpoint.getNumber());
+      return false;
+    }
+    try {
+      return digSigVer.verDigSig(trustedKey, checkpoint.getSignature(), checkpoint.getSignedContent());
+    } catch (Exception e) {
+      LOGGER.warn("Failed to verify signature of verification checkpoint {}", checkpoint.getNumber(), e);
+      return false;
+    }
+  }
+
+  private Optional<VerificationCheckpoint> read(ObjectName name) {
+    Optional<InputStream> is = auditStorageBridge.getVerificationElement(name);
+    if (!is.isPresent()) {
+      return Optional.empty();
+    }
+    try (InputStream in = is.get()) {
+      return Optional.of(objectMapper.readValue(in, VerificationCheckpoint.class));
+    } catch (IOException e) {
+      LOGGER.error("Failed to deserialize auditLog Verification @{}", name, e);
+      throw new NeverpileException("Failed to retrieve auditLog Verification");
+    }
+  }
+
+  private void update(ObjectName name, VerificationCheckpoint checkpoint) {
+    ByteArrayOutputStream baos = serialize(checkpoint);
+    auditStorageBridge.updateVerificationElement(name, new ByteArrayInputStream(baos.toByteArray()), baos.size());
+  }
+
+  private ByteArrayOutputStream serialize(VerificationCheckpoint checkpoint) {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+    try {
+      objectMapper.writeValue(baos, checkpoint);
+    } catch (IOException e) {
+      LOGGER.error("Failed to serialize auditLog Verification", e);
+      throw new NeverpileException("Failed to serialize auditLog Verification");
+    }
+    return baos;
+  }
+
+  private ObjectName getCheckpointObjectName(long number) {
+    return ObjectName.of("eureka", "verification", "checkpoint", String.format("%016d", number));
+  }
+}
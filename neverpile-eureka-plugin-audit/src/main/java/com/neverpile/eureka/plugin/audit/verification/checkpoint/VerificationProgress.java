@@ -0,0 +1,126 @@
+package com.neverpile.eureka.plugin.audit.verification.checkpoint;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The progress of a complete verification run by the {@link CheckpointService}. The audit log is verified in segments
+ * between consecutive checkpoints, so progress is measured in segments.
+ */
+public class VerificationProgress {
+
+  public enum Status {
+    RUNNING, SUCCEEDED, FAILED
+  }
+
+  private final String id = UUID.randomUUID().toString();
+
+  private final boolean resume;
+
+  private final Instant started = Instant.now();
+
+  private volatile Instant finished;
+
+  private volatile Status status = Status.RUNNING;
+
+  private volatile int totalSegments;
+
+  private volatile int skippedSegments;
+
+  private final AtomicInteger verifiedSegments = new AtomicInteger();
+
+  private volatile long lastVerifiedCheckpoint;
+
+  private volatile String message;
+
+  public VerificationProgress(boolean resume) {
+    this.resume = resume;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Whether segments verified by earlier runs are skipped.
+   *
+   * @return {@code true} if the verification resumes from the last verified checkpoint - {@code false} otherwise.
+   */
+  public boolean isResume() {
+    return resume;
+  }
+
+  public Instant getStarted() {
+    return started;
+  }
+
+  public Instant getFinished() {
+    return finished;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public int getTotalSegments() {
+    return totalSegments;
+  }
+
+  /**
+   * Get the number of segments which have been verified by earlier runs and are therefore skipped.
+   *
+   * @return the number of skipped segments.
+   */
+  public int getSkippedSegments() {
+    return skippedSegments;
+  }
+
+  public int getVerifiedSegments() {
+    return verifiedSegments.get();
+  }
+
+  /**
+   * Get the number of the checkpoint up to which the whole audit log has been verified.
+   *
+   * @return the checkpoint number or 0 if no checkpoint has been verified yet.
+   */
+  public long getLastVerifiedCheckpoint() {
+    return lastVerifiedCheckpoint;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public boolean isFinished() {
+    return status != Status.RUNNING;
+  }
+
+  void segmentsFound(int total, int skipped) {
+    this.totalSegments = total;
+    this.skippedSegments = skipped;
+  }
+
+  void segmentVerified() {
+    verifiedSegments.incrementAndGet();
+  }
+
+  void checkpointVerified(long number) {
+    this.lastVerifiedCheckpoint = number;
+  }
+
+  void succeed() {
+    finish(Status.SUCCEEDED, null);
+  }
+
+  void fail(String message) {
+    finish(Status.FAILED, message);
+  }
+
+  private void finish(Status status, String message) {
+    this.message = message;
+    this.finished = Instant.now();
+    this.status = status;
+  }
+}
@@ -0,0 +1,74 @@
+package com.neverpile.eureka.plugin.audit.verification.hashchain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.neverpile.eureka.plugin.audit.verification.AuditHash;
+
+/**
+ * A root combining the heads of all partitions of a partitioned hash chain at some point in time. Roots are chained as
+ * well: the root hash is computed from the hash of the previous root and the link hashes of all partition heads.
+ */
+public class HashChainRoot implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private long number;
+
+  private List<HashChainStoreObject> heads = new ArrayList<>();
+
+  private AuditHash rootHash = null;
+
+  public HashChainRoot() {
+  }
+
+  public HashChainRoot(long number, List<HashChainStoreObject> heads, AuditHash parentRootHash) {
+    this.number = number;
+    this.heads = heads;
+    this.rootHash = computeRootHash(parentRootHash, heads);
+  }
+
+  /**
+   * Compute the root hash for the given partition heads.
+   *
+   * @param parentRootHash the root hash of the previous root.
+   * @param heads the partition heads in partition order.
+   * @return the root hash.
+   */
+  public static AuditHash computeRootHash(AuditHash parentRootHash, List<HashChainStoreObject> heads) {
+    AuditHash hash = parentRootHash;
+    for (HashChainStoreObject head : heads) {
+      hash = new AuditHash(hash, head.getLinkHash());
+    }
+    return hash;
+  }
+
+  public long getNumber() {
+    return number;
+  }
+
+  public void setNumber(long number) {
+    this.number = number;
+  }
+
+  /**
+   * Get the head of each partition, indexed by partition.
+   *
+   * @return the partition heads.
+   */
+  public List<HashChainStoreObject> getHeads() {
+    return heads;
+  }
+
+  public void setHeads(List<HashChainStoreObject> heads) {
+    this.heads = heads;
+  }
+
+  public AuditHash getRootHash() {
+    return rootHash;
+  }
+
+  public void setRootHash(AuditHash rootHash) {
+    this.rootHash = rootHash;
+  }
+}
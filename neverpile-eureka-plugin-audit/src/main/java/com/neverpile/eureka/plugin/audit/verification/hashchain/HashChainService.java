@@ -6,12 +6,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.neverpile.eureka.api.NeverpileException;
@@ -19,11 +25,23 @@ import com.neverpile.eureka.model.ObjectName;
 import com.neverpile.eureka.plugin.audit.service.AuditEvent;
 import com.neverpile.eureka.plugin.audit.service.AuditLogService;
 import com.neverpile.eureka.plugin.audit.storage.AuditStorageBridge;
+import com.neverpile.eureka.plugin.audit.verification.AuditEventEncoding;
 import com.neverpile.eureka.plugin.audit.verification.AuditHash;
 import com.neverpile.eureka.plugin.audit.verification.HashStrategyService;
-import com.neverpile.eureka.tx.atomic.DistributedAtomicReference;
-import com.neverpile.eureka.tx.atomic.DistributedAtomicType;
+import com.neverpile.eureka.plugin.audit.verification.VerificationCheckpoint;
+import com.neverpile.eureka.tx.lock.ClusterLockFactory;
 
+/**
+ * A {@link HashStrategyService} chaining each audit event to its predecessor. To avoid a single cluster-wide
+ * serialization point, the chain is partitioned by document ID into a number of independent sub-chains. Each partition
+ * is appended to under its own cluster lock, so appends to different partitions proceed in parallel.
+ * <p>
+ * A {@link HashChainRoot} combining the heads of all partitions is created periodically. Roots are chained as well, so
+ * every root vouches for the complete log up to its partition heads. The position of a {@link VerificationCheckpoint}
+ * is a root number.
+ * <p>
+ * The number of partitions may be increased but must not be reduced.
+ */
 public class HashChainService implements HashStrategyService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HashChainService.class);
@@ -37,10 +55,15 @@ public class HashChainService implements HashStrategyService {
   @Autowired
   private AuditLogService auditLogService;
 
-  @DistributedAtomicType("neverpile-audit-currentProof")
-  DistributedAtomicReference<HashChainStoreObject> currentProof;
+  @Autowired
+  private ClusterLockFactory lockFactory;
+
+  @Value("${neverpile-eureka.audit.verification.hash-chain.partitions:16}")
+  int partitions = 16;
 
-  private final ObjectName currentHashName = getObjectNameOf("current_hash");
+  String distributedLockType = "neverpile-audit-hashChain";
+
+  private final ObjectName latestRootName = ObjectName.of("eureka", "hash_chain", "root", "latest");
 
   @Value("${neverpile-eureka.audit.verification.seed:NotSoSecretSeed}")
   private String rootNodeHashSeed = "NotSoSecretSeed";
@@ -64,60 +87,82 @@ public class HashChainService implements HashStrategyService {
     if (0 >= newLogEvents.size()) {
       return;
     }
-    initCurrentProof();
-    // Insert all new events as link into chain
-    HashChainStoreObject nextProofLink = null;
-    ByteArrayOutputStream baos = null;
+    newLogEvents.stream() //
+        .collect(Collectors.groupingBy(this::getPartition, TreeMap::new, Collectors.toList())) //
+        .forEach(this::appendToPartition);
+  }
 
-    for (AuditEvent auditEvent : newLogEvents) {
-      nextProofLink = currentProof.alterAndGet(input -> {
+  private void appendToPartition(int partition, List<AuditEvent> events) {
+    Lock lock = lockFactory.writeLock(distributedLockType + "-" + partition);
+    lock.lock();
+    try {
+      // Insert all new events as link into the partition's chain
+      HashChainStoreObject head = getPartitionHead(partition);
+      for (AuditEvent auditEvent : events) {
         HashChainStoreObject nextProof = new HashChainStoreObject();
         nextProof.setAuditId(auditEvent.getAuditId());
-        nextProof.setParentId(input.getAuditId());
-        nextProof.setLinkHash(new AuditHash(input.getLinkHash(), new AuditHash(auditEvent)));
-        return nextProof;
-      });
+        nextProof.setParentId(head.getAuditId());
+        nextProof.setHashVersion(AuditEventEncoding.CURRENT_VERSION);
+        nextProof.setLinkHash(new AuditHash(head.getLinkHash(), AuditHash.of(auditEvent)));
 
-      // FIXME: replace BAISO/BAOS with buffer manager for efficiency
-      baos = new ByteArrayOutputStream(65535);
-      try {
-        objectMapper.writeValue(baos, nextProofLink);
-      } catch (IOException e) {
-        LOGGER.error("Failed to serialize auditLog HashChainLink @{}", nextProofLink.getAuditId(), e);
-        e.printStackTrace();
+        ByteArrayOutputStream baos = serialize(nextProof);
+        auditStorageBridge.putVerificationElement(getObjectNameOf(auditEvent.getAuditId()),
+            new ByteArrayInputStream(baos.toByteArray()), baos.size());
+        LOGGER.info("Proof persisted for auditId: @{}", auditEvent.getAuditId());
+        head = nextProof;
       }
+      update(getPartitionHeadObjectName(partition), head);
+    } finally {
+      lock.unlock();
+    }
+  }
 
-      auditStorageBridge.putVerificationElement(getObjectNameOf(auditEvent.getAuditId()), new ByteArrayInputStream(baos.toByteArray()), baos.size());
-      LOGGER.info("Proof persisted for auditId: @{}", auditEvent.getAuditId());
-    }
-    if (!(null == nextProofLink) && currentProof.get().getAuditId().equals(nextProofLink.getAuditId())) {
-      auditStorageBridge.updateHeadVerificationElement(new ByteArrayInputStream(baos.toByteArray()), baos.size());
-    }
-  }
-
-  private void initCurrentProof() {
-    // Get current proof
-    Optional<HashChainStoreObject> initProof = Optional.ofNullable(currentProof.get());
-    // If distributed atomic is not jet set.
-    if (!initProof.isPresent()) {
-      // Get current hash from db.
-      Optional<InputStream> is = auditStorageBridge.getHeadVerificationElement();
-      // If current hash was found in db.
-      if (is.isPresent()) {
-        try {
-          initProof = Optional.ofNullable(
-              objectMapper.readValue(is.get(), objectMapper.getTypeFactory().constructType(HashChainStoreObject.class)));
-        } catch (IOException e) {
-          LOGGER.error("Failed to serialize auditLog HashChainHead", e);
-          e.printStackTrace();
-        }
+  private int getPartition(AuditEvent auditEvent) {
+    String key = null != auditEvent.getDocumentId() ? auditEvent.getDocumentId() : auditEvent.getAuditId();
+    return Math.floorMod(key.hashCode(), partitions);
+  }
 
-        // Try to initialize atomic.
-        currentProof.compareAndSet(null, initProof.get());
-      } else {
-        // initialize chain with new root.
-        currentProof.compareAndSet(null, rootProof);
+  private HashChainStoreObject getPartitionHead(int partition) {
+    Optional<HashChainStoreObject> head = getHashChainLink(getPartitionHeadObjectName(partition));
+    if (!head.isPresent() && partition == 0) {
+      // continue a chain created before the chain was partitioned
+      head = readLink(auditStorageBridge.getHeadVerificationElement(), "head");
+    }
+    return head.orElse(rootProof);
+  }
+
+  /**
+   * Combine the current heads of all partitions into a new {@link HashChainRoot} unless no partition has advanced since
+   * the latest root.
+   */
+  @Scheduled(fixedDelayString = "${neverpile-eureka.audit.verification.hash-chain.root-interval:60000}")
+  public void combineHeads() {
+    // Only one eureka instance may number the next root.
+    Lock lock = lockFactory.writeLock(distributedLockType + "-root");
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      Optional<HashChainRoot> latest = read(latestRootName, HashChainRoot.class);
+      List<HashChainStoreObject> heads = IntStream.range(0, getPartitionCount(latest.orElse(null))) //
+          .mapToObj(this::getPartitionHead) //
+          .collect(Collectors.toList());
+
+      boolean advanced = IntStream.range(0, heads.size()) //
+          .anyMatch(p -> !heads.get(p).getLinkHash().equals(getHead(latest.orElse(null), p).getLinkHash()));
+      if (!advanced) {
+        return;
       }
+
+      HashChainRoot root = new HashChainRoot(latest.map(HashChainRoot::getNumber).orElse(0L) + 1, heads,
+          latest.map(HashChainRoot::getRootHash).orElse(rootProof.getLinkHash()));
+      ByteArrayOutputStream baos = serialize(root);
+      auditStorageBridge.putVerificationElement(getRootObjectName(root.getNumber()),
+          new ByteArrayInputStream(baos.toByteArray()), baos.size());
+      update(latestRootName, root);
+      LOGGER.info("HashChain root {} persisted", root.getNumber());
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -127,9 +172,10 @@ public class HashChainService implements HashStrategyService {
     if (!link.isPresent() || null == link.get().getParentId()) {
       return false;
     }
-    Optional<HashChainStoreObject> proofLink = getHashChainLink(getObjectNameOf(link.get().getParentId()));
+    Optional<HashChainStoreObject> proofLink = findParentLink(link.get());
     if (proofLink.isPresent()) {
-      return link.get().getLinkHash().equals(new AuditHash(proofLink.get().getLinkHash(), new AuditHash(auditEvent)));
+      return link.get().getLinkHash().equals(
+          new AuditHash(proofLink.get().getLinkHash(), AuditHash.of(auditEvent, link.get().getHashVersion())));
     } else {
       return false;
     }
@@ -137,27 +183,124 @@ public class HashChainService implements HashStrategyService {
 
   @Override
   public boolean completeVerification() {
-    Optional<HashChainStoreObject> curProof = getHashChainLink(currentHashName);
-    while (curProof.isPresent() && null != curProof.get().getParentId()) {
-      Optional<AuditEvent> curEvent = auditLogService.getEvent(curProof.get().getAuditId());
+    Optional<HashChainRoot> latest = read(latestRootName, HashChainRoot.class);
+    HashChainRoot previous = null;
+    if (latest.isPresent()) {
+      for (long number = 1; number <= latest.get().getNumber(); number++) {
+        HashChainRoot root = readRoot(number);
+        if (!verifyRoot(previous, root)) {
+          return false;
+        }
+        previous = root;
+      }
+    }
+
+    // events appended since the latest root
+    HashChainRoot latestRoot = previous;
+    return IntStream.range(0, getPartitionCount(latestRoot)).parallel() //
+        .allMatch(p -> verifyLinks(getPartitionHead(p), getHead(latestRoot, p)));
+  }
+
+  @Override
+  public Optional<VerificationCheckpoint> getHead() {
+    return read(latestRootName, HashChainRoot.class) //
+        .map(root -> new VerificationCheckpoint(Long.toString(root.getNumber()), root.getRootHash()));
+  }
+
+  @Override
+  public boolean verifySegment(VerificationCheckpoint from, VerificationCheckpoint to) {
+    HashChainRoot previous = null;
+    if (null != from) {
+      previous = readRoot(Long.parseLong(from.getPosition()));
+      if (!previous.getRootHash().equals(from.getHash())) {
+        return false;
+      }
+    }
+
+    long last = Long.parseLong(to.getPosition());
+    for (long number = null != previous ? previous.getNumber() + 1 : 1; number <= last; number++) {
+      HashChainRoot root = readRoot(number);
+      if (!verifyRoot(previous, root)) {
+        return false;
+      }
+      previous = root;
+    }
+    return null != previous && previous.getRootHash().equals(to.getHash());
+  }
+
+  /**
+   * Verify a root and all links appended between the given previous root and it.
+   *
+   * @param previous the previous root or {@code null} if the root is the first one.
+   * @param root the root to verify.
+   * @return {@code true} if the root and all links were successfully verified - {@code false} otherwise.
+   */
+  private boolean verifyRoot(HashChainRoot previous, HashChainRoot root) {
+    AuditHash parentRootHash = null != previous ? previous.getRootHash() : rootProof.getLinkHash();
+    if (!root.getRootHash().equals(HashChainRoot.computeRootHash(parentRootHash, root.getHeads()))) {
+      return false; // tampered root found.
+    }
+    return IntStream.range(0, root.getHeads().size()).parallel() //
+        .allMatch(p -> verifyLinks(root.getHeads().get(p), getHead(previous, p)));
+  }
+
+  /**
+   * Walk a partition's chain backwards from the given link until the given stop link is reached.
+   *
+   * @param curProof the link to start at.
+   * @param stop the link to stop at, i.e. the partition's head as of an earlier root or the root of the chain.
+   * @return {@code true} if all links were successfully verified - {@code false} otherwise.
+   */
+  private boolean verifyLinks(HashChainStoreObject curProof, HashChainStoreObject stop) {
+    while (null != curProof.getParentId() && !stop.getAuditId().equals(curProof.getAuditId())) {
+      Optional<AuditEvent> curEvent = auditLogService.getEvent(curProof.getAuditId());
       if (curEvent.isPresent()) {
-        Optional<HashChainStoreObject> parentProof = getHashChainLink(getObjectNameOf(curProof.get().getParentId()));
-        if (!curProof.get().getLinkHash().equals(
-            new AuditHash(parentProof.get().getLinkHash(), new AuditHash(curEvent.get())))) {
+        HashChainStoreObject parentProof = getParentLink(curProof);
+        if (!curProof.getLinkHash().equals(
+            new AuditHash(parentProof.getLinkHash(), AuditHash.of(curEvent.get(), curProof.getHashVersion())))) {
           return false; // tampered audit event found.
         }
         curProof = parentProof;
       } else {
-        throw new NeverpileException("AuditLog Event with Id `" + curProof.get().getAuditId() + "` not found.");
+        throw new NeverpileException("AuditLog Event with Id `" + curProof.getAuditId() + "` not found.");
       }
     }
-    return true;
+    // the earlier head must be part of the chain
+    return stop.getAuditId().equals(curProof.getAuditId()) && curProof.getLinkHash().equals(stop.getLinkHash());
+  }
+
+  private int getPartitionCount(HashChainRoot root) {
+    return Math.max(partitions, null != root ? root.getHeads().size() : 0);
+  }
+
+  private HashChainStoreObject getHead(HashChainRoot root, int partition) {
+    return null != root && partition < root.getHeads().size() ? root.getHeads().get(partition) : rootProof;
+  }
+
+  private HashChainStoreObject getParentLink(HashChainStoreObject link) {
+    return findParentLink(link).orElseThrow(
+        () -> new NeverpileException("HashChain link with Id `" + link.getParentId() + "` not found."));
+  }
+
+  private Optional<HashChainStoreObject> findParentLink(HashChainStoreObject link) {
+    if (rootProof.getAuditId().equals(link.getParentId())) {
+      // the root of the chain is never persisted
+      return Optional.of(rootProof);
+    }
+    return getHashChainLink(getObjectNameOf(link.getParentId()));
   }
 
+  private HashChainRoot readRoot(long number) {
+    return read(getRootObjectName(number), HashChainRoot.class).orElseThrow(
+        () -> new NeverpileException("HashChain root " + number + " not found."));
+  }
 
   private Optional<HashChainStoreObject> getHashChainLink(ObjectName auditHashObjectName) {
+    return readLink(auditStorageBridge.getVerificationElement(auditHashObjectName), auditHashObjectName);
+  }
+
+  private Optional<HashChainStoreObject> readLink(Optional<InputStream> is, Object auditHashObjectName) {
     HashChainStoreObject link = null;
-    Optional<InputStream> is = auditStorageBridge.getVerificationElement(auditHashObjectName);
     if (is.isPresent()) {
       try {
         link = objectMapper.readValue(is.get(), objectMapper.getTypeFactory().constructType(HashChainStoreObject.class));
@@ -169,7 +312,45 @@ public class HashChainService implements HashStrategyService {
     return Optional.ofNullable(link);
   }
 
+  private <T> Optional<T> read(ObjectName name, Class<T> type) {
+    Optional<InputStream> is = auditStorageBridge.getVerificationElement(name);
+    if (!is.isPresent()) {
+      return Optional.empty();
+    }
+    try (InputStream in = is.get()) {
+      return Optional.of(objectMapper.readValue(in, type));
+    } catch (IOException e) {
+      LOGGER.error("Failed to deserialize auditLog Verification @{}", name, e);
+      throw new NeverpileException("Failed to retrieve auditLog Verification");
+    }
+  }
+
+  private void update(ObjectName name, Object verificationElement) {
+    ByteArrayOutputStream baos = serialize(verificationElement);
+    auditStorageBridge.updateVerificationElement(name, new ByteArrayInputStream(baos.toByteArray()), baos.size());
+  }
+
+  private ByteArrayOutputStream serialize(Object verificationElement) {
+    // FIXME: replace BAISO/BAOS with buffer manager for efficiency
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+    try {
+      objectMapper.writeValue(baos, verificationElement);
+    } catch (IOException e) {
+      LOGGER.error("Failed to serialize auditLog Verification", e);
+      throw new NeverpileException("Failed to serialize auditLog Verification");
+    }
+    return baos;
+  }
+
   private ObjectName getObjectNameOf(String auditId) {
     return ObjectName.of("eureka", "hash_chain", auditId);
   }
+
+  private ObjectName getPartitionHeadObjectName(int partition) {
+    return ObjectName.of("eureka", "hash_chain", "partition", Integer.toString(partition));
+  }
+
+  private ObjectName getRootObjectName(long number) {
+    return ObjectName.of("eureka", "hash_chain", "root", String.format("%016d", number));
+  }
 }
@@ -2,6 +2,7 @@ package com.neverpile.eureka.plugin.audit.verification.hashchain;
 
 import java.io.Serializable;
 
+import com.neverpile.eureka.plugin.audit.verification.AuditEventEncoding;
 import com.neverpile.eureka.plugin.audit.verification.AuditHash;
 
 public class HashChainStoreObject implements Serializable {
@@ -14,6 +15,8 @@ public class HashChainStoreObject implements Serializable {
 
   private byte[] signature = null;
 
+  private int hashVersion = AuditEventEncoding.LEGACY_VERSION;
+
   public HashChainStoreObject() {
   }
 
@@ -56,4 +59,17 @@ public class HashChainStoreObject implements Serializable {
   public void setSignature(byte[] signature) {
     this.signature = signature;
   }
+
+  /**
+   * Get the version of the {@link AuditEventEncoding} the audit events were hashed with.
+   *
+   * @return the encoding version.
+   */
+  public int getHashVersion() {
+    return hashVersion;
+  }
+
+  public void setHashVersion(int hashVersion) {
+    this.hashVersion = hashVersion;
+  }
 }
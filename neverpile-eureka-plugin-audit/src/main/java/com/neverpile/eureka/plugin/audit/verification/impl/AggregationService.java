@@ -1,12 +1,15 @@
 package com.neverpile.eureka.plugin.audit.verification.impl;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,29 +19,50 @@ import com.neverpile.eureka.plugin.audit.verification.HashStrategyService;
 import com.neverpile.eureka.plugin.audit.verification.VerificationService;
 import com.neverpile.eureka.tasks.DistributedPersistentQueueType;
 import com.neverpile.eureka.tasks.TaskQueue;
-import com.neverpile.eureka.tx.lock.ClusterLockFactory;
 
+/**
+ * A {@link VerificationService} aggregating audit events in batches. Events are queued in buckets by time slot: each
+ * event is keyed by its bucket followed by its audit ID and every non-empty bucket has an element of its own in a
+ * separate bucket queue. Claiming a bucket's element grants the exclusive right to aggregate the bucket, so eureka
+ * instances aggregate distinct buckets in parallel. Buckets which are not yet old enough are left alone, their events
+ * are neither claimed nor re-queued.
+ */
 @Service
 public class AggregationService implements VerificationService {
   // Audit Events to be aggregated have to be at least this old.
-  final long auditTimeBuffer = 60*1000; //in ms
+  @Value("${neverpile-eureka.audit.aggregation.time-buffer:60000}")
+  long auditTimeBuffer = 60 * 1000; // in ms
 
+  // Audit Events are queued in buckets spanning this duration.
+  @Value("${neverpile-eureka.audit.aggregation.bucket-duration:10000}")
+  long bucketDuration = 10 * 1000; // in ms
+
+  @Value("${neverpile-eureka.audit.aggregation.batch-size:1000}")
+  int batchSize = 1000;
+
+  @DistributedPersistentQueueType("neverpile-audit-bucketedEvents")
+  TaskQueue<AuditEvent> eventQueue;
+
+  @DistributedPersistentQueueType("neverpile-audit-buckets")
+  TaskQueue<Long> bucketQueue;
+
+  // Events queued before the queue was bucketed.
   @DistributedPersistentQueueType("neverpile-audit-queueCache")
-  TaskQueue<AuditEvent> queue;
-  String distributedLockType = "neverpile-audit-aggregationLock";
-  ClusterLockFactory lockFactory;
+  TaskQueue<AuditEvent> legacyQueue;
+
   @Autowired
   HashStrategyService auditStructure;
 
-  private List<TaskQueue.ProcessElement<AuditEvent>> auditBlockList = new ArrayList<>();
-
   /**
    * Register a new audit event to process.
    * @param auditEvent new AuditEvent as value
    */
   @Override
   public void processEvent(AuditEvent auditEvent) {
-    queue.putInQueue(auditEvent.getAuditId(), auditEvent);
+    long bucket = Math.floorDiv(auditEvent.getTimestamp().toEpochMilli(), bucketDuration);
+    eventQueue.putInQueue(getBucketKey(bucket) + auditEvent.getAuditId(), auditEvent);
+    // re-opens the bucket if it is being aggregated right now
+    bucketQueue.putInQueue(getBucketKey(bucket), bucket);
   }
 
   @Override
@@ -52,44 +76,74 @@ public class AggregationService implements VerificationService {
   }
 
   /**
-   * Aggregates collectively stored {@link AuditEvent}s from distributed queue ("neverpile-audit-queueCache"), that are
-   * older than {@link AggregationService#auditTimeBuffer}. Aggregated Events and the corresponding verification will
-   * then be persistently sorted.
-    */
+   * Aggregates the collectively stored {@link AuditEvent}s of all buckets whose time slot ended at least
+   * {@link AggregationService#auditTimeBuffer} ago. The events of each bucket are added to the verification in
+   * chronological order. Buckets which are claimed by another eureka instance are skipped.
+   */
   @Scheduled(cron = "0 * * * * *") // fires every minute when seconds are 0
   @Transactional
   public void aggregateEvents() {
-    // Solve race condition for all eureka instances trying to aggregate the audit log.
-    // (This Lock acts as a Semaphore.)
-    Lock lock = lockFactory.writeLock(distributedLockType);
-    if (lock.tryLock()) {
-      try {
-        // get all not stored AuditEvents.
-        TaskQueue.ProcessElement<AuditEvent> queueElement;
-        do {
-          queueElement = queue.getElementToProcess();
-          if (null != queueElement) {
-            auditBlockList.add(queueElement);
-            queue.removeProcessedElement(queueElement.getKey());
-          }
-        } while (null != queueElement);
-        // Distinguish Events via age.
-        ArrayList<AuditEvent> readyToAggregate = new ArrayList<>();
-        for (TaskQueue.ProcessElement<AuditEvent> auditElement : auditBlockList) {
-          if (auditElement.getValue().getTimestamp().isBefore(Instant.now().minus(auditTimeBuffer, ChronoUnit.MILLIS))) {
-            // Events old enough for aggregation.
-            readyToAggregate.add(auditElement.getValue());
-          } else {
-            // Events within time tolerance will be re added to queue.
-            queue.putInQueue(auditElement.getKey(), auditElement.getValue());
-          }
+    rebucketLegacyEvents();
+
+    long firstPendingBucket = Math.floorDiv(Instant.now().toEpochMilli() - auditTimeBuffer, bucketDuration);
+    List<TaskQueue.ProcessElement<Long>> pendingBuckets = new ArrayList<>();
+    try {
+      TaskQueue.ProcessElement<Long> bucket;
+      while (null != (bucket = bucketQueue.getElementToProcess())) {
+        if (bucket.getValue() < firstPendingBucket) {
+          aggregateBucket(bucket);
+        } else {
+          pendingBuckets.add(bucket);
         }
-        // Store Audits with verification.
-        auditStructure.addElements(readyToAggregate);
-      } finally {
-        auditBlockList.clear();
-        lock.unlock();
+      }
+    } finally {
+      // There are only a few buckets within the time buffer, regardless of the number of events queued.
+      for (TaskQueue.ProcessElement<Long> bucket : pendingBuckets) {
+        bucketQueue.putInQueue(bucket.getKey(), bucket.getValue());
       }
     }
   }
+
+  private void aggregateBucket(TaskQueue.ProcessElement<Long> bucket) {
+    List<TaskQueue.ProcessElement<AuditEvent>> elements = new ArrayList<>();
+    List<TaskQueue.ProcessElement<AuditEvent>> batch;
+    do {
+      batch = eventQueue.claimBatch(bucket.getKey(), batchSize);
+      elements.addAll(batch);
+    } while (batch.size() == batchSize);
+
+    try {
+      // Store Audits with verification.
+      auditStructure.addElements(elements.stream() //
+          .map(TaskQueue.ProcessElement::getValue) //
+          .sorted(Comparator.comparing(AuditEvent::getTimestamp).thenComparing(AuditEvent::getAuditId)) //
+          .collect(Collectors.toList()));
+    } catch (RuntimeException e) {
+      // leave the bucket to the next aggregation run
+      Map<String, AuditEvent> retry = new HashMap<>();
+      elements.forEach(element -> retry.put(element.getKey(), element.getValue()));
+      eventQueue.putAllInQueue(retry);
+      bucketQueue.putInQueue(bucket.getKey(), bucket.getValue());
+      throw e;
+    }
+
+    eventQueue.removeProcessedElements(getKeys(elements));
+    bucketQueue.removeProcessedElement(bucket.getKey());
+  }
+
+  private void rebucketLegacyEvents() {
+    List<TaskQueue.ProcessElement<AuditEvent>> elements;
+    while (!(elements = legacyQueue.claimBatch(batchSize)).isEmpty()) {
+      elements.forEach(element -> processEvent(element.getValue()));
+      legacyQueue.removeProcessedElements(getKeys(elements));
+    }
+  }
+
+  private static List<String> getKeys(List<TaskQueue.ProcessElement<AuditEvent>> elements) {
+    return elements.stream().map(TaskQueue.ProcessElement::getKey).collect(Collectors.toList());
+  }
+
+  private static String getBucketKey(long bucket) {
+    return String.format("%016d/", bucket);
+  }
 }
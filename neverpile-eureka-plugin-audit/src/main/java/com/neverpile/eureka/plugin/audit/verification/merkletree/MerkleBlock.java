@@ -0,0 +1,94 @@
+package com.neverpile.eureka.plugin.audit.verification.merkletree;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.neverpile.eureka.plugin.audit.verification.AuditEventEncoding;
+import com.neverpile.eureka.plugin.audit.verification.AuditHash;
+
+/**
+ * A persisted Merkle tree over a batch of audit events sharing the same block ID. The audit IDs are sorted, the leaf
+ * hashes are in the same order.
+ */
+public class MerkleBlock implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private long number;
+
+  private String blockId = null;
+
+  private List<String> auditIds = new ArrayList<>();
+
+  private List<AuditHash> leafHashes = new ArrayList<>();
+
+  private AuditHash rootHash = null;
+
+  private AuditHash linkHash = null;
+
+  private int hashVersion = AuditEventEncoding.LEGACY_VERSION;
+
+  public MerkleBlock() {
+  }
+
+  public long getNumber() {
+    return number;
+  }
+
+  public void setNumber(long number) {
+    this.number = number;
+  }
+
+  public String getBlockId() {
+    return blockId;
+  }
+
+  public void setBlockId(String blockId) {
+    this.blockId = blockId;
+  }
+
+  public List<String> getAuditIds() {
+    return auditIds;
+  }
+
+  public void setAuditIds(List<String> auditIds) {
+    this.auditIds = auditIds;
+  }
+
+  public List<AuditHash> getLeafHashes() {
+    return leafHashes;
+  }
+
+  public void setLeafHashes(List<AuditHash> leafHashes) {
+    this.leafHashes = leafHashes;
+  }
+
+  public AuditHash getRootHash() {
+    return rootHash;
+  }
+
+  public void setRootHash(AuditHash rootHash) {
+    this.rootHash = rootHash;
+  }
+
+  public AuditHash getLinkHash() {
+    return linkHash;
+  }
+
+  public void setLinkHash(AuditHash linkHash) {
+    this.linkHash = linkHash;
+  }
+
+  /**
+   * Get the version of the {@link AuditEventEncoding} the audit events were hashed with.
+   *
+   * @return the encoding version.
+   */
+  public int getHashVersion() {
+    return hashVersion;
+  }
+
+  public void setHashVersion(int hashVersion) {
+    this.hashVersion = hashVersion;
+  }
+}
@@ -0,0 +1,69 @@
+package com.neverpile.eureka.plugin.audit.verification.merkletree;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Merkle blocks holding the events of one block ID, along with the range of audit IDs each of them covers.
+ */
+public class MerkleBlockIndex implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  public static class Entry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long number;
+
+    private String firstAuditId = null;
+
+    private String lastAuditId = null;
+
+    public Entry() {
+    }
+
+    public Entry(long number, String firstAuditId, String lastAuditId) {
+      this.number = number;
+      this.firstAuditId = firstAuditId;
+      this.lastAuditId = lastAuditId;
+    }
+
+    public long getNumber() {
+      return number;
+    }
+
+    public void setNumber(long number) {
+      this.number = number;
+    }
+
+    public String getFirstAuditId() {
+      return firstAuditId;
+    }
+
+    public void setFirstAuditId(String firstAuditId) {
+      this.firstAuditId = firstAuditId;
+    }
+
+    public String getLastAuditId() {
+      return lastAuditId;
+    }
+
+    public void setLastAuditId(String lastAuditId) {
+      this.lastAuditId = lastAuditId;
+    }
+
+    public boolean covers(String auditId) {
+      return firstAuditId.compareTo(auditId) <= 0 && lastAuditId.compareTo(auditId) >= 0;
+    }
+  }
+
+  private List<Entry> entries = new ArrayList<>();
+
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  public void setEntries(List<Entry> entries) {
+    this.entries = entries;
+  }
+}
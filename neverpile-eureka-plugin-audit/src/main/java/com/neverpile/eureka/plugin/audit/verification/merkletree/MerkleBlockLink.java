@@ -0,0 +1,41 @@
+package com.neverpile.eureka.plugin.audit.verification.merkletree;
+
+import java.io.Serializable;
+
+import com.neverpile.eureka.plugin.audit.verification.AuditHash;
+
+/**
+ * A link in the chain of Merkle blocks. The link hash of a block is the hash of the link hash of its predecessor and
+ * its own root hash.
+ */
+public class MerkleBlockLink implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private long number;
+
+  private AuditHash linkHash = null;
+
+  public MerkleBlockLink() {
+  }
+
+  public MerkleBlockLink(long number, AuditHash linkHash) {
+    this.number = number;
+    this.linkHash = linkHash;
+  }
+
+  public long getNumber() {
+    return number;
+  }
+
+  public void setNumber(long number) {
+    this.number = number;
+  }
+
+  public AuditHash getLinkHash() {
+    return linkHash;
+  }
+
+  public void setLinkHash(AuditHash linkHash) {
+    this.linkHash = linkHash;
+  }
+}
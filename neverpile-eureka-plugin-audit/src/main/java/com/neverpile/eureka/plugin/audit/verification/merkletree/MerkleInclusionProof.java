@@ -0,0 +1,76 @@
+package com.neverpile.eureka.plugin.audit.verification.merkletree;
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.neverpile.eureka.plugin.audit.verification.AuditHash;
+
+/**
+ * Proof that an audit event is included in a Merkle block. Hashing the event and combining it with the hashes of the
+ * path yields the root hash of the block.
+ */
+public class MerkleInclusionProof implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private String auditId = null;
+
+  private long blockNumber;
+
+  private int leafIndex;
+
+  private List<MerkleTree.ProofStep> path = null;
+
+  private AuditHash rootHash = null;
+
+  public MerkleInclusionProof() {
+  }
+
+  public MerkleInclusionProof(String auditId, long blockNumber, int leafIndex, List<MerkleTree.ProofStep> path,
+      AuditHash rootHash) {
+    this.auditId = auditId;
+    this.blockNumber = blockNumber;
+    this.leafIndex = leafIndex;
+    this.path = path;
+    this.rootHash = rootHash;
+  }
+
+  public String getAuditId() {
+    return auditId;
+  }
+
+  public void setAuditId(String auditId) {
+    this.auditId = auditId;
+  }
+
+  public long getBlockNumber() {
+    return blockNumber;
+  }
+
+  public void setBlockNumber(long blockNumber) {
+    this.blockNumber = blockNumber;
+  }
+
+  public int getLeafIndex() {
+    return leafIndex;
+  }
+
+  public void setLeafIndex(int leafIndex) {
+    this.leafIndex = leafIndex;
+  }
+
+  public List<MerkleTree.ProofStep> getPath() {
+    return path;
+  }
+
+  public void setPath(List<MerkleTree.ProofStep> path) {
+    this.path = path;
+  }
+
+  public AuditHash getRootHash() {
+    return rootHash;
+  }
+
+  public void setRootHash(AuditHash rootHash) {
+    this.rootHash = rootHash;
+  }
+}
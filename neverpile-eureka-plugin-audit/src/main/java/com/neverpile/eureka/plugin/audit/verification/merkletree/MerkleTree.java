@@ -0,0 +1,119 @@
+package com.neverpile.eureka.plugin.audit.verification.merkletree;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.neverpile.eureka.plugin.audit.verification.AuditHash;
+
+/**
+ * A binary hash tree over a list of leaf hashes. Each inner node is the hash of its two children. The last node of a
+ * level with an odd number of nodes is promoted to the next level unchanged.
+ */
+public class MerkleTree {
+
+  /**
+   * One step of an inclusion proof: the hash of the sibling node on the path from a leaf to the root.
+   */
+  public static class ProofStep implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private AuditHash hash;
+
+    private boolean left;
+
+    public ProofStep() {
+    }
+
+    public ProofStep(AuditHash hash, boolean left) {
+      this.hash = hash;
+      this.left = left;
+    }
+
+    public AuditHash getHash() {
+      return hash;
+    }
+
+    public void setHash(AuditHash hash) {
+      this.hash = hash;
+    }
+
+    /**
+     * Whether the sibling is the left child, i.e. the node on the path is the right child.
+     *
+     * @return {@code true} if the sibling is the left child - {@code false} otherwise.
+     */
+    public boolean isLeft() {
+      return left;
+    }
+
+    public void setLeft(boolean left) {
+      this.left = left;
+    }
+  }
+
+  private final List<List<AuditHash>> levels = new ArrayList<>();
+
+  public MerkleTree(List<AuditHash> leaves) {
+    if (leaves.isEmpty()) {
+      throw new IllegalArgumentException("A Merkle tree needs at least one leaf.");
+    }
+
+    List<AuditHash> level = new ArrayList<>(leaves);
+    levels.add(level);
+    while (level.size() > 1) {
+      List<AuditHash> parents = new ArrayList<>((level.size() + 1) / 2);
+      for (int i = 0; i < level.size(); i += 2) {
+        parents.add(i + 1 < level.size() ? new AuditHash(level.get(i), level.get(i + 1)) : level.get(i));
+      }
+      levels.add(parents);
+      level = parents;
+    }
+  }
+
+  public AuditHash getRoot() {
+    return levels.get(levels.size() - 1).get(0);
+  }
+
+  public int size() {
+    return levels.get(0).size();
+  }
+
+  /**
+   * Get the inclusion proof for the leaf with the given index. The proof consists of at most one sibling hash per
+   * level, i.e. O(log n) hashes.
+   *
+   * @param index the leaf index.
+   * @return the proof steps from the leaf up to the root.
+   */
+  public List<ProofStep> getProof(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("No leaf with index " + index);
+    }
+
+    List<ProofStep> proof = new ArrayList<>();
+    for (List<AuditHash> level : levels.subList(0, levels.size() - 1)) {
+      int sibling = index ^ 1;
+      if (sibling < level.size()) {
+        proof.add(new ProofStep(level.get(sibling), sibling < index));
+      }
+      index /= 2;
+    }
+    return proof;
+  }
+
+  /**
+   * Compute the root hash from a leaf hash and its inclusion proof.
+   *
+   * @param leaf the leaf hash.
+   * @param proof the inclusion proof of the leaf.
+   * @return the resulting root hash.
+   */
+  public static AuditHash computeRoot(AuditHash leaf, List<ProofStep> proof) {
+    AuditHash node = leaf;
+    for (ProofStep step : proof) {
+      node = step.isLeft() ? new AuditHash(step.getHash(), node) : new AuditHash(node, step.getHash());
+    }
+    return node;
+  }
+}
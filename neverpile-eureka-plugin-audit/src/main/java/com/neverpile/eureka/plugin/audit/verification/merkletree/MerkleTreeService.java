@@ -0,0 +1,331 @@
+package com.neverpile.eureka.plugin.audit.verification.merkletree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.api.NeverpileException;
+import com.neverpile.eureka.model.ObjectName;
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.service.AuditIdGenerationStrategy;
+import com.neverpile.eureka.plugin.audit.service.AuditLogService;
+import com.neverpile.eureka.plugin.audit.storage.AuditStorageBridge;
+import com.neverpile.eureka.plugin.audit.verification.AuditEventEncoding;
+import com.neverpile.eureka.plugin.audit.verification.AuditHash;
+import com.neverpile.eureka.plugin.audit.verification.HashStrategyService;
+import com.neverpile.eureka.plugin.audit.verification.VerificationCheckpoint;
+import com.neverpile.eureka.tx.atomic.DistributedAtomicReference;
+import com.neverpile.eureka.tx.atomic.DistributedAtomicType;
+import com.neverpile.eureka.tx.lock.ClusterLockFactory;
+
+/**
+ * A {@link HashStrategyService} aggregating each batch of audit events into Merkle trees, one per block ID as
+ * determined by {@link AuditIdGenerationStrategy#getBlockId(String)}. Only the roots of these trees (blocks) are
+ * chained, so adding a batch costs a single write per block plus an index and a head update instead of one write per
+ * event. The index of each block ID and the head are updated under cluster-wide locks, as concurrent batches may add
+ * blocks for the same block ID.
+ * <p>
+ * A single event is verified using an inclusion proof of O(log n) hashes. The complete log is verified block by block
+ * from the most recent block backwards. The position of a {@link VerificationCheckpoint} is a block number.
+ */
+public class MerkleTreeService implements HashStrategyService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MerkleTreeService.class);
+
+  @Autowired
+  private AuditStorageBridge auditStorageBridge;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private AuditLogService auditLogService;
+
+  @Autowired
+  private AuditIdGenerationStrategy idGenerationStrategy;
+
+  @Autowired
+  private ClusterLockFactory lockFactory;
+
+  String distributedLockType = "neverpile-audit-merkleTree";
+
+  @DistributedAtomicType("neverpile-audit-currentMerkleBlock")
+  DistributedAtomicReference<MerkleBlockLink> currentBlock;
+
+  private final ObjectName headName = ObjectName.of("eureka", "merkle_tree", "head");
+
+  @Value("${neverpile-eureka.audit.verification.seed:NotSoSecretSeed}")
+  private String rootNodeHashSeed = "NotSoSecretSeed";
+
+  private MerkleBlockLink rootLink;
+
+  @PostConstruct
+  public void init() {
+    AuditHash rootHash = new AuditHash(rootNodeHashSeed.getBytes());
+    rootLink = new MerkleBlockLink(0, new AuditHash(rootHash, rootHash));
+  }
+
+  @Override
+  public void addElement(AuditEvent auditEvent) {
+    addElements(Collections.singletonList(auditEvent));
+  }
+
+  @Override
+  public void addElements(List<AuditEvent> auditEvents) {
+    if (auditEvents.isEmpty()) {
+      return;
+    }
+    initCurrentBlock();
+
+    Map<String, List<AuditEvent>> eventsByBlockId = auditEvents.stream() //
+        .collect(Collectors.groupingBy(e -> idGenerationStrategy.getBlockId(e.getAuditId()), TreeMap::new,
+            Collectors.toList()));
+
+    MerkleBlockLink lastLink = null;
+    for (Map.Entry<String, List<AuditEvent>> entry : eventsByBlockId.entrySet()) {
+      List<AuditEvent> events = new ArrayList<>(entry.getValue());
+      events.sort(Comparator.comparing(AuditEvent::getAuditId));
+
+      MerkleBlock block = new MerkleBlock();
+      block.setBlockId(entry.getKey());
+      block.setHashVersion(AuditEventEncoding.CURRENT_VERSION);
+      for (AuditEvent event : events) {
+        block.getAuditIds().add(event.getAuditId());
+        block.getLeafHashes().add(AuditHash.of(event));
+      }
+      AuditHash rootHash = new MerkleTree(block.getLeafHashes()).getRoot();
+      block.setRootHash(rootHash);
+
+      lastLink = currentBlock.alterAndGet(
+          input -> new MerkleBlockLink(input.getNumber() + 1, new AuditHash(input.getLinkHash(), rootHash)));
+      block.setNumber(lastLink.getNumber());
+      block.setLinkHash(lastLink.getLinkHash());
+
+      ByteArrayOutputStream baos = serialize(block);
+      auditStorageBridge.putVerificationElement(getBlockObjectName(block.getNumber()),
+          new ByteArrayInputStream(baos.toByteArray()), baos.size());
+      addToIndex(block);
+      LOGGER.info("Merkle block {} persisted for {} events of block {}", block.getNumber(), events.size(),
+          block.getBlockId());
+    }
+
+    if (null != lastLink) {
+      updateHead(lastLink);
+    }
+  }
+
+  private void addToIndex(MerkleBlock block) {
+    Lock lock = lockFactory.writeLock(distributedLockType + "-index-" + block.getBlockId());
+    lock.lock();
+    try {
+      ObjectName indexName = getIndexObjectName(block.getBlockId());
+      MerkleBlockIndex index = read(indexName, MerkleBlockIndex.class).orElseGet(MerkleBlockIndex::new);
+      index.getEntries().add(new MerkleBlockIndex.Entry(block.getNumber(), block.getAuditIds().get(0),
+          block.getAuditIds().get(block.getAuditIds().size() - 1)));
+      update(indexName, index);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void updateHead(MerkleBlockLink link) {
+    Lock lock = lockFactory.writeLock(distributedLockType + "-head");
+    lock.lock();
+    try {
+      // a concurrent batch may have advanced the head beyond the given link already
+      Optional<MerkleBlockLink> head = read(headName, MerkleBlockLink.class);
+      if (!head.isPresent() || head.get().getNumber() < link.getNumber()) {
+        update(headName, link);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void initCurrentBlock() {
+    if (null == currentBlock.get()) {
+      currentBlock.compareAndSet(null, read(headName, MerkleBlockLink.class).orElse(rootLink));
+    }
+  }
+
+  @Override
+  public boolean verifyHash(AuditEvent auditEvent) {
+    Optional<MerkleBlock> block = findBlock(auditEvent.getAuditId());
+    if (!block.isPresent()) {
+      return false;
+    }
+
+    MerkleInclusionProof proof = getInclusionProof(block.get(), auditEvent.getAuditId());
+    AuditHash rootHash = MerkleTree.computeRoot(AuditHash.of(auditEvent, block.get().getHashVersion()),
+        proof.getPath());
+
+    return rootHash.equals(block.get().getRootHash()) && verifyLink(block.get(), getParentLink(block.get()));
+  }
+
+  /**
+   * Get the proof that the event with the given audit ID is included in a Merkle block.
+   *
+   * @param auditId the audit ID of the event.
+   * @return the inclusion proof or {@link Optional#empty()} if the event isn't part of any block.
+   */
+  public Optional<MerkleInclusionProof> getInclusionProof(String auditId) {
+    return findBlock(auditId).map(block -> getInclusionProof(block, auditId));
+  }
+
+  private MerkleInclusionProof getInclusionProof(MerkleBlock block, String auditId) {
+    int leafIndex = Collections.binarySearch(block.getAuditIds(), auditId);
+    return new MerkleInclusionProof(auditId, block.getNumber(), leafIndex,
+        new MerkleTree(block.getLeafHashes()).getProof(leafIndex), block.getRootHash());
+  }
+
+  @Override
+  public boolean completeVerification() {
+    return getHead().map(head -> verifySegment(null, head)).orElse(true);
+  }
+
+  @Override
+  public Optional<VerificationCheckpoint> getHead() {
+    return read(headName, MerkleBlockLink.class) //
+        .map(head -> new VerificationCheckpoint(Long.toString(head.getNumber()), head.getLinkHash()));
+  }
+
+  @Override
+  public boolean verifySegment(VerificationCheckpoint from, VerificationCheckpoint to) {
+    long first = null != from ? Long.parseLong(from.getPosition()) + 1 : 1;
+    long last = Long.parseLong(to.getPosition());
+    if (last < first) {
+      return null != from && last == first - 1 && to.getHash().equals(from.getHash()); // empty segment
+    }
+
+    Optional<MerkleBlock> block = readBlock(last);
+    if (!block.isPresent() || !block.get().getLinkHash().equals(to.getHash())) {
+      return false;
+    }
+
+    while (block.isPresent()) {
+      MerkleBlock current = block.get();
+
+      List<AuditHash> leafHashes = new ArrayList<>(current.getAuditIds().size());
+      for (String auditId : current.getAuditIds()) {
+        AuditEvent event = auditLogService.getEvent(auditId).orElseThrow(
+            () -> new NeverpileException("AuditLog Event with Id `" + auditId + "` not found."));
+        leafHashes.add(AuditHash.of(event, current.getHashVersion()));
+      }
+      if (!new MerkleTree(leafHashes).getRoot().equals(current.getRootHash())) {
+        return false; // tampered audit event found.
+      }
+
+      MerkleBlockLink parentLink;
+      if (current.getNumber() == first && null != from) {
+        // the start checkpoint vouches for the parent link - the segment before it is verified separately
+        block = Optional.empty();
+        parentLink = new MerkleBlockLink(current.getNumber() - 1, from.getHash());
+      } else if (current.getNumber() > first) {
+        block = readBlock(current.getNumber() - 1);
+        if (!block.isPresent()) {
+          throw new NeverpileException("Merkle block " + (current.getNumber() - 1) + " not found.");
+        }
+        parentLink = new MerkleBlockLink(block.get().getNumber(), block.get().getLinkHash());
+      } else {
+        block = Optional.empty();
+        parentLink = rootLink;
+      }
+
+      if (!verifyLink(current, parentLink)) {
+        return false; // tampered block found.
+      }
+    }
+    return true;
+  }
+
+  private boolean verifyLink(MerkleBlock block, MerkleBlockLink parentLink) {
+    return null != parentLink
+        && block.getLinkHash().equals(new AuditHash(parentLink.getLinkHash(), block.getRootHash()));
+  }
+
+  private MerkleBlockLink getParentLink(MerkleBlock block) {
+    if (block.getNumber() <= 1) {
+      return rootLink;
+    }
+    return readBlock(block.getNumber() - 1) //
+        .map(parent -> new MerkleBlockLink(parent.getNumber(), parent.getLinkHash())) //
+        .orElse(null);
+  }
+
+  private Optional<MerkleBlock> findBlock(String auditId) {
+    Optional<MerkleBlockIndex> index = read(getIndexObjectName(idGenerationStrategy.getBlockId(auditId)),
+        MerkleBlockIndex.class);
+    if (!index.isPresent()) {
+      return Optional.empty();
+    }
+
+    for (MerkleBlockIndex.Entry entry : index.get().getEntries()) {
+      if (entry.covers(auditId)) {
+        Optional<MerkleBlock> block = readBlock(entry.getNumber());
+        if (block.isPresent() && Collections.binarySearch(block.get().getAuditIds(), auditId) >= 0) {
+          return block;
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
+  private Optional<MerkleBlock> readBlock(long number) {
+    return read(getBlockObjectName(number), MerkleBlock.class);
+  }
+
+  private <T> Optional<T> read(ObjectName name, Class<T> type) {
+    Optional<InputStream> is = auditStorageBridge.getVerificationElement(name);
+    if (!is.isPresent()) {
+      return Optional.empty();
+    }
+    try (InputStream in = is.get()) {
+      return Optional.of(objectMapper.readValue(in, type));
+    } catch (IOException e) {
+      LOGGER.error("Failed to deserialize auditLog Verification @{}", name, e);
+      throw new NeverpileException("Failed to retrieve auditLog Verification");
+    }
+  }
+
+  private void update(ObjectName name, Object verificationElement) {
+    ByteArrayOutputStream baos = serialize(verificationElement);
+    auditStorageBridge.updateVerificationElement(name, new ByteArrayInputStream(baos.toByteArray()), baos.size());
+  }
+
+  private ByteArrayOutputStream serialize(Object verificationElement) {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+    try {
+      objectMapper.writeValue(baos, verificationElement);
+    } catch (IOException e) {
+      LOGGER.error("Failed to serialize auditLog Verification", e);
+      throw new NeverpileException("Failed to serialize auditLog Verification");
+    }
+    return baos;
+  }
+
+  private ObjectName getBlockObjectName(long number) {
+    return ObjectName.of("eureka", "merkle_tree", "block", String.format("%016d", number));
+  }
+
+  private ObjectName getIndexObjectName(String blockId) {
+    return ObjectName.of("eureka", "merkle_tree", "index", blockId);
+  }
+}
@@ -1,5 +1,6 @@
 package com.neverpile.eureka.plugin.audit.verification.signature;
 
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.KeyPair;
@@ -11,19 +12,34 @@ import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.Signature;
 import java.security.SignatureException;
+import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
 
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import com.neverpile.eureka.plugin.audit.verification.DigSigGen;
 
+/**
+ * Signs data using a DSA key pair. The key pair is configured via
+ * <code>neverpile-eureka.audit.publickey</code> (Base64-encoded X.509) and
+ * <code>neverpile-eureka.audit.privatekey</code> (Base64-encoded PKCS#8). If no keys are configured,
+ * an ephemeral key pair is generated on startup. Signatures created with an ephemeral key pair can't
+ * be verified by another instance or after a restart.
+ */
 @Service
 public class SimpleDigSigGen implements DigSigGen {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SimpleDigSigGen.class);
 
-  @Value("${neverpile-eureka.audit.publickey}")
+  @Value("${neverpile-eureka.audit.publickey:}")
   private String publicKeyEncoded;
-  @Value("${neverpile-eureka.audit.privatekey}")
+  @Value("${neverpile-eureka.audit.privatekey:}")
   private String privateKeyEncoded;
 
   private PublicKey pub;
@@ -31,13 +47,13 @@ public class SimpleDigSigGen implements DigSigGen {
 
   private Signature dsa;
 
-
-  public SimpleDigSigGen() throws NoSuchProviderException, NoSuchAlgorithmException, InvalidKeyException {
-    if (null != publicKeyEncoded && null != privateKeyEncoded) {
+  @PostConstruct
+  public void init() throws GeneralSecurityException {
+    if (StringUtils.hasText(publicKeyEncoded) && StringUtils.hasText(privateKeyEncoded)) {
       pub = getPubKey(publicKeyEncoded);
       priv = getPrivKey(privateKeyEncoded);
-    }
-    if (null == pub || null == priv) {
+    } else {
+      LOGGER.warn("No audit signing keys configured - using an ephemeral key pair");
       KeyPair pair = getKeyPair();
 
       priv = pair.getPrivate();
@@ -72,31 +88,25 @@ public class SimpleDigSigGen implements DigSigGen {
     return keyGen.generateKeyPair();
   }
 
-  private PublicKey getPubKey(String key) {
-    try {
-      byte[] byteKey = key.getBytes();
-      X509EncodedKeySpec X509publicKey = new X509EncodedKeySpec(byteKey);
-      KeyFactory kf = KeyFactory.getInstance("DSA", "SUN");
+  private PublicKey getPubKey(String key) throws GeneralSecurityException {
+    X509EncodedKeySpec X509publicKey = new X509EncodedKeySpec(decode(key));
+    KeyFactory kf = KeyFactory.getInstance("DSA", "SUN");
 
-      return kf.generatePublic(X509publicKey);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
-    return null;
+    return kf.generatePublic(X509publicKey);
   }
 
-  private PrivateKey getPrivKey(String key) {
-    try {
-      byte[] byteKey = key.getBytes();
-      X509EncodedKeySpec X509publicKey = new X509EncodedKeySpec(byteKey);
-      KeyFactory kf = KeyFactory.getInstance("DSA", "SUN");
+  private PrivateKey getPrivKey(String key) throws GeneralSecurityException {
+    PKCS8EncodedKeySpec pkcs8PrivateKey = new PKCS8EncodedKeySpec(decode(key));
+    KeyFactory kf = KeyFactory.getInstance("DSA", "SUN");
 
-      return kf.generatePrivate(X509publicKey);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
-    return null;
+    return kf.generatePrivate(pkcs8PrivateKey);
   }
 
-
+  private byte[] decode(String key) throws GeneralSecurityException {
+    try {
+      return Base64.getMimeDecoder().decode(key.trim());
+    } catch (IllegalArgumentException e) {
+      throw new GeneralSecurityException("Audit signing key is not Base64-encoded", e);
+    }
+  }
 }
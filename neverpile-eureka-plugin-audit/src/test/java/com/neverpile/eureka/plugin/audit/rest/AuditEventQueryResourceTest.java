@@ -0,0 +1,193 @@
+package com.neverpile.eureka.plugin.audit.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.service.AuditEvent.Type;
+import com.neverpile.eureka.plugin.audit.service.impl.DefaultAuditLogService;
+import com.neverpile.eureka.plugin.audit.storage.AuditStorageBridge;
+import com.neverpile.eureka.rest.api.exception.BadInputParameter;
+
+public class AuditEventQueryResourceTest {
+  private static final Instant FROM = Instant.ofEpochMilli(1_000_000L);
+
+  private final List<AuditEvent> log = new ArrayList<>();
+
+  private AuditStorageBridge storageBridge;
+
+  private AuditEventQueryResource resource;
+
+  @Before
+  public void setUp() {
+    storageBridge = mock(AuditStorageBridge.class);
+    given(storageBridge.getAuditLog(any(), any())).willAnswer(i -> log.stream() //
+        .filter(e -> !e.getTimestamp().isBefore(i.getArgument(0))) //
+        .filter(e -> e.getTimestamp().isBefore(i.getArgument(1))));
+
+    DefaultAuditLogService auditLogService = new DefaultAuditLogService();
+    ReflectionTestUtils.setField(auditLogService, "auditLogStorageBridge", storageBridge);
+
+    resource = new AuditEventQueryResource();
+    ReflectionTestUtils.setField(resource, "auditLogService", auditLogService);
+    ReflectionTestUtils.setField(resource, "documentMapper", new ModelMapper());
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/audit/events");
+    request.setQueryString("from=" + FROM + "&limit=2");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  @After
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  public void testThat_fullPageLinksToNextPage() {
+    addEvent("a", 1, Type.CREATE, "alice");
+    addEvent("b", 2, Type.UPDATE, "bob");
+    addEvent("c", 3, Type.DELETE, "alice");
+
+    ResponseEntity<List<AuditEventDto>> response = resource.queryEvents(FROM, null, null, null, null, 2);
+
+    assertEquals(List.of("a", "b"), auditIds(response));
+    assertEquals("http://localhost/api/v1/documents/doc/audit/b",
+        response.getBody().get(1).getRequiredLink(IanaLinkRelations.SELF).getHref());
+
+    Link next = Link.valueOf(response.getHeaders().getFirst(HttpHeaders.LINK));
+    assertEquals(IanaLinkRelations.NEXT, next.getRel());
+    String after = UriComponentsBuilder.fromUriString(next.getHref()).build().getQueryParams().getFirst("after");
+    assertEquals(String.format("%013d_b", FROM.toEpochMilli() + 2), after);
+    assertEquals("2", UriComponentsBuilder.fromUriString(next.getHref()).build().getQueryParams().getFirst("limit"));
+  }
+
+  @Test
+  public void testThat_partialPageHasNoNextLink() {
+    addEvent("a", 1, Type.CREATE, "alice");
+
+    ResponseEntity<List<AuditEventDto>> response = resource.queryEvents(FROM, null, null, null, null, 2);
+
+    assertEquals(List.of("a"), auditIds(response));
+    assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  @Test
+  public void testThat_continuationResumesAfterLastEvent() {
+    addEvent("a", 1, Type.CREATE, "alice");
+    addEvent("b", 2, Type.UPDATE, "bob");
+    // events with the same timestamp are ordered by their IDs
+    addEvent("c", 2, Type.UPDATE, "bob");
+    addEvent("d", 3, Type.DELETE, "alice");
+
+    String after = String.format("%013d_b", FROM.toEpochMilli() + 2);
+    ResponseEntity<List<AuditEventDto>> response = resource.queryEvents(FROM, null, null, null, after, 2);
+
+    assertEquals(List.of("c", "d"), auditIds(response));
+    // the range handed to the storage starts at the continuation, not at the original start
+    verify(storageBridge).getAuditLog(eq(FROM.plusMillis(2)), any());
+  }
+
+  @Test
+  public void testThat_pagingVisitsEveryEventOnce() {
+    for (int i = 0; i < 7; i++) {
+      addEvent("e" + i, i / 2, Type.UPDATE, "alice");
+    }
+
+    List<String> visited = new ArrayList<>();
+    String after = null;
+    do {
+      ResponseEntity<List<AuditEventDto>> response = resource.queryEvents(FROM, null, null, null, after, 2);
+      visited.addAll(auditIds(response));
+      String link = response.getHeaders().getFirst(HttpHeaders.LINK);
+      after = null != link
+          ? UriComponentsBuilder.fromUriString(Link.valueOf(link).getHref()).build().getQueryParams().getFirst("after")
+          : null;
+    } while (null != after);
+
+    assertEquals(List.of("e0", "e1", "e2", "e3", "e4", "e5", "e6"), visited);
+  }
+
+  @Test
+  public void testThat_eventsAreFilteredByTypeAndUser() {
+    addEvent("a", 1, Type.CREATE, "alice");
+    addEvent("b", 2, Type.UPDATE, "alice");
+    addEvent("c", 3, Type.UPDATE, "bob");
+    addEvent("d", 4, Type.UPDATE, "alice");
+
+    assertEquals(List.of("b", "c", "d"), auditIds(resource.queryEvents(FROM, null, Type.UPDATE, null, null, 10)));
+    assertEquals(List.of("a", "b", "d"), auditIds(resource.queryEvents(FROM, null, null, "alice", null, 10)));
+    assertEquals(List.of("b", "d"), auditIds(resource.queryEvents(FROM, null, Type.UPDATE, "alice", null, 10)));
+  }
+
+  @Test
+  public void testThat_eventsOutsideRangeAreExcluded() {
+    addEvent("a", -1, Type.CREATE, "alice");
+    addEvent("b", 1, Type.UPDATE, "alice");
+    addEvent("c", 5, Type.UPDATE, "alice");
+
+    assertEquals(List.of("b"), auditIds(resource.queryEvents(FROM, FROM.plusMillis(5), null, null, null, 10)));
+  }
+
+  @Test
+  public void testThat_limitIsCapped() {
+    for (int i = 0; i < 1005; i++) {
+      addEvent(String.format("e%04d", i), i, Type.UPDATE, "alice");
+    }
+
+    assertEquals(1000, resource.queryEvents(FROM, null, null, null, null, 5000).getBody().size());
+    assertEquals(1, resource.queryEvents(FROM, null, null, null, null, 0).getBody().size());
+    assertEquals(1, resource.queryEvents(FROM, null, null, null, null, -3).getBody().size());
+  }
+
+  @Test(expected = BadInputParameter.class)
+  public void testThat_malformedContinuationIsRejected() {
+    resource.queryEvents(FROM, null, null, null, "garbage", 2);
+  }
+
+  @Test
+  public void testThat_emptyResultHasNoNextLink() {
+    ResponseEntity<List<AuditEventDto>> response = resource.queryEvents(FROM, null, null, null, null, 2);
+
+    assertTrue(response.getBody().isEmpty());
+    assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  private void addEvent(final String auditId, final long offsetMillis, final Type type, final String userID) {
+    AuditEvent event = new AuditEvent();
+    event.setAuditId(auditId);
+    event.setDocumentId("doc");
+    event.setTimestamp(FROM.plusMillis(offsetMillis));
+    event.setType(type);
+    event.setUserID(userID);
+    log.add(event);
+  }
+
+  private static List<String> auditIds(final ResponseEntity<List<AuditEventDto>> response) {
+    return response.getBody().stream().map(AuditEventDto::getAuditId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,273 @@
+package com.neverpile.eureka.plugin.audit.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.storage.AuditStorageBridge;
+import com.neverpile.eureka.plugin.audit.verification.VerificationService;
+import com.neverpile.eureka.tx.wal.TransactionWAL;
+import com.neverpile.eureka.tx.wal.TransactionWAL.TransactionalAction;
+
+public class WriteBehindAuditLogServiceTest {
+  @Rule
+  public TemporaryFolder bufferFolder = new TemporaryFolder();
+
+  private final List<String> persisted = new ArrayList<>();
+
+  private AuditStorageBridge bridge;
+
+  private VerificationService verificationService;
+
+  private TransactionWAL wal;
+
+  private WriteBehindAuditLogService service;
+
+  @Before
+  public void setUp() throws IOException {
+    bridge = mock(AuditStorageBridge.class);
+    given(bridge.getAuditEvent(anyString())).willReturn(Optional.empty());
+    doAnswer(i -> {
+      List<AuditEvent> events = i.getArgument(0);
+      events.forEach(e -> persisted.add(e.getAuditId()));
+      return null;
+    }).when(bridge).putAuditEvents(anyList());
+
+    verificationService = mock(VerificationService.class);
+    wal = mock(TransactionWAL.class);
+    service = createService();
+  }
+
+  @After
+  public void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  private WriteBehindAuditLogService createService() throws IOException {
+    WriteBehindAuditLogService service = new WriteBehindAuditLogService();
+    service.auditLogStorageBridge = bridge;
+    service.verificationService = verificationService;
+    service.wal = wal;
+    service.objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    service.bufferPath = bufferFolder.getRoot().getPath();
+    service.batchSize = 2;
+    service.init();
+    return service;
+  }
+
+  private AuditEvent event(final String auditId) {
+    AuditEvent event = new AuditEvent();
+    event.setAuditId(auditId);
+    event.setDocumentId("aDocument");
+    event.setTimestamp(Instant.now());
+    event.setType(AuditEvent.Type.UPDATE);
+    return event;
+  }
+
+  private List<String> buffered() {
+    File[] files = bufferFolder.getRoot().listFiles(File::isFile);
+    return Arrays.stream(files).map(File::getName).collect(Collectors.toList());
+  }
+
+  private List<String> quarantined() {
+    File[] files = new File(bufferFolder.getRoot(), "quarantine").listFiles();
+    return null != files ? Arrays.stream(files).map(File::getName).collect(Collectors.toList()) : List.of();
+  }
+
+  @Test
+  public void testThat_eventsArePersistedInBatches() {
+    service.logEvent(event("a"));
+    service.logEvent(event("b"));
+    service.logEvent(event("c"));
+
+    verify(bridge, never()).putAuditEvent(any());
+    assertThat(buffered()).hasSize(3);
+
+    assertThat(service.flush()).isEqualTo(2);
+    assertThat(persisted).containsExactly("a", "b");
+    assertThat(service.flush()).isEqualTo(1);
+    assertThat(persisted).containsExactly("a", "b", "c");
+    assertThat(service.flush()).isEqualTo(0);
+
+    verify(verificationService, times(3)).processEvent(any());
+    assertThat(buffered()).isEmpty();
+  }
+
+  @Test
+  public void testThat_eventsAreBufferedOnCommit() {
+    TransactionSynchronizationManager.initSynchronization();
+    service.logEvent(event("a"));
+
+    ArgumentCaptor<TransactionalAction> action = ArgumentCaptor.forClass(TransactionalAction.class);
+    verify(wal).appendCommitAction(action.capture());
+    assertThat(buffered()).isEmpty();
+
+    // applying the action again during recovery must not buffer the event twice
+    action.getValue().run();
+    action.getValue().run();
+    assertThat(buffered()).hasSize(1);
+  }
+
+  @Test
+  public void testThat_bufferIsClearedAfterCommit() {
+    service.logEvent(event("a"));
+
+    TransactionSynchronizationManager.initSynchronization();
+    assertThat(service.flush()).isEqualTo(1);
+    assertThat(buffered()).hasSize(1);
+
+    for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+      synchronization.afterCommit();
+    }
+    assertThat(buffered()).isEmpty();
+    assertThat(persisted).containsExactly("a");
+  }
+
+  @Test
+  public void testThat_leftoverEventsArePersistedOnce() throws IOException {
+    service.logEvent(event("a"));
+    service.logEvent(event("b"));
+
+    // a restarted instance finds event a already persisted
+    given(bridge.getAuditEvent(eq("a"))).willReturn(Optional.of(event("a")));
+    WriteBehindAuditLogService restarted = createService();
+    restarted.flush();
+
+    assertThat(persisted).containsExactly("b");
+    assertThat(buffered()).isEmpty();
+
+    // events buffered by the instance itself are not looked up
+    restarted.logEvent(event("c"));
+    restarted.flush();
+    verify(bridge, never()).getAuditEvent("c");
+  }
+
+  @Test
+  public void testThat_unreadableEventIsQuarantined() throws IOException {
+    Files.write(bufferFolder.getRoot().toPath().resolve("0000000000000-broken.json"), "{not json".getBytes());
+    service.logEvent(event("a"));
+    service.logEvent(event("b"));
+
+    service.flush();
+    service.flush();
+
+    assertThat(persisted).containsExactly("a", "b");
+    assertThat(buffered()).isEmpty();
+    assertThat(quarantined()).containsExactly("0000000000000-broken.json");
+  }
+
+  @Test
+  public void testThat_eventsOfRolledBackFlushArePersistedOnce() {
+    service.logEvent(event("a"));
+    service.logEvent(event("b"));
+
+    // the flush transaction rolls back after the events have been persisted
+    TransactionSynchronizationManager.initSynchronization();
+    service.flush();
+    TransactionSynchronizationManager.clearSynchronization();
+    assertThat(buffered()).hasSize(2);
+
+    given(bridge.getAuditEvent(anyString())).willAnswer(i -> persisted.contains(i.getArgument(0))
+        ? Optional.of(event(i.getArgument(0)))
+        : Optional.empty());
+    // event a has been verified in the meantime
+    given(verificationService.verifyEvent(any())).willAnswer(
+        i -> "a".equals(((AuditEvent) i.getArgument(0)).getAuditId()));
+    service.flush();
+
+    assertThat(persisted).containsExactly("a", "b");
+    assertThat(buffered()).isEmpty();
+    verify(verificationService, times(1)).processEvent(argThat(e -> "a".equals(e.getAuditId())));
+    verify(verificationService, times(2)).processEvent(argThat(e -> "b".equals(e.getAuditId())));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testThat_partiallyPersistedEventsAreIndexedAndVerified() {
+    service.logEvent(event("a"));
+    service.logEvent(event("b"));
+
+    // the events are stored, but indexing them fails
+    doAnswer(i -> {
+      List<AuditEvent> events = i.getArgument(0);
+      events.forEach(e -> persisted.add(e.getAuditId()));
+      throw new IllegalStateException("index unavailable");
+    }).when(bridge).putAuditEvents(anyList());
+    try {
+      service.flush();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    verify(verificationService, never()).processEvent(any());
+
+    given(bridge.getAuditEvent(anyString())).willAnswer(i -> persisted.contains(i.getArgument(0))
+        ? Optional.of(event(i.getArgument(0)))
+        : Optional.empty());
+    service.flush();
+
+    ArgumentCaptor<List<AuditEvent>> indexed = ArgumentCaptor.forClass(List.class);
+    verify(bridge).indexAuditEvents(indexed.capture());
+    assertThat(indexed.getValue()).extracting(AuditEvent::getAuditId).containsExactly("a", "b");
+    verify(verificationService, times(2)).processEvent(any());
+    verify(bridge, times(1)).putAuditEvents(anyList());
+    assertThat(buffered()).isEmpty();
+  }
+
+  @Test
+  public void testThat_eventsOfFailedFlushAreRetried() {
+    service.logEvent(event("a"));
+    doThrow(new IllegalStateException("storage unavailable")).when(bridge).putAuditEvents(anyList());
+
+    try {
+      service.flush();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    assertThat(buffered()).hasSize(1);
+
+    doAnswer(i -> {
+      List<AuditEvent> events = i.getArgument(0);
+      events.forEach(e -> persisted.add(e.getAuditId()));
+      return null;
+    }).when(bridge).putAuditEvents(anyList());
+    service.flush();
+
+    verify(bridge).getAuditEvent("a");
+    assertThat(persisted).containsExactly("a");
+    assertThat(buffered()).isEmpty();
+  }
+}
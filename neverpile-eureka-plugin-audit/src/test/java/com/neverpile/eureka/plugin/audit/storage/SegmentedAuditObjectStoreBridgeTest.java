@@ -0,0 +1,245 @@
+package com.neverpile.eureka.plugin.audit.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.neverpile.eureka.api.NeverpileException;
+import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.model.ObjectName;
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.service.impl.DefaultAuditIdGenerationStrategy;
+import com.neverpile.eureka.rest.mocks.MockObjectStoreService;
+
+public class SegmentedAuditObjectStoreBridgeTest {
+  private static final String D = "aDocument";
+
+  /**
+   * Rejects the creation of audit logs which already exist and fails the put of a selected object once.
+   */
+  private static class StrictObjectStoreService extends MockObjectStoreService {
+    ObjectName failingPut;
+
+    @Override
+    public void put(final ObjectName objectName, final String version, final InputStream content) {
+      if (objectName.equals(failingPut)) {
+        failingPut = null;
+        throw new ObjectStoreException(objectName, "Simulated failure");
+      }
+      if (objectName.element(0).equals("document") && ObjectStoreService.NEW_VERSION.equals(version)
+          && streams.containsKey(objectName)) {
+        throw new ObjectStoreException(objectName, "Object already exists");
+      }
+      super.put(objectName, version, content);
+    }
+  }
+
+  private final StrictObjectStoreService objectStore = new StrictObjectStoreService();
+
+  private final DefaultAuditIdGenerationStrategy idGenerationStrategy = new DefaultAuditIdGenerationStrategy();
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  private SegmentedAuditObjectStoreBridge bridge;
+
+  @Before
+  public void setUp() {
+    bridge = new SegmentedAuditObjectStoreBridge();
+    ReflectionTestUtils.setField(bridge, "objectStoreService", objectStore);
+    ReflectionTestUtils.setField(bridge, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(bridge, "auditIdGenerationStrategy", idGenerationStrategy);
+    ReflectionTestUtils.setField(bridge, "idGenerationStrategy", idGenerationStrategy);
+    ReflectionTestUtils.setField(bridge, "segmentSize", 10);
+  }
+
+  private AuditEvent event(final long timestamp) {
+    AuditEvent event = new AuditEvent();
+    event.setTimestamp(Instant.ofEpochMilli(timestamp));
+    event.setDocumentId(D);
+    event.setAuditId(idGenerationStrategy.createAuditId(event.getTimestamp(), D));
+    event.setType(AuditEvent.Type.UPDATE);
+    return event;
+  }
+
+  private List<String> ids(final List<AuditEvent> events) {
+    return events.stream().map(AuditEvent::getAuditId).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testThat_eventsAreStoredInBoundedSegments() {
+    List<AuditEvent> events = new ArrayList<>();
+    for (int i = 0; i < 35; i++) {
+      events.add(event(1000L + i));
+      bridge.putAuditEvent(events.get(i));
+    }
+
+    // 4 segments + manifest
+    assertThat(objectStore.streams.keySet().stream().filter(n -> n.element(0).equals("document"))).hasSize(5);
+    assertThat(ids(bridge.getDocumentAuditLog(D))).isEqualTo(ids(events));
+  }
+
+  @Test
+  public void testThat_batchesAreAppendedToSegments() {
+    List<AuditEvent> events = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      events.add(event(1000L + i));
+      bridge.putAuditEvent(events.get(i));
+    }
+
+    List<AuditEvent> batch = new ArrayList<>();
+    for (int i = 3; i < 25; i++) {
+      batch.add(event(1000L + i));
+    }
+    AuditEvent other = event(2000L);
+    other.setDocumentId("anotherDocument");
+    other.setAuditId(idGenerationStrategy.createAuditId(other.getTimestamp(), "anotherDocument"));
+    batch.add(5, other);
+    bridge.putAuditEvents(batch);
+    batch.remove(5);
+    events.addAll(batch);
+
+    // 3 segments + manifest
+    assertThat(objectStore.streams.keySet().stream().filter(n -> n.element(1).equals(D))).hasSize(4);
+    assertThat(ids(bridge.getDocumentAuditLog(D))).isEqualTo(ids(events));
+    assertThat(ids(bridge.getDocumentAuditLog("anotherDocument"))).containsExactly(other.getAuditId());
+    assertThat(bridge.getAuditEvent(events.get(20).getAuditId())).isPresent();
+  }
+
+  @Test
+  public void testThat_pagesCanBeRetrieved() {
+    List<AuditEvent> events = new ArrayList<>();
+    for (int i = 0; i < 35; i++) {
+      events.add(event(1000L + i));
+      bridge.putAuditEvent(events.get(i));
+    }
+
+    assertThat(ids(bridge.getDocumentAuditLog(D, 0, 5))).isEqualTo(ids(events.subList(0, 5)));
+    assertThat(ids(bridge.getDocumentAuditLog(D, 8, 15))).isEqualTo(ids(events.subList(8, 23)));
+    assertThat(ids(bridge.getDocumentAuditLog(D, 30, 100))).isEqualTo(ids(events.subList(30, 35)));
+    assertThat(bridge.getDocumentAuditLog(D, 40, 10)).isEmpty();
+  }
+
+  @Test
+  public void testThat_eventsCanBeFoundById() {
+    List<AuditEvent> events = new ArrayList<>();
+    for (int i = 0; i < 35; i++) {
+      // include some out-of-order timestamps
+      events.add(event(1000L + (i % 10 == 0 ? i - 3 : i)));
+      bridge.putAuditEvent(events.get(i));
+    }
+
+    for (AuditEvent event : events) {
+      assertThat(bridge.getAuditEvent(event.getAuditId()).map(AuditEvent::getAuditId)).contains(event.getAuditId());
+    }
+    assertThat(bridge.getAuditEvent(idGenerationStrategy.createAuditId(Instant.ofEpochMilli(1017L), "other"))).isEmpty();
+    assertThat(bridge.getAuditEvent(idGenerationStrategy.createAuditId(Instant.ofEpochMilli(5000L), D))).isEmpty();
+  }
+
+  @Test
+  public void testThat_eventsOfAllDocumentsCanBeQueriedByTime() {
+    long hour = 60 * 60 * 1000L;
+    List<AuditEvent> events = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      AuditEvent event = event(hour - 10 + i * hour / 4);
+      event.setDocumentId("document-" + (i % 3));
+      event.setAuditId(idGenerationStrategy.createAuditId(event.getTimestamp(), event.getDocumentId()));
+      events.add(event);
+    }
+    // events are appended out of order
+    for (int i = events.size() - 1; i >= 0; i--) {
+      bridge.putAuditEvent(events.get(i));
+    }
+
+    assertThat(ids(bridge.getAuditLog(Instant.EPOCH, Instant.ofEpochMilli(100 * hour)).collect(Collectors.toList())))
+        .isEqualTo(ids(events));
+    assertThat(ids(bridge.getAuditLog(events.get(1).getTimestamp(), events.get(6).getTimestamp()) //
+        .collect(Collectors.toList()))).isEqualTo(ids(events.subList(1, 6)));
+    assertThat(bridge.getAuditLog(Instant.ofEpochMilli(100 * hour), Instant.ofEpochMilli(101 * hour))).isEmpty();
+  }
+
+  @Test
+  public void testThat_failedManifestWriteDoesNotBlockLaterAppends() {
+    List<AuditEvent> events = new ArrayList<>();
+    for (int i = 0; i < 11; i++) {
+      events.add(event(1000L + i));
+    }
+    bridge.putAuditEvents(events.subList(0, 10));
+
+    objectStore.failingPut = ObjectName.of("document", D, "auditLog", "manifest.json");
+    assertThatThrownBy(() -> bridge.putAuditEvent(events.get(10))).isInstanceOf(NeverpileException.class);
+
+    bridge.putAuditEvent(events.get(10));
+
+    assertThat(ids(bridge.getDocumentAuditLog(D))).isEqualTo(ids(events));
+  }
+
+  @Test
+  public void testThat_failedSegmentWriteDoesNotBlockLaterAppends() {
+    List<AuditEvent> events = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      events.add(event(1000L + i));
+    }
+    bridge.putAuditEvents(events.subList(0, 10));
+
+    objectStore.failingPut = ObjectName.of("document", D, "auditLog", "segment-00000001.json");
+    assertThatThrownBy(() -> bridge.putAuditEvent(events.get(10))).isInstanceOf(NeverpileException.class);
+
+    // the segment claimed by the failed append is filled by the next one
+    bridge.putAuditEvents(events.subList(10, 12));
+
+    assertThat(ids(bridge.getDocumentAuditLog(D))).isEqualTo(ids(events));
+    assertThat(bridge.getAuditEvent(events.get(11).getAuditId())).isPresent();
+  }
+
+  @Test
+  public void testThat_failedMigrationKeepsLegacyLog() throws Exception {
+    List<AuditEvent> events = new ArrayList<>();
+    for (int i = 0; i < 15; i++) {
+      events.add(event(1000L + i));
+    }
+    ObjectName legacyName = ObjectName.of("document", D).append("auditLog.json");
+    objectStore.streams.put(legacyName, objectMapper.writeValueAsBytes(events));
+
+    events.add(event(2000L));
+    objectStore.failingPut = ObjectName.of("document", D, "auditLog", "segment-00000001.json");
+    assertThatThrownBy(() -> bridge.putAuditEvent(events.get(15))).isInstanceOf(NeverpileException.class);
+
+    assertThat(ids(bridge.getDocumentAuditLog(D))).isEqualTo(ids(events.subList(0, 15)));
+
+    bridge.putAuditEvent(events.get(15));
+
+    assertThat(objectStore.streams).doesNotContainKey(legacyName);
+    assertThat(ids(bridge.getDocumentAuditLog(D))).isEqualTo(ids(events));
+  }
+
+  @Test
+  public void testThat_legacyLogIsReadAndMigrated() throws Exception {
+    List<AuditEvent> events = new ArrayList<>();
+    for (int i = 0; i < 15; i++) {
+      events.add(event(1000L + i));
+    }
+    ObjectName legacyName = ObjectName.of("document", D).append("auditLog.json");
+    objectStore.streams.put(legacyName, objectMapper.writeValueAsBytes(events));
+
+    assertThat(ids(bridge.getDocumentAuditLog(D))).isEqualTo(ids(events));
+    assertThat(bridge.getAuditEvent(events.get(3).getAuditId())).isPresent();
+
+    events.add(event(2000L));
+    bridge.putAuditEvent(events.get(15));
+
+    assertThat(objectStore.streams).doesNotContainKey(legacyName);
+    assertThat(ids(bridge.getDocumentAuditLog(D))).isEqualTo(ids(events));
+    assertThat(ids(bridge.getDocumentAuditLog(D, 12, 10))).isEqualTo(ids(events.subList(12, 16)));
+  }
+}
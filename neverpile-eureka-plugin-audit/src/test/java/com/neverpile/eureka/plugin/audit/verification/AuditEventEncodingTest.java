@@ -0,0 +1,94 @@
+package com.neverpile.eureka.plugin.audit.verification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+
+public class AuditEventEncodingTest {
+
+  private AuditEvent createEvent() {
+    AuditEvent event = new AuditEvent();
+    event.setAuditId("2020-01-01T00:00:00Z_doc1_1");
+    event.setTimestamp(Instant.ofEpochSecond(1577836800L, 123456789));
+    event.setUserID("user");
+    event.setType(AuditEvent.Type.UPDATE);
+    event.setDescription("Dokument ge\u00e4ndert \u20ac \ud83d\udcc4");
+    event.setRequestPath("/api/v1/documents/doc1");
+    event.setDocumentId("doc1");
+    event.setContentHash(new Byte[]{1, 2, 3});
+    return event;
+  }
+
+  @Test
+  public void testThat_encodingIsStable() {
+    assertArrayEquals(AuditEventEncoding.encode(createEvent()), AuditEventEncoding.encode(createEvent()));
+    assertTrue(AuditHash.of(createEvent()).equals(AuditHash.of(createEvent())));
+  }
+
+  @Test
+  public void testThat_everyFieldIsEncoded() {
+    AuditHash original = AuditHash.of(createEvent());
+
+    AuditEvent event = createEvent();
+    event.setTimestamp(event.getTimestamp().plusNanos(1));
+    assertFalse(original.equals(AuditHash.of(event)));
+
+    event = createEvent();
+    event.setType(AuditEvent.Type.CREATE);
+    assertFalse(original.equals(AuditHash.of(event)));
+
+    event = createEvent();
+    event.setContentHash(new Byte[]{1, 2, 4});
+    assertFalse(original.equals(AuditHash.of(event)));
+
+    // moving characters between adjacent fields must change the encoding
+    event = createEvent();
+    event.setUserID("use");
+    event.setDescription("r" + event.getDescription());
+    assertFalse(original.equals(AuditHash.of(event)));
+  }
+
+  @Test
+  public void testThat_nullFieldsCanBeEncoded() {
+    AuditEvent empty = new AuditEvent();
+    AuditEvent emptyDescription = new AuditEvent();
+    emptyDescription.setDescription("");
+
+    assertFalse(AuditHash.of(empty).equals(AuditHash.of(emptyDescription)));
+    assertTrue(AuditHash.of(empty).equals(AuditHash.of(new AuditEvent())));
+  }
+
+  @Test
+  public void testThat_stringsAreEncodedAsUtf8() {
+    AuditEvent event = new AuditEvent();
+    event.setDescription(createEvent().getDescription());
+
+    byte[] encoded = AuditEventEncoding.encode(event);
+    byte[] expected = event.getDescription().getBytes(StandardCharsets.UTF_8);
+    // version, audit ID, timestamp presence, user ID, type, length of the description
+    int offset = 1 + 4 + 1 + 4 + 4 + 4;
+    assertEquals(expected.length, encoded[offset - 1]);
+    assertArrayEquals(expected, Arrays.copyOfRange(encoded, offset, offset + expected.length));
+  }
+
+  @Test
+  public void testThat_legacyVersionIsRetained() {
+    AuditEvent event = createEvent();
+    assertTrue(new AuditHash(event).equals(AuditHash.of(event, AuditEventEncoding.LEGACY_VERSION)));
+    assertFalse(AuditHash.of(event, AuditEventEncoding.LEGACY_VERSION).equals(AuditHash.of(event)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testThat_unknownVersionIsRejected() {
+    AuditHash.of(createEvent(), 42);
+  }
+}
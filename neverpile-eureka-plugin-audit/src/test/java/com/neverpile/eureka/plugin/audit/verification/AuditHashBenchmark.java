@@ -0,0 +1,74 @@
+package com.neverpile.eureka.plugin.audit.verification;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+
+/**
+ * Compares hashing audit events using the legacy Java serialized form with the canonical
+ * {@link AuditEventEncoding}, and measures combining two hashes. Run using {@link #main(String[])}
+ * from the IDE or the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuditHashBenchmark {
+  @Param({
+      "0", "1"
+  })
+  int encodingVersion;
+
+  private AuditEvent event;
+
+  private AuditHash left;
+
+  private AuditHash right;
+
+  @Setup
+  public void setUp() {
+    event = new AuditEvent();
+    event.setTimestamp(Instant.now());
+    event.setDocumentId("aDocument");
+    event.setAuditId(event.getTimestamp() + "_" + event.getDocumentId() + "_1");
+    event.setUserID("aUser");
+    event.setType(AuditEvent.Type.UPDATE);
+    event.setDescription("Document updated");
+    event.setRequestPath("/api/v1/documents/aDocument");
+
+    left = new AuditHash("left".getBytes());
+    right = new AuditHash("right".getBytes());
+  }
+
+  @Benchmark
+  public AuditHash hashEvent() {
+    return AuditHash.of(event, encodingVersion);
+  }
+
+  @Benchmark
+  public AuditHash combineHashes() {
+    return new AuditHash(left, right);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(AuditHashBenchmark.class.getSimpleName()).build()).run();
+  }
+}
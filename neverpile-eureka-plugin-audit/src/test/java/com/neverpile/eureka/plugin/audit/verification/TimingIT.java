@@ -4,11 +4,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
-import java.security.SignatureException;
-import java.security.spec.InvalidKeySpecException;
+import java.security.GeneralSecurityException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Random;
@@ -27,10 +23,11 @@ public class TimingIT {
 
   @Test
   public void testSignatureOfAuditEvents()
-      throws NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+      throws GeneralSecurityException {
 
     Stack<byte[]> testData = new Stack<>();
     SimpleDigSigGen simpleDigSigGen = new SimpleDigSigGen();
+    simpleDigSigGen.init();
     Random rnd = new Random();
     for (int i = 0; i < 10/*0000*/; i++) {
       testData.push(getRandomAuditEvent(rnd));
@@ -49,12 +46,12 @@ public class TimingIT {
 
   @Test
   public void testVerifySignatureOfAuditEvents()
-      throws NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException,
-      InvalidKeySpecException {
+      throws GeneralSecurityException {
 
     Stack<byte[]> testData = new Stack<>();
     Stack<byte[]> signatures = new Stack<>();
     SimpleDigSigGen simpleDigSigGen = new SimpleDigSigGen();
+    simpleDigSigGen.init();
     SimpleDigSigVer simpleDigSigVer = new SimpleDigSigVer();
     Random rnd = new Random();
     for (int i = 0; i < 10/*0000*/; i++) {
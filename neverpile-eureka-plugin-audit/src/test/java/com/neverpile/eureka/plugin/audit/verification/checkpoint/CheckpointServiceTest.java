@@ -0,0 +1,244 @@
+package com.neverpile.eureka.plugin.audit.verification.checkpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.neverpile.eureka.impl.tx.atomic.LocalAtomicReference;
+import com.neverpile.eureka.impl.tx.lock.LocalLockFactory;
+import com.neverpile.eureka.model.ObjectName;
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.service.AuditLogService;
+import com.neverpile.eureka.plugin.audit.service.impl.DefaultAuditIdGenerationStrategy;
+import com.neverpile.eureka.plugin.audit.storage.AuditObjectStoreBridge;
+import com.neverpile.eureka.plugin.audit.verification.VerificationCheckpoint;
+import com.neverpile.eureka.plugin.audit.verification.merkletree.MerkleTreeService;
+import com.neverpile.eureka.plugin.audit.verification.signature.SimpleDigSigGen;
+import com.neverpile.eureka.plugin.audit.verification.signature.SimpleDigSigVer;
+import com.neverpile.eureka.rest.mocks.MockObjectStoreService;
+
+public class CheckpointServiceTest {
+
+  private final DefaultAuditIdGenerationStrategy idGenerationStrategy = new DefaultAuditIdGenerationStrategy();
+
+  private final Map<String, AuditEvent> events = new HashMap<>();
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  private final MockObjectStoreService objectStore = new MockObjectStoreService();
+
+  private MerkleTreeService merkleTreeService;
+
+  private SimpleDigSigGen digSigGen;
+
+  private CheckpointService service;
+
+  @Before
+  public void setUp() throws Exception {
+    AuditObjectStoreBridge bridge = new AuditObjectStoreBridge();
+    ReflectionTestUtils.setField(bridge, "objectStoreService", objectStore);
+    ReflectionTestUtils.setField(bridge, "objectMapper", objectMapper);
+
+    AuditLogService auditLogService = mock(AuditLogService.class);
+    given(auditLogService.getEvent(anyString())).willAnswer(i -> Optional.ofNullable(events.get(i.getArgument(0))));
+
+    merkleTreeService = new MerkleTreeService();
+    ReflectionTestUtils.setField(merkleTreeService, "auditStorageBridge", bridge);
+    ReflectionTestUtils.setField(merkleTreeService, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(merkleTreeService, "auditLogService", auditLogService);
+    ReflectionTestUtils.setField(merkleTreeService, "idGenerationStrategy", idGenerationStrategy);
+    ReflectionTestUtils.setField(merkleTreeService, "currentBlock", new LocalAtomicReference<>("merkle"));
+    ReflectionTestUtils.setField(merkleTreeService, "lockFactory", new LocalLockFactory());
+    merkleTreeService.init();
+
+    service = new CheckpointService();
+    ReflectionTestUtils.setField(service, "hashStrategyService", merkleTreeService);
+    ReflectionTestUtils.setField(service, "auditStorageBridge", bridge);
+    ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+    digSigGen = new SimpleDigSigGen();
+    digSigGen.init();
+    ReflectionTestUtils.setField(service, "digSigGen", digSigGen);
+    ReflectionTestUtils.setField(service, "digSigVer", new SimpleDigSigVer());
+    ReflectionTestUtils.setField(service, "lockFactory", new LocalLockFactory());
+    service.init();
+  }
+
+  @After
+  public void tearDown() {
+    service.destroy();
+  }
+
+  private List<AuditEvent> batch(long start, int count) {
+    List<AuditEvent> batch = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      AuditEvent event = new AuditEvent();
+      event.setTimestamp(Instant.ofEpochMilli(start + i * 1000L));
+      event.setDocumentId("doc" + (i % 3));
+      event.setAuditId(idGenerationStrategy.createAuditId(event.getTimestamp(), event.getDocumentId()));
+      event.setDescription("event " + i);
+      event.setType(AuditEvent.Type.UPDATE);
+      events.put(event.getAuditId(), event);
+      batch.add(event);
+    }
+    return batch;
+  }
+
+  /**
+   * Add 5 blocks with a checkpoint after every block but the last one.
+   */
+  private List<List<AuditEvent>> addBlocksWithCheckpoints() {
+    List<List<AuditEvent>> batches = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      batches.add(batch(1_000_000_000L + i * 100_000L, 10));
+      merkleTreeService.addElements(batches.get(i));
+      if (i < 4) {
+        service.createCheckpoint();
+      }
+    }
+    return batches;
+  }
+
+  @Test
+  public void testThat_checkpointsAreCreatedForNewHeadsOnly() {
+    service.createCheckpoint();
+    assertTrue(service.getCheckpoints().isEmpty());
+
+    addBlocksWithCheckpoints();
+    service.createCheckpoint();
+    service.createCheckpoint();
+
+    List<VerificationCheckpoint> checkpoints = service.getCheckpoints();
+    assertEquals(5, checkpoints.size());
+    for (int i = 0; i < checkpoints.size(); i++) {
+      assertEquals(i + 1, checkpoints.get(i).getNumber());
+      assertEquals(Long.toString(i + 1), checkpoints.get(i).getPosition());
+    }
+  }
+
+  @Test
+  public void testThat_completeLogCanBeVerifiedAndResumed() {
+    addBlocksWithCheckpoints();
+
+    assertTrue(service.completeVerification(false));
+
+    VerificationProgress progress = service.startVerification(false);
+    awaitFinished(progress);
+    assertEquals(VerificationProgress.Status.SUCCEEDED, progress.getStatus());
+    assertEquals(5, progress.getTotalSegments());
+    assertEquals(5, progress.getVerifiedSegments());
+    assertEquals(4, progress.getLastVerifiedCheckpoint());
+
+    // only the segment after the last checkpoint remains to be verified
+    progress = service.startVerification(true);
+    awaitFinished(progress);
+    assertEquals(VerificationProgress.Status.SUCCEEDED, progress.getStatus());
+    assertEquals(1, progress.getTotalSegments());
+    assertEquals(4, progress.getSkippedSegments());
+  }
+
+  @Test
+  public void testThat_tamperedEventIsDetected() {
+    List<List<AuditEvent>> batches = addBlocksWithCheckpoints();
+    batches.get(2).get(5).setDescription("tampered");
+
+    VerificationProgress progress = service.startVerification(true);
+    awaitFinished(progress);
+    assertEquals(VerificationProgress.Status.FAILED, progress.getStatus());
+    assertEquals(2, progress.getLastVerifiedCheckpoint());
+    assertFalse(service.completeVerification(true));
+  }
+
+  @Test
+  public void testThat_forgedCheckpointIsDetected() throws Exception {
+    addBlocksWithCheckpoints();
+
+    ObjectName name = ObjectName.of("eureka", "verification", "checkpoint", String.format("%016d", 2));
+    VerificationCheckpoint checkpoint = objectMapper.readValue(objectStore.get(name).getInputStream(),
+        VerificationCheckpoint.class);
+    checkpoint.setPosition("1");
+    byte[] forged = objectMapper.writeValueAsBytes(checkpoint);
+    objectStore.put(name, "0", new ByteArrayInputStream(forged), forged.length);
+
+    assertFalse(service.completeVerification(false));
+  }
+
+  @Test
+  public void testThat_checkpointSignedWithForeignKeyIsRejected() throws Exception {
+    addBlocksWithCheckpoints();
+
+    // a forger signs the checkpoint with their own key and embeds that key
+    SimpleDigSigGen forger = new SimpleDigSigGen();
+    forger.init();
+    ObjectName name = ObjectName.of("eureka", "verification", "checkpoint", String.format("%016d", 2));
+    VerificationCheckpoint checkpoint = objectMapper.readValue(objectStore.get(name).getInputStream(),
+        VerificationCheckpoint.class);
+    checkpoint.setPosition("1");
+    checkpoint.setPublicKey(forger.getPubKey());
+    checkpoint.setSignature(forger.signData(checkpoint.getSignedContent()));
+    byte[] forged = objectMapper.writeValueAsBytes(checkpoint);
+    objectStore.put(name, "0", new ByteArrayInputStream(forged), forged.length);
+
+    assertFalse(service.completeVerification(false));
+
+    // claiming the trusted key doesn't help either
+    checkpoint.setPublicKey(digSigGen.getPubKey());
+    forged = objectMapper.writeValueAsBytes(checkpoint);
+    objectStore.put(name, "0", new ByteArrayInputStream(forged), forged.length);
+
+    assertFalse(service.completeVerification(false));
+  }
+
+  @Test
+  public void testThat_checkpointsRemainVerifiableWithConfiguredKeys() throws Exception {
+    KeyPairGenerator keyGen = KeyPairGenerator.getInstance("DSA");
+    keyGen.initialize(1024);
+    KeyPair keyPair = keyGen.generateKeyPair();
+    String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+    String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+
+    SimpleDigSigGen configured = new SimpleDigSigGen();
+    ReflectionTestUtils.setField(configured, "publicKeyEncoded", publicKey);
+    ReflectionTestUtils.setField(configured, "privateKeyEncoded", privateKey);
+    configured.init();
+    ReflectionTestUtils.setField(service, "digSigGen", configured);
+    addBlocksWithCheckpoints();
+
+    // simulate a restart
+    SimpleDigSigGen restarted = new SimpleDigSigGen();
+    ReflectionTestUtils.setField(restarted, "publicKeyEncoded", publicKey);
+    ReflectionTestUtils.setField(restarted, "privateKeyEncoded", privateKey);
+    restarted.init();
+    ReflectionTestUtils.setField(service, "digSigGen", restarted);
+
+    assertTrue(service.completeVerification(false));
+  }
+
+  private void awaitFinished(VerificationProgress progress) {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!progress.isFinished() && System.currentTimeMillis() < deadline) {
+      Thread.yield();
+    }
+    assertTrue(progress.isFinished());
+  }
+}
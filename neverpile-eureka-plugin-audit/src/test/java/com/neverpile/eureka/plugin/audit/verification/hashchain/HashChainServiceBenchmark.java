@@ -0,0 +1,118 @@
+package com.neverpile.eureka.plugin.audit.verification.hashchain;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.impl.tx.lock.LocalLockFactory;
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.service.AuditLogService;
+import com.neverpile.eureka.plugin.audit.storage.AuditObjectStoreBridge;
+import com.neverpile.eureka.rest.mocks.MockObjectStoreService;
+
+/**
+ * Measures appending batches of audit events to the {@link HashChainService} and the complete
+ * verification of a chain of a given length, both against an in-memory object store. Run using
+ * {@link #main(String[])} from the IDE or the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashChainServiceBenchmark {
+  @Param({
+      "1", "100"
+  })
+  int batchSize;
+
+  @Param({
+      "1000"
+  })
+  int chainLength;
+
+  private final Map<String, AuditEvent> events = new HashMap<>();
+
+  private HashChainService service;
+
+  private long sequence;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    AuditObjectStoreBridge bridge = new AuditObjectStoreBridge();
+    ReflectionTestUtils.setField(bridge, "objectStoreService", new MockObjectStoreService());
+    ReflectionTestUtils.setField(bridge, "objectMapper", objectMapper);
+
+    AuditLogService auditLogService = mock(AuditLogService.class);
+    given(auditLogService.getEvent(anyString())).willAnswer(i -> Optional.ofNullable(events.get(i.getArgument(0))));
+
+    events.clear();
+    service = new HashChainService();
+    ReflectionTestUtils.setField(service, "auditStorageBridge", bridge);
+    ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(service, "auditLogService", auditLogService);
+    ReflectionTestUtils.setField(service, "lockFactory", new LocalLockFactory());
+
+    for (int i = 0; i < chainLength; i += batchSize) {
+      service.addElements(nextBatch());
+    }
+    service.combineHeads();
+  }
+
+  private List<AuditEvent> nextBatch() {
+    List<AuditEvent> batch = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      AuditEvent event = new AuditEvent();
+      event.setTimestamp(Instant.ofEpochMilli(sequence));
+      event.setDocumentId("document-" + sequence % 64);
+      event.setAuditId(event.getTimestamp() + "_" + event.getDocumentId() + "_" + sequence++);
+      event.setType(AuditEvent.Type.UPDATE);
+      event.setDescription("Document updated");
+      events.put(event.getAuditId(), event);
+      batch.add(event);
+    }
+    return batch;
+  }
+
+  @Benchmark
+  public void addElements() {
+    service.addElements(nextBatch());
+  }
+
+  @Benchmark
+  public boolean completeVerification() {
+    return service.completeVerification();
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(HashChainServiceBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -1,75 +1,215 @@
 package com.neverpile.eureka.plugin.audit.verification.hashchain;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.junit.runner.RunWith;
-import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.test.context.junit4.SpringRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.impl.tx.lock.LocalLockFactory;
+import com.neverpile.eureka.model.ObjectName;
 import com.neverpile.eureka.plugin.audit.service.AuditEvent;
-import com.neverpile.eureka.plugin.audit.service.AuditIdGenerationStrategy;
+import com.neverpile.eureka.plugin.audit.service.AuditLogService;
 import com.neverpile.eureka.plugin.audit.service.impl.DefaultAuditIdGenerationStrategy;
 import com.neverpile.eureka.plugin.audit.storage.AuditObjectStoreBridge;
-import com.neverpile.eureka.plugin.audit.verification.AbstractHashStrategyServiceTest;
 import com.neverpile.eureka.plugin.audit.verification.AuditHash;
-import com.neverpile.eureka.plugin.audit.verification.HashStrategyService;
-
-@RunWith(SpringRunner.class)
-@SpringBootTest(classes = Config.class)
-public class HashChainServiceTest extends AbstractHashStrategyServiceTest {
-  @Override
-  protected TestProofSet getSomeProof() {
-    HashChainStoreObject proof = new HashChainStoreObject();
-    HashChainStoreObject parent = (HashChainStoreObject) getParentOfSomeProof();
-
-    AuditEvent ae = new AuditEvent();
-    ae.setAuditId("audit1");
-    ae.setTimestamp(Instant.now());
-
-    proof.setAuditId(ae.getAuditId());
-    proof.setParentId(parent.getAuditId());
-    proof.setLinkHash(new AuditHash(parent.getLinkHash(), new AuditHash(ae)));
-
-    TestProofSet testProofSet = new TestProofSet();
-    testProofSet.auditEvent = ae;
-    testProofSet.proof = proof;
-    testProofSet.parentProof = parent;
-
-    return testProofSet;
+import com.neverpile.eureka.plugin.audit.verification.VerificationCheckpoint;
+import com.neverpile.eureka.rest.mocks.MockObjectStoreService;
+
+public class HashChainServiceTest {
+
+  private final DefaultAuditIdGenerationStrategy idGenerationStrategy = new DefaultAuditIdGenerationStrategy();
+
+  private final Map<String, AuditEvent> events = new ConcurrentHashMap<>();
+
+  private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  // appends to different partitions run concurrently
+  private final MockObjectStoreService objectStore = new MockObjectStoreService() {
+    @Override
+    public synchronized void put(final ObjectName objectName, final String version, final InputStream content) {
+      super.put(objectName, version, content);
+    }
+
+    @Override
+    public synchronized StoreObject get(final ObjectName objectName) {
+      return super.get(objectName);
+    }
+  };
+
+  private AuditObjectStoreBridge bridge;
+
+  private HashChainService service;
+
+  @Before
+  public void setUp() {
+    bridge = new AuditObjectStoreBridge();
+    ReflectionTestUtils.setField(bridge, "objectStoreService", objectStore);
+    ReflectionTestUtils.setField(bridge, "objectMapper", objectMapper);
+
+    AuditLogService auditLogService = mock(AuditLogService.class);
+    given(auditLogService.getEvent(anyString())).willAnswer(i -> Optional.ofNullable(events.get(i.getArgument(0))));
+
+    service = new HashChainService();
+    ReflectionTestUtils.setField(service, "auditStorageBridge", bridge);
+    ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(service, "auditLogService", auditLogService);
+    ReflectionTestUtils.setField(service, "lockFactory", new LocalLockFactory());
+    ReflectionTestUtils.setField(service, "partitions", 4);
   }
 
-  protected Object getParentOfSomeProof() {
-    HashChainStoreObject proof = new HashChainStoreObject();
-    proof.setAuditId("audit0");
-    proof.setParentId(null);
-    proof.setLinkHash(new AuditHash("audit0".getBytes(), "audit0".getBytes()));
-    return proof;
+  private List<AuditEvent> batch(String documentPrefix, int count) {
+    List<AuditEvent> batch = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      AuditEvent event = new AuditEvent();
+      event.setTimestamp(Instant.ofEpochMilli(clock.getAndAdd(1000L)));
+      event.setDocumentId(documentPrefix + (i % 7));
+      event.setAuditId(idGenerationStrategy.createAuditId(event.getTimestamp(), event.getDocumentId()));
+      event.setDescription("event " + i);
+      event.setType(AuditEvent.Type.UPDATE);
+      events.put(event.getAuditId(), event);
+      batch.add(event);
+    }
+    return batch;
   }
-}
 
-@Configuration
-class Config {
-  @Bean
-  ObjectMapper getObjectMapper() {
-    return new ObjectMapper();
+  @Test
+  public void testThat_eventsCanBeVerified() {
+    service.addElements(batch("doc", 30));
+    service.combineHeads();
+    service.addElements(batch("doc", 30));
+    service.combineHeads();
+    for (AuditEvent event : batch("doc", 10)) {
+      service.addElement(event);
+    }
+
+    for (AuditEvent event : events.values()) {
+      assertTrue(service.verifyHash(event));
+    }
+    assertTrue(service.completeVerification());
+
+    VerificationCheckpoint head = service.getHead().get();
+    assertEquals("2", head.getPosition());
+    VerificationCheckpoint first = new VerificationCheckpoint("1", readRoot(1).getRootHash());
+    assertTrue(service.verifySegment(null, first));
+    assertTrue(service.verifySegment(first, head));
+    assertTrue(service.verifySegment(null, head));
   }
 
-  @Bean
-  HashStrategyService hashStrategyService() {
-    return new HashChainService();
+  @Test
+  public void testThat_rootIsOnlyCreatedIfPartitionsAdvanced() {
+    service.combineHeads();
+    assertFalse(service.getHead().isPresent());
+
+    service.addElements(batch("doc", 5));
+    service.combineHeads();
+    service.combineHeads();
+    assertEquals("1", service.getHead().get().getPosition());
+  }
+
+  @Test
+  public void testThat_partitionsCanBeAppendedToConcurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      List<AuditEvent> batch = batch("thread" + t + "-doc", 50);
+      futures.add(executor.submit(() -> batch.forEach(service::addElement)));
+      if (t == 4) {
+        futures.add(executor.submit(service::combineHeads));
+      }
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    service.combineHeads();
+
+    for (AuditEvent event : events.values()) {
+      assertTrue(service.verifyHash(event));
+    }
+    assertTrue(service.completeVerification());
   }
 
-  @Bean
-  AuditObjectStoreBridge auditObjectStoreBridge() {
-    return new AuditObjectStoreBridge();
+  @Test
+  public void testThat_tamperedEventIsDetected() {
+    List<AuditEvent> batch = batch("doc", 20);
+    service.addElements(batch);
+    service.combineHeads();
+    service.addElements(batch("doc", 20));
+    service.combineHeads();
+
+    batch.get(7).setDescription("tampered");
+
+    assertFalse(service.verifyHash(batch.get(7)));
+    assertTrue(service.verifyHash(batch.get(8)));
+    assertFalse(service.completeVerification());
+    assertFalse(service.verifySegment(null, new VerificationCheckpoint("1", readRoot(1).getRootHash())));
+    assertTrue(service.verifySegment(new VerificationCheckpoint("1", readRoot(1).getRootHash()),
+        service.getHead().get()));
   }
 
-  @Bean
-  AuditIdGenerationStrategy auditIdGenerationStrategy() {
-    return new DefaultAuditIdGenerationStrategy();
+  @Test
+  public void testThat_tamperedRootIsDetected() throws Exception {
+    service.addElements(batch("doc", 20));
+    service.combineHeads();
+    service.addElements(batch("doc", 20));
+    service.combineHeads();
+
+    HashChainRoot root = readRoot(1);
+    root.getHeads().set(0, root.getHeads().get(1));
+    root.setRootHash(HashChainRoot.computeRootHash(new AuditHash(new byte[0]), root.getHeads()));
+    byte[] forged = objectMapper.writeValueAsBytes(root);
+    objectStore.put(getRootObjectName(1), "0", new ByteArrayInputStream(forged), forged.length);
+
+    assertFalse(service.completeVerification());
   }
 
+  @Test
+  public void testThat_unpartitionedChainIsContinued() throws Exception {
+    ReflectionTestUtils.setField(service, "partitions", 1);
+    service.addElements(batch("doc", 10));
+    // move the head to where it was stored before the chain was partitioned
+    ObjectName partitionHead = ObjectName.of("eureka", "hash_chain", "partition", "0");
+    byte[] head = objectStore.streams.remove(partitionHead);
+    bridge.updateHeadVerificationElement(new ByteArrayInputStream(head), head.length);
+
+    ReflectionTestUtils.setField(service, "partitions", 4);
+    service.addElements(batch("doc", 10));
+    service.combineHeads();
+
+    assertTrue(service.completeVerification());
+  }
+
+  private HashChainRoot readRoot(long number) {
+    try {
+      return objectMapper.readValue(objectStore.get(getRootObjectName(number)).getInputStream(), HashChainRoot.class);
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private ObjectName getRootObjectName(long number) {
+    return ObjectName.of("eureka", "hash_chain", "root", String.format("%016d", number));
+  }
 }
@@ -0,0 +1,137 @@
+package com.neverpile.eureka.plugin.audit.verification.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.neverpile.eureka.impl.tasks.LocalTaskQueue;
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.verification.HashStrategyService;
+
+public class AggregationServiceTest {
+
+  private final List<AuditEvent> aggregated = new ArrayList<>();
+
+  private AggregationService service;
+
+  private HashStrategyService hashStrategyService;
+
+  @Before
+  public void setUp() {
+    hashStrategyService = mock(HashStrategyService.class);
+    doAnswer(i -> aggregated.addAll(i.getArgument(0))).when(hashStrategyService).addElements(anyList());
+
+    service = new AggregationService();
+    service.eventQueue = spy(new LocalTaskQueue<>());
+    service.bucketQueue = new LocalTaskQueue<>();
+    service.legacyQueue = new LocalTaskQueue<>();
+    service.auditStructure = hashStrategyService;
+  }
+
+  private AuditEvent event(String auditId, Instant timestamp) {
+    AuditEvent event = new AuditEvent();
+    event.setAuditId(auditId);
+    event.setTimestamp(timestamp);
+    return event;
+  }
+
+  private List<String> getAggregatedIds() {
+    return aggregated.stream().map(AuditEvent::getAuditId).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testThat_onlyBucketsOlderThanBufferAreAggregated() {
+    Instant now = Instant.now();
+    AuditEvent old2 = event("old2", now.minus(5, ChronoUnit.MINUTES));
+    AuditEvent old1 = event("old1", now.minus(10, ChronoUnit.MINUTES));
+    AuditEvent old3 = event("old3", old2.getTimestamp().plusMillis(1));
+    AuditEvent young = event("young", now);
+    Arrays.asList(old3, young, old1, old2).forEach(service::processEvent);
+
+    service.aggregateEvents();
+
+    // each bucket is aggregated chronologically
+    List<String> auditIds = getAggregatedIds();
+    assertEquals(3, auditIds.size());
+    assertTrue(auditIds.contains("old1"));
+    assertTrue(auditIds.indexOf("old2") < auditIds.indexOf("old3"));
+
+    service.aggregateEvents();
+    assertEquals(3, aggregated.size());
+
+    // the young event is neither claimed nor re-queued while it waits
+    verify(service.eventQueue, times(1)).putInQueue(endsWith("/young"), any());
+    verify(service.eventQueue, times(0)).putAllInQueue(any());
+
+    service.auditTimeBuffer = -service.bucketDuration;
+    service.aggregateEvents();
+    assertEquals(Arrays.asList("young"), getAggregatedIds().subList(3, 4));
+    assertNull(service.eventQueue.getElementToProcess());
+    assertNull(service.bucketQueue.getElementToProcess());
+  }
+
+  @Test
+  public void testThat_failedBucketIsRetried() {
+    AuditEvent event = event("a", Instant.now().minus(5, ChronoUnit.MINUTES));
+    service.processEvent(event);
+
+    doThrow(new IllegalStateException("failed")).when(hashStrategyService).addElements(anyList());
+    try {
+      service.aggregateEvents();
+      fail("exception expected");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    doAnswer(i -> aggregated.addAll(i.getArgument(0))).when(hashStrategyService).addElements(anyList());
+    service.aggregateEvents();
+    assertEquals(Arrays.asList("a"), getAggregatedIds());
+  }
+
+  @Test
+  public void testThat_lateEventReopensBucket() {
+    Instant old = Instant.now().minus(5, ChronoUnit.MINUTES);
+    service.processEvent(event("a", old));
+    service.aggregateEvents();
+
+    service.processEvent(event("b", old));
+    service.aggregateEvents();
+
+    assertEquals(Arrays.asList("a", "b"), getAggregatedIds());
+  }
+
+  @Test
+  public void testThat_legacyEventsAreAggregated() {
+    AuditEvent event = event("a", Instant.now().minus(5, ChronoUnit.MINUTES));
+    service.legacyQueue.putInQueue(event.getAuditId(), event);
+
+    service.aggregateEvents();
+
+    assertEquals(Arrays.asList("a"), getAggregatedIds());
+    assertNull(service.legacyQueue.getElementToProcess());
+    verify(service.eventQueue).putInQueue(startsWith(String.format("%016d/",
+        event.getTimestamp().toEpochMilli() / service.bucketDuration)), any());
+    assertTrue(service.eventQueue.claimBatch(10).isEmpty());
+  }
+}
@@ -0,0 +1,145 @@
+package com.neverpile.eureka.plugin.audit.verification.merkletree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.impl.tx.atomic.LocalAtomicReference;
+import com.neverpile.eureka.impl.tx.lock.LocalLockFactory;
+import com.neverpile.eureka.plugin.audit.service.AuditEvent;
+import com.neverpile.eureka.plugin.audit.service.AuditLogService;
+import com.neverpile.eureka.plugin.audit.service.impl.DefaultAuditIdGenerationStrategy;
+import com.neverpile.eureka.plugin.audit.storage.AuditObjectStoreBridge;
+import com.neverpile.eureka.rest.mocks.MockObjectStoreService;
+
+public class MerkleTreeServiceTest {
+
+  private final DefaultAuditIdGenerationStrategy idGenerationStrategy = new DefaultAuditIdGenerationStrategy();
+
+  private final Map<String, AuditEvent> events = new HashMap<>();
+
+  private MerkleTreeService service;
+
+  @Before
+  public void setUp() {
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    AuditObjectStoreBridge bridge = new AuditObjectStoreBridge();
+    ReflectionTestUtils.setField(bridge, "objectStoreService", new MockObjectStoreService());
+    ReflectionTestUtils.setField(bridge, "objectMapper", objectMapper);
+
+    AuditLogService auditLogService = mock(AuditLogService.class);
+    given(auditLogService.getEvent(anyString())).willAnswer(i -> Optional.ofNullable(events.get(i.getArgument(0))));
+
+    service = new MerkleTreeService();
+    ReflectionTestUtils.setField(service, "auditStorageBridge", bridge);
+    ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(service, "auditLogService", auditLogService);
+    ReflectionTestUtils.setField(service, "idGenerationStrategy", idGenerationStrategy);
+    ReflectionTestUtils.setField(service, "currentBlock", new LocalAtomicReference<>("merkle"));
+    ReflectionTestUtils.setField(service, "lockFactory", new LocalLockFactory());
+    service.init();
+  }
+
+  private List<AuditEvent> batch(long start, int count) {
+    List<AuditEvent> batch = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      AuditEvent event = new AuditEvent();
+      event.setTimestamp(Instant.ofEpochMilli(start + i * 1000L));
+      event.setDocumentId("doc" + (i % 3));
+      event.setAuditId(idGenerationStrategy.createAuditId(event.getTimestamp(), event.getDocumentId()));
+      event.setDescription("event " + i);
+      event.setType(AuditEvent.Type.UPDATE);
+      events.put(event.getAuditId(), event);
+      batch.add(event);
+    }
+    return batch;
+  }
+
+  @Test
+  public void testThat_eventsCanBeVerified() {
+    // spans two block ids
+    List<AuditEvent> batch1 = batch(999_950_000L, 100);
+    List<AuditEvent> batch2 = batch(1_000_100_000L, 25);
+    service.addElements(batch1);
+    service.addElements(batch2);
+
+    for (AuditEvent event : events.values()) {
+      assertTrue(service.verifyHash(event));
+    }
+    assertTrue(service.completeVerification());
+
+    // batch1 has been split into blocks 1 and 2
+    MerkleInclusionProof proof = service.getInclusionProof(batch1.get(70).getAuditId()).get();
+    assertTrue(proof.getBlockNumber() <= 2);
+    assertTrue(proof.getPath().size() <= 6);
+    assertEquals(3, service.getInclusionProof(batch2.get(0).getAuditId()).get().getBlockNumber());
+  }
+
+  @Test
+  public void testThat_concurrentBatchesOfSameBlockIdCanBeVerified() throws Exception {
+    List<List<AuditEvent>> batches = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      batches.add(batch(1_000_000_000L + i * 20_000L, 10));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(batches.size());
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (List<AuditEvent> batch : batches) {
+        results.add(executor.submit(() -> service.addElements(batch)));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    for (AuditEvent event : events.values()) {
+      assertTrue(service.verifyHash(event));
+    }
+    assertEquals(Long.toString(batches.size()), service.getHead().get().getPosition());
+    assertTrue(service.completeVerification());
+  }
+
+  @Test
+  public void testThat_tamperedEventIsDetected() {
+    List<AuditEvent> batch = batch(1_000_000_000L, 20);
+    service.addElements(batch);
+
+    AuditEvent event = batch.get(7);
+    event.setDescription("tampered");
+
+    assertFalse(service.verifyHash(event));
+    assertTrue(service.verifyHash(batch.get(8)));
+    assertFalse(service.completeVerification());
+  }
+
+  @Test
+  public void testThat_unknownEventIsNotVerified() {
+    service.addElements(batch(1_000_000_000L, 5));
+
+    AuditEvent unknown = batch(1_000_000_500L, 1).get(0);
+    assertFalse(service.verifyHash(unknown));
+    assertFalse(service.getInclusionProof(unknown.getAuditId()).isPresent());
+  }
+}
@@ -0,0 +1,58 @@
+package com.neverpile.eureka.plugin.audit.verification.merkletree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.neverpile.eureka.plugin.audit.verification.AuditHash;
+
+public class MerkleTreeTest {
+
+  private List<AuditHash> leaves(int count) {
+    List<AuditHash> leaves = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      leaves.add(new AuditHash(("leaf" + i).getBytes()));
+    }
+    return leaves;
+  }
+
+  @Test
+  public void testThat_everyLeafHasAValidProof() {
+    for (int size = 1; size <= 33; size++) {
+      List<AuditHash> leaves = leaves(size);
+      MerkleTree tree = new MerkleTree(leaves);
+      for (int i = 0; i < size; i++) {
+        assertTrue(MerkleTree.computeRoot(leaves.get(i), tree.getProof(i)).equals(tree.getRoot()));
+      }
+    }
+  }
+
+  @Test
+  public void testThat_proofsAreLogarithmic() {
+    MerkleTree tree = new MerkleTree(leaves(1000));
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(tree.getProof(i).size() <= 10);
+    }
+  }
+
+  @Test
+  public void testThat_singleLeafIsRoot() {
+    List<AuditHash> leaves = leaves(1);
+    MerkleTree tree = new MerkleTree(leaves);
+    assertTrue(leaves.get(0).equals(tree.getRoot()));
+    assertEquals(0, tree.getProof(0).size());
+  }
+
+  @Test
+  public void testThat_proofFailsForOtherLeaf() {
+    List<AuditHash> leaves = leaves(7);
+    MerkleTree tree = new MerkleTree(leaves);
+    assertFalse(MerkleTree.computeRoot(leaves.get(3), tree.getProof(4)).equals(tree.getRoot()));
+    assertFalse(MerkleTree.computeRoot(new AuditHash("other".getBytes()), tree.getProof(4)).equals(tree.getRoot()));
+  }
+}
@@ -1,22 +1,38 @@
 package com.neverpile.eureka.search.elastic;
 
-import java.io.IOException;
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Stream;
+import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.neverpile.eureka.api.DocumentService;
+import com.neverpile.eureka.api.index.IndexMaintenanceException;
 import com.neverpile.eureka.api.index.IndexMaintenanceService;
-import com.neverpile.eureka.api.index.Schema;
+import com.neverpile.eureka.api.index.RebuildStatus;
 import com.neverpile.eureka.event.AggregatedUpdateEvent;
 import com.neverpile.eureka.event.CreateEvent;
 import com.neverpile.eureka.event.DeleteEvent;
@@ -25,9 +41,19 @@ import com.neverpile.eureka.tasks.DistributedPersistentQueueType;
 import com.neverpile.eureka.tasks.TaskQueue;
 import com.neverpile.eureka.tasks.TaskQueue.ProcessElement;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * An {@link IndexMaintenanceService} which decouples index maintenance from document mutations via
+ * a {@link TaskQueue}. The queue is drained in batches: the documents of a batch are resolved in
+ * parallel and submitted to elasticsearch using the bulk API. Failed items are re-enqueued
+ * individually.
+ */
 @Service
 public class AsynchronousIndexMaintenanceService implements IndexMaintenanceService {
-  private enum EventType {
+  enum EventType {
     CREATE, UPDATE, DELETE
   }
 
@@ -42,60 +68,236 @@ public class AsynchronousIndexMaintenanceService implements IndexMaintenanceServ
   @DistributedPersistentQueueType("neverpile-index-maintenance")
   TaskQueue<EventType> indexMaintenanceQueue;
 
+  @Value("${neverpile-eureka.elastic.bulk.max-actions:500}")
+  int bulkMaxActions = 500;
+
+  @Value("${neverpile-eureka.elastic.bulk.max-bytes:5242880}")
+  long bulkMaxBytes = 5 * 1024 * 1024;
+
+  @Value("${neverpile-eureka.elastic.bulk.flush-interval:200}")
+  long bulkFlushIntervalMillis = 200;
+
+  @Value("${neverpile-eureka.elastic.bulk.resolver-threads:8}")
+  int resolverThreads = 8;
+
+  @Value("${neverpile-eureka.elastic.bulk.max-retries:3}")
+  int maxRetries = 3;
+
+  @Value("${neverpile-eureka.elastic.bulk.retry-backoff:1000}")
+  long retryBackoffMillis = 1000;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
   private final AtomicBoolean dbJobActive = new AtomicBoolean(false);
-  private final AtomicBoolean rebuildActive = new AtomicBoolean(false);
+  private final AtomicBoolean dbJobRequested = new AtomicBoolean(false);
+
+  private final Map<String, Integer> retryCounts = new ConcurrentHashMap<>();
+
+  private ExecutorService resolver;
+
+  private Counter processedCounter;
+
+  private Counter retriedCounter;
+
+  private Counter droppedCounter;
+
+  private DistributionSummary batchSizeSummary;
 
   class ElasticQueueUpdateListener implements TaskQueue.QueueListener<EventType> {
     @Override
     public void notifyUpdate() {
+      dbJobRequested.set(true);
       if (!dbJobActive.getAndSet(true)) {
-        getDBJobFromQueue();
+        processQueue();
       }
     }
   }
 
-  private void getDBJobFromQueue() {
-    ProcessElement<EventType> job = indexMaintenanceQueue.getElementToProcess();
-    if (null == job) {
-      dbJobActive.set(false);
-      if (rebuildActive.getAndSet(false)) {
-        finalizeIndexRebuild();
+  /**
+   * Drain the queue in batches until it is empty. Notifications arriving while we're draining are
+   * not lost: they are picked up by re-checking the request flag after having released the active
+   * flag.
+   */
+  private void processQueue() {
+    do {
+      dbJobRequested.set(false);
+      try {
+        List<ProcessElement<EventType>> batch;
+        while (!(batch = claimBatch()).isEmpty()) {
+          processBatchOrRetry(batch);
+        }
+      } catch (Exception e) {
+        LOGGER.error("Index maintenance failed", e);
+      } finally {
+        dbJobActive.set(false);
       }
-      return;
+    } while (dbJobRequested.get() && !dbJobActive.getAndSet(true));
+  }
+
+  /**
+   * Claim up to {@link #bulkMaxActions} jobs. If the queue runs dry before that, wait for further
+   * jobs for at most the flush interval, counted from the first claimed job.
+   *
+   * @return the claimed jobs, empty if the queue is empty
+   */
+  private List<ProcessElement<EventType>> claimBatch() throws InterruptedException {
+    List<ProcessElement<EventType>> batch = new ArrayList<>();
+    long flushAt = 0;
+    while (batch.size() < bulkMaxActions) {
+      List<ProcessElement<EventType>> jobs = indexMaintenanceQueue.claimBatch(bulkMaxActions - batch.size());
+      if (!jobs.isEmpty()) {
+        if (batch.isEmpty())
+          flushAt = System.currentTimeMillis() + bulkFlushIntervalMillis;
+        batch.addAll(jobs);
+        continue;
+      }
+
+      long remaining = flushAt - System.currentTimeMillis();
+      if (batch.isEmpty() || remaining <= 0)
+        break;
+
+      Thread.sleep(Math.min(remaining, 20));
     }
-    if (job.getValue() == EventType.DELETE) {
-      doDeleteDocument(job.getKey());
-      getDBJobFromQueue();
-      return;
+    return batch;
+  }
+
+  /**
+   * Process a batch of claimed jobs. Should processing fail unexpectedly, the jobs of the batch are
+   * re-enqueued (subject to the retry limit), so that they don't remain in process forever. Jobs
+   * which have been completed or re-enqueued already are skipped by {@link #retryOrDrop}.
+   */
+  private void processBatchOrRetry(final List<ProcessElement<EventType>> batch) throws InterruptedException {
+    try {
+      processBatch(batch);
+    } catch (InterruptedException e) {
+      batch.forEach(this::retryOrDrop);
+      throw e;
+    } catch (RuntimeException e) {
+      LOGGER.error("Processing a batch of {} index maintenance jobs failed - retrying later", batch.size(), e);
+      batch.forEach(this::retryOrDrop);
     }
+  }
 
-    Document doc = documentService.getDocument(job.getKey()).orElse(null);
-    if (null == doc) {
-      LOGGER.error("Document Not Found: {}", job.getKey());
-      indexMaintenanceQueue.removeProcessedElement(job.getKey());
-      getDBJobFromQueue();
-      return;
+  private void processBatch(final List<ProcessElement<EventType>> batch) throws InterruptedException {
+    batchSizeSummary.record(batch.size());
+
+    // resolve documents for index/update jobs in parallel
+    Map<ProcessElement<EventType>, Future<Optional<Document>>> resolved = new LinkedHashMap<>();
+    for (ProcessElement<EventType> job : batch) {
+      if (job.getValue() != EventType.DELETE)
+        resolved.put(job, resolver.submit(() -> documentService.getDocument(job.getKey())));
+    }
+
+    Map<String, EventType> submitted = new HashMap<>();
+    List<BulkRequest> bulks = new ArrayList<>();
+    BulkRequest bulk = new BulkRequest();
+    for (ProcessElement<EventType> job : batch) {
+      DocWriteRequest<?> request;
+      if (job.getValue() == EventType.DELETE) {
+        request = index.deleteRequest(job.getKey(), ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
+      } else {
+        Document doc;
+        try {
+          doc = resolved.get(job).get().orElse(null);
+        } catch (ExecutionException e) {
+          LOGGER.error("Can't retrieve document {} for indexing", job.getKey(), e.getCause());
+          retryOrDrop(job);
+          continue;
+        }
+
+        if (null == doc) {
+          LOGGER.error("Document Not Found: {}", job.getKey());
+          indexMaintenanceQueue.removeProcessedElement(job.getKey());
+          continue;
+        }
+
+        request = job.getValue() == EventType.CREATE
+            ? index.indexRequest(doc, ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE)
+            : index.updateRequest(doc, ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
+      }
+
+      if (bulk.numberOfActions() > 0 && bulk.estimatedSizeInBytes() >= bulkMaxBytes) {
+        bulks.add(bulk);
+        bulk = new BulkRequest();
+      }
+      bulk.add(request);
+      submitted.put(job.getKey(), job.getValue());
+    }
+    bulks.add(bulk);
+
+    for (BulkRequest b : bulks) {
+      Set<String> keys = b.requests().stream().map(DocWriteRequest::id).collect(Collectors.toSet());
+
+      Set<String> failed;
+      try {
+        failed = index.executeBulk(b);
+      } catch (IndexMaintenanceException e) {
+        LOGGER.error("Bulk indexing of {} documents failed - retrying later", keys.size(), e);
+        failed = keys;
+
+        // back off, as the index is likely to be unavailable
+        Thread.sleep(retryBackoffMillis);
+      }
+
+      List<String> succeeded = new ArrayList<>();
+      for (String key : keys) {
+        if (failed.contains(key)) {
+          retryOrDrop(new ProcessElement<>(key, submitted.get(key)));
+        } else {
+          retryCounts.remove(key);
+          succeeded.add(key);
+        }
+      }
+      indexMaintenanceQueue.removeProcessedElements(succeeded);
+      processedCounter.increment(succeeded.size());
     }
+  }
 
-    if (job.getValue() == EventType.CREATE) {
-      doIndexDocument(doc);
-      getDBJobFromQueue();
+  /**
+   * Re-enqueue a failed job unless it has failed too often already. A job is only re-enqueued if it
+   * hasn't been superseded by a newer job for the same document in the meantime.
+   *
+   * @param job the failed job
+   */
+  private void retryOrDrop(final ProcessElement<EventType> job) {
+    if (!indexMaintenanceQueue.removeProcessedElement(job.getKey())) {
+      // superseded by a newer job
+      retryCounts.remove(job.getKey());
       return;
     }
-    if (job.getValue() == EventType.UPDATE) {
-      doUpdateDocument(doc);
-      getDBJobFromQueue();
+
+    int attempts = retryCounts.merge(job.getKey(), 1, Integer::sum);
+    if (attempts > maxRetries) {
+      LOGGER.error("Giving up on {} of document {} after {} attempts", job.getValue(), job.getKey(), attempts);
+      retryCounts.remove(job.getKey());
+      droppedCounter.increment();
       return;
     }
+
+    retriedCounter.increment();
+    indexMaintenanceQueue.putInQueue(job.getKey(), job.getValue());
   }
 
   @PostConstruct
   public void init() {
-    ensureIndexUpToDateOrRebuildInProgress();
+    resolver = Executors.newFixedThreadPool(resolverThreads, new CustomizableThreadFactory("index-resolver-"));
+
+    processedCounter = meterRegistry.counter("elastic.index.async.processed");
+    retriedCounter = meterRegistry.counter("elastic.index.async.retried");
+    droppedCounter = meterRegistry.counter("elastic.index.async.dropped");
+    batchSizeSummary = meterRegistry.summary("elastic.index.async.batch-size");
+
+    index.ensureIndexUpToDateOrRebuildInProgress();
 
     indexMaintenanceQueue.registerListener(new ElasticQueueUpdateListener());
   }
 
+  @PreDestroy
+  public void destroy() {
+    resolver.shutdownNow();
+  }
+
   @EventListener
   public void onApplicationEvent(final CreateEvent event) {
     indexMaintenanceQueue.putInQueue(event.getDocument().getDocumentId(), EventType.CREATE);
@@ -126,90 +328,22 @@ public class AsynchronousIndexMaintenanceService implements IndexMaintenanceServ
     indexMaintenanceQueue.putInQueue(documentId, EventType.DELETE);
   }
 
-  private void doIndexDocument(final Document doc) {
-    index.addDocument(doc, ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
-  }
-
-
-  private void doUpdateDocument(final Document doc) {
-    index.updateDocument(doc, ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
-  }
-
-
-  private void doDeleteDocument(final String documentId) {
-    index.deleteDocument(documentId, ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
-  }
-
   @Override
   public void hardResetIndex() {
     index.hardResetIndex();
   }
 
+  /**
+   * Rebuild the index using the {@link ElasticsearchIndexRebuilder}. Updates arriving in the
+   * meantime are written to the index under construction via the write alias.
+   */
   @Override
   public void rebuildIndex() {
-    LOGGER.info("Index rebuild started.");
-    rebuildActive.set(true);
-    try {
-      String inProgressIndexName = index.createIndex();
-      index.setAliasForIndex(inProgressIndexName, ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
-
-      LOGGER.info("New index created.");
-
-      Stream<String> stream = documentService.getAllDocumentIds();
-      long enqueuedElements = stream.filter(Objects::nonNull).peek(
-          documentId -> indexMaintenanceQueue.putInQueue(documentId, EventType.CREATE)).count();
-      LOGGER.info("Index rebuild enqueued {} Elements.", enqueuedElements);
-
-      if (enqueuedElements < 1) {
-        rebuildActive.set(false);
-        finalizeIndexRebuild();
-      }
-
-    } catch (Exception e) {
-      LOGGER.error("Failed to (re)bulild index.", e);
-    }
-  }
-
-  private void finalizeIndexRebuild() {
-    try {
-      String obsoleteIndexName = index.getIndexNameFromAlias(ElasticsearchDocumentIndex.INDEX_ALIAS_READ);
-      String newIndexName = index.getIndexNameFromAlias(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
-
-      // switch active index
-      index.setAliasForIndex(newIndexName, ElasticsearchDocumentIndex.INDEX_ALIAS_READ);
-
-      // delete old one
-      if (null != obsoleteIndexName) {
-        index.deleteIndex(obsoleteIndexName);
-      }
-    } catch (IOException e) {
-      LOGGER.error("Error while finalizing index rebuild!");
-    }
+    index.rebuildIndex();
   }
 
-  private void ensureIndexUpToDateOrRebuildInProgress() {
-    try {
-      Schema schema = index.createIndexSchema();
-      JsonNode expectedMapping = index.schemaToMapping(schema);
-
-      JsonNode currentReadMapping = index.getCurrentMapping(ElasticsearchDocumentIndex.INDEX_ALIAS_READ);
-
-      if (expectedMapping.equals(currentReadMapping)) {
-        LOGGER.info("Current schema mapping is up to date");
-        return;
-      }
-
-      JsonNode currentWriteMapping = index.getCurrentMapping(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
-
-      if (expectedMapping.equals(currentWriteMapping)) {
-        LOGGER.info("Current schema mapping is outdated, but rebuild seems to be in progress");
-        return;
-      }
-    } catch (IOException e) {
-      LOGGER.info("Index not found, creating new index...");
-    }
-
-    // needs rebuild
-    rebuildIndex();
+  @Override
+  public RebuildStatus getRebuildStatus() {
+    return index.getRebuildStatus();
   }
 }
\ No newline at end of file
@@ -5,24 +5,27 @@ import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
 
 import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
 import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.update.UpdateRequest;
@@ -35,6 +38,7 @@ import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.crypto.codec.Hex;
@@ -52,6 +56,7 @@ import com.neverpile.eureka.api.index.Array;
 import com.neverpile.eureka.api.index.Field;
 import com.neverpile.eureka.api.index.Field.Type;
 import com.neverpile.eureka.api.index.IndexMaintenanceException;
+import com.neverpile.eureka.api.index.RebuildStatus;
 import com.neverpile.eureka.api.index.Schema;
 import com.neverpile.eureka.api.index.Structure;
 import com.neverpile.eureka.model.Document;
@@ -59,6 +64,7 @@ import com.neverpile.eureka.rest.api.document.DocumentFacet;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class ElasticsearchDocumentIndex {
@@ -87,28 +93,29 @@ public class ElasticsearchDocumentIndex {
   @Autowired
   private MeterRegistry meterRegistry;
 
-  private final AtomicBoolean rebuildActive = new AtomicBoolean(false);
+  @Autowired
+  private ObjectProvider<ElasticsearchIndexRebuilder> rebuilder;
 
   private Counter indexSuccessCounter;
 
   private Counter indexFailureCounter;
 
+  private Timer bulkTimer;
+
   private Structure indexSchema;
 
   @PostConstruct
   public void init() {
     indexSuccessCounter = meterRegistry.counter("elastic.index.success");
     indexFailureCounter = meterRegistry.counter("elastic.index.failure");
+    bulkTimer = meterRegistry.timer("elastic.index.bulk");
 
     indexSchema = createIndexSchema();
   }
 
   public void addDocument(final Document doc, final String indexName) {
-    IndexRequest indexRequest = new IndexRequest(indexName);
-    indexRequest.id(doc.getDocumentId());
-    indexRequest.source(getFacetIndexData(doc), XContentType.JSON);
     try {
-      client.index(indexRequest, RequestOptions.DEFAULT);
+      client.index(indexRequest(doc, indexName), RequestOptions.DEFAULT);
       indexSuccessCounter.increment();
     } catch (Exception e) {
       indexFailureCounter.increment();
@@ -117,10 +124,8 @@ public class ElasticsearchDocumentIndex {
   }
 
   public void updateDocument(final Document doc, final String indexName) {
-    UpdateRequest updateRequest = new UpdateRequest(indexName, doc.getDocumentId());
-    updateRequest.doc(getFacetIndexData(doc));
     try {
-      client.update(updateRequest, RequestOptions.DEFAULT);
+      client.update(updateRequest(doc, indexName), RequestOptions.DEFAULT);
       indexSuccessCounter.increment();
     } catch (Exception e) {
       indexFailureCounter.increment();
@@ -129,15 +134,69 @@ public class ElasticsearchDocumentIndex {
   }
 
   public void deleteDocument(final String documentId, final String indexName) {
-    DeleteRequest deleteRequest = new DeleteRequest(indexName, documentId);
     try {
-      client.delete(deleteRequest, RequestOptions.DEFAULT);
+      client.delete(deleteRequest(documentId, indexName), RequestOptions.DEFAULT);
       indexSuccessCounter.increment();
     } catch (Exception e) {
       indexFailureCounter.increment();
     }
   }
 
+  IndexRequest indexRequest(final Document doc, final String indexName) {
+    IndexRequest indexRequest = new IndexRequest(indexName);
+    indexRequest.id(doc.getDocumentId());
+    indexRequest.source(getFacetIndexData(doc), XContentType.JSON);
+    return indexRequest;
+  }
+
+  UpdateRequest updateRequest(final Document doc, final String indexName) {
+    UpdateRequest updateRequest = new UpdateRequest(indexName, doc.getDocumentId());
+    updateRequest.doc(getFacetIndexData(doc));
+    return updateRequest;
+  }
+
+  DeleteRequest deleteRequest(final String documentId, final String indexName) {
+    return new DeleteRequest(indexName, documentId);
+  }
+
+  /**
+   * Submit the given bulk request in a single round-trip.
+   *
+   * @param bulk the bulk request
+   * @return the ids of the documents for which the operation failed
+   * @throws IndexMaintenanceException if the bulk request failed as a whole
+   */
+  public Set<String> executeBulk(final BulkRequest bulk) {
+    if (bulk.numberOfActions() == 0)
+      return Collections.emptySet();
+
+    BulkResponse response;
+    long start = System.nanoTime();
+    try {
+      response = client.bulk(bulk, RequestOptions.DEFAULT);
+    } catch (Exception e) {
+      indexFailureCounter.increment(bulk.numberOfActions());
+      throw new IndexMaintenanceException("Bulk indexing failed", e);
+    } finally {
+      bulkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    Set<String> failed = new HashSet<>();
+    if (response.hasFailures()) {
+      for (BulkItemResponse item : response.getItems()) {
+        if (item.isFailed()) {
+          LOGGER.warn("Indexing of document {} failed: {}", item.getId(), item.getFailureMessage());
+          failed.add(item.getId());
+        }
+      }
+    }
+
+    indexSuccessCounter.increment(bulk.numberOfActions() - failed.size());
+    indexFailureCounter.increment(failed.size());
+
+    return failed;
+  }
+
   @Async
   public void hardResetIndex() {
     DeleteIndexRequest request = null;
@@ -154,66 +213,22 @@ public class ElasticsearchDocumentIndex {
 
   @Async
   public void rebuildIndex() {
-    LOGGER.info("Index rebuild started.");
-    rebuildActive.set(true);
-
     try {
-      String obsoleteIndexName = getIndexNameFromAlias(INDEX_ALIAS_READ);
-
-      String inProgressIndexName = createIndex();
-      setAliasForIndex(inProgressIndexName, INDEX_ALIAS_WRITE);
-
-      try {
-        LOGGER.info("Starting index rebuild");
-
-        AtomicInteger indexedDocuments = new AtomicInteger();
-        AtomicLong lastLogMessage = new AtomicLong(System.currentTimeMillis());
-        Stream<String> stream = documentService.getAllDocumentIds();
-        long indexed = stream //
-            .map(d -> documentService.getDocument(d).orElse(null)) //
-            .filter(Objects::nonNull) //
-            .peek(d -> {
-              addDocument(d, inProgressIndexName);
-              indexedDocuments.incrementAndGet();
-
-              long last = lastLogMessage.get();
-              if (last < System.currentTimeMillis() - 10000
-                  && lastLogMessage.compareAndSet(last, System.currentTimeMillis())) {
-                LOGGER.info("Indexed {} documents", indexedDocuments);
-              }
-            }).count();
-        LOGGER.info("Index rebuild completed with {} elements.", indexed);
-
-        // switch active index
-        setAliasForIndex(inProgressIndexName, INDEX_ALIAS_READ);
-
-        // delete old one
-        if (null != obsoleteIndexName) {
-          deleteIndex(obsoleteIndexName);
-        }
-        LOGGER.info("Index rebuild finished");
-      } catch (Exception e) {
-        LOGGER.error("Index rebuild failed", e);
-
-        try {
-          // switch active index
-          if (null != obsoleteIndexName) {
-            setAliasForIndex(obsoleteIndexName, INDEX_ALIAS_WRITE);
-          }
-
-          // delete the one we tried to create
-          deleteIndex(inProgressIndexName);
-        } catch (IOException f) {
-          LOGGER.error("Also, failed to cleanup after rebuild failure", e);
-        }
-
-        throw new IndexMaintenanceException("Index rebuild failed", e);
-      }
+      rebuilder.getObject().rebuild();
     } catch (Exception e) {
       LOGGER.error("Failed to (re)bulild index", e);
     }
   }
 
+  /**
+   * Return the progress of the current or most recent index rebuild.
+   *
+   * @return the rebuild status
+   */
+  public RebuildStatus getRebuildStatus() {
+    return rebuilder.getObject().getStatus();
+  }
+
   String createIndex() throws IOException {
     Structure schema = createIndexSchema();
     schema.setName(ROOT_NAME);
@@ -361,8 +376,12 @@ public class ElasticsearchDocumentIndex {
       }
 
       if (verifyMapping(expectedHash, INDEX_ALIAS_WRITE, true)) {
-        LOGGER.info("Current schema mapping is outdated, but rebuild seems to be in progress");
-        return;
+        if (!rebuilder.getObject().hasAbandonedRebuild()) {
+          LOGGER.info("Current schema mapping is outdated, but rebuild seems to be in progress");
+          return;
+        }
+
+        LOGGER.info("Current schema mapping is outdated and an abandoned rebuild was found - resuming it");
       }
     } catch (IOException e) {
       LOGGER.info("Index not found, creating new index...");
@@ -372,6 +391,18 @@ public class ElasticsearchDocumentIndex {
     rebuildIndex();
   }
 
+  /**
+   * Return whether the given index was created using the current schema mapping.
+   *
+   * @param indexName the name of the index
+   * @return <code>true</code> if the index matches the current schema
+   */
+  boolean matchesCurrentSchema(final String indexName) throws IOException {
+    Matcher m = INDEX_NAME_PATTERN.matcher(indexName);
+    return m.matches() && SCHEMA_MAPPING_VERSION.equals(m.group(1))
+        && schemaHash(schemaToMapping(createIndexSchema())).equals(m.group(2));
+  }
+
   private boolean verifyMapping(final String expectedHash, final String aliasName, final boolean logInfo)
       throws IOException {
     // retrieve index alias by name
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 
 import com.neverpile.common.opentracing.TraceInvocation;
 import com.neverpile.eureka.api.index.IndexMaintenanceService;
+import com.neverpile.eureka.api.index.RebuildStatus;
 import com.neverpile.eureka.model.Document;
 
 @Service
@@ -48,4 +49,9 @@ public class ElasticsearchIndexMaintenanceService implements IndexMaintenanceSer
     index.rebuildIndex();
   }
 
+  @Override
+  public RebuildStatus getRebuildStatus() {
+    return index.getRebuildStatus();
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,724 @@
+package com.neverpile.eureka.search.elastic;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.api.DocumentService;
+import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.api.ObjectStoreService.StoreObject;
+import com.neverpile.eureka.api.index.IndexMaintenanceException;
+import com.neverpile.eureka.api.index.RebuildStatus;
+import com.neverpile.eureka.api.index.RebuildStatus.State;
+import com.neverpile.eureka.model.Document;
+import com.neverpile.eureka.model.ObjectName;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Rebuilds the document index from the documents held by the {@link DocumentService}.
+ * <p>
+ * The document ids are read in listing order and cut into batches which are resolved and written
+ * using bulk requests by a bounded pool of workers. The throughput can be limited in documents
+ * and/or bytes per second.
+ * <p>
+ * Progress is recorded as the position in the id listing up to which all batches have been
+ * written. It is periodically persisted as a checkpoint in the {@link ObjectStoreService}, so that
+ * a rebuild which was interrupted (e.g. by a restart) can be resumed from there. Documents between
+ * the checkpoint and the point of interruption are simply indexed again. The total number of
+ * documents is taken from the id listing once it has been traversed completely, as counting them
+ * up front would require listing them twice.
+ * <p>
+ * If a rebuild fails, the write alias is pointed back at the index the read alias points to, so
+ * that ongoing updates aren't lost to readers. The checkpoint is kept, but as the partially built
+ * index no longer receives updates, it can only be resumed as long as there was no earlier index
+ * to fall back to. Otherwise the next rebuild discards the partially built index and starts over.
+ */
+@Service
+public class ElasticsearchIndexRebuilder {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchIndexRebuilder.class);
+
+  static final ObjectName CHECKPOINT_NAME = ObjectName.of("index", "elastic", "rebuild-checkpoint");
+
+  /**
+   * The persistent state of a rebuild.
+   */
+  static class Checkpoint {
+    private String indexName;
+
+    private long position;
+
+    private String lastDocumentId;
+
+    private long processed;
+
+    private long failed;
+
+    private long total = -1;
+
+    private long startedAt;
+
+    private long updatedAt;
+
+    public String getIndexName() {
+      return indexName;
+    }
+
+    public void setIndexName(final String indexName) {
+      this.indexName = indexName;
+    }
+
+    public long getPosition() {
+      return position;
+    }
+
+    public void setPosition(final long position) {
+      this.position = position;
+    }
+
+    public String getLastDocumentId() {
+      return lastDocumentId;
+    }
+
+    public void setLastDocumentId(final String lastDocumentId) {
+      this.lastDocumentId = lastDocumentId;
+    }
+
+    public long getProcessed() {
+      return processed;
+    }
+
+    public void setProcessed(final long processed) {
+      this.processed = processed;
+    }
+
+    public long getFailed() {
+      return failed;
+    }
+
+    public void setFailed(final long failed) {
+      this.failed = failed;
+    }
+
+    public long getTotal() {
+      return total;
+    }
+
+    public void setTotal(final long total) {
+      this.total = total;
+    }
+
+    public long getStartedAt() {
+      return startedAt;
+    }
+
+    public void setStartedAt(final long startedAt) {
+      this.startedAt = startedAt;
+    }
+
+    public long getUpdatedAt() {
+      return updatedAt;
+    }
+
+    public void setUpdatedAt(final long updatedAt) {
+      this.updatedAt = updatedAt;
+    }
+  }
+
+  /**
+   * A simple rate limiter for documents and bytes per second. A rate &lt;= 0 disables the
+   * respective limit.
+   */
+  static class Throttle {
+    private final double documentsPerSecond;
+
+    private final double bytesPerSecond;
+
+    private long nextFreeNanos = System.nanoTime();
+
+    Throttle(final double documentsPerSecond, final double bytesPerSecond) {
+      this.documentsPerSecond = documentsPerSecond;
+      this.bytesPerSecond = bytesPerSecond;
+    }
+
+    void acquire(final int documents, final long bytes) throws InterruptedException {
+      double seconds = Math.max( //
+          documentsPerSecond > 0 ? documents / documentsPerSecond : 0, //
+          bytesPerSecond > 0 ? bytes / bytesPerSecond : 0);
+      if (seconds <= 0)
+        return;
+
+      long waitNanos;
+      synchronized (this) {
+        long now = System.nanoTime();
+        long start = Math.max(now, nextFreeNanos);
+        nextFreeNanos = start + (long) (seconds * 1e9);
+        waitNanos = start - now;
+      }
+
+      if (waitNanos > 0)
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  /**
+   * A contiguous range of the id listing processed as one bulk request.
+   */
+  static class Batch {
+    final List<String> ids;
+
+    final long end;
+
+    int failed;
+
+    boolean done;
+
+    Batch(final List<String> ids, final long end) {
+      this.ids = ids;
+      this.end = end;
+    }
+  }
+
+  /**
+   * The state of a rebuild running in this instance.
+   */
+  static class Run {
+    final Checkpoint checkpoint;
+
+    final long resumedAt;
+
+    final long startNanos = System.nanoTime();
+
+    final Instant startedAt = Instant.now();
+
+    final LongAdder processed = new LongAdder();
+
+    final LongAdder failed = new LongAdder();
+
+    final ArrayDeque<Batch> inFlight = new ArrayDeque<>();
+
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    volatile long processedBefore;
+
+    volatile long failedBefore;
+
+    volatile long total;
+
+    volatile State state = State.RUNNING;
+
+    volatile Instant finishedAt;
+
+    Run(final Checkpoint checkpoint) {
+      this.checkpoint = checkpoint;
+      this.resumedAt = checkpoint.getPosition();
+      this.processedBefore = checkpoint.getProcessed();
+      this.failedBefore = checkpoint.getFailed();
+      this.total = checkpoint.getTotal();
+    }
+
+    void submitted(final Batch batch) {
+      synchronized (inFlight) {
+        inFlight.add(batch);
+      }
+    }
+
+    /**
+     * Mark the given batch as done and advance the checkpoint across all leading batches which are
+     * done. Batches completing out of order are thus only accounted for in the checkpoint once all
+     * batches before them are done, too.
+     */
+    void completed(final Batch batch, final int failedDocuments) {
+      processed.add(batch.ids.size() - failedDocuments);
+      failed.add(failedDocuments);
+
+      synchronized (inFlight) {
+        batch.failed = failedDocuments;
+        batch.done = true;
+        while (!inFlight.isEmpty() && inFlight.peek().done) {
+          Batch b = inFlight.poll();
+          checkpoint.setPosition(b.end);
+          checkpoint.setLastDocumentId(b.ids.get(b.ids.size() - 1));
+          checkpoint.setProcessed(checkpoint.getProcessed() + b.ids.size() - b.failed);
+          checkpoint.setFailed(checkpoint.getFailed() + b.failed);
+        }
+      }
+    }
+
+    /**
+     * Forget all progress, because the id listing has to be traversed from the start.
+     */
+    void reset() {
+      synchronized (inFlight) {
+        checkpoint.setPosition(0);
+        checkpoint.setLastDocumentId(null);
+        checkpoint.setProcessed(0);
+        checkpoint.setFailed(0);
+        processedBefore = 0;
+        failedBefore = 0;
+      }
+    }
+
+    Checkpoint snapshot() {
+      synchronized (inFlight) {
+        checkpoint.setTotal(total);
+        checkpoint.setUpdatedAt(System.currentTimeMillis());
+        return checkpoint;
+      }
+    }
+
+    RebuildStatus status() {
+      RebuildStatus s = new RebuildStatus();
+      s.setState(state);
+      s.setIndexName(checkpoint.getIndexName());
+      s.setStartedAt(startedAt);
+      s.setFinishedAt(finishedAt);
+      s.setTotalDocuments(total);
+      s.setResumedAt(resumedAt);
+
+      long processedInThisRun = processed.sum();
+      long failedInThisRun = failed.sum();
+      s.setProcessedDocuments(processedBefore + processedInThisRun);
+      s.setFailedDocuments(failedBefore + failedInThisRun);
+
+      double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+      double rate = elapsedSeconds > 0 ? (processedInThisRun + failedInThisRun) / elapsedSeconds : 0;
+      s.setDocumentsPerSecond(rate);
+
+      if (state == State.RUNNING && total >= 0 && rate > 0) {
+        long remaining = Math.max(0,
+            total - processedBefore - failedBefore - processedInThisRun - failedInThisRun);
+        s.setEstimatedCompletion(Instant.now().plusMillis((long) (remaining / rate * 1000)));
+      }
+
+      return s;
+    }
+  }
+
+  @Value("${neverpile-eureka.elastic.rebuild.workers:4}")
+  int workers = 4;
+
+  @Value("${neverpile-eureka.elastic.rebuild.batch-size:500}")
+  int batchSize = 500;
+
+  @Value("${neverpile-eureka.elastic.rebuild.max-documents-per-second:0}")
+  double maxDocumentsPerSecond = 0;
+
+  @Value("${neverpile-eureka.elastic.rebuild.max-bytes-per-second:0}")
+  double maxBytesPerSecond = 0;
+
+  @Value("${neverpile-eureka.elastic.rebuild.checkpoint-interval:10000}")
+  long checkpointIntervalMillis = 10000;
+
+  @Value("${neverpile-eureka.elastic.rebuild.max-retries:3}")
+  int maxRetries = 3;
+
+  @Value("${neverpile-eureka.elastic.rebuild.retry-backoff:1000}")
+  long retryBackoffMillis = 1000;
+
+  @Autowired
+  private ElasticsearchDocumentIndex index;
+
+  @Autowired
+  private DocumentService documentService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired(required = false)
+  private ObjectStoreService objectStore;
+
+  @Autowired(required = false)
+  private TransactionTemplate transactionTemplate;
+
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  private volatile Run current;
+
+  /**
+   * Rebuild the index, resuming an earlier rebuild if there is a checkpoint for the index the
+   * write alias currently points to. A partially built index left behind by an earlier rebuild
+   * which can't be resumed is deleted. If a rebuild is already running in this instance, the call
+   * is ignored.
+   *
+   * @throws IndexMaintenanceException if the rebuild fails
+   */
+  public void rebuild() {
+    if (!running.compareAndSet(false, true)) {
+      LOGGER.warn("Index rebuild already in progress - ignoring request");
+      return;
+    }
+
+    try {
+      Checkpoint checkpoint = loadCheckpoint();
+      if (null != checkpoint && !isResumable(checkpoint)) {
+        deleteStaleIndex(checkpoint.getIndexName());
+        checkpoint = null;
+      }
+
+      if (null == checkpoint) {
+        checkpoint = new Checkpoint();
+        checkpoint.setStartedAt(System.currentTimeMillis());
+        checkpoint.setIndexName(index.createIndex());
+        index.setAliasForIndex(checkpoint.getIndexName(), ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
+        saveCheckpoint(checkpoint);
+
+        LOGGER.info("Index rebuild started into {}", checkpoint.getIndexName());
+      } else {
+        LOGGER.info("Index rebuild into {} resumed at position {} ({} documents already indexed)",
+            checkpoint.getIndexName(), checkpoint.getPosition(), checkpoint.getProcessed());
+      }
+
+      Run run = new Run(checkpoint);
+      current = run;
+
+      try {
+        build(run);
+
+        String obsoleteIndexName = index.getIndexNameFromAlias(ElasticsearchDocumentIndex.INDEX_ALIAS_READ);
+
+        // switch active index
+        index.setAliasForIndex(checkpoint.getIndexName(), ElasticsearchDocumentIndex.INDEX_ALIAS_READ);
+
+        // delete old one
+        if (null != obsoleteIndexName && !obsoleteIndexName.equals(checkpoint.getIndexName())) {
+          index.deleteIndex(obsoleteIndexName);
+        }
+
+        deleteCheckpoint();
+
+        run.snapshot();
+        run.finishedAt = Instant.now();
+        run.state = State.COMPLETED;
+        LOGGER.info("Index rebuild completed with {} documents indexed, {} failed", checkpoint.getProcessed(),
+            checkpoint.getFailed());
+      } catch (Exception e) {
+        // keep the index and the checkpoint around so that the rebuild can be resumed
+        saveCheckpoint(run.snapshot());
+        restoreWriteAlias(checkpoint.getIndexName());
+        run.finishedAt = Instant.now();
+        run.state = State.FAILED;
+        throw e;
+      }
+    } catch (IndexMaintenanceException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IndexMaintenanceException("Index rebuild failed", e);
+    } finally {
+      running.set(false);
+    }
+  }
+
+  /**
+   * Return whether a rebuild was started but neither completed nor touched by anybody within a few
+   * checkpoint intervals, i.e. whether it has been abandoned and should be resumed.
+   *
+   * @return <code>true</code> if there is an abandoned rebuild
+   */
+  public boolean hasAbandonedRebuild() {
+    if (running.get())
+      return false;
+
+    Checkpoint checkpoint = resumableCheckpoint();
+    return null != checkpoint && checkpoint.getUpdatedAt() < System.currentTimeMillis() - 3 * checkpointIntervalMillis;
+  }
+
+  /**
+   * Return the progress of the current or most recent rebuild run by this instance.
+   *
+   * @return the rebuild status
+   */
+  public RebuildStatus getStatus() {
+    Run run = current;
+    return null != run ? run.status() : new RebuildStatus();
+  }
+
+  private void build(final Run run) throws Exception {
+    Counter documentsCounter = meterRegistry.counter("elastic.index.rebuild.documents");
+    Counter failedCounter = meterRegistry.counter("elastic.index.rebuild.failed");
+    Throttle throttle = new Throttle(maxDocumentsPerSecond, maxBytesPerSecond);
+    String indexName = run.checkpoint.getIndexName();
+
+    // allow one queued batch per worker, so that the listing doesn't run away from the workers
+    Semaphore permits = new Semaphore(2 * workers);
+    ExecutorService pool = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("index-rebuild-"));
+    try {
+      long skip = run.resumedAt;
+      while (!submitBatches(run, skip, pool, permits, batch -> {
+        int failed = processBatch(batch, indexName, throttle);
+        // documents which vanished in the meantime count as processed
+        documentsCounter.increment(batch.ids.size() - failed);
+        failedCounter.increment(failed);
+        run.completed(batch, failed);
+      })) {
+        // the listing changed in a way that makes the checkpoint unreliable
+        LOGGER.warn("Can't resume index rebuild at position {} - re-indexing all documents", skip);
+        skip = 0;
+        run.reset();
+      }
+    } finally {
+      pool.shutdown();
+      pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    if (null != run.failure.get())
+      throw run.failure.get();
+  }
+
+  @FunctionalInterface
+  private interface BatchProcessor {
+    void process(Batch batch) throws Exception;
+  }
+
+  /**
+   * Cut the id listing into batches and submit them to the pool, skipping the given number of
+   * leading ids. Once the listing has been traversed completely, its length is recorded as the
+   * total number of documents.
+   *
+   * @return <code>false</code> if the id at the skip position doesn't match the checkpoint, in
+   *         which case nothing has been submitted
+   */
+  private boolean submitBatches(final Run run, final long skip, final ExecutorService pool, final Semaphore permits,
+      final BatchProcessor processor) throws InterruptedException {
+    try (Stream<String> ids = documentIds()) {
+      Iterator<String> i = ids.iterator();
+
+      long position = 0;
+      long lastCheckpoint = System.currentTimeMillis();
+      List<String> batchIds = new ArrayList<>(batchSize);
+      while (i.hasNext() && null == run.failure.get()) {
+        String id = i.next();
+        position++;
+
+        if (position <= skip) {
+          if (position == skip && !id.equals(run.checkpoint.getLastDocumentId()))
+            return false;
+          continue;
+        }
+
+        batchIds.add(id);
+        if (batchIds.size() >= batchSize || !i.hasNext()) {
+          Batch batch = new Batch(batchIds, position);
+          batchIds = new ArrayList<>(batchSize);
+
+          permits.acquire();
+          run.submitted(batch);
+          pool.execute(() -> {
+            try {
+              if (null == run.failure.get())
+                processor.process(batch);
+            } catch (Exception e) {
+              run.failure.compareAndSet(null, e);
+            } finally {
+              permits.release();
+            }
+          });
+
+          if (lastCheckpoint < System.currentTimeMillis() - checkpointIntervalMillis) {
+            saveCheckpoint(run.snapshot());
+            lastCheckpoint = System.currentTimeMillis();
+          }
+        }
+      }
+
+      if (position < skip)
+        return false;
+
+      if (!i.hasNext())
+        run.total = position;
+
+      return true;
+    }
+  }
+
+  /**
+   * Resolve and index the documents of the given batch.
+   *
+   * @return the number of documents which could not be indexed
+   */
+  private int processBatch(final Batch batch, final String indexName, final Throttle throttle)
+      throws InterruptedException {
+    List<Document> documents = documentService.getDocuments(batch.ids);
+
+    BulkRequest bulk = new BulkRequest();
+    long bytes = 0;
+    for (Document document : documents) {
+      IndexRequest request = index.indexRequest(document, indexName);
+      bytes += request.source().length();
+      bulk.add(request);
+    }
+
+    throttle.acquire(documents.size(), bytes);
+
+    for (int attempt = 1;; attempt++) {
+      try {
+        Set<String> failed = index.executeBulk(bulk);
+        return failed.size();
+      } catch (IndexMaintenanceException e) {
+        if (attempt > maxRetries)
+          throw e;
+
+        LOGGER.warn("Bulk request during index rebuild failed - retrying ({}/{})", attempt, maxRetries, e);
+        Thread.sleep(retryBackoffMillis * attempt);
+      }
+    }
+  }
+
+  /**
+   * Return the ids of all documents in listing order. The underlying listing may report a document
+   * once per stored object, so consecutive duplicates are dropped.
+   */
+  private Stream<String> documentIds() {
+    String[] last = new String[1];
+    return documentService.getAllDocumentIds() //
+        .filter(Objects::nonNull) //
+        .filter(id -> {
+          boolean duplicate = id.equals(last[0]);
+          last[0] = id;
+          return !duplicate;
+        });
+  }
+
+  /**
+   * Return the persisted checkpoint if it is resumable.
+   */
+  private Checkpoint resumableCheckpoint() {
+    Checkpoint checkpoint = loadCheckpoint();
+    return null != checkpoint && isResumable(checkpoint) ? checkpoint : null;
+  }
+
+  /**
+   * Return whether the given checkpoint belongs to the index the write alias points to and that
+   * index still matches the current schema.
+   */
+  private boolean isResumable(final Checkpoint checkpoint) {
+    try {
+      String writeIndexName = index.getIndexNameFromAlias(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
+      if (checkpoint.getIndexName().equals(writeIndexName) && index.matchesCurrentSchema(writeIndexName))
+        return true;
+    } catch (IOException e) {
+      LOGGER.warn("Can't verify index rebuild checkpoint for index {}", checkpoint.getIndexName(), e);
+    }
+
+    LOGGER.info("Discarding stale index rebuild checkpoint for index {}", checkpoint.getIndexName());
+    return false;
+  }
+
+  /**
+   * Point the write alias back at the index the read alias points to after a failed rebuild into
+   * the given index. If there is no such index, the write alias is left alone.
+   */
+  private void restoreWriteAlias(final String rebuildIndexName) {
+    try {
+      String readIndexName = index.getIndexNameFromAlias(ElasticsearchDocumentIndex.INDEX_ALIAS_READ);
+      if (null != readIndexName && !readIndexName.equals(rebuildIndexName)) {
+        index.setAliasForIndex(readIndexName, ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE);
+        LOGGER.info("Write alias restored to {} after failed index rebuild into {}", readIndexName,
+            rebuildIndexName);
+      }
+    } catch (IOException e) {
+      LOGGER.error("Can't restore write alias after failed index rebuild into {}", rebuildIndexName, e);
+    }
+  }
+
+  /**
+   * Delete the partially built index of a rebuild which can't be resumed, unless one of the aliases
+   * still points to it.
+   */
+  private void deleteStaleIndex(final String indexName) {
+    try {
+      if (!indexName.equals(index.getIndexNameFromAlias(ElasticsearchDocumentIndex.INDEX_ALIAS_READ))
+          && !indexName.equals(index.getIndexNameFromAlias(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE))) {
+        index.deleteIndex(indexName);
+        LOGGER.info("Deleted stale index {} of an earlier index rebuild", indexName);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Can't delete stale index {} of an earlier index rebuild", indexName, e);
+    }
+  }
+
+  private Checkpoint loadCheckpoint() {
+    if (null == objectStore)
+      return null;
+
+    try {
+      StoreObject storeObject = objectStore.get(CHECKPOINT_NAME);
+      if (null == storeObject)
+        return null;
+
+      return objectMapper.readValue(storeObject.getInputStream(), Checkpoint.class);
+    } catch (Exception e) {
+      LOGGER.warn("Can't read index rebuild checkpoint", e);
+      return null;
+    }
+  }
+
+  private void saveCheckpoint(final Checkpoint checkpoint) {
+    if (null == objectStore)
+      return;
+
+    try {
+      byte[] data = objectMapper.writeValueAsBytes(checkpoint);
+      inTransaction(() -> {
+        StoreObject existing = objectStore.get(CHECKPOINT_NAME);
+        objectStore.put(CHECKPOINT_NAME, null != existing ? existing.getVersion() : ObjectStoreService.NEW_VERSION,
+            new ByteArrayInputStream(data), data.length);
+      });
+    } catch (Exception e) {
+      // not fatal: we'll just have to redo a little more work when resuming
+      LOGGER.warn("Can't write index rebuild checkpoint", e);
+    }
+  }
+
+  private void deleteCheckpoint() {
+    if (null == objectStore)
+      return;
+
+    try {
+      inTransaction(() -> objectStore.delete(CHECKPOINT_NAME));
+    } catch (Exception e) {
+      LOGGER.warn("Can't delete index rebuild checkpoint", e);
+    }
+  }
+
+  private void inTransaction(final Runnable r) {
+    if (null == transactionTemplate) {
+      r.run();
+      return;
+    }
+
+    transactionTemplate.execute(txStatus -> {
+      r.run();
+      return null;
+    });
+  }
+}
@@ -2,6 +2,8 @@ package com.neverpile.eureka.search.elastic;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
 
 import org.elasticsearch.action.search.SearchRequest;
@@ -15,17 +17,27 @@ import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.neverpile.common.util.VisibleForTesting;
 import com.neverpile.eureka.api.DocumentService;
 import com.neverpile.eureka.api.index.DocumentQuery;
 import com.neverpile.eureka.api.index.QueryService;
+import com.neverpile.eureka.api.index.ResultPage;
 import com.neverpile.eureka.model.Document;
+import com.neverpile.eureka.rest.api.exception.BadInputParameter;
 
 @Service
 public class ElasticsearchQueryService implements QueryService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchQueryService.class);
+
+  private static final String ID_FIELD = "documentId";
+
   @Autowired
   private DocumentService documentService;
 
@@ -35,13 +47,54 @@ public class ElasticsearchQueryService implements QueryService {
   @Autowired
   private ElasticsearchDocumentIndex elasticsearchIndex;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
   @Override
   public List<Document> queryDocuments(final DocumentQuery searchQuery) {
     return documentService.getDocuments(searchDocument(searchQuery, ElasticsearchDocumentIndex.INDEX_ALIAS_READ));
   }
 
+  @Override
+  public ResultPage<JsonNode> queryIndexData(final DocumentQuery searchQuery, final Collection<String> facetNames) {
+    return searchIndexData(searchQuery, ElasticsearchDocumentIndex.INDEX_ALIAS_READ, facetNames);
+  }
+
+  @VisibleForTesting
+  ResultPage<JsonNode> searchIndexData(final DocumentQuery searchQuery, final String index,
+      final Collection<String> facetNames) {
+    SearchRequest searchRequest = createSearchRequest(searchQuery, index);
+    if (null != facetNames) {
+      searchRequest.source().fetchSource(facetNames.toArray(new String[facetNames.size()]), null);
+    }
+
+    List<JsonNode> results = new ArrayList<>();
+    String nextCursor = null;
+    try {
+      SearchHit[] hits = search(searchRequest).getHits();
+      for (SearchHit hit : hits) {
+        results.add(objectMapper.readTree(hit.getSourceAsString()));
+      }
+
+      // a short page is the last one
+      if (hits.length > 0 && hits.length >= searchQuery.getPageSize()) {
+        nextCursor = encodeCursor(hits[hits.length - 1].getSortValues());
+      }
+    } catch (IOException e) {
+      LOGGER.error("Failed to query index data", e);
+    }
+    return new ResultPage<>(results, nextCursor);
+  }
+
   @VisibleForTesting
   List<String> searchDocument(final DocumentQuery searchQuery, final String index) {
+    SearchRequest searchRequest = createSearchRequest(searchQuery, index);
+    searchRequest.source().fetchSource(ID_FIELD, null);
+
+    return getSearchResultDocumentIds(searchRequest);
+  }
+
+  private SearchRequest createSearchRequest(final DocumentQuery searchQuery, final String index) {
     QueryBuilder requestQueryBuilder = ElasticsearchQueryBuilder.getQueryBuilderFor(searchQuery,
         elasticsearchIndex.getIndexSchema());
 
@@ -60,23 +113,57 @@ public class ElasticsearchQueryService implements QueryService {
       searchSourceBuilder.sort(sortBuilder);
     }
 
-    searchSourceBuilder.from(searchQuery.getPageNo() * searchQuery.getPageSize());
+    // the document id serves as a tiebreaker, so that the order is total and cursors are stable
+    searchSourceBuilder.sort(new FieldSortBuilder(ID_FIELD).order(SortOrder.ASC));
+
+    if (null != searchQuery.getCursor()) {
+      searchSourceBuilder.searchAfter(decodeCursor(searchQuery.getCursor()));
+    } else {
+      searchSourceBuilder.from(searchQuery.getPageNo() * searchQuery.getPageSize());
+    }
     searchSourceBuilder.size(searchQuery.getPageSize());
 
     SearchRequest searchRequest = new SearchRequest(index);
     searchRequest.source(searchSourceBuilder);
 
-    return getSearchResultDocumentIds(searchRequest);
+    return searchRequest;
+  }
+
+  /**
+   * Encode the sort values of a hit as an opaque, URL-safe cursor.
+   */
+  @VisibleForTesting
+  String encodeCursor(final Object[] sortValues) throws IOException {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(sortValues));
+  }
+
+  /**
+   * Decode a cursor previously returned by {@link #encodeCursor(Object[])}.
+   *
+   * @throws BadInputParameter if the cursor is malformed
+   */
+  @VisibleForTesting
+  Object[] decodeCursor(final String cursor) {
+    try {
+      return objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), Object[].class);
+    } catch (IOException | IllegalArgumentException e) {
+      LOGGER.debug("Invalid cursor {}", cursor, e);
+      throw new BadInputParameter("Invalid cursor supplied");
+    }
+  }
+
+  private SearchHits search(final SearchRequest searchRequest) throws IOException {
+    SearchResponse searchResponse = client.search(searchRequest, RequestOptions.DEFAULT);
+    return searchResponse.getHits();
   }
 
   private List<String> getSearchResultDocumentIds(final SearchRequest searchRequest) {
     try {
 
-      SearchResponse searchResponse = client.search(searchRequest, RequestOptions.DEFAULT);
-      SearchHits hits = searchResponse.getHits();
+      SearchHits hits = search(searchRequest);
       List<String> results = new ArrayList<>();
       for (SearchHit hit : hits) {
-        results.add((String) hit.getSourceAsMap().get("documentId"));
+        results.add((String) hit.getSourceAsMap().get(ID_FIELD));
       }
       return results;
     } catch (IOException e) {
@@ -15,7 +15,7 @@ import com.neverpile.eureka.impl.index.SynchronousIndexMaintenanceBridge;
 @ConditionalOnProperty(name = "neverpile-eureka.elastic.enabled", havingValue = "true", matchIfMissing = false)
 @Import({
     ElasticsearchDocumentIndex.class, ElasticsearchIndexMaintenanceService.class, ElasticsearchQueryService.class,
-    ElasticsearchIndexHealthCheck.class, NeverpileElasticsearchConfiguration.class
+    ElasticsearchIndexHealthCheck.class, ElasticsearchIndexRebuilder.class, NeverpileElasticsearchConfiguration.class
 })
 @EnableScheduling
 @EnableAsync
@@ -12,11 +12,197 @@ import org.springframework.stereotype.Component;
 @Component
 @ConfigurationProperties("neverpile-eureka.elastic")
 public class NeverpileElasticsearchConfiguration {
+  /**
+   * Bulk indexing settings used by the asynchronous index maintenance.
+   */
+  public static class Bulk {
+    /**
+     * The maximum number of actions submitted in one bulk request.
+     */
+    private int maxActions = 500;
+
+    /**
+     * The maximum (estimated) size of a bulk request in bytes.
+     */
+    private long maxBytes = 5 * 1024 * 1024;
+
+    /**
+     * The maximum time in milliseconds a claimed job waits for further jobs before the batch is
+     * flushed.
+     */
+    private long flushInterval = 200;
+
+    /**
+     * The number of threads used to resolve the documents of a batch.
+     */
+    private int resolverThreads = 8;
+
+    /**
+     * The number of times a failed job is retried before it is dropped.
+     */
+    private int maxRetries = 3;
+
+    /**
+     * The time in milliseconds to back off after a bulk request failed as a whole.
+     */
+    private long retryBackoff = 1000;
+
+    public int getMaxActions() {
+      return maxActions;
+    }
+
+    public void setMaxActions(final int maxActions) {
+      this.maxActions = maxActions;
+    }
+
+    public long getMaxBytes() {
+      return maxBytes;
+    }
+
+    public void setMaxBytes(final long maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    public long getFlushInterval() {
+      return flushInterval;
+    }
+
+    public void setFlushInterval(final long flushInterval) {
+      this.flushInterval = flushInterval;
+    }
+
+    public int getResolverThreads() {
+      return resolverThreads;
+    }
+
+    public void setResolverThreads(final int resolverThreads) {
+      this.resolverThreads = resolverThreads;
+    }
+
+    public int getMaxRetries() {
+      return maxRetries;
+    }
+
+    public void setMaxRetries(final int maxRetries) {
+      this.maxRetries = maxRetries;
+    }
+
+    public long getRetryBackoff() {
+      return retryBackoff;
+    }
+
+    public void setRetryBackoff(final long retryBackoff) {
+      this.retryBackoff = retryBackoff;
+    }
+  }
+
+  /**
+   * Settings of the index rebuild.
+   */
+  public static class Rebuild {
+    /**
+     * The number of workers resolving and indexing documents in parallel.
+     */
+    private int workers = 4;
+
+    /**
+     * The number of documents indexed in one bulk request.
+     */
+    private int batchSize = 500;
+
+    /**
+     * The maximum number of documents indexed per second. 0 disables the limit.
+     */
+    private double maxDocumentsPerSecond = 0;
+
+    /**
+     * The maximum number of bytes of index data written per second. 0 disables the limit.
+     */
+    private double maxBytesPerSecond = 0;
+
+    /**
+     * The interval in milliseconds at which the progress is persisted as a checkpoint from
+     * which an interrupted rebuild is resumed.
+     */
+    private long checkpointInterval = 10000;
+
+    /**
+     * The number of times a failed bulk request is retried before the rebuild is aborted.
+     */
+    private int maxRetries = 3;
+
+    /**
+     * The time in milliseconds to back off after a bulk request failed, multiplied by the
+     * number of the attempt.
+     */
+    private long retryBackoff = 1000;
+
+    public int getWorkers() {
+      return workers;
+    }
+
+    public void setWorkers(final int workers) {
+      this.workers = workers;
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(final int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    public double getMaxDocumentsPerSecond() {
+      return maxDocumentsPerSecond;
+    }
+
+    public void setMaxDocumentsPerSecond(final double maxDocumentsPerSecond) {
+      this.maxDocumentsPerSecond = maxDocumentsPerSecond;
+    }
+
+    public double getMaxBytesPerSecond() {
+      return maxBytesPerSecond;
+    }
+
+    public void setMaxBytesPerSecond(final double maxBytesPerSecond) {
+      this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    public long getCheckpointInterval() {
+      return checkpointInterval;
+    }
+
+    public void setCheckpointInterval(final long checkpointInterval) {
+      this.checkpointInterval = checkpointInterval;
+    }
+
+    public int getMaxRetries() {
+      return maxRetries;
+    }
+
+    public void setMaxRetries(final int maxRetries) {
+      this.maxRetries = maxRetries;
+    }
+
+    public long getRetryBackoff() {
+      return retryBackoff;
+    }
+
+    public void setRetryBackoff(final long retryBackoff) {
+      this.retryBackoff = retryBackoff;
+    }
+  }
+
   /**
    * Whether to enable the elasticsearch subsystem.
    */
   private boolean enabled;
 
+  private Bulk bulk = new Bulk();
+
+  private Rebuild rebuild = new Rebuild();
+
   public boolean isEnabled() {
     return enabled;
   }
@@ -24,4 +210,20 @@ public class NeverpileElasticsearchConfiguration {
   public void setEnabled(final boolean enabled) {
     this.enabled = enabled;
   }
+
+  public Bulk getBulk() {
+    return bulk;
+  }
+
+  public void setBulk(final Bulk bulk) {
+    this.bulk = bulk;
+  }
+
+  public Rebuild getRebuild() {
+    return rebuild;
+  }
+
+  public void setRebuild(final Rebuild rebuild) {
+    this.rebuild = rebuild;
+  }
 }
@@ -0,0 +1,278 @@
+package com.neverpile.eureka.search.elastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.neverpile.eureka.api.DocumentService;
+import com.neverpile.eureka.api.index.IndexMaintenanceException;
+import com.neverpile.eureka.impl.tasks.LocalTaskQueue;
+import com.neverpile.eureka.model.Document;
+import com.neverpile.eureka.search.elastic.AsynchronousIndexMaintenanceService.EventType;
+import com.neverpile.eureka.tasks.TaskQueue.ProcessElement;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AsynchronousIndexMaintenanceServiceTest {
+
+  private final LocalTaskQueue<EventType> queue = new LocalTaskQueue<>();
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final ExecutorService resolver = Executors.newFixedThreadPool(2);
+
+  private ElasticsearchDocumentIndex index;
+
+  private DocumentService documentService;
+
+  private AsynchronousIndexMaintenanceService service;
+
+  @Before
+  public void setUp() {
+    index = mock(ElasticsearchDocumentIndex.class);
+    given(index.indexRequest(any(), anyString())).willAnswer(
+        i -> new IndexRequest((String) i.getArgument(1)).id(((Document) i.getArgument(0)).getDocumentId()).source(
+            Collections.singletonMap("foo", "bar")));
+    given(index.updateRequest(any(), anyString())).willAnswer(
+        i -> new UpdateRequest((String) i.getArgument(1), ((Document) i.getArgument(0)).getDocumentId()).doc(
+            Collections.singletonMap("foo", "bar")));
+    given(index.deleteRequest(anyString(), anyString())).willAnswer(
+        i -> new DeleteRequest((String) i.getArgument(1), (String) i.getArgument(0)));
+    given(index.executeBulk(any())).willReturn(Collections.emptySet());
+
+    documentService = mock(DocumentService.class);
+    given(documentService.getDocument(anyString())).willAnswer(
+        i -> Optional.of(new Document(i.getArgument(0))));
+
+    service = new AsynchronousIndexMaintenanceService();
+    service.documentService = documentService;
+    service.indexMaintenanceQueue = queue;
+    service.maxRetries = 2;
+    service.retryBackoffMillis = 0;
+    ReflectionTestUtils.setField(service, "index", index);
+    ReflectionTestUtils.setField(service, "resolver", resolver);
+    ReflectionTestUtils.setField(service, "processedCounter", meterRegistry.counter("processed"));
+    ReflectionTestUtils.setField(service, "retriedCounter", meterRegistry.counter("retried"));
+    ReflectionTestUtils.setField(service, "droppedCounter", meterRegistry.counter("dropped"));
+    ReflectionTestUtils.setField(service, "batchSizeSummary", meterRegistry.summary("batch-size"));
+  }
+
+  @After
+  public void tearDown() {
+    resolver.shutdownNow();
+  }
+
+  @Test
+  public void testThat_batchIsSubmittedAsSingleBulk() {
+    queue.putInQueue("a", EventType.CREATE);
+    queue.putInQueue("b", EventType.UPDATE);
+    queue.putInQueue("c", EventType.DELETE);
+
+    processNextBatch();
+
+    ArgumentCaptor<BulkRequest> bulk = ArgumentCaptor.forClass(BulkRequest.class);
+    verify(index).executeBulk(bulk.capture());
+    assertEquals(3, bulk.getValue().numberOfActions());
+    assertEquals(DocWriteRequest.OpType.INDEX, requestFor(bulk.getValue(), "a").opType());
+    assertEquals(DocWriteRequest.OpType.UPDATE, requestFor(bulk.getValue(), "b").opType());
+    assertEquals(DocWriteRequest.OpType.DELETE, requestFor(bulk.getValue(), "c").opType());
+
+    // deletions don't need the document
+    verify(documentService, never()).getDocument("c");
+
+    assertTrue(queue.claimBatch(10).isEmpty());
+    assertEquals(3, meterRegistry.counter("processed").count(), 0);
+  }
+
+  @Test
+  public void testThat_bulkIsSplitAtSizeLimit() {
+    service.bulkMaxBytes = 1;
+    queue.putInQueue("a", EventType.CREATE);
+    queue.putInQueue("b", EventType.CREATE);
+    queue.putInQueue("c", EventType.CREATE);
+
+    processNextBatch();
+
+    verify(index, times(3)).executeBulk(any());
+    assertTrue(queue.claimBatch(10).isEmpty());
+  }
+
+  @Test
+  public void testThat_onlyFailedItemsAreRetried() {
+    queue.putInQueue("a", EventType.CREATE);
+    queue.putInQueue("b", EventType.UPDATE);
+    queue.putInQueue("c", EventType.CREATE);
+    given(index.executeBulk(any())).willReturn(Collections.singleton("b"));
+
+    processNextBatch();
+
+    List<ProcessElement<EventType>> retried = queue.claimBatch(10);
+    assertEquals(1, retried.size());
+    assertEquals("b", retried.get(0).getKey());
+    assertEquals(EventType.UPDATE, retried.get(0).getValue());
+
+    assertEquals(2, meterRegistry.counter("processed").count(), 0);
+    assertEquals(1, meterRegistry.counter("retried").count(), 0);
+  }
+
+  @Test
+  public void testThat_allItemsAreRetriedIfBulkFails() {
+    queue.putInQueue("a", EventType.CREATE);
+    queue.putInQueue("b", EventType.DELETE);
+    given(index.executeBulk(any())).willThrow(new IndexMaintenanceException("Bulk indexing failed", null));
+
+    processNextBatch();
+
+    assertEquals(keys("a", "b"), keysOf(queue.claimBatch(10)));
+    assertEquals(0, meterRegistry.counter("processed").count(), 0);
+    assertEquals(2, meterRegistry.counter("retried").count(), 0);
+  }
+
+  @Test
+  public void testThat_itemIsDroppedAfterMaxRetries() {
+    queue.putInQueue("a", EventType.CREATE);
+    given(index.executeBulk(any())).willReturn(Collections.singleton("a"));
+
+    // initial attempt plus maxRetries retries
+    for (int i = 0; i <= service.maxRetries; i++) {
+      processNextBatch();
+    }
+
+    assertTrue(queue.claimBatch(10).isEmpty());
+    assertEquals(2, meterRegistry.counter("retried").count(), 0);
+    assertEquals(1, meterRegistry.counter("dropped").count(), 0);
+  }
+
+  @Test
+  public void testThat_retryCountIsResetOnSuccess() {
+    queue.putInQueue("a", EventType.CREATE);
+    given(index.executeBulk(any())).willReturn(Collections.singleton("a"), Collections.singleton("a"),
+        Collections.emptySet());
+
+    processNextBatch();
+    processNextBatch();
+    processNextBatch();
+
+    // a fresh job for the same document gets the full number of retries again
+    queue.putInQueue("a", EventType.UPDATE);
+    given(index.executeBulk(any())).willReturn(Collections.singleton("a"));
+    processNextBatch();
+    processNextBatch();
+
+    assertEquals(keys("a"), keysOf(queue.claimBatch(10)));
+    assertEquals(0, meterRegistry.counter("dropped").count(), 0);
+  }
+
+  @Test
+  public void testThat_supersededItemIsNotRetried() {
+    queue.putInQueue("a", EventType.CREATE);
+    List<ProcessElement<EventType>> batch = queue.claimBatch(10);
+
+    // a newer job for the same document arrives while the batch is in flight
+    queue.putInQueue("a", EventType.DELETE);
+    given(index.executeBulk(any())).willReturn(Collections.singleton("a"));
+
+    ReflectionTestUtils.invokeMethod(service, "processBatch", batch);
+
+    // the newer job is still there, the failed one has not been re-enqueued on top of it
+    List<ProcessElement<EventType>> remaining = queue.claimBatch(10);
+    assertEquals(1, remaining.size());
+    assertEquals(EventType.DELETE, remaining.get(0).getValue());
+    assertEquals(0, meterRegistry.counter("retried").count(), 0);
+  }
+
+  @Test
+  public void testThat_supersededItemIsNotMarkedDone() {
+    queue.putInQueue("a", EventType.CREATE);
+    List<ProcessElement<EventType>> batch = queue.claimBatch(10);
+    queue.putInQueue("a", EventType.UPDATE);
+
+    ReflectionTestUtils.invokeMethod(service, "processBatch", batch);
+
+    assertEquals(keys("a"), keysOf(queue.claimBatch(10)));
+  }
+
+  @Test
+  public void testThat_missingDocumentIsRemovedFromQueue() {
+    queue.putInQueue("a", EventType.CREATE);
+    given(documentService.getDocument("a")).willReturn(Optional.empty());
+
+    processNextBatch();
+
+    assertTrue(queue.claimBatch(10).isEmpty());
+    assertEquals(0, meterRegistry.counter("retried").count(), 0);
+  }
+
+  @Test
+  public void testThat_unresolvableDocumentIsRetried() {
+    queue.putInQueue("a", EventType.CREATE);
+    queue.putInQueue("b", EventType.CREATE);
+    given(documentService.getDocument("a")).willThrow(new IllegalStateException("unavailable"));
+
+    processNextBatch();
+
+    ArgumentCaptor<BulkRequest> bulk = ArgumentCaptor.forClass(BulkRequest.class);
+    verify(index).executeBulk(bulk.capture());
+    assertEquals(1, bulk.getValue().numberOfActions());
+    assertEquals(keys("a"), keysOf(queue.claimBatch(10)));
+    assertEquals(1, meterRegistry.counter("retried").count(), 0);
+  }
+
+  @Test
+  public void testThat_claimedItemsAreReopenedOnUnexpectedFailure() {
+    queue.putInQueue("a", EventType.CREATE);
+    queue.putInQueue("b", EventType.DELETE);
+    given(index.deleteRequest(anyString(), anyString())).willThrow(new IllegalStateException("unexpected"));
+
+    processNextBatch();
+
+    verify(index, never()).executeBulk(any());
+    assertEquals(keys("a", "b"), keysOf(queue.claimBatch(10)));
+    assertEquals(2, meterRegistry.counter("retried").count(), 0);
+  }
+
+  private void processNextBatch() {
+    List<ProcessElement<EventType>> batch = queue.claimBatch(service.bulkMaxActions);
+    ReflectionTestUtils.invokeMethod(service, "processBatchOrRetry", batch);
+  }
+
+  private static DocWriteRequest<?> requestFor(final BulkRequest bulk, final String id) {
+    return bulk.requests().stream().filter(r -> r.id().equals(id)).findFirst().orElseThrow(AssertionError::new);
+  }
+
+  private static Set<String> keysOf(final List<ProcessElement<EventType>> elements) {
+    return elements.stream().map(ProcessElement::getKey).collect(Collectors.toSet());
+  }
+
+  private static Set<String> keys(final String... keys) {
+    return new HashSet<>(Arrays.asList(keys));
+  }
+}
@@ -0,0 +1,324 @@
+package com.neverpile.eureka.search.elastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.elasticsearch.action.index.IndexRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.api.DocumentService;
+import com.neverpile.eureka.api.ObjectStoreService;
+import com.neverpile.eureka.api.ObjectStoreService.StoreObject;
+import com.neverpile.eureka.api.index.IndexMaintenanceException;
+import com.neverpile.eureka.api.index.RebuildStatus.State;
+import com.neverpile.eureka.model.Document;
+import com.neverpile.eureka.model.ObjectName;
+import com.neverpile.eureka.search.elastic.ElasticsearchIndexRebuilder.Batch;
+import com.neverpile.eureka.search.elastic.ElasticsearchIndexRebuilder.Checkpoint;
+import com.neverpile.eureka.search.elastic.ElasticsearchIndexRebuilder.Run;
+import com.neverpile.eureka.search.elastic.ElasticsearchIndexRebuilder.Throttle;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ElasticsearchIndexRebuilderTest {
+
+  private static final List<String> IDS = Arrays.asList("d1", "d2", "d3", "d4", "d5");
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final Map<String, String> aliases = new HashMap<>();
+
+  private final Map<ObjectName, byte[]> objects = new HashMap<>();
+
+  private final List<List<String>> resolvedBatches = Collections.synchronizedList(new ArrayList<>());
+
+  private ElasticsearchDocumentIndex index;
+
+  private DocumentService documentService;
+
+  private ElasticsearchIndexRebuilder rebuilder;
+
+  @Before
+  public void setUp() throws Exception {
+    index = mock(ElasticsearchDocumentIndex.class);
+    given(index.createIndex()).willReturn("new");
+    given(index.matchesCurrentSchema(anyString())).willReturn(true);
+    given(index.getIndexNameFromAlias(anyString())).willAnswer(i -> aliases.get(i.getArgument(0)));
+    willAnswer(i -> aliases.put(i.getArgument(1), i.getArgument(0))).given(index).setAliasForIndex(anyString(),
+        anyString());
+    given(index.indexRequest(any(), anyString())).willAnswer(
+        i -> new IndexRequest((String) i.getArgument(1)).id(((Document) i.getArgument(0)).getDocumentId()).source(
+            Collections.singletonMap("foo", "bar")));
+    given(index.executeBulk(any())).willReturn(Collections.emptySet());
+
+    documentService = mock(DocumentService.class);
+    given(documentService.getAllDocumentIds()).willAnswer(i -> IDS.stream());
+    given(documentService.getDocuments(any())).willAnswer(i -> {
+      List<String> ids = i.getArgument(0);
+      resolvedBatches.add(ids);
+      return ids.stream().map(Document::new).collect(Collectors.toList());
+    });
+
+    ObjectStoreService objectStore = mock(ObjectStoreService.class);
+    given(objectStore.get(any())).willAnswer(i -> storeObject(i.getArgument(0)));
+    willAnswer(i -> objects.put(i.getArgument(0), ((InputStream) i.getArgument(2)).readAllBytes())) //
+        .given(objectStore).put(any(), any(), any(), anyLong());
+    willAnswer(i -> objects.remove(i.getArgument(0))).given(objectStore).delete(any());
+
+    rebuilder = new ElasticsearchIndexRebuilder();
+    rebuilder.workers = 1;
+    rebuilder.batchSize = 2;
+    rebuilder.maxRetries = 0;
+    rebuilder.retryBackoffMillis = 0;
+    ReflectionTestUtils.setField(rebuilder, "index", index);
+    ReflectionTestUtils.setField(rebuilder, "documentService", documentService);
+    ReflectionTestUtils.setField(rebuilder, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(rebuilder, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(rebuilder, "objectStore", objectStore);
+  }
+
+  @Test
+  public void testThat_rebuildIndexesAllDocumentsAndSwitchesAliases() throws Exception {
+    aliases.put(ElasticsearchDocumentIndex.INDEX_ALIAS_READ, "old");
+    aliases.put(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE, "old");
+
+    rebuilder.rebuild();
+
+    assertEquals(Arrays.asList(ids("d1", "d2"), ids("d3", "d4"), ids("d5")), resolvedBatches);
+    assertEquals("new", aliases.get(ElasticsearchDocumentIndex.INDEX_ALIAS_READ));
+    assertEquals("new", aliases.get(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE));
+    verify(index).deleteIndex("old");
+    assertNull(checkpoint());
+
+    assertEquals(State.COMPLETED, rebuilder.getStatus().getState());
+    assertEquals(5, rebuilder.getStatus().getProcessedDocuments());
+  }
+
+  @Test
+  public void testThat_totalIsTakenFromSingleListing() throws Exception {
+    aliases.put(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE, "old");
+
+    rebuilder.rebuild();
+
+    verify(documentService, times(1)).getAllDocumentIds();
+    assertEquals(5, rebuilder.getStatus().getTotalDocuments());
+  }
+
+  @Test
+  public void testThat_rebuildResumesFromCheckpoint() throws Exception {
+    aliases.put(ElasticsearchDocumentIndex.INDEX_ALIAS_READ, "old");
+    aliases.put(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE, "partial");
+    saveCheckpoint("partial", 2, "d2", 2);
+
+    rebuilder.rebuild();
+
+    // completed batches are skipped
+    verify(index, never()).createIndex();
+    assertEquals(Arrays.asList(ids("d3", "d4"), ids("d5")), resolvedBatches);
+    assertEquals("partial", aliases.get(ElasticsearchDocumentIndex.INDEX_ALIAS_READ));
+    verify(index).deleteIndex("old");
+
+    assertEquals(2, rebuilder.getStatus().getResumedAt());
+    assertEquals(5, rebuilder.getStatus().getProcessedDocuments());
+  }
+
+  @Test
+  public void testThat_rebuildStartsOverIfListingChanged() throws Exception {
+    aliases.put(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE, "partial");
+    saveCheckpoint("partial", 2, "d0", 2);
+
+    rebuilder.rebuild();
+
+    assertEquals(Arrays.asList(ids("d1", "d2"), ids("d3", "d4"), ids("d5")), resolvedBatches);
+    assertEquals(5, rebuilder.getStatus().getProcessedDocuments());
+  }
+
+  @Test
+  public void testThat_checkpointIsSavedAndWriteAliasRestoredOnFailure() throws Exception {
+    aliases.put(ElasticsearchDocumentIndex.INDEX_ALIAS_READ, "old");
+    aliases.put(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE, "old");
+    given(index.executeBulk(any())).willReturn(Collections.emptySet()).willThrow(
+        new IndexMaintenanceException("Bulk indexing failed"));
+
+    try {
+      rebuilder.rebuild();
+      fail("Expected the rebuild to fail");
+    } catch (IndexMaintenanceException e) {
+      // expected
+    }
+
+    Checkpoint checkpoint = checkpoint();
+    assertNotNull(checkpoint);
+    assertEquals("new", checkpoint.getIndexName());
+    assertEquals(2, checkpoint.getPosition());
+    assertEquals("d2", checkpoint.getLastDocumentId());
+    assertEquals(2, checkpoint.getProcessed());
+
+    assertEquals("old", aliases.get(ElasticsearchDocumentIndex.INDEX_ALIAS_READ));
+    assertEquals("old", aliases.get(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE));
+    verify(index, never()).deleteIndex(anyString());
+    assertEquals(State.FAILED, rebuilder.getStatus().getState());
+  }
+
+  @Test
+  public void testThat_writeAliasIsKeptOnFailureWithoutReadIndex() throws Exception {
+    given(index.executeBulk(any())).willReturn(Collections.emptySet()).willThrow(
+        new IndexMaintenanceException("Bulk indexing failed"));
+
+    try {
+      rebuilder.rebuild();
+      fail("Expected the rebuild to fail");
+    } catch (IndexMaintenanceException e) {
+      // expected
+    }
+    assertEquals("new", aliases.get(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE));
+
+    // so the next rebuild resumes
+    willReturn(Collections.emptySet()).given(index).executeBulk(any());
+    resolvedBatches.clear();
+    rebuilder.rebuild();
+
+    verify(index).createIndex();
+    assertEquals(Arrays.asList(ids("d3", "d4"), ids("d5")), resolvedBatches);
+    assertEquals("new", aliases.get(ElasticsearchDocumentIndex.INDEX_ALIAS_READ));
+  }
+
+  @Test
+  public void testThat_staleIndexOfFailedRebuildIsDeleted() throws Exception {
+    aliases.put(ElasticsearchDocumentIndex.INDEX_ALIAS_READ, "old");
+    aliases.put(ElasticsearchDocumentIndex.INDEX_ALIAS_WRITE, "old");
+    saveCheckpoint("partial", 2, "d2", 2);
+
+    rebuilder.rebuild();
+
+    verify(index).deleteIndex("partial");
+    assertEquals(Arrays.asList(ids("d1", "d2"), ids("d3", "d4"), ids("d5")), resolvedBatches);
+    assertEquals("new", aliases.get(ElasticsearchDocumentIndex.INDEX_ALIAS_READ));
+  }
+
+  @Test
+  public void testThat_checkpointOnlyAdvancesAcrossLeadingCompletedBatches() {
+    Checkpoint checkpoint = new Checkpoint();
+    Run run = new Run(checkpoint);
+    Batch b1 = new Batch(ids("d1", "d2"), 2);
+    Batch b2 = new Batch(ids("d3", "d4"), 4);
+    Batch b3 = new Batch(ids("d5"), 5);
+    run.submitted(b1);
+    run.submitted(b2);
+    run.submitted(b3);
+
+    run.completed(b2, 0);
+    assertEquals(0, checkpoint.getPosition());
+    assertNull(checkpoint.getLastDocumentId());
+
+    run.completed(b1, 1);
+    assertEquals(4, checkpoint.getPosition());
+    assertEquals("d4", checkpoint.getLastDocumentId());
+    assertEquals(3, checkpoint.getProcessed());
+    assertEquals(1, checkpoint.getFailed());
+
+    run.completed(b3, 0);
+    assertEquals(5, checkpoint.getPosition());
+    assertEquals("d5", checkpoint.getLastDocumentId());
+    assertEquals(4, checkpoint.getProcessed());
+  }
+
+  @Test
+  public void testThat_throttleLimitsDocumentRate() throws Exception {
+    Throttle throttle = new Throttle(100, 0);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 3; i++) {
+      throttle.acquire(10, 1000000);
+    }
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    // the first permit is free, the others cost 100ms each
+    assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 190);
+  }
+
+  @Test
+  public void testThat_throttleLimitsByteRate() throws Exception {
+    Throttle throttle = new Throttle(0, 1000);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 3; i++) {
+      throttle.acquire(1000, 100);
+    }
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 190);
+  }
+
+  @Test
+  public void testThat_throttleCanBeDisabled() throws Exception {
+    Throttle throttle = new Throttle(0, 0);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 1000; i++) {
+      throttle.acquire(1000, 1000000);
+    }
+
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+  }
+
+  private static List<String> ids(final String... ids) {
+    return Arrays.asList(ids);
+  }
+
+  private void saveCheckpoint(final String indexName, final long position, final String lastDocumentId,
+      final long processed) throws IOException {
+    Checkpoint checkpoint = new Checkpoint();
+    checkpoint.setIndexName(indexName);
+    checkpoint.setPosition(position);
+    checkpoint.setLastDocumentId(lastDocumentId);
+    checkpoint.setProcessed(processed);
+    checkpoint.setUpdatedAt(System.currentTimeMillis());
+    objects.put(ElasticsearchIndexRebuilder.CHECKPOINT_NAME, objectMapper.writeValueAsBytes(checkpoint));
+  }
+
+  private Checkpoint checkpoint() throws IOException {
+    byte[] data = objects.get(ElasticsearchIndexRebuilder.CHECKPOINT_NAME);
+    return null != data ? objectMapper.readValue(data, Checkpoint.class) : null;
+  }
+
+  private StoreObject storeObject(final ObjectName name) {
+    byte[] data = objects.get(name);
+    if (null == data)
+      return null;
+
+    StoreObject storeObject = mock(StoreObject.class);
+    given(storeObject.getObjectName()).willReturn(name);
+    given(storeObject.getVersion()).willReturn("1");
+    given(storeObject.getInputStream()).willReturn(new ByteArrayInputStream(data));
+    return storeObject;
+  }
+}
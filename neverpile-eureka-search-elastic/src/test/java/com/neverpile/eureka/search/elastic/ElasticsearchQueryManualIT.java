@@ -9,9 +9,11 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.ws.rs.core.MediaType;
 
@@ -29,6 +31,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -38,6 +41,7 @@ import com.neverpile.common.condition.Condition;
 import com.neverpile.common.condition.EqualsCondition;
 import com.neverpile.common.condition.RangeCondition;
 import com.neverpile.eureka.api.index.DocumentQuery;
+import com.neverpile.eureka.api.index.ResultPage;
 import com.neverpile.eureka.model.Document;
 import com.neverpile.eureka.model.EncryptionType;
 import com.neverpile.eureka.plugin.metadata.rest.MetadataFacet;
@@ -100,6 +104,31 @@ public class ElasticsearchQueryManualIT extends AbstractManualIT {
     Assert.assertTrue(response.contains("id11"));
   }
 
+  @Test
+  public void testThat_allObjectsCanBePagedThroughUsingCursors() throws IOException, InterruptedException {
+    for (int i = 0; i < 20; i++) {
+      client.index(new IndexRequest(testIndexName).id("id" + i).source(getTestDocMap(i), XContentType.JSON),
+          RequestOptions.DEFAULT);
+    }
+
+    // wait for index to process
+    Thread.sleep(1000);
+
+    DocumentQuery testQuery = new DocumentQuery(new AndCondition(), "dateCreated", DocumentQuery.SortOrder.DESC, 0, 6);
+
+    Set<String> seen = new HashSet<>();
+    int pages = 0;
+    do {
+      ResultPage<JsonNode> page = elasticsearchQueryService.searchIndexData(testQuery, testIndexName, null);
+      page.getResults().forEach(n -> seen.add(n.get("documentId").asText()));
+      testQuery.setCursor(page.getNextCursor());
+      pages++;
+    } while (null != testQuery.getCursor());
+
+    Assert.assertEquals(20, seen.size());
+    Assert.assertEquals(4, pages);
+  }
+
   @Test
   public void testThat_metadataQueryingWorks() throws IOException, InterruptedException {
     // place one document with plenty of metadata into index
@@ -0,0 +1,44 @@
+package com.neverpile.eureka.search.elastic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverpile.eureka.rest.api.exception.BadInputParameter;
+
+public class ElasticsearchQueryServiceTest {
+  private ElasticsearchQueryService service;
+
+  @Before
+  public void setUp() {
+    service = new ElasticsearchQueryService();
+    ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+  }
+
+  @Test
+  public void testThat_cursorRoundTrips() throws Exception {
+    Object[] sortValues = {1500000000000L, "some-document"};
+
+    String cursor = service.encodeCursor(sortValues);
+
+    assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+    assertArrayEquals(sortValues, service.decodeCursor(cursor));
+  }
+
+  @Test(expected = BadInputParameter.class)
+  public void testThat_malformedCursorIsRejected() {
+    service.decodeCursor("not a cursor!");
+  }
+
+  @Test(expected = BadInputParameter.class)
+  public void testThat_cursorWithInvalidContentIsRejected() {
+    service.decodeCursor(Base64.getUrlEncoder().encodeToString("{\"foo\":".getBytes(StandardCharsets.UTF_8)));
+  }
+}
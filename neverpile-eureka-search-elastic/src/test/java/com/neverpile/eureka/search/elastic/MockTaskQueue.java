@@ -115,6 +115,22 @@ public class MockTaskQueue<T> implements TaskQueue<T> {
     return null;
   }
 
+  @Override
+  public List<TaskQueue.ProcessElement<T>> claimBatch(final String keyPrefix, final int maxElements) {
+    List<TaskQueue.ProcessElement<T>> batch = new ArrayList<>();
+    for (Entry<String, CacheData<T>> entry : queueCache.entrySet()) {
+      if (batch.size() >= maxElements)
+        break;
+
+      CacheData<T> data = entry.getValue();
+      if (data.getState() == State.OPEN && entry.getKey().startsWith(keyPrefix)) {
+        entry.setValue(new CacheData<>(data.getInfo(), State.INPROCESS));
+        batch.add(new TaskQueue.ProcessElement<>(entry.getKey(), data.getInfo()));
+      }
+    }
+    return batch;
+  }
+
   @Override
   public boolean removeProcessedElement(final String key) {
     if (queueCache.containsKey(key) && State.INPROCESS == queueCache.get(key).getState()) {
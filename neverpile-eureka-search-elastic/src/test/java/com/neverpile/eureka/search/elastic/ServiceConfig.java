@@ -52,8 +52,13 @@ public class ServiceConfig {
     return index;
   }
 
+  @Bean
+  ElasticsearchIndexRebuilder getElasticsearchIndexRebuilder() {
+    return new ElasticsearchIndexRebuilder();
+  }
+
   @Bean
   TaskQueue<?> distributedPersistentQueue() {
     return new MockTaskQueue<>();
   }
-}
\ No newline at end of file
+}
\ No newline at end of file